@@ -1,37 +1,23 @@
 package com.ep18.couriersync.backend.common.audit;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.MappedSuperclass;
-import jakarta.persistence.PrePersist;
-import jakarta.persistence.PreUpdate;
-import jakarta.persistence.Transient;
 import lombok.Getter;
-import lombok.Setter;
 
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 
 /**
  * Clase base para entidades que requieren auditoría de creación y actualización.
- * Proporciona los campos `createdAt` y `updatedAt` que se gestionan automáticamente.
+ * Las columnas `created_at` y `updated_at` las mantiene la BD (DEFAULT y trigger, V8), así que
+ * también reflejan las escrituras hechas en SQL; desde JPA son de solo lectura.
  */
 @Getter
-@Setter
 @MappedSuperclass
 public abstract class AuditableEntity {
 
-    @Transient
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
     private OffsetDateTime createdAt;
 
-    @Transient
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false)
     private OffsetDateTime updatedAt;
-
-    @PrePersist
-    protected void onCreate() {
-        this.createdAt = this.updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
-    }
-
-    @PreUpdate
-    protected void onUpdate() {
-        this.updatedAt = OffsetDateTime.now(ZoneOffset.UTC);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.ep18.couriersync.backend.common.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV (RFC 4180) en streaming: un registro por llamada, con búfer propio de tamaño fijo,
+ * así la memoria no depende del tamaño del archivo. Admite campos entre comillas con comas,
+ * saltos de línea y comillas dobladas; acepta fin de línea LF o CRLF.
+ */
+public final class CsvReader implements Closeable {
+
+    private final Reader in;
+    private final char[] buf = new char[64 * 1024];
+    private int pos;
+    private int len;
+    private int line = 1;
+    private int recordLine;
+
+    /** El contenido no es CSV válido (a diferencia de un fallo de E/S del origen). */
+    public static final class MalformedCsvException extends IOException {
+        public MalformedCsvException(String message) {
+            super(message);
+        }
+    }
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Siguiente registro, o null al final. Las líneas vacías se saltan. */
+    public List<String> next() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c < 0) return null;
+            if (c == '\r' || c == '\n') {
+                endOfLine();
+                continue;
+            }
+            return readRecord();
+        }
+    }
+
+    /** Línea física (desde 1) en la que empieza el último registro devuelto. */
+    public int recordLine() {
+        return recordLine;
+    }
+
+    private List<String> readRecord() throws IOException {
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        while (true) {
+            int c = peek();
+            if (c == '"' && field.isEmpty()) {
+                pos++;
+                readQuoted(field);
+                c = peek();
+            }
+            if (c < 0 || c == '\r' || c == '\n') {
+                fields.add(field.toString());
+                if (c >= 0) endOfLine();
+                return fields;
+            }
+            pos++;
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private void readQuoted(StringBuilder field) throws IOException {
+        while (true) {
+            int c = peek();
+            if (c < 0) throw new MalformedCsvException("Comillas sin cerrar en el registro de la línea " + recordLine);
+            pos++;
+            if (c == '"') {
+                if (peek() != '"') return;
+                pos++;
+            } else if (c == '\n') {
+                line++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private void endOfLine() throws IOException {
+        if (peek() == '\r') pos++;
+        if (peek() == '\n') pos++;
+        line++;
+    }
+
+    private int peek() throws IOException {
+        if (pos == len) {
+            len = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                return -1;
+            }
+        }
+        return buf[pos];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,80 @@
+package com.ep18.couriersync.backend.common.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Escritor CSV (RFC 4180) en streaming sobre un Writer. Con {@code quoteAll} cada valor va entre
+ * comillas y null se escribe como campo vacío sin comillas: es el formato que COPY ... (FORMAT csv)
+ * distingue como NULL frente a la cadena vacía.
+ */
+public final class CsvWriter implements Closeable, Flushable {
+
+    private final Writer out;
+    private final boolean quoteAll;
+    private boolean firstField = true;
+
+    public CsvWriter(Writer out, boolean quoteAll) {
+        this.out = out;
+        this.quoteAll = quoteAll;
+    }
+
+    public CsvWriter field(Object value) throws IOException {
+        if (!firstField) out.write(',');
+        firstField = false;
+        if (value == null) return this;
+        String s = value.toString();
+        if (quoteAll || needsQuotes(s)) {
+            out.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') out.write('"');
+                out.write(c);
+            }
+            out.write('"');
+        } else {
+            out.write(s);
+        }
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        out.write('\n');
+        firstField = true;
+    }
+
+    /** Una fila CSV (sin fin de línea) con comillas solo donde hacen falta. */
+    public static String line(Iterable<?> values) {
+        StringWriter sw = new StringWriter();
+        CsvWriter w = new CsvWriter(sw, false);
+        try {
+            for (Object v : values) w.field(v);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter no lanza
+        }
+        return sw.toString();
+    }
+
+    private static boolean needsQuotes(String s) {
+        if (s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.ep18.couriersync.backend.common.dto;
+
+import com.ep18.couriersync.backend.common.exception.DomainException;
+
+/** Operaciones por lotes: cada elemento informa su propio resultado sin abortar el resto. */
+public final class BatchDTOs {
+    private BatchDTOs() {}
+
+    /** Mismo código que las extensiones de error GraphQL (VALIDATION_ERROR, CONFLICT, ...). */
+    public record ItemError(String code, String message) {
+        public static ItemError of(DomainException e) {
+            return new ItemError(e.getCode(), e.getMessage());
+        }
+    }
+}
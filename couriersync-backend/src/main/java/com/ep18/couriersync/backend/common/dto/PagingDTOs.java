@@ -5,7 +5,18 @@ import java.util.List;
 public final class PagingDTOs {
     private PagingDTOs() {}
 
-    public record PageInfo(int page, int size, long totalElements, int totalPages) {}
+    /**
+     * totalElements/totalPages solo se calculan (COUNT) si el cliente los pide;
+     * si no, vienen en null y hasNext indica si hay más páginas.
+     */
+    public record PageInfo(int page, int size, Long totalElements, Integer totalPages, boolean hasNext) {}
 
     public record PageResponse<T>(List<T> content, PageInfo pageInfo) {}
-}
\ No newline at end of file
+
+    /** Paginación por cursor (keyset, estilo Relay): sin OFFSET ni COUNT. */
+    public record CursorPageInfo(boolean hasNextPage, String endCursor) {}
+
+    public record Edge<T>(String cursor, T node) {}
+
+    public record Connection<T>(List<Edge<T>> edges, CursorPageInfo pageInfo) {}
+}
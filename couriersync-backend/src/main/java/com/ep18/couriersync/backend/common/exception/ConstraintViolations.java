@@ -0,0 +1,55 @@
+package com.ep18.couriersync.backend.common.exception;
+
+import org.postgresql.util.PSQLException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Traduce violaciones de integridad a excepciones de dominio según el nombre de la restricción
+ * (o índice único) violada. Permite escribir con una sola sentencia y dejar que la BD detecte
+ * duplicados y referencias inexistentes, en lugar de consultarlos antes (exists).
+ */
+public final class ConstraintViolations {
+
+    private ConstraintViolations() {}
+
+    /** Nombre de la restricción violada, en minúsculas; null si no se puede determinar */
+    public static String constraintName(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof org.hibernate.exception.ConstraintViolationException cve
+                    && cve.getConstraintName() != null) {
+                return cve.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+            if (t instanceof PSQLException pe && pe.getServerErrorMessage() != null
+                    && pe.getServerErrorMessage().getConstraint() != null) {
+                return pe.getServerErrorMessage().getConstraint().toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
+    }
+
+    /** La fila no cae en ninguna partición de la tabla (p. ej. una fecha fuera de los meses creados) */
+    public static boolean noPartitionForRow(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PSQLException pe && "23514".equals(pe.getSQLState())
+                    && pe.getServerErrorMessage() != null && pe.getServerErrorMessage().getConstraint() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Excepción de dominio asociada a la restricción violada. Si la restricción no figura en
+     * {@code byConstraint} se devuelve {@code e} tal cual: no es un error atribuible al cliente.
+     */
+    public static RuntimeException translate(DataIntegrityViolationException e,
+                                             Map<String, Supplier<? extends DomainException>> byConstraint) {
+        String name = constraintName(e);
+        Supplier<? extends DomainException> mapped = name != null ? byConstraint.get(name) : null;
+        return mapped != null ? mapped.get() : e;
+    }
+}
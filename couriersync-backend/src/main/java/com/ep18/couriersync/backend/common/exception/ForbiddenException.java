@@ -0,0 +1,7 @@
+package com.ep18.couriersync.backend.common.exception;
+
+public class ForbiddenException extends DomainException {
+    public ForbiddenException(String message) {
+        super("FORBIDDEN", message);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ep18.couriersync.backend.common.outbox;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+/**
+ * Destino en proceso: publica cada evento como ApplicationEvent, para módulos del mismo
+ * despliegue ({@code @EventListener void on(OutboxEvent e)}). Los listeners corren en el hilo
+ * del relay; si uno lanza, el lote se reintenta. Desactivado por defecto: sin ningún listener
+ * el relay borraría los eventos sin que nadie los recibiera (OutboxConfig no arranca).
+ */
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher publisher;
+
+    public ApplicationEventOutboxSink(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        events.forEach(publisher::publishEvent);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ep18.couriersync.backend.common.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Destino local: agrega cada evento como una línea JSON al final del archivo. El lote se fuerza
+ * a disco antes de volver, así el relay solo borra del outbox lo que ya quedó escrito.
+ */
+public class NdjsonFileOutboxSink implements OutboxSink, AutoCloseable {
+
+    private final FileChannel channel;
+    private final ObjectWriter writer;
+
+    public NdjsonFileOutboxSink(Path file, ObjectMapper mapper) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.writer = mapper.writerFor(OutboxEvent.class);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(events.size() * 256);
+        for (OutboxEvent e : events) {
+            writer.writeValue(buf, e);
+            buf.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buf.toByteArray());
+        while (bytes.hasRemaining()) channel.write(bytes);
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,21 @@
+package com.ep18.couriersync.backend.common.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Evento de cambio leído de tbloutbox (V9). {@code tipo} es "agregado.operación"
+ * (usuario.created, ciudad.deleted...) y {@code payload} el JSON tal como lo guardó la BD.
+ * La entrega es al menos una vez: los destinos descartan repetidos por {@code idEvento}, que es
+ * único. No sirve como marca de agua ni como orden: se asigna al insertar, no al confirmar (un id
+ * menor puede confirmar después de uno mayor) y el relay no garantiza publicarlos en orden.
+ */
+public record OutboxEvent(
+        long idEvento,
+        String agregado,
+        Integer idAgregado,
+        String tipo,
+        @JsonRawValue String payload,
+        OffsetDateTime createdAt
+) {}
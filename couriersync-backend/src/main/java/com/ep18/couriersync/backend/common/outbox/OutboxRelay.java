@@ -0,0 +1,203 @@
+package com.ep18.couriersync.backend.common.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vacía tbloutbox hacia los {@link OutboxSink} por lotes: en una transacción toma los eventos de
+ * menor id visibles con FOR UPDATE SKIP LOCKED (varias instancias no se pisan), los publica y los
+ * borra. Si un destino falla, la transacción se revierte, el lote queda marcado (intentos,
+ * ultimo_error) y esta instancia espera con backoff exponencial antes de reintentarlo.
+ *
+ * <p>No hay orden global: otra instancia salta las filas bloqueadas y sigue con ids mayores (su
+ * backoff es independiente), y un id menor aún sin confirmar aparece en una pasada posterior. Cada
+ * evento llega al menos una vez; los destinos deduplican por idEvento y no deben usarlo como
+ * marca de agua.
+ */
+@Slf4j
+public class OutboxRelay implements AutoCloseable {
+
+    static final String CLAIM = """
+            SELECT id_evento, agregado, id_agregado, tipo, payload::text AS payload, created_at
+            FROM public.tbloutbox
+            ORDER BY id_evento
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED""";
+    static final String DELETE = "DELETE FROM public.tbloutbox WHERE id_evento = ANY (?)";
+    static final String MARK_FAILED =
+            "UPDATE public.tbloutbox SET intentos = intentos + 1, ultimo_error = ? WHERE id_evento = ANY (?)";
+    static final String OLDEST = "SELECT min(created_at) FROM (SELECT created_at FROM public.tbloutbox "
+            + "ORDER BY id_evento LIMIT 1) o";
+
+    private static final RowMapper<OutboxEvent> EVENT = (rs, n) -> new OutboxEvent(
+            rs.getLong("id_evento"),
+            rs.getString("agregado"),
+            rs.getInt("id_agregado"),
+            rs.getString("tipo"),
+            rs.getString("payload"),
+            rs.getObject("created_at", OffsetDateTime.class));
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager txManager;
+    private final List<OutboxSink> sinks;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration maxBackoff;
+
+    private final Counter published;
+    private final Counter failures;
+    private final Timer dispatch;
+    private final Timer lag;
+    /** created_at del evento pendiente más antiguo según la última pasada; null = outbox vacío */
+    private volatile OffsetDateTime oldestPending;
+
+    private int consecutiveFailures;
+    private long retryAtNanos;
+    private ScheduledExecutorService scheduler;
+
+    public OutboxRelay(JdbcTemplate jdbc, PlatformTransactionManager txManager, List<OutboxSink> sinks,
+                       int batchSize, Duration pollInterval, Duration maxBackoff, MeterRegistry registry) {
+        this.jdbc = jdbc;
+        this.txManager = txManager;
+        this.sinks = List.copyOf(sinks);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.published = Counter.builder("couriersync.outbox.published")
+                .description("Eventos del outbox entregados a todos los destinos")
+                .register(registry);
+        this.failures = Counter.builder("couriersync.outbox.failures")
+                .description("Lotes del outbox cuya publicación falló")
+                .register(registry);
+        this.dispatch = Timer.builder("couriersync.outbox.dispatch")
+                .description("Duración de cada lote: lectura, publicación y borrado")
+                .register(registry);
+        this.lag = Timer.builder("couriersync.outbox.lag")
+                .description("Tiempo entre la escritura del evento y su publicación")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("couriersync.outbox.oldest.age", this, OutboxRelay::oldestPendingSeconds)
+                .description("Antigüedad en segundos del evento pendiente más antiguo")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Publica lotes hasta dejar el outbox vacío (o hasta el primer fallo) y devuelve cuántos
+     * eventos entregó. Lo llama el planificador; las pruebas lo invocan directamente.
+     */
+    public synchronized int drain() {
+        int total = 0;
+        try {
+            int n;
+            do {
+                n = dispatchBatch();
+                total += n;
+            } while (n == batchSize);
+            consecutiveFailures = 0;
+        } catch (OutboxDispatchException e) {
+            consecutiveFailures++;
+            Duration wait = backoff(consecutiveFailures);
+            retryAtNanos = System.nanoTime() + wait.toNanos();
+            log.warn("Outbox: falló la publicación de {} eventos desde {} (intento consecutivo {}), "
+                    + "reintento en {} ms: {}", e.size, e.firstId, consecutiveFailures, wait.toMillis(),
+                    e.getCause().toString());
+        } finally {
+            oldestPending = jdbc.queryForObject(OLDEST, OffsetDateTime.class);
+        }
+        return total;
+    }
+
+    private int dispatchBatch() {
+        long t0 = System.nanoTime();
+        TransactionStatus status = txManager.getTransaction(new DefaultTransactionDefinition());
+        List<OutboxEvent> batch = List.of();
+        try {
+            batch = jdbc.query(CLAIM, EVENT, batchSize);
+            if (batch.isEmpty()) {
+                txManager.commit(status);
+                return 0;
+            }
+            for (OutboxSink sink : sinks) sink.publish(batch);
+            jdbc.update(DELETE, (Object) ids(batch));
+            txManager.commit(status);
+        } catch (Exception e) {
+            if (!status.isCompleted()) txManager.rollback(status);
+            failures.increment();
+            if (!batch.isEmpty()) jdbc.update(MARK_FAILED, e.toString(), ids(batch));
+            throw new OutboxDispatchException(batch, e);
+        }
+        dispatch.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        published.increment(batch.size());
+        OffsetDateTime now = OffsetDateTime.now();
+        for (OutboxEvent e : batch) lag.record(Duration.between(e.createdAt(), now));
+        return batch.size();
+    }
+
+    /** Espera tras n fallos seguidos: pollInterval, 2x, 4x... hasta maxBackoff */
+    Duration backoff(int failures) {
+        long factor = 1L << Math.min(failures - 1, 20);
+        Duration wait = pollInterval.multipliedBy(factor);
+        return wait.compareTo(maxBackoff) > 0 ? maxBackoff : wait;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = pollInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::poll, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        if (consecutiveFailures > 0 && System.nanoTime() < retryAtNanos) return;
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // Sin BD (reinicio, failover): se reintenta en la siguiente pasada
+            log.warn("Outbox: no se pudo leer el outbox: {}", e.toString());
+        }
+    }
+
+    private double oldestPendingSeconds() {
+        OffsetDateTime oldest = oldestPending;
+        return oldest == null ? 0 : Duration.between(oldest, OffsetDateTime.now()).toMillis() / 1000.0;
+    }
+
+    private static Long[] ids(List<OutboxEvent> batch) {
+        return batch.stream().map(OutboxEvent::idEvento).toArray(Long[]::new);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private static final class OutboxDispatchException extends RuntimeException {
+        final int size;
+        final Long firstId;
+
+        OutboxDispatchException(List<OutboxEvent> batch, Exception cause) {
+            super(cause);
+            this.size = batch.size();
+            this.firstId = batch.isEmpty() ? null : batch.get(0).idEvento();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.ep18.couriersync.backend.common.outbox;
+
+import java.util.List;
+
+/**
+ * Destino de los eventos del outbox. Cada bean que implemente esta interfaz recibe todos los
+ * lotes de {@link OutboxRelay}; cada lote viene ordenado por idEvento, pero entre lotes (y entre
+ * instancias) no hay orden garantizado. Si lanza, el lote entero se reintenta más tarde (también
+ * en los destinos que sí lo recibieron): publish debe tolerar repetidos, deduplicando por idEvento.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,30 @@
+package com.ep18.couriersync.backend.common.pagination;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición opaca para paginación keyset: la clave de orden (p. ej. nombre) más el id
+ * como desempate. El cliente solo la recibe y la devuelve en "after" (base64url).
+ */
+public record KeysetCursor(String key, int id) {
+
+    public String encode() {
+        String raw = id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** null si no hay cursor (primera página); ValidationException si no es un cursor emitido por nosotros. */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new KeysetCursor(raw.substring(sep + 1), Integer.parseInt(raw.substring(0, sep)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Cursor inválido");
+        }
+    }
+}
@@ -1,19 +1,41 @@
 package com.ep18.couriersync.backend.common.pagination;
 
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Connection;
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.CursorPageInfo;
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Edge;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageInfo;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
+import java.util.List;
 import java.util.function.Function;
 
 public final class PageMapper {
     private PageMapper() {}
 
-    /** Mapea Page<E> a PageResponse<D> usando un mapper de elemento. */
-    public static <E, D> PageResponse<D> map(Page<E> page, Function<E, D> mapper) {
+    /** Mapea Page<E>/Slice<E> a PageResponse<D> usando un mapper de elemento. Un Slice no trae totales. */
+    public static <E, D> PageResponse<D> map(Slice<E> slice, Function<E, D> mapper) {
+        Long totalElements = null;
+        Integer totalPages = null;
+        if (slice instanceof Page<E> page) {
+            totalElements = page.getTotalElements();
+            totalPages = page.getTotalPages();
+        }
         return new PageResponse<>(
-                page.getContent().stream().map(mapper).toList(),
-                new PageInfo(page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages())
+                slice.getContent().stream().map(mapper).toList(),
+                new PageInfo(slice.getNumber(), slice.getSize(), totalElements, totalPages, slice.hasNext())
         );
     }
+
+    /** Arma una Connection a partir de hasta limit + 1 filas: la sobrante solo indica que hay más. */
+    public static <R, D> Connection<D> connection(List<R> rows, int limit,
+                                                  Function<R, KeysetCursor> cursorOf, Function<R, D> mapper) {
+        boolean hasNext = rows.size() > limit;
+        List<Edge<D>> edges = (hasNext ? rows.subList(0, limit) : rows).stream()
+                .map(r -> new Edge<>(cursorOf.apply(r).encode(), mapper.apply(r)))
+                .toList();
+        String endCursor = edges.isEmpty() ? null : edges.get(edges.size() - 1).cursor();
+        return new Connection<>(edges, new CursorPageInfo(hasNext, endCursor));
+    }
 }
@@ -16,4 +16,9 @@ public final class PageRequestUtil {
         int s = (size == null || size <= 0) ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
         return PageRequest.of(p, s, sort == null ? Sort.unsorted() : sort);
     }
+
+    /** Tamaño de página para conexiones por cursor ("first"), con los mismos límites. */
+    public static int limit(Integer first) {
+        return (first == null || first <= 0) ? DEFAULT_SIZE : Math.min(first, MAX_SIZE);
+    }
 }
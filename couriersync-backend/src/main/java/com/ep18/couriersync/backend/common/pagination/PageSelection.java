@@ -0,0 +1,14 @@
+package com.ep18.couriersync.backend.common.pagination;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+
+public final class PageSelection {
+    private PageSelection() {}
+
+    /** true si el cliente seleccionó pageInfo.totalElements o pageInfo.totalPages (requieren COUNT). */
+    public static boolean wantsTotals(DataFetchingFieldSelectionSet selection) {
+        return selection == null
+                || selection.contains("pageInfo/totalElements")
+                || selection.contains("pageInfo/totalPages");
+    }
+}
@@ -0,0 +1,63 @@
+package com.ep18.couriersync.backend.common.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Cubeta de fichas: se rellena a {@code porSegundo} fichas por segundo hasta {@code rafaga} y cada
+ * permiso consume una. Compartida entre hilos; usa ReentrantLock y no synchronized para que los
+ * hilos virtuales que esperan no queden fijados a su hilo portador.
+ */
+public final class TokenBucket {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final double porNano;
+    private final double capacidad;
+    private final LongSupplier reloj;
+
+    private double fichas;
+    private long ultimoRelleno;
+
+    public TokenBucket(double porSegundo, int rafaga) {
+        this(porSegundo, rafaga, System::nanoTime);
+    }
+
+    TokenBucket(double porSegundo, int rafaga, LongSupplier relojNanos) {
+        if (porSegundo <= 0) throw new IllegalArgumentException("porSegundo debe ser positivo");
+        if (rafaga < 1) throw new IllegalArgumentException("rafaga debe ser al menos 1");
+        this.porNano = porSegundo / TimeUnit.SECONDS.toNanos(1);
+        this.capacidad = rafaga;
+        this.reloj = relojNanos;
+        this.fichas = rafaga;
+        this.ultimoRelleno = relojNanos.getAsLong();
+    }
+
+    /** Espera hasta obtener un permiso. */
+    public void acquire() throws InterruptedException {
+        long espera;
+        while ((espera = reservar()) > 0) TimeUnit.NANOSECONDS.sleep(espera);
+    }
+
+    /** Toma un permiso si hay uno disponible ahora. */
+    public boolean tryAcquire() {
+        return reservar() == 0;
+    }
+
+    /** Consume una ficha y devuelve 0, o devuelve los nanos que faltan para la siguiente. */
+    private long reservar() {
+        lock.lock();
+        try {
+            long ahora = reloj.getAsLong();
+            fichas = Math.min(capacidad, fichas + (ahora - ultimoRelleno) * porNano);
+            ultimoRelleno = ahora;
+            if (fichas >= 1) {
+                fichas -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - fichas) / porNano));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.ep18.couriersync.backend.common.text;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Clave de búsqueda normalizada: minúsculas, sin tildes ni diéresis y con espacios colapsados
+ * ("  Bogotá  D.C." -> "bogota d.c."). Se calcula al escribir y se guarda en columnas
+ * *_busqueda, de modo que la consulta compara contra la columna indexada sin funciones por fila.
+ */
+public final class SearchKeys {
+    private SearchKeys() {}
+
+    /** Con menos caracteres no hay trigramas completos: el like recorre casi todo el índice */
+    public static final int MIN_SUBSTRING_LENGTH = 3;
+
+    /**
+     * Coincidencias más parecidas a q que pasan al orden por relevancia y a la paginación; con
+     * más coincidencias que esto no se informan totales.
+     */
+    public static final int MAX_CANDIDATES = 1000;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern LIKE_SPECIAL = Pattern.compile("[\\\\%_]");
+
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String sinMarcas = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(sinMarcas.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Patrón like '%término%' con \, % y _ escapados, para usar con {@code escape '\'}: el término
+     * se busca literal ("%%%" no coincide con todo).
+     */
+    public static String containsPattern(String term) {
+        return "%" + LIKE_SPECIAL.matcher(term).replaceAll("\\\\$0") + "%";
+    }
+
+    /** Término normalizado para búsqueda por subcadena; exige MIN_SUBSTRING_LENGTH caracteres. */
+    public static String substringTerm(String q) {
+        String term = normalize(q);
+        if (term.length() < MIN_SUBSTRING_LENGTH) {
+            throw new ValidationException("La búsqueda requiere al menos " + MIN_SUBSTRING_LENGTH + " caracteres");
+        }
+        return term;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+/**
+ * Marca por petición de "ya hubo una escritura": mientras esté activa, las transacciones readOnly
+ * de la misma petición leen del primario y no de una réplica que quizá aún no la tenga. Solo se
+ * marca dentro de un ámbito abierto por {@link ReadYourWritesFilter}; los hilos fuera de una
+ * petición (tareas programadas, descargas asíncronas) nunca quedan fijados al primario.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private ReadYourWrites() {}
+
+    private static final class Scope {
+        private boolean wrote;
+    }
+
+    static void open() {
+        CURRENT.set(new Scope());
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    static void markWrite() {
+        Scope scope = CURRENT.get();
+        if (scope != null) scope.wrote = true;
+    }
+
+    /** true si la petición en curso ya escribió y las lecturas deben ir al primario. */
+    public static boolean active() {
+        Scope scope = CURRENT.get();
+        return scope != null && scope.wrote;
+    }
+}
@@ -0,0 +1,177 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Destino de las transacciones readOnly: reparte las conexiones entre las réplicas sanas en
+ * round-robin y cae al primario si ninguna responde o si la petición ya escribió (read-your-writes).
+ * Una réplica sale de la rotación al fallar una conexión o al superar el retraso máximo, y vuelve
+ * cuando el sondeo periódico la encuentra bien. El sondeo abre su propia conexión con un timeout
+ * corto: una réplica caída sale en un intervalo de sondeo, sin esperar a que una lectura real
+ * agote el connectionTimeout del pool.
+ */
+@Slf4j
+class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    /** Segundos de retraso de la réplica; 0 si está al día o si el nodo no es una réplica */
+    static final String LAG_SQL = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE coalesce(extract(epoch FROM now() - pg_last_xact_replay_timestamp()), 0) END""";
+
+    static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        /** Conexiones del sondeo, fuera del pool y con timeouts cortos */
+        final DataSource probe;
+        volatile boolean healthy = true;
+        private final Counter reads;
+
+        Replica(String name, DataSource dataSource, DataSource probe, MeterRegistry registry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.probe = probe;
+            this.reads = readCounter(registry, name, "replica");
+        }
+
+        /** El sondeo usa el mismo pool */
+        Replica(String name, DataSource dataSource, MeterRegistry registry) {
+            this(name, dataSource, dataSource, registry);
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final boolean readYourWrites;
+    private final Duration maxLag;
+    private final int probeTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter fallbackReads;
+    private final Counter readYourWritesReads;
+    private ScheduledExecutorService healthChecks;
+
+    ReplicaDataSource(DataSource primary, List<Replica> replicas, boolean readYourWrites, Duration maxLag,
+                      Duration probeTimeout, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+        this.maxLag = maxLag;
+        this.probeTimeoutSeconds = timeoutSeconds(probeTimeout);
+        this.fallbackReads = readCounter(registry, "primary", "fallback");
+        this.readYourWritesReads = readCounter(registry, "primary", "read-your-writes");
+        Gauge.builder("couriersync.datasource.replicas.healthy", this,
+                        ds -> ds.replicas.stream().filter(r -> r.healthy).count())
+                .description("Réplicas de lectura en rotación")
+                .register(registry);
+    }
+
+    private static Counter readCounter(MeterRegistry registry, String target, String reason) {
+        return Counter.builder("couriersync.datasource.reads")
+                .description("Conexiones de transacciones readOnly por destino")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readYourWrites && ReadYourWrites.active()) {
+            readYourWritesReads.increment();
+            return primary.getConnection();
+        }
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(n, 1));
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (!r.healthy) continue;
+            try {
+                Connection con = r.dataSource.getConnection();
+                r.reads.increment();
+                return con;
+            } catch (SQLException e) {
+                markDown(r, e.toString());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Los pools de réplica y primario ya tienen sus credenciales (las de cada nodo o las del
+     * primario): las recibidas se ignoran, igual que hace Hikari.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /** Sondea todas las réplicas: conexión y retraso de replicación, cada una con probeTimeout. */
+    void checkHealth() {
+        for (Replica r : replicas) {
+            try (Connection con = r.probe.getConnection();
+                 Statement st = con.createStatement()) {
+                st.setQueryTimeout(probeTimeoutSeconds);
+                ResultSet rs = st.executeQuery(LAG_SQL);
+                rs.next();
+                double lagSeconds = rs.getDouble(1);
+                if (lagSeconds * 1000 > maxLag.toMillis()) {
+                    markDown(r, "retraso de replicación de " + lagSeconds + " s");
+                } else if (!r.healthy) {
+                    r.healthy = true;
+                    log.info("Réplica {} de vuelta en rotación", r.name);
+                }
+            } catch (SQLException e) {
+                markDown(r, e.toString());
+            }
+        }
+    }
+
+    void startHealthChecks(Duration interval) {
+        healthChecks = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "replica-health");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = interval.toMillis();
+        healthChecks.scheduleWithFixedDelay(this::checkHealth, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Los timeouts de JDBC y del driver son en segundos enteros: al menos 1 */
+    static int timeoutSeconds(Duration timeout) {
+        return (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+    }
+
+    private void markDown(Replica r, String reason) {
+        if (r.healthy) {
+            r.healthy = false;
+            log.warn("Réplica {} fuera de rotación: {}", r.name, reason);
+        }
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (healthChecks != null) healthChecks.shutdownNow();
+        for (Replica r : replicas) {
+            if (r.dataSource instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+}
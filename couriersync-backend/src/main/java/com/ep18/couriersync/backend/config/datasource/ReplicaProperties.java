@@ -0,0 +1,60 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Réplicas de lectura: las transacciones readOnly van a ellas y las escrituras al primario. */
+@ConfigurationProperties(prefix = "app.datasource.replicas")
+public class ReplicaProperties {
+    private boolean enabled = false;
+    private List<Node> nodes = new ArrayList<>();
+    /** Cada cuánto se sondea cada réplica (conexión y retraso de replicación) */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    /** Retraso máximo de replicación tolerado antes de sacar la réplica de la rotación */
+    private Duration maxLag = Duration.ofSeconds(10);
+    /** Plazo del sondeo para conectar y consultar; vencido, la réplica sale de la rotación */
+    private Duration probeTimeout = Duration.ofSeconds(2);
+    /** Tras escribir, las lecturas de la misma petición van al primario */
+    private boolean readYourWrites = true;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public List<Node> getNodes() { return nodes; }
+    public void setNodes(List<Node> nodes) { this.nodes = nodes; }
+
+    public Duration getHealthCheckInterval() { return healthCheckInterval; }
+    public void setHealthCheckInterval(Duration healthCheckInterval) { this.healthCheckInterval = healthCheckInterval; }
+
+    public Duration getMaxLag() { return maxLag; }
+    public void setMaxLag(Duration maxLag) { this.maxLag = maxLag; }
+
+    public Duration getProbeTimeout() { return probeTimeout; }
+    public void setProbeTimeout(Duration probeTimeout) { this.probeTimeout = probeTimeout; }
+
+    public boolean isReadYourWrites() { return readYourWrites; }
+    public void setReadYourWrites(boolean readYourWrites) { this.readYourWrites = readYourWrites; }
+
+    /** Usuario, clave y tamaño de pool vacíos heredan los del primario (spring.datasource.*). */
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+        private Integer maximumPoolSize;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+
+        public Integer getMaximumPoolSize() { return maximumPoolSize; }
+        public void setMaximumPoolSize(Integer maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+    }
+}
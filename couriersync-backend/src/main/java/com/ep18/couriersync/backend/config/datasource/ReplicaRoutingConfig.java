@@ -0,0 +1,123 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Con app.datasource.replicas.enabled=true el DataSource de la aplicación pasa a ser un
+ * LazyConnectionDataSourceProxy: la conexión física se pide recién en la primera sentencia, cuando
+ * ya se sabe si la transacción es readOnly, y entonces sale de {@link ReplicaDataSource} o del
+ * primario. Sin la propiedad, Spring Boot configura su único pool Hikari como siempre.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    /** Pool del primario, con spring.datasource.hikari.* aplicado como en la configuración por defecto. */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(ObjectProvider<JdbcConnectionDetails> connectionDetails,
+                                       DataSourceProperties properties) {
+        JdbcConnectionDetails details = connectionDetails.getIfAvailable(() -> new JdbcConnectionDetails() {
+            @Override public String getUsername() { return properties.determineUsername(); }
+            @Override public String getPassword() { return properties.determinePassword(); }
+            @Override public String getJdbcUrl() { return properties.determineUrl(); }
+            @Override public String getDriverClassName() { return properties.determineDriverClassName(); }
+        });
+        HikariDataSource primary = DataSourceBuilder.create(properties.getClassLoader())
+                .type(HikariDataSource.class)
+                .url(details.getJdbcUrl())
+                .username(details.getUsername())
+                .password(details.getPassword())
+                .driverClassName(details.getDriverClassName())
+                .build();
+        primary.setPoolName("couriersync-primary");
+        return primary;
+    }
+
+    @Bean(destroyMethod = "close")
+    ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, ReplicaProperties props,
+                                        MeterRegistry meterRegistry) {
+        List<ReplicaDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < props.getNodes().size(); i++) {
+            ReplicaProperties.Node node = props.getNodes().get(i);
+            String name = "couriersync-replica-" + i;
+            // Misma configuración que el primario (timeouts, data-source-properties) salvo destino y tamaño
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setPoolName(name);
+            config.setJdbcUrl(node.getUrl());
+            if (node.getUsername() != null) config.setUsername(node.getUsername());
+            if (node.getPassword() != null) config.setPassword(node.getPassword());
+            if (node.getMaximumPoolSize() != null) config.setMaximumPoolSize(node.getMaximumPoolSize());
+            config.setReadOnly(true);
+            // Una réplica caída al arrancar no debe impedir el arranque: queda fuera hasta el sondeo
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaDataSource.Replica(name, new HikariDataSource(config),
+                    probe(config, props.getProbeTimeout()), meterRegistry));
+        }
+        ReplicaDataSource ds = new ReplicaDataSource(primaryDataSource, replicas, props.isReadYourWrites(),
+                props.getMaxLag(), props.getProbeTimeout(), meterRegistry);
+        ds.checkHealth();
+        ds.startHealthChecks(props.getHealthCheckInterval());
+        return ds;
+    }
+
+    /**
+     * Conexión directa del sondeo: mismo destino y credenciales que el pool, pero sin esperar al
+     * connectionTimeout de Hikari (30 s por defecto) cuando la réplica no responde.
+     */
+    private static DataSource probe(HikariConfig config, Duration timeout) {
+        int seconds = ReplicaDataSource.timeoutSeconds(timeout);
+        PGSimpleDataSource probe = new PGSimpleDataSource();
+        probe.setUrl(config.getJdbcUrl());
+        probe.setUser(config.getUsername());
+        probe.setPassword(config.getPassword());
+        probe.setConnectTimeout(seconds);
+        probe.setLoginTimeout(seconds);
+        probe.setSocketTimeout(seconds);
+        probe.setReadOnly(true);
+        probe.setApplicationName(config.getPoolName() + "-probe");
+        return probe;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy routing =
+                new LazyConnectionDataSourceProxy(new WriteTrackingDataSource(primaryDataSource));
+        routing.setReadOnlyDataSource(replicaDataSource);
+        return routing;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replicas", name = "read-your-writes", matchIfMissing = true)
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/** Primario que anota en {@link ReadYourWrites} cada conexión pedida por una transacción de escritura. */
+class WriteTrackingDataSource extends DelegatingDataSource {
+
+    WriteTrackingDataSource(DataSource primary) {
+        super(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReadYourWrites.markWrite();
+        }
+        return super.getConnection();
+    }
+}
@@ -2,6 +2,7 @@ package com.ep18.couriersync.backend.config.graphql;
 
 import com.ep18.couriersync.backend.common.exception.ConflictException;
 import com.ep18.couriersync.backend.common.exception.DomainException;
+import com.ep18.couriersync.backend.common.exception.ForbiddenException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
 import com.ep18.couriersync.backend.common.exception.ValidationException;
 import lombok.extern.slf4j.Slf4j;
@@ -53,6 +54,7 @@ public class GraphQLExceptionResolver extends DataFetcherExceptionResolverAdapte
             if (de instanceof NotFoundException)  type = ErrorType.NOT_FOUND;
             if (de instanceof ConflictException)  type = ErrorType.BAD_REQUEST;
             if (de instanceof ValidationException) type = ErrorType.BAD_REQUEST;
+            if (de instanceof ForbiddenException) type = ErrorType.FORBIDDEN;
 
             log.warn("GraphQL domain error on {}: {} ({})",
                     env.getExecutionStepInfo().getPath(), de.getMessage(), de.getCode());
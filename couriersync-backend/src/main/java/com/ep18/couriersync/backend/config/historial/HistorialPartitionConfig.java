@@ -0,0 +1,26 @@
+package com.ep18.couriersync.backend.config.historial;
+
+import com.ep18.couriersync.backend.historial.partition.HistorialPartitionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+
+/** Arranca el mantenimiento de particiones del historial (crear meses futuros, desvincular vencidos). */
+@Configuration
+@ConditionalOnProperty(prefix = "app.historial.particiones", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+@EnableConfigurationProperties(HistorialPartitionProperties.class)
+public class HistorialPartitionConfig {
+
+    @Bean(destroyMethod = "close")
+    HistorialPartitionManager historialPartitionManager(JdbcTemplate jdbc, HistorialPartitionProperties props) {
+        HistorialPartitionManager manager = new HistorialPartitionManager(jdbc, props.getMesesAdelante(),
+                props.getRetencionMeses(), props.getIntervalo(), Clock.systemUTC());
+        manager.start();
+        return manager;
+    }
+}
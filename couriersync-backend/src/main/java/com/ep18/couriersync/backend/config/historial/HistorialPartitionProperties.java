@@ -0,0 +1,29 @@
+package com.ep18.couriersync.backend.config.historial;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Mantenimiento de las particiones mensuales del historial de entregas (V12). */
+@ConfigurationProperties(prefix = "app.historial.particiones")
+public class HistorialPartitionProperties {
+    private boolean enabled = true;
+    /** Meses futuros que deben existir además del actual */
+    private int mesesAdelante = 3;
+    /** Meses anteriores al actual que siguen en la tabla; los previos se desvinculan. 0 = nunca */
+    private int retencionMeses = 24;
+    /** Pausa entre pasadas; la primera corre al arrancar */
+    private Duration intervalo = Duration.ofHours(6);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMesesAdelante() { return mesesAdelante; }
+    public void setMesesAdelante(int mesesAdelante) { this.mesesAdelante = mesesAdelante; }
+
+    public int getRetencionMeses() { return retencionMeses; }
+    public void setRetencionMeses(int retencionMeses) { this.retencionMeses = retencionMeses; }
+
+    public Duration getIntervalo() { return intervalo; }
+    public void setIntervalo(Duration intervalo) { this.intervalo = intervalo; }
+}
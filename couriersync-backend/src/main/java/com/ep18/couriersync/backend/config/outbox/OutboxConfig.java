@@ -0,0 +1,92 @@
+package com.ep18.couriersync.backend.config.outbox;
+
+import com.ep18.couriersync.backend.common.outbox.ApplicationEventOutboxSink;
+import com.ep18.couriersync.backend.common.outbox.NdjsonFileOutboxSink;
+import com.ep18.couriersync.backend.common.outbox.OutboxEvent;
+import com.ep18.couriersync.backend.common.outbox.OutboxRelay;
+import com.ep18.couriersync.backend.common.outbox.OutboxSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Los eventos los escribe la BD (triggers de V9) en la misma transacción que el cambio, solo con
+ * el interruptor encendido ({@link OutboxSwitchConfig}); aquí se arranca el relay que los entrega. Destinos: todo bean {@link OutboxSink} del contexto, además
+ * de los dos locales (ApplicationEvent y archivo NDJSON) según app.outbox.*. El relay borra lo
+ * que publica, así que habilitarlo sin un destino que consuma de verdad es un error de
+ * configuración y la aplicación no arranca.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    /** Exige al menos un @EventListener de OutboxEvent: sin él, publicar sería descartar. */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.outbox", name = "application-events", havingValue = "true")
+    ApplicationEventOutboxSink applicationEventOutboxSink(ApplicationEventPublisher publisher,
+                                                          ConfigurableListableBeanFactory beanFactory) {
+        if (!hasOutboxEventListener(beanFactory)) {
+            throw new IllegalStateException("app.outbox.application-events=true sin ningún @EventListener de "
+                    + "OutboxEvent: el relay borraría los eventos sin entregarlos");
+        }
+        return new ApplicationEventOutboxSink(publisher);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.outbox", name = "file")
+    NdjsonFileOutboxSink ndjsonFileOutboxSink(OutboxProperties props, ObjectMapper mapper) throws IOException {
+        return new NdjsonFileOutboxSink(props.getFile(), mapper);
+    }
+
+    @Bean(destroyMethod = "close")
+    OutboxRelay outboxRelay(JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                            ObjectProvider<OutboxSink> sinks, OutboxProperties props, MeterRegistry meterRegistry) {
+        List<OutboxSink> destinos = sinks.orderedStream().toList();
+        if (destinos.isEmpty()) {
+            throw new IllegalStateException("app.outbox.enabled=true sin destinos: defina app.outbox.file, "
+                    + "active app.outbox.application-events con un @EventListener o registre un OutboxSink");
+        }
+        OutboxRelay relay = new OutboxRelay(jdbc, txManager, destinos, props.getBatchSize(),
+                props.getPollInterval(), props.getMaxBackoff(), meterRegistry);
+        log.info("Outbox: relay hacia {}", destinos.stream().map(d -> d.getClass().getSimpleName()).toList());
+        relay.start();
+        return relay;
+    }
+
+    static boolean hasOutboxEventListener(ConfigurableListableBeanFactory beanFactory) {
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            Class<?> type = beanFactory.getType(name, false);
+            if (type == null) continue;
+            Map<Method, EventListener> listeners = MethodIntrospector.selectMethods(ClassUtils.getUserClass(type),
+                    (MethodIntrospector.MetadataLookup<EventListener>) m ->
+                            AnnotatedElementUtils.findMergedAnnotation(m, EventListener.class));
+            for (Map.Entry<Method, EventListener> l : listeners.entrySet()) {
+                if (List.of(l.getValue().classes()).contains(OutboxEvent.class)
+                        || List.of(l.getKey().getParameterTypes()).contains(OutboxEvent.class)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ep18.couriersync.backend.config.outbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/** Relay del outbox de eventos (tbloutbox) y sus destinos. */
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+    /** Requiere al menos un destino; también enciende o apaga los triggers que llenan tbloutbox */
+    private boolean enabled = false;
+    /** Pausa entre pasadas cuando el outbox quedó vacío */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /** Eventos por transacción de publicación */
+    private int batchSize = 200;
+    /** Tope de la espera exponencial tras fallos seguidos de un destino */
+    private Duration maxBackoff = Duration.ofMinutes(1);
+    /** Publica los eventos como ApplicationEvent; exige un @EventListener de OutboxEvent */
+    private boolean applicationEvents = false;
+    /** Si se define, los eventos se agregan además a este archivo NDJSON */
+    private Path file;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getPollInterval() { return pollInterval; }
+    public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public Duration getMaxBackoff() { return maxBackoff; }
+    public void setMaxBackoff(Duration maxBackoff) { this.maxBackoff = maxBackoff; }
+
+    public boolean isApplicationEvents() { return applicationEvents; }
+    public void setApplicationEvents(boolean applicationEvents) { this.applicationEvents = applicationEvents; }
+
+    public Path getFile() { return file; }
+    public void setFile(Path file) { this.file = file; }
+}
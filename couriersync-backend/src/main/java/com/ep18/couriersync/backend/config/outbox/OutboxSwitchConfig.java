@@ -0,0 +1,32 @@
+package com.ep18.couriersync.backend.config.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Deja el interruptor de los triggers del outbox (tbloutbox_estado, V16) igual a
+ * app.outbox.enabled, también cuando el relay está apagado: así tbloutbox solo recibe eventos
+ * mientras haya quien la vacíe. Todas las instancias deben usar el mismo valor.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxSwitchConfig {
+
+    static final String SWITCH =
+            "UPDATE public.tbloutbox_estado SET activo = ? WHERE activo IS DISTINCT FROM ?";
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> outboxTriggerSwitch(JdbcTemplate jdbc, OutboxProperties props) {
+        return event -> {
+            if (jdbc.update(SWITCH, props.isEnabled(), props.isEnabled()) > 0) {
+                log.info("Outbox: triggers {}", props.isEnabled() ? "activados" : "desactivados");
+            }
+        };
+    }
+}
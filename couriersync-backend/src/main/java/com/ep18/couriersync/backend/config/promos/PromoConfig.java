@@ -0,0 +1,97 @@
+package com.ep18.couriersync.backend.config.promos;
+
+import com.ep18.couriersync.backend.common.ratelimit.TokenBucket;
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue;
+import com.ep18.couriersync.backend.promos.campaign.CampanaWorker;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.mail.SmtpTransportPool;
+import com.ep18.couriersync.backend.promos.template.PlantillaCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.util.StreamProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.util.MailStreamProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/**
+ * Pool SMTP y dispatcher de promociones, solo con un servidor configurado (spring.mail.host).
+ * La sesión sale de spring.mail.*; sin timeouts propios se fijan unos de 10 s para que un
+ * servidor colgado no retenga las conexiones del pool. Con app.promos.worker además procesa
+ * lotes de campañas; las instancias sin SMTP solo las encolan. El cupo de mensajes por segundo y
+ * las conexiones son de cada instancia, no un presupuesto compartido: el proveedor ve la suma.
+ * <p>
+ * Al crear el pool fija la propiedad de sistema jakarta.mail.util.StreamProvider con el proveedor
+ * de Angus, salvo que ya venga de la JVM
+ * ({@code -Djakarta.mail.util.StreamProvider=org.eclipse.angus.mail.util.MailStreamProvider}):
+ * sin ella Jakarta Mail recorre el classpath con ServiceLoader en cada codificación (ver
+ * {@link SmtpTransportPool}). Afecta a todo Jakarta Mail de la JVM, que usa el mismo proveedor.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.promos", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(PromoProperties.class)
+public class PromoConfig {
+
+    private static final String TIMEOUT_MS = "10000";
+    private static final String STREAM_PROVIDER = StreamProvider.class.getName();
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "spring.mail", name = "host")
+    SmtpTransportPool smtpTransportPool(MailProperties mail, PromoProperties props) {
+        fijarStreamProvider();
+        Properties javamail = new Properties();
+        javamail.putAll(mail.getProperties());
+        String protocolo = mail.getProtocol();
+        javamail.setProperty("mail.transport.protocol", protocolo);
+        javamail.putIfAbsent("mail." + protocolo + ".connectiontimeout", TIMEOUT_MS);
+        javamail.putIfAbsent("mail." + protocolo + ".timeout", TIMEOUT_MS);
+        javamail.putIfAbsent("mail." + protocolo + ".writetimeout", TIMEOUT_MS);
+        int port = mail.getPort() == null ? -1 : mail.getPort();
+        return new SmtpTransportPool(Session.getInstance(javamail), mail.getHost(), port, mail.getUsername(),
+                mail.getPassword(), props.getConexiones(), props.getValidarTrasInactividad());
+    }
+
+    /** Respeta un valor ya fijado (-D o el propio despliegue); devuelve el proveedor en uso. */
+    static String fijarStreamProvider() {
+        String actual = System.getProperty(STREAM_PROVIDER);
+        if (actual != null) return actual;
+        System.setProperty(STREAM_PROVIDER, MailStreamProvider.class.getName());
+        log.info("Promos: {}={}", STREAM_PROVIDER, MailStreamProvider.class.getName());
+        return MailStreamProvider.class.getName();
+    }
+
+    /** La cubeta limita solo los envíos de esta instancia (ver PromoProperties.mensajesPorSegundo) */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.mail", name = "host")
+    PromoDispatcher promoDispatcher(SmtpTransportPool pool, PromoProperties props, MeterRegistry meterRegistry)
+            throws AddressException {
+        TokenBucket limite = props.getMensajesPorSegundo() > 0
+                ? new TokenBucket(props.getMensajesPorSegundo(), props.getRafaga())
+                : null;
+        return new PromoDispatcher(pool, limite, new InternetAddress(props.getRemitente(), true), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "spring.mail", name = "host")
+    @ConditionalOnProperty(prefix = "app.promos", name = "worker", havingValue = "true", matchIfMissing = true)
+    CampanaWorker campanaWorker(CampanaQueue cola, PromoDispatcher dispatcher, PlantillaCache plantillas,
+                                PromoProperties props, MeterRegistry meterRegistry) {
+        String nodo = props.getNodo() == null || props.getNodo().isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName()
+                : props.getNodo();
+        CampanaWorker worker = new CampanaWorker(cola, dispatcher, plantillas, nodo, props.getPlazoLote(),
+                props.getSondeo(), props.getMaxIntentos(), props.getEsperaReintento(), props.getEsperaMaxima(),
+                meterRegistry);
+        worker.start();
+        return worker;
+    }
+}
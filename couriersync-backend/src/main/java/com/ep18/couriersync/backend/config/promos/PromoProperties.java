@@ -0,0 +1,78 @@
+package com.ep18.couriersync.backend.config.promos;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Envío de promociones por correo; servidor y credenciales SMTP en spring.mail.*. */
+@ConfigurationProperties(prefix = "app.promos")
+public class PromoProperties {
+    private boolean enabled = true;
+    /** Dirección From de las promociones */
+    private String remitente = "promos@couriersync.local";
+    /**
+     * Tope de mensajes por segundo de esta instancia; 0 = sin tope. No se comparte: con varias
+     * instancias enviando, el límite del proveedor se divide entre ellas.
+     */
+    private double mensajesPorSegundo = 50;
+    /** Mensajes que pueden salir seguidos antes de que aplique el tope (también por instancia) */
+    private int rafaga = 50;
+    /** Conexiones SMTP abiertas a la vez (y envíos en paralelo) en esta instancia */
+    private int conexiones = 8;
+    /** Una conexión inactiva más que esto se comprueba con NOOP antes de reutilizarla */
+    private Duration validarTrasInactividad = Duration.ofSeconds(30);
+    /** Esta instancia procesa lotes de campañas (requiere spring.mail.host) */
+    private boolean worker = true;
+    /** Identificador de la instancia en los lotes tomados; vacío = pid@host */
+    private String nodo;
+    /** Cada cuánto se busca un lote cuando la cola está vacía */
+    private Duration sondeo = Duration.ofSeconds(2);
+    /** Plazo de un lote tomado; se renueva mientras se envía y, si vence, otra instancia lo retoma */
+    private Duration plazoLote = Duration.ofMinutes(5);
+    /** Veces que se toma un lote con pendientes antes de darlos por fallidos */
+    private int maxIntentos = 5;
+    /** Espera antes del primer reintento de un lote; se duplica en cada intento hasta esperaMaxima */
+    private Duration esperaReintento = Duration.ofSeconds(30);
+    private Duration esperaMaxima = Duration.ofMinutes(15);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getRemitente() { return remitente; }
+    public void setRemitente(String remitente) { this.remitente = remitente; }
+
+    public double getMensajesPorSegundo() { return mensajesPorSegundo; }
+    public void setMensajesPorSegundo(double mensajesPorSegundo) { this.mensajesPorSegundo = mensajesPorSegundo; }
+
+    public int getRafaga() { return rafaga; }
+    public void setRafaga(int rafaga) { this.rafaga = rafaga; }
+
+    public int getConexiones() { return conexiones; }
+    public void setConexiones(int conexiones) { this.conexiones = conexiones; }
+
+    public boolean isWorker() { return worker; }
+    public void setWorker(boolean worker) { this.worker = worker; }
+
+    public String getNodo() { return nodo; }
+    public void setNodo(String nodo) { this.nodo = nodo; }
+
+    public Duration getSondeo() { return sondeo; }
+    public void setSondeo(Duration sondeo) { this.sondeo = sondeo; }
+
+    public Duration getPlazoLote() { return plazoLote; }
+    public void setPlazoLote(Duration plazoLote) { this.plazoLote = plazoLote; }
+
+    public int getMaxIntentos() { return maxIntentos; }
+    public void setMaxIntentos(int maxIntentos) { this.maxIntentos = maxIntentos; }
+
+    public Duration getEsperaReintento() { return esperaReintento; }
+    public void setEsperaReintento(Duration esperaReintento) { this.esperaReintento = esperaReintento; }
+
+    public Duration getEsperaMaxima() { return esperaMaxima; }
+    public void setEsperaMaxima(Duration esperaMaxima) { this.esperaMaxima = esperaMaxima; }
+
+    public Duration getValidarTrasInactividad() { return validarTrasInactividad; }
+    public void setValidarTrasInactividad(Duration validarTrasInactividad) {
+        this.validarTrasInactividad = validarTrasInactividad;
+    }
+}
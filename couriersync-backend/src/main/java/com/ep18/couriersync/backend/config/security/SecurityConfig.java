@@ -27,9 +27,12 @@ public class SecurityConfig {
                         .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                         // expón metrics solo si es necesario (observabilidad)
                         .requestMatchers("/actuator/metrics").permitAll()
+                        .requestMatchers("/actuator/metrics/**").hasAnyRole("DEV", "ADMIN") // detalle (p. ej. catálogo)
                         .requestMatchers("/graphiql/**").hasAnyRole("DEV", "ADMIN") // solo roles altos
                         .requestMatchers(HttpMethod.OPTIONS, "/graphql").permitAll() // preflight CORS
                         .requestMatchers("/graphql").authenticated()                 // resto GraphQL con JWT
+                        .requestMatchers("/api/usuarios/import", "/api/usuarios/import/**").hasRole("ADMIN") // importación masiva
+                        .requestMatchers(HttpMethod.GET, "/api/usuarios/export").authenticated() // exportación BI
                         .anyRequest().denyAll()
                 )
                 .oauth2ResourceServer(oauth -> oauth
@@ -0,0 +1,21 @@
+package com.ep18.couriersync.backend.config.suggest;
+
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Arranca la construcción y el refresco del índice de autocompletado cuando la app está lista. */
+@Configuration
+@ConditionalOnProperty(prefix = "app.suggest", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(SuggestionProperties.class)
+public class SuggestionConfig {
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> suggestionIndexStarter(SuggestionIndex index, SuggestionProperties props) {
+        return event -> index.start(props.getRefreshInterval(), props.getMaxPendientes());
+    }
+}
@@ -0,0 +1,24 @@
+package com.ep18.couriersync.backend.config.suggest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Refresco del índice de autocompletado (SuggestionIndex). */
+@ConfigurationProperties(prefix = "app.suggest")
+public class SuggestionProperties {
+    private boolean enabled = true;
+    /** Pausa entre lecturas del feed de cambios (y reintentos de construcción) */
+    private Duration refreshInterval = Duration.ofSeconds(10);
+    /** Cambios sin compactar a partir de los cuales se reconstruye la base en memoria */
+    private int maxPendientes = 10_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getRefreshInterval() { return refreshInterval; }
+    public void setRefreshInterval(Duration refreshInterval) { this.refreshInterval = refreshInterval; }
+
+    public int getMaxPendientes() { return maxPendientes; }
+    public void setMaxPendientes(int maxPendientes) { this.maxPendientes = maxPendientes; }
+}
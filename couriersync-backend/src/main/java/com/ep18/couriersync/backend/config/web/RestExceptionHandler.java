@@ -0,0 +1,28 @@
+package com.ep18.couriersync.backend.config.web;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.DomainException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/** Equivalente REST de GraphQLExceptionResolver: mismo {code, message} para errores de dominio. */
+@Slf4j
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<Map<String, String>> domain(DomainException de) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        if (de instanceof NotFoundException) status = HttpStatus.NOT_FOUND;
+        if (de instanceof ConflictException) status = HttpStatus.CONFLICT;
+
+        log.warn("REST domain error: {} ({})", de.getMessage(), de.getCode());
+        return ResponseEntity.status(status).body(Map.of("code", de.getCode(), "message", de.getMessage()));
+    }
+}
@@ -1,9 +1,12 @@
 package com.ep18.couriersync.backend.customers.api.graphql;
 
+import com.ep18.couriersync.backend.common.pagination.PageSelection;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadFilter;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CreateCiudadInput;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
 import com.ep18.couriersync.backend.customers.service.CiudadService;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -24,19 +27,29 @@ public class CiudadGraphQL {
     @QueryMapping
     public PageModels.CiudadPage ciudadesByDepartamento(@Argument Integer idDepartamento,
                                                         @Argument Integer page,
-                                                        @Argument Integer size) {
-        var resp = service.listByDepartamento(idDepartamento, page, size);
+                                                        @Argument Integer size,
+                                                        DataFetchingFieldSelectionSet selection) {
+        var resp = service.listByDepartamento(idDepartamento, page, size, PageSelection.wantsTotals(selection));
         return new PageModels.CiudadPage(resp.content(), resp.pageInfo());
     }
 
     @QueryMapping
     public PageModels.CiudadPage searchCiudades(@Argument String q,
                                                 @Argument Integer page,
-                                                @Argument Integer size) {
-        var resp = service.search(q, page, size);
+                                                @Argument Integer size,
+                                                DataFetchingFieldSelectionSet selection) {
+        var resp = service.search(q, page, size, PageSelection.wantsTotals(selection));
         return new PageModels.CiudadPage(resp.content(), resp.pageInfo());
     }
 
+    @QueryMapping
+    public PageModels.CiudadConnection ciudadesConnection(@Argument Integer first,
+                                                          @Argument String after,
+                                                          @Argument CiudadFilter filter) {
+        var conn = service.connection(filter, first, after);
+        return new PageModels.CiudadConnection(conn.edges(), conn.pageInfo());
+    }
+
     @MutationMapping
     public CiudadView createCiudad(@Argument CreateCiudadInput input) {
         return service.create(input);
@@ -1,10 +1,12 @@
 package com.ep18.couriersync.backend.customers.api.graphql;
 
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
+import com.ep18.couriersync.backend.common.pagination.PageSelection;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.CreateDepartamentoInput;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.DepartamentoView;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.UpdateDepartamentoInput;
 import com.ep18.couriersync.backend.customers.service.DepartamentoService;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -23,8 +25,9 @@ public class DepartamentoGraphQL {
     }
 
     @QueryMapping
-    public PageModels.DepartamentoPage departamentos(@Argument Integer page, @Argument Integer size) {
-        PageResponse<DepartamentoView> resp = service.list(page, size);
+    public PageModels.DepartamentoPage departamentos(@Argument Integer page, @Argument Integer size,
+                                                     DataFetchingFieldSelectionSet selection) {
+        PageResponse<DepartamentoView> resp = service.list(page, size, PageSelection.wantsTotals(selection));
         return new PageModels.DepartamentoPage(resp.content(), resp.pageInfo());
     }
 
@@ -1,5 +1,7 @@
 package com.ep18.couriersync.backend.customers.api.graphql;
 
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.CursorPageInfo;
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Edge;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageInfo;
 import java.util.List;
 
@@ -21,4 +23,16 @@ public final class PageModels {
     public record UsuarioPage(
             List<com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView> content,
             PageInfo pageInfo) {}
-}
\ No newline at end of file
+
+    public record UsuarioConnection(
+            List<Edge<com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView>> edges,
+            CursorPageInfo pageInfo) {}
+
+    public record CiudadConnection(
+            List<Edge<com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView>> edges,
+            CursorPageInfo pageInfo) {}
+
+    public record UsuarioChangeConnection(
+            List<Edge<com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChange>> edges,
+            CursorPageInfo pageInfo) {}
+}
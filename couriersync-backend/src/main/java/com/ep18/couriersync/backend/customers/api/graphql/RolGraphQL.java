@@ -1,10 +1,12 @@
 package com.ep18.couriersync.backend.customers.api.graphql;
 
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
+import com.ep18.couriersync.backend.common.pagination.PageSelection;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.CreateRolInput;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.RolView;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.UpdateRolInput;
 import com.ep18.couriersync.backend.customers.service.RolService;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -23,8 +25,9 @@ public class RolGraphQL {
     }
 
     @QueryMapping
-    public PageModels.RolPage roles(@Argument Integer page, @Argument Integer size) {
-        PageResponse<RolView> resp = service.list(page, size);
+    public PageModels.RolPage roles(@Argument Integer page, @Argument Integer size,
+                                    DataFetchingFieldSelectionSet selection) {
+        PageResponse<RolView> resp = service.list(page, size, PageSelection.wantsTotals(selection));
         return new PageModels.RolPage(resp.content(), resp.pageInfo());
     }
 
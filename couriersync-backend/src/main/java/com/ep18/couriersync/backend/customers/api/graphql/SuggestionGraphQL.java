@@ -0,0 +1,24 @@
+package com.ep18.couriersync.backend.customers.api.graphql;
+
+import com.ep18.couriersync.backend.common.pagination.PageRequestUtil;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionView;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+public class SuggestionGraphQL {
+
+    private final SuggestionIndex index;
+
+    /** Autocompletado desde memoria: sin transacción ni conexión a la BD. */
+    @QueryMapping
+    public List<SuggestionView> suggest(@Argument String prefix, @Argument Integer limit) {
+        return index.suggest(prefix, PageRequestUtil.limit(limit));
+    }
+}
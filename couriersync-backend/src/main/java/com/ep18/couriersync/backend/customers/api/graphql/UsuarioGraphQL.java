@@ -1,24 +1,47 @@
 package com.ep18.couriersync.backend.customers.api.graphql;
 
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
+import com.ep18.couriersync.backend.common.pagination.PageSelection;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
+import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.DepartamentoView;
+import com.ep18.couriersync.backend.customers.dto.RolDTOs.RolView;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioResult;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView;
+import com.ep18.couriersync.backend.customers.service.CiudadService;
+import com.ep18.couriersync.backend.customers.service.DepartamentoService;
+import com.ep18.couriersync.backend.customers.service.RolService;
+import com.ep18.couriersync.backend.customers.service.UsuarioBulkService;
 import com.ep18.couriersync.backend.customers.service.UsuarioService;
 import jakarta.validation.Valid;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Controller
 @Validated
 @RequiredArgsConstructor
 public class UsuarioGraphQL {
 
     private final UsuarioService service;
+    private final UsuarioBulkService bulkService;
+    private final CiudadService ciudadService;
+    private final DepartamentoService departamentoService;
+    private final RolService rolService;
 
     @QueryMapping
     public UsuarioView usuarioById(@Argument Integer id) {
@@ -28,40 +51,98 @@ public class UsuarioGraphQL {
     @QueryMapping
     public PageModels.UsuarioPage searchUsuarios(@Argument String q,
                                                  @Argument Integer page,
-                                                 @Argument Integer size) {
-        PageResponse<UsuarioView> resp = service.search(q, page, size);
+                                                 @Argument Integer size,
+                                                 DataFetchingFieldSelectionSet selection) {
+        PageResponse<UsuarioView> resp = service.search(q, page, size, PageSelection.wantsTotals(selection));
         return new PageModels.UsuarioPage(resp.content(), resp.pageInfo());
     }
 
     @QueryMapping
     public PageModels.UsuarioPage usuariosByCiudad(@Argument Integer idCiudad,
                                                    @Argument Integer page,
-                                                   @Argument Integer size) {
-        var resp = service.listByCiudad(idCiudad, page, size);
+                                                   @Argument Integer size,
+                                                   DataFetchingFieldSelectionSet selection) {
+        var resp = service.listByCiudad(idCiudad, page, size, PageSelection.wantsTotals(selection));
         return new PageModels.UsuarioPage(resp.content(), resp.pageInfo());
     }
 
     @QueryMapping
     public PageModels.UsuarioPage usuariosByDepartamento(@Argument Integer idDepartamento,
                                                          @Argument Integer page,
-                                                         @Argument Integer size) {
-        var resp = service.listByDepartamento(idDepartamento, page, size);
+                                                         @Argument Integer size,
+                                                         DataFetchingFieldSelectionSet selection) {
+        var resp = service.listByDepartamento(idDepartamento, page, size, PageSelection.wantsTotals(selection));
         return new PageModels.UsuarioPage(resp.content(), resp.pageInfo());
     }
 
     @QueryMapping
     public PageModels.UsuarioPage usuariosByRol(@Argument Integer idRol,
                                                 @Argument Integer page,
-                                                @Argument Integer size) {
-        var resp = service.listByRol(idRol, page, size);
+                                                @Argument Integer size,
+                                                DataFetchingFieldSelectionSet selection) {
+        var resp = service.listByRol(idRol, page, size, PageSelection.wantsTotals(selection));
+        return new PageModels.UsuarioPage(resp.content(), resp.pageInfo());
+    }
+
+    @QueryMapping
+    public PageModels.UsuarioPage usuarios(@Argument UsuarioFilter filter,
+                                           @Argument UsuarioSort sort,
+                                           @Argument Integer page,
+                                           @Argument Integer size,
+                                           DataFetchingFieldSelectionSet selection) {
+        var resp = service.list(filter, sort, page, size, PageSelection.wantsTotals(selection));
         return new PageModels.UsuarioPage(resp.content(), resp.pageInfo());
     }
 
+    @QueryMapping
+    public PageModels.UsuarioConnection usuariosConnection(@Argument Integer first,
+                                                           @Argument String after,
+                                                           @Argument UsuarioFilter filter) {
+        var conn = service.connection(filter, first, after);
+        return new PageModels.UsuarioConnection(conn.edges(), conn.pageInfo());
+    }
+
+    /** Feed de cambios para sincronización incremental (ver UsuarioService.changesSince) */
+    @QueryMapping
+    public PageModels.UsuarioChangeConnection usuariosChangedSince(@Argument String cursor,
+                                                                   @Argument Integer limit) {
+        var conn = service.changesSince(cursor, limit);
+        return new PageModels.UsuarioChangeConnection(conn.edges(), conn.pageInfo());
+    }
+
+    // Asociaciones anidadas: una sola resolución por lotes por tipo y por petición,
+    // y solo si el cliente selecciona el campo.
+
+    @BatchMapping(typeName = "Usuario")
+    public List<CiudadView> ciudad(List<UsuarioView> usuarios) {
+        Map<Integer, CiudadView> byId = ciudadService.findViewsByIds(ids(usuarios, UsuarioView::idCiudad));
+        return usuarios.stream().map(u -> byId.get(u.idCiudad())).toList();
+    }
+
+    @BatchMapping(typeName = "Usuario")
+    public List<DepartamentoView> departamento(List<UsuarioView> usuarios) {
+        Map<Integer, DepartamentoView> byId =
+                departamentoService.findViewsByIds(ids(usuarios, UsuarioView::idDepartamento));
+        return usuarios.stream().map(u -> byId.get(u.idDepartamento())).toList();
+    }
+
+    @BatchMapping(typeName = "Usuario")
+    public List<RolView> rol(List<UsuarioView> usuarios) {
+        Map<Integer, RolView> byId = rolService.findViewsByIds(ids(usuarios, UsuarioView::idRol));
+        return usuarios.stream().map(u -> byId.get(u.idRol())).toList();
+    }
+
     @MutationMapping
     public UsuarioView createUsuario(@Argument @Valid CreateUsuarioInput input) {
         return service.create(input);
     }
 
+    /** Alta masiva: validación por elemento, los errores vienen en cada resultado */
+    @MutationMapping
+    public List<CreateUsuarioResult> createUsuarios(@Argument List<CreateUsuarioInput> inputs) {
+        return bulkService.createAll(inputs);
+    }
+
     @MutationMapping
     public UsuarioView updateUsuario(@Argument @Valid UpdateUsuarioInput input) {
         return service.update(input);
@@ -71,4 +152,8 @@ public class UsuarioGraphQL {
     public Boolean deleteUsuario(@Argument Integer id) {
         return service.delete(id);
     }
+
+    private static Set<Integer> ids(List<UsuarioView> usuarios, Function<UsuarioView, Integer> fk) {
+        return usuarios.stream().map(fk).collect(Collectors.toSet());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.ep18.couriersync.backend.customers.api.rest;
+
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import com.ep18.couriersync.backend.customers.exporter.ExportFormat;
+import com.ep18.couriersync.backend.customers.service.UsuarioExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * Descarga completa de usuarios (CSV o NDJSON, opcionalmente gzip) con los filtros de
+ * usuarios(filter, sort). El cuerpo se escribe mientras se recorre el cursor.
+ */
+@RestController
+@RequestMapping("/api/usuarios/export")
+@RequiredArgsConstructor
+public class UsuarioExportController {
+
+    private final UsuarioExportService service;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer idCiudad,
+            @RequestParam(required = false) Integer idDepartamento,
+            @RequestParam(required = false) Integer idRol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(required = false) UsuarioSort sort) {
+        UsuarioFilter filter = new UsuarioFilter(q, idCiudad, idDepartamento, idRol, fechaDesde, fechaHasta);
+        service.validate(filter); // 400 antes de empezar a escribir la respuesta
+        String archivo = "usuarios." + format.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip
+                        ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(format.mediaType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .body(out -> service.export(filter, sort, format, gzip, out));
+    }
+}
@@ -0,0 +1,54 @@
+package com.ep18.couriersync.backend.customers.api.rest;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.dto.ImportDTOs.ImportResult;
+import com.ep18.couriersync.backend.customers.importer.ImportFormat;
+import com.ep18.couriersync.backend.customers.service.UsuarioImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Importación masiva de usuarios. Va por REST y no por GraphQL porque el cuerpo es el archivo
+ * crudo (CSV o NDJSON) y se consume en streaming desde la petición, sin cargarlo en memoria.
+ */
+@RestController
+@RequestMapping("/api/usuarios/import")
+@RequiredArgsConstructor
+public class UsuarioImportController {
+
+    private final UsuarioImportService service;
+
+    @PostMapping(consumes = {"text/csv", "application/x-ndjson"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResult importar(HttpServletRequest request) throws IOException {
+        ImportFormat formato = request.getContentType() == null
+                ? null
+                : ImportFormat.of(MediaType.parseMediaType(request.getContentType()));
+        if (formato == null) throw new ValidationException("Formato no soportado: use text/csv o application/x-ndjson");
+        return service.importar(formato, request.getInputStream());
+    }
+
+    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResult resumen(@PathVariable UUID id) {
+        return service.resumen(id);
+    }
+
+    @GetMapping(path = "/{id}/rechazos", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> rechazos(@PathVariable UUID id) {
+        service.resumen(id); // 404 antes de empezar a escribir la respuesta
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header("Content-Disposition", "attachment; filename=\"rechazos-" + id + ".csv\"")
+                .body(out -> service.writeRechazos(id, out));
+    }
+}
@@ -0,0 +1,12 @@
+package com.ep18.couriersync.backend.customers.catalog;
+
+/** Snapshots inmutables de los datos de referencia (departamentos, ciudades y roles). */
+public final class CatalogRefs {
+    private CatalogRefs() {}
+
+    public record DepartamentoRef(int idDepartamento, String nombreDepartamento) {}
+
+    public record CiudadRef(int idCiudad, String nombreCiudad, int idDepartamento) {}
+
+    public record RolRef(int idRol, String nombreRol) {}
+}
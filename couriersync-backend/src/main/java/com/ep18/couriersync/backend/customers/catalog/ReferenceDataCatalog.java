@@ -0,0 +1,272 @@
+package com.ep18.couriersync.backend.customers.catalog;
+
+import com.ep18.couriersync.backend.common.tx.AfterCommit;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
+import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
+import com.ep18.couriersync.backend.customers.repository.RolRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Catálogo en memoria de departamentos, ciudades y roles.
+ * Las tablas son pequeñas y casi no cambian: se cargan completas en un snapshot inmutable
+ * que se reemplaza de forma atómica cuando sus servicios escriben (tras el commit).
+ * Un fallo de búsqueda recarga el snapshot como mucho una vez por intervalo, para
+ * recoger cambios hechos por otras instancias sin castigar ids inexistentes; dentro del
+ * intervalo, los ids que faltan se leen de la BD por clave y se agregan al snapshot, así un
+ * id creado por otra instancia se resuelve siempre y solo cuesta una lectura.
+ */
+@Slf4j
+@Component
+public class ReferenceDataCatalog {
+
+    private final DepartamentoRepository departamentoRepo;
+    private final CiudadRepository ciudadRepo;
+    private final RolRepository rolRepo;
+    private final long missReloadIntervalNanos;
+    private final Counter reloads;
+    private final Kind<DepartamentoRef> departamentos;
+    private final Kind<CiudadRef> ciudades;
+    private final Kind<RolRef> roles;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private volatile long lastReloadNanos;
+
+    public ReferenceDataCatalog(DepartamentoRepository departamentoRepo,
+                                CiudadRepository ciudadRepo,
+                                RolRepository rolRepo,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.catalog.miss-reload-interval:PT5S}") Duration missReloadInterval) {
+        this.departamentoRepo = departamentoRepo;
+        this.ciudadRepo = ciudadRepo;
+        this.rolRepo = rolRepo;
+        this.missReloadIntervalNanos = missReloadInterval.toNanos();
+        this.lastReloadNanos = System.nanoTime() - missReloadIntervalNanos;
+        this.reloads = Counter.builder("couriersync.catalog.reloads")
+                .description("Recargas completas del catálogo de datos de referencia")
+                .register(meterRegistry);
+        this.departamentos = new Kind<>("departamento", Snapshot::departamentos,
+                (s, i) -> new Snapshot(i, s.ciudades(), s.roles()),
+                DepartamentoRef::idDepartamento, departamentoRepo::findRefsByIds, meterRegistry, snapshot);
+        this.ciudades = new Kind<>("ciudad", Snapshot::ciudades,
+                (s, i) -> new Snapshot(s.departamentos(), i, s.roles()),
+                CiudadRef::idCiudad, ciudadRepo::findRefsByIds, meterRegistry, snapshot);
+        this.roles = new Kind<>("rol", Snapshot::roles,
+                (s, i) -> new Snapshot(s.departamentos(), s.ciudades(), i),
+                RolRef::idRol, rolRepo::findRefsByIds, meterRegistry, snapshot);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Se reintentará en el primer acceso
+            log.warn("No se pudo precargar el catálogo de referencia: {}", e.toString());
+        }
+    }
+
+    public Optional<DepartamentoRef> departamento(int idDepartamento) {
+        return Optional.ofNullable(lookup(departamentos, idDepartamento));
+    }
+
+    public Optional<CiudadRef> ciudad(int idCiudad) {
+        return Optional.ofNullable(lookup(ciudades, idCiudad));
+    }
+
+    public Optional<RolRef> rol(int idRol) {
+        return Optional.ofNullable(lookup(roles, idRol));
+    }
+
+    /** Búsqueda por lotes (DataLoader): un solo snapshot y como mucho una recarga por llamada. */
+    public Map<Integer, DepartamentoRef> departamentos(Collection<Integer> ids) {
+        return lookupAll(departamentos, ids);
+    }
+
+    public Map<Integer, CiudadRef> ciudades(Collection<Integer> ids) {
+        return lookupAll(ciudades, ids);
+    }
+
+    public Map<Integer, RolRef> roles(Collection<Integer> ids) {
+        return lookupAll(roles, ids);
+    }
+
+    /** Programa una recarga para cuando la transacción de escritura actual confirme. */
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::reload);
+    }
+
+    /** Relee las tres tablas y publica el nuevo snapshot de una sola vez. */
+    public synchronized Snapshot reload() {
+        Snapshot fresh = new Snapshot(
+                RefIndex.of(departamentoRepo.findAllRefs(), DepartamentoRef::idDepartamento),
+                RefIndex.of(ciudadRepo.findAllRefs(), CiudadRef::idCiudad),
+                RefIndex.of(rolRepo.findAllRefs(), RolRef::idRol));
+        snapshot.set(fresh);
+        lastReloadNanos = System.nanoTime();
+        reloads.increment();
+        return fresh;
+    }
+
+    private <T> T lookup(Kind<T> kind, int id) {
+        T found = kind.index.apply(current()).get(id);
+        if (found == null && missReloadAllowed()) {
+            found = kind.index.apply(reload()).get(id);
+        }
+        if (found != null) {
+            kind.hits.increment();
+            return found;
+        }
+        return fetch(kind, List.of(id)).get(id);
+    }
+
+    private <T> Map<Integer, T> lookupAll(Kind<T> kind, Collection<Integer> ids) {
+        Map<Integer, T> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        RefIndex<T> index = kind.index.apply(current());
+        boolean reloaded = false;
+        for (Integer id : ids) {
+            T found = index.get(id);
+            if (found == null && !reloaded && missReloadAllowed()) {
+                index = kind.index.apply(reload());
+                reloaded = true;
+                found = index.get(id);
+            }
+            if (found != null) {
+                kind.hits.increment();
+                result.put(id, found);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) result.putAll(fetch(kind, missing));
+        return result;
+    }
+
+    /**
+     * Lee de la BD los ids que el snapshot no tiene y los agrega a él (sin recarga completa).
+     * Los que tampoco están en la BD cuentan como fallo.
+     */
+    private <T> Map<Integer, T> fetch(Kind<T> kind, Collection<Integer> ids) {
+        List<T> rows = kind.loader.apply(ids);
+        Map<Integer, T> found = new HashMap<>();
+        for (T row : rows) found.put(kind.idOf.applyAsInt(row), row);
+        kind.fetched.increment(found.size());
+        kind.misses.increment(ids.size() - found.size());
+        if (!rows.isEmpty()) {
+            snapshot.updateAndGet(s -> kind.replace.apply(s, kind.index.apply(s).with(rows, kind.idOf)));
+        }
+        return found;
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot.get();
+        return s != null ? s : reload();
+    }
+
+    private boolean missReloadAllowed() {
+        return System.nanoTime() - lastReloadNanos >= missReloadIntervalNanos;
+    }
+
+    /** Tipo de dato de referencia con sus contadores precreados (sin lookups al registry por búsqueda). */
+    private static final class Kind<T> {
+        private final Function<Snapshot, RefIndex<T>> index;
+        private final BiFunction<Snapshot, RefIndex<T>, Snapshot> replace;
+        private final ToIntFunction<T> idOf;
+        private final Function<Collection<Integer>, List<T>> loader;
+        private final Counter hits;
+        private final Counter fetched;
+        private final Counter misses;
+
+        Kind(String tipo, Function<Snapshot, RefIndex<T>> index, BiFunction<Snapshot, RefIndex<T>, Snapshot> replace,
+             ToIntFunction<T> idOf, Function<Collection<Integer>, List<T>> loader,
+             MeterRegistry registry, AtomicReference<Snapshot> snapshot) {
+            this.index = index;
+            this.replace = replace;
+            this.idOf = idOf;
+            this.loader = loader;
+            this.hits = registry.counter("couriersync.catalog.lookups", "tipo", tipo, "resultado", "hit");
+            this.fetched = registry.counter("couriersync.catalog.lookups", "tipo", tipo, "resultado", "bd");
+            this.misses = registry.counter("couriersync.catalog.lookups", "tipo", tipo, "resultado", "miss");
+            Gauge.builder("couriersync.catalog.size", snapshot, ref -> {
+                        Snapshot s = ref.get();
+                        return s == null ? 0 : index.apply(s).size();
+                    })
+                    .tag("tipo", tipo).register(registry);
+        }
+    }
+
+    public record Snapshot(RefIndex<DepartamentoRef> departamentos,
+                           RefIndex<CiudadRef> ciudades,
+                           RefIndex<RolRef> roles) {}
+
+    /** Índice inmutable por id primitivo: ids ordenados + búsqueda binaria, sin boxing. */
+    public static final class RefIndex<T> {
+        private final int[] ids;
+        private final Object[] values;
+
+        private RefIndex(int[] ids, Object[] values) {
+            this.ids = ids;
+            this.values = values;
+        }
+
+        static <T> RefIndex<T> of(List<T> rows, ToIntFunction<T> idOf) {
+            Object[] sorted = rows.stream()
+                    .sorted((a, b) -> Integer.compare(idOf.applyAsInt(a), idOf.applyAsInt(b)))
+                    .toArray();
+            int[] ids = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                @SuppressWarnings("unchecked") T row = (T) sorted[i];
+                ids[i] = idOf.applyAsInt(row);
+            }
+            return new RefIndex<>(ids, sorted);
+        }
+
+        /** Copia con {@code rows} agregadas (o reemplazadas si el id ya estaba). */
+        @SuppressWarnings("unchecked")
+        RefIndex<T> with(List<T> rows, ToIntFunction<T> idOf) {
+            Set<Integer> replaced = new HashSet<>();
+            for (T row : rows) replaced.add(idOf.applyAsInt(row));
+            List<T> merged = new ArrayList<>(ids.length + rows.size());
+            for (int i = 0; i < ids.length; i++) {
+                if (!replaced.contains(ids[i])) merged.add((T) values[i]);
+            }
+            merged.addAll(rows);
+            return of(merged, idOf);
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(int id) {
+            int i = Arrays.binarySearch(ids, id);
+            return i < 0 ? null : (T) values[i];
+        }
+
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -10,7 +10,14 @@ import lombok.Setter;
  * Tabla: public.tblciudades
  */
 @Entity
-@Table(name = "tblciudades", schema = "public")
+@Table(
+        name = "tblciudades",
+        schema = "public",
+        indexes = {
+                // Paginación keyset: orden (nombre_ciudad, id_ciudad)
+                @Index(name = "idx_ciudades_nombre_id", columnList = "nombre_ciudad, id_ciudad")
+        }
+)
 @Getter @Setter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
 public class Ciudad extends AuditableEntity {
@@ -24,6 +31,10 @@ public class Ciudad extends AuditableEntity {
     @Column(name = "nombre_ciudad", nullable = false, length = 30)
     private String nombreCiudad;
 
+    /** nombreCiudad normalizado (SearchKeys): lo mantiene CiudadService al escribir; índice GIN trigrama */
+    @Column(name = "nombre_busqueda", nullable = false, length = 30)
+    private String nombreBusqueda;
+
     /**
      * Columna FK en BD: "departamento" INTEGER NOT NULL
      * Constraint: departamento_ciudad -> tbldepartamentos(id_departamento)
@@ -16,8 +16,17 @@ import java.time.LocalDate;
 @Table(
         name = "tblusuarios",
         schema = "public",
-        uniqueConstraints = {
-                @UniqueConstraint(name = "unicidad_correo", columnNames = "correo")
+        indexes = {
+                // Filtros por igualdad (ciudad/departamento/rol) + orden por nombre o fecha_registro;
+                // id_usuario desempata y sirve a la paginación keyset. Ver V4__usuario_filter_indexes.sql
+                @Index(name = "idx_usuarios_nombre_id", columnList = "nombre, id_usuario"),
+                @Index(name = "idx_usuarios_ciudad_nombre_id", columnList = "ciudad, nombre, id_usuario"),
+                @Index(name = "idx_usuarios_departamento_nombre_id", columnList = "departamento, nombre, id_usuario"),
+                @Index(name = "idx_usuarios_rol_nombre_id", columnList = "rol, nombre, id_usuario"),
+                @Index(name = "idx_usuarios_fecha_id", columnList = "fecha_registro, id_usuario"),
+                @Index(name = "idx_usuarios_ciudad_fecha_id", columnList = "ciudad, fecha_registro, id_usuario"),
+                @Index(name = "idx_usuarios_departamento_fecha_id", columnList = "departamento, fecha_registro, id_usuario"),
+                @Index(name = "idx_usuarios_rol_fecha_id", columnList = "rol, fecha_registro, id_usuario")
         }
 )
 @Getter @Setter
@@ -25,8 +34,11 @@ import java.time.LocalDate;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
 public class Usuario extends AuditableEntity {
 
+    /** Secuencia con bloques de 50 (V5): permite lotes JDBC en altas masivas, a diferencia de IDENTITY */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuarios_id")
+    @SequenceGenerator(name = "usuarios_id", schema = "public",
+            sequenceName = "tblusuarios_id_usuario_seq", allocationSize = 50)
     @Column(name = "id_usuario", nullable = false)
     @EqualsAndHashCode.Include
     private Integer idUsuario;
@@ -34,6 +46,10 @@ public class Usuario extends AuditableEntity {
     @Column(name = "nombre", nullable = false, length = 50)
     private String nombre;
 
+    /** nombre normalizado (SearchKeys): lo mantiene UsuarioService al escribir; índice GIN trigrama */
+    @Column(name = "nombre_busqueda", nullable = false, length = 50)
+    private String nombreBusqueda;
+
     @Column(name = "correo", nullable = false, length = 100)
     private String correo;
 
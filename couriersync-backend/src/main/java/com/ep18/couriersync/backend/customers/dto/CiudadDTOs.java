@@ -25,4 +25,10 @@ public final class CiudadDTOs {
             Integer idDepartamento,
             String nombreDepartamento
     ) {}
+
+    /** Filtros opcionales de ciudadesConnection (se combinan con AND). */
+    public record CiudadFilter(
+            String q,
+            Integer idDepartamento
+    ) {}
 }
\ No newline at end of file
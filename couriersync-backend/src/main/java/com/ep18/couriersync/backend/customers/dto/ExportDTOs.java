@@ -0,0 +1,24 @@
+package com.ep18.couriersync.backend.customers.dto;
+
+import java.time.LocalDate;
+
+/** Filas de la exportación masiva de usuarios. */
+public final class ExportDTOs {
+    private ExportDTOs() {}
+
+    /** UsuarioRow con los nombres de ciudad, departamento y rol ya resueltos (catálogo en memoria). */
+    public record UsuarioExportRow(
+            Integer idUsuario,
+            String nombre,
+            String correo,
+            String telefono,
+            LocalDate fechaRegistro,
+            String detalleDireccion,
+            Integer idCiudad,
+            String nombreCiudad,
+            Integer idDepartamento,
+            String nombreDepartamento,
+            Integer idRol,
+            String nombreRol
+    ) {}
+}
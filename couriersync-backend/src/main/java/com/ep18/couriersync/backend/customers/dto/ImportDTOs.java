@@ -0,0 +1,19 @@
+package com.ep18.couriersync.backend.customers.dto;
+
+import com.ep18.couriersync.backend.customers.importer.ImportFormat;
+
+import java.util.UUID;
+
+/** Resumen de una importación masiva de usuarios. */
+public final class ImportDTOs {
+    private ImportDTOs() {}
+
+    /** total = registros leídos; el detalle de los rechazados se descarga aparte como CSV. */
+    public record ImportResult(
+            UUID idImportacion,
+            ImportFormat formato,
+            long total,
+            long insertados,
+            long rechazados
+    ) {}
+}
@@ -0,0 +1,14 @@
+package com.ep18.couriersync.backend.customers.dto;
+
+/** DTOs del autocompletado (suggest). */
+public final class SuggestionDTOs {
+    private SuggestionDTOs() {}
+
+    public enum SuggestionTipo { CIUDAD, USUARIO }
+
+    public record SuggestionView(
+            SuggestionTipo tipo,
+            Integer id,
+            String texto
+    ) {}
+}
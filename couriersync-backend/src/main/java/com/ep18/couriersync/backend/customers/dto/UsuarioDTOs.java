@@ -1,7 +1,9 @@
 package com.ep18.couriersync.backend.customers.dto;
 
+import com.ep18.couriersync.backend.common.dto.BatchDTOs.ItemError;
 import jakarta.validation.constraints.*;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 
 /** DTOs de Usuario (crear/actualizar/ver). */
 public final class UsuarioDTOs {
@@ -49,4 +51,82 @@ public final class UsuarioDTOs {
             Integer idRol,
             String nombreRol
     ) {}
-}
\ No newline at end of file
+
+    /** Resultado de un elemento de createUsuarios: el usuario creado o el error que lo descartó. */
+    public record CreateUsuarioResult(
+            int index,
+            UsuarioView usuario,
+            ItemError error
+    ) {
+        public static CreateUsuarioResult ok(int index, UsuarioView usuario) {
+            return new CreateUsuarioResult(index, usuario, null);
+        }
+
+        public static CreateUsuarioResult failed(int index, ItemError error) {
+            return new CreateUsuarioResult(index, null, error);
+        }
+    }
+
+    /** Fila plana de tblusuarios con solo los ids de sus FKs (lecturas sin joins). */
+    public record UsuarioRow(
+            Integer idUsuario,
+            String nombre,
+            String correo,
+            String telefono,
+            LocalDate fechaRegistro,
+            String detalleDireccion,
+            Integer idCiudad,
+            Integer idDepartamento,
+            Integer idRol
+    ) {}
+
+    /** Solo id + nombre: carga inicial del índice de autocompletado. */
+    public record UsuarioNombreRow(
+            Integer idUsuario,
+            String nombre
+    ) {}
+
+    /** Filtros opcionales de usuarios/usuariosConnection (se combinan con AND; fechas inclusivas). */
+    public record UsuarioFilter(
+            String q,
+            Integer idCiudad,
+            Integer idDepartamento,
+            Integer idRol,
+            LocalDate fechaDesde,
+            LocalDate fechaHasta
+    ) {}
+
+    /** Órdenes soportados por índices; el id desempata para que el orden sea total. */
+    public enum UsuarioSort {
+        NOMBRE_ASC,
+        NOMBRE_DESC,
+        FECHA_REGISTRO_ASC,
+        FECHA_REGISTRO_DESC
+    }
+
+    /** Tipo de cambio en el feed: CREATED si la fila no se ha modificado desde su alta. */
+    public enum UsuarioChangeTipo {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    /**
+     * Fila del feed de cambios (usuariosChangedSince): la transacción que la escribió (ordena el
+     * feed, ver V8) y la fila actual, o null si el usuario fue eliminado.
+     */
+    public record UsuarioChangeRow(
+            String txid,
+            UsuarioChangeTipo tipo,
+            Integer idUsuario,
+            OffsetDateTime changedAt,
+            UsuarioRow usuario
+    ) {}
+
+    public record UsuarioChange(
+            UsuarioChangeTipo tipo,
+            Integer idUsuario,
+            OffsetDateTime changedAt,
+            UsuarioView usuario
+    ) {}
+}
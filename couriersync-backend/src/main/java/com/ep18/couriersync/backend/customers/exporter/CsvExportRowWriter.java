@@ -0,0 +1,42 @@
+package com.ep18.couriersync.backend.customers.exporter;
+
+import com.ep18.couriersync.backend.common.csv.CsvWriter;
+import com.ep18.couriersync.backend.customers.dto.ExportDTOs.UsuarioExportRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/** CSV con encabezado; los nombres de columna son los campos de UsuarioExportRow. */
+final class CsvExportRowWriter implements ExportRowWriter {
+
+    private static final String[] HEADER = {
+            "idUsuario", "nombre", "correo", "telefono", "fechaRegistro", "detalleDireccion",
+            "idCiudad", "nombreCiudad", "idDepartamento", "nombreDepartamento", "idRol", "nombreRol"};
+
+    private final CsvWriter csv;
+
+    CsvExportRowWriter(OutputStream out) throws IOException {
+        this.csv = new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024),
+                false);
+        for (String column : HEADER) csv.field(column);
+        csv.endRow();
+    }
+
+    @Override
+    public void write(UsuarioExportRow r) throws IOException {
+        csv.field(r.idUsuario()).field(r.nombre()).field(r.correo()).field(r.telefono())
+                .field(r.fechaRegistro()).field(r.detalleDireccion())
+                .field(r.idCiudad()).field(r.nombreCiudad())
+                .field(r.idDepartamento()).field(r.nombreDepartamento())
+                .field(r.idRol()).field(r.nombreRol());
+        csv.endRow();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        csv.flush();
+    }
+}
@@ -0,0 +1,23 @@
+package com.ep18.couriersync.backend.customers.exporter;
+
+import com.ep18.couriersync.backend.customers.dto.ExportDTOs.UsuarioExportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Escribe la exportación fila a fila sobre la respuesta; nada se acumula en memoria salvo el búfer. */
+public interface ExportRowWriter {
+
+    void write(UsuarioExportRow row) throws IOException;
+
+    /** Vacía el búfer sin cerrar el flujo de salida, que pertenece al llamador. */
+    void finish() throws IOException;
+
+    static ExportRowWriter open(ExportFormat format, OutputStream out, ObjectMapper mapper) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvExportRowWriter(out);
+            case NDJSON -> new NdjsonExportRowWriter(out, mapper);
+        };
+    }
+}
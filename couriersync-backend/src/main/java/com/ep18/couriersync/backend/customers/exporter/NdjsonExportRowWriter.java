@@ -0,0 +1,37 @@
+package com.ep18.couriersync.backend.customers.exporter;
+
+import com.ep18.couriersync.backend.customers.dto.ExportDTOs.UsuarioExportRow;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Un objeto JSON por línea, escrito con un único generador de Jackson en streaming. */
+final class NdjsonExportRowWriter implements ExportRowWriter {
+
+    private final JsonGenerator json;
+    private final ObjectWriter writer;
+
+    NdjsonExportRowWriter(OutputStream out, ObjectMapper mapper) throws IOException {
+        this.json = mapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null); // el separador es el '\n' de cada línea
+        // Sin flush por objeto: el generador vacía su búfer cuando se llena
+        this.writer = mapper.writerFor(UsuarioExportRow.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public void write(UsuarioExportRow row) throws IOException {
+        writer.writeValue(json, row);
+        json.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        json.flush();
+    }
+}
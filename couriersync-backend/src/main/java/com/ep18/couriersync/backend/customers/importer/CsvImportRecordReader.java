@@ -0,0 +1,110 @@
+package com.ep18.couriersync.backend.customers.importer;
+
+import com.ep18.couriersync.backend.common.csv.CsvReader;
+import com.ep18.couriersync.backend.common.csv.CsvWriter;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV con encabezado cuyos nombres son los campos de CreateUsuarioInput (sin distinguir
+ * mayúsculas, en cualquier orden). fechaRegistro es opcional; un campo vacío se toma como null.
+ */
+final class CsvImportRecordReader implements ImportRecordReader {
+
+    private static final List<String> COLUMNS = List.of(
+            "nombre", "correo", "telefono", "fechaRegistro", "detalleDireccion", "idCiudad", "idDepartamento", "idRol");
+    private static final List<String> OPTIONAL = List.of("fechaRegistro");
+
+    private final CsvReader csv;
+    /** posición de cada columna de COLUMNS en el archivo (-1 si no viene) */
+    private final int[] index = new int[COLUMNS.size()];
+    private final int width;
+
+    CsvImportRecordReader(Reader in) throws IOException {
+        this.csv = new CsvReader(in);
+        List<String> header = csv.next();
+        if (header == null) throw new ValidationException("El archivo está vacío");
+
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).strip().toLowerCase(Locale.ROOT);
+            if (byName.put(name, i) != null) throw new ValidationException("Columna repetida: " + header.get(i));
+        }
+        Arrays.fill(index, -1);
+        for (int c = 0; c < COLUMNS.size(); c++) {
+            Integer pos = byName.remove(COLUMNS.get(c).toLowerCase(Locale.ROOT));
+            if (pos != null) index[c] = pos;
+            else if (!OPTIONAL.contains(COLUMNS.get(c))) {
+                throw new ValidationException("Falta la columna " + COLUMNS.get(c));
+            }
+        }
+        if (!byName.isEmpty()) throw new ValidationException("Columnas desconocidas: " + byName.keySet());
+        this.width = header.size();
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        List<String> fields = csv.next();
+        if (fields == null) return null;
+        int linea = csv.recordLine();
+        String contenido = CsvWriter.line(fields);
+        if (fields.size() != width) {
+            return ImportRecord.failed(linea, contenido,
+                    "Se esperaban " + width + " columnas y hay " + fields.size());
+        }
+        try {
+            return ImportRecord.ok(linea, contenido, new CreateUsuarioInput(
+                    text(fields, 0),
+                    text(fields, 1),
+                    text(fields, 2),
+                    date(fields, 3),
+                    text(fields, 4),
+                    integer(fields, 5),
+                    integer(fields, 6),
+                    integer(fields, 7)));
+        } catch (IllegalArgumentException e) {
+            return ImportRecord.failed(linea, contenido, e.getMessage());
+        }
+    }
+
+    private String text(List<String> fields, int column) {
+        if (index[column] < 0) return null;
+        String v = fields.get(index[column]);
+        return v.isEmpty() ? null : v;
+    }
+
+    private Integer integer(List<String> fields, int column) {
+        String v = text(fields, column);
+        if (v == null) return null;
+        try {
+            return Integer.valueOf(v.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(COLUMNS.get(column) + ": no es un número entero");
+        }
+    }
+
+    private LocalDate date(List<String> fields, int column) {
+        String v = text(fields, column);
+        if (v == null) return null;
+        try {
+            return LocalDate.parse(v.strip());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(COLUMNS.get(column) + ": fecha inválida (se espera AAAA-MM-DD)");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+}
@@ -0,0 +1,26 @@
+package com.ep18.couriersync.backend.customers.importer;
+
+import org.springframework.http.MediaType;
+
+/** Formatos de importación, según el Content-Type del cuerpo. */
+public enum ImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public static ImportFormat of(MediaType contentType) {
+        for (ImportFormat f : values()) {
+            if (MediaType.parseMediaType(f.mediaType).isCompatibleWith(contentType)) return f;
+        }
+        return null;
+    }
+}
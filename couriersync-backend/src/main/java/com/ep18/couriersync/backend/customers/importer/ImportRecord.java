@@ -0,0 +1,18 @@
+package com.ep18.couriersync.backend.customers.importer;
+
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+
+/**
+ * Un registro leído del archivo: la entrada ya tipada, o el motivo por el que no se pudo leer.
+ * {@code contenido} es el registro tal como venía, para el reporte de rechazos.
+ */
+public record ImportRecord(int linea, String contenido, CreateUsuarioInput input, String error) {
+
+    public static ImportRecord ok(int linea, String contenido, CreateUsuarioInput input) {
+        return new ImportRecord(linea, contenido, input, null);
+    }
+
+    public static ImportRecord failed(int linea, String contenido, String error) {
+        return new ImportRecord(linea, contenido, null, error);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ep18.couriersync.backend.customers.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/** Recorre un archivo de importación registro a registro, sin cargarlo entero en memoria. */
+public interface ImportRecordReader extends Closeable {
+
+    /** Siguiente registro, o null al final del archivo. */
+    ImportRecord next() throws IOException;
+
+    /** Un encabezado CSV inválido se rechaza aquí (ValidationException), antes de leer filas. */
+    static ImportRecordReader open(ImportFormat format, Reader in, ObjectMapper mapper) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvImportRecordReader(in);
+            case NDJSON -> new NdjsonImportRecordReader(in, mapper);
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.ep18.couriersync.backend.customers.importer;
+
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/** Un objeto JSON por línea con los campos de CreateUsuarioInput; las líneas en blanco se ignoran. */
+final class NdjsonImportRecordReader implements ImportRecordReader {
+
+    private final BufferedReader lines;
+    private final ObjectReader reader;
+    private int linea;
+
+    NdjsonImportRecordReader(Reader in, ObjectMapper mapper) {
+        this.lines = new BufferedReader(in, 64 * 1024);
+        this.reader = mapper.readerFor(CreateUsuarioInput.class);
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            linea++;
+            if (line == null) return null;
+        } while (line.isBlank());
+
+        try {
+            CreateUsuarioInput input = reader.readValue(line);
+            return input == null
+                    ? ImportRecord.failed(linea, line, "Se esperaba un objeto JSON")
+                    : ImportRecord.ok(linea, line, input);
+        } catch (JsonProcessingException e) {
+            return ImportRecord.failed(linea, line, "JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
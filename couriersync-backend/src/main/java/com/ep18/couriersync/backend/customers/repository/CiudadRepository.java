@@ -1,24 +1,58 @@
 package com.ep18.couriersync.backend.customers.repository;
 
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
 import com.ep18.couriersync.backend.customers.domain.Ciudad;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface CiudadRepository extends JpaRepository<Ciudad, Integer> {
+public interface CiudadRepository extends JpaRepository<Ciudad, Integer>, CiudadRepositoryCustom {
 
-    /** Unicidad lógica: nombreCiudad dentro de un mismo departamento */
+    /**
+     * Unicidad lógica: nombreCiudad dentro de un mismo departamento.
+     * lower() en vez de upper() para usar ux_ciudades_departamento_nombre_lower (V7).
+     */
+    String NOMBRE_EN_DEPARTAMENTO = "where c.departamento.idDepartamento = :idDepartamento "
+            + "and lower(c.nombreCiudad) = lower(:nombreCiudad)";
+
+    @Query("select c from Ciudad c " + NOMBRE_EN_DEPARTAMENTO)
     Optional<Ciudad> findByNombreCiudadIgnoreCaseAndDepartamento_IdDepartamento(
-            String nombreCiudad, Integer idDepartamento);
+            @Param("nombreCiudad") String nombreCiudad, @Param("idDepartamento") Integer idDepartamento);
 
+    @Query("select count(c) > 0 from Ciudad c " + NOMBRE_EN_DEPARTAMENTO)
     boolean existsByNombreCiudadIgnoreCaseAndDepartamento_IdDepartamento(
-            String nombreCiudad, Integer idDepartamento);
+            @Param("nombreCiudad") String nombreCiudad, @Param("idDepartamento") Integer idDepartamento);
 
     /** Listado por departamento (paginado) */
     Page<Ciudad> findAllByDepartamento_IdDepartamento(Integer idDepartamento, Pageable pageable);
 
-    /** Búsqueda por nombre (paginada) */
-    Page<Ciudad> findByNombreCiudadContainingIgnoreCase(String q, Pageable pageable);
-}
\ No newline at end of file
+    /** Proyección a CiudadRef: el departamento sale del catálogo */
+    String REF_SELECT = "select new com.ep18.couriersync.backend.customers.catalog.CatalogRefs$CiudadRef("
+            + "c.idCiudad, c.nombreCiudad, c.departamento.idDepartamento) from Ciudad c ";
+    /** Variantes Slice (sin COUNT) */
+    Slice<Ciudad> findSliceByDepartamento_IdDepartamento(Integer idDepartamento, Pageable pageable);
+
+    /** Todas las ciudades, sin COUNT (búsqueda sin término) */
+    Slice<Ciudad> findSliceBy(Pageable pageable);
+
+    /** Carga completa para el catálogo de referencia (sin inicializar el departamento) */
+    @Query(REF_SELECT)
+    List<CiudadRef> findAllRefs();
+
+    /** Ids que el catálogo aún no tiene (creados por otra instancia) */
+    @Query(REF_SELECT + "where c.idCiudad in :ids")
+    List<CiudadRef> findRefsByIds(@Param("ids") Collection<Integer> ids);
+
+    /** DELETE de una sentencia (deleteById carga la entidad antes); devuelve las filas afectadas */
+    @Modifying
+    @Query("delete from Ciudad c where c.idCiudad = :id")
+    int deleteRowById(@Param("id") Integer id);
+}
@@ -0,0 +1,36 @@
+package com.ep18.couriersync.backend.customers.repository;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadFilter;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Optional;
+
+/** Consultas dinámicas de Ciudad que no encajan en métodos derivados. */
+public interface CiudadRepositoryCustom {
+
+    /**
+     * Búsqueda por subcadena de {@code q} (normalizado con SearchKeys, sin comodines) ordenada
+     * por relevancia, sobre las SearchKeys.MAX_CANDIDATES coincidencias más parecidas. Con
+     * {@code withTotals} devuelve un Page si no hay más coincidencias que ese tope; si no, un Slice.
+     */
+    Slice<CiudadRef> searchRefs(String q, Pageable pageable, boolean withTotals);
+
+    /**
+     * Paginación keyset ordenada por (nombreCiudad, idCiudad): devuelve como mucho {@code limit}
+     * filas estrictamente posteriores a {@code after} (null = desde el inicio).
+     */
+    List<CiudadRef> findRefsAfter(CiudadFilter filter, KeysetCursor after, int limit);
+
+    /**
+     * Actualiza en una sola sentencia las columnas presentes en {@code in} y devuelve la ciudad
+     * resultante con el nombre de su departamento; vacío si la ciudad no existe.
+     * {@code nombreBusqueda} acompaña a un nombre nuevo.
+     */
+    Optional<CiudadView> updateRow(UpdateCiudadInput in, String nombreBusqueda);
+}
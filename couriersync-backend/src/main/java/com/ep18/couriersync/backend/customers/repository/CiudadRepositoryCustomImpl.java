@@ -0,0 +1,140 @@
+package com.ep18.couriersync.backend.customers.repository;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadFilter;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+class CiudadRepositoryCustomImpl implements CiudadRepositoryCustom {
+
+    /** Como en usuarios: el índice GiST da las :candidatos coincidencias más parecidas a :q */
+    private static final String SEARCH_SQL = """
+            select id_ciudad, nombre_ciudad, departamento
+            from (select id_ciudad, nombre_ciudad, departamento, nombre_busqueda <-> :q as distancia
+                  from public.tblciudades
+                  where nombre_busqueda like :patron escape '\\'
+                  order by nombre_busqueda <-> :q
+                  limit :candidatos) c
+            order by distancia, nombre_ciudad, id_ciudad
+            """;
+
+    private static final String SEARCH_COUNT = """
+            select count(*)
+            from (select 1 from public.tblciudades
+                  where nombre_busqueda like :patron escape '\\'
+                  limit :tope) c
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Slice<CiudadRef> searchRefs(String q, Pageable pageable, boolean withTotals) {
+        String patron = SearchKeys.containsPattern(q);
+        NativeQuery<?> query = em.createNativeQuery(SEARCH_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("id_ciudad", Integer.class)
+                .addScalar("nombre_ciudad", String.class)
+                .addScalar("departamento", Integer.class);
+        query.setParameter("q", q)
+                .setParameter("patron", patron)
+                .setParameter("candidatos", SearchKeys.MAX_CANDIDATES)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1);
+        List<CiudadRef> rows = query.getResultList().stream().map(r -> {
+            Object[] c = (Object[]) r;
+            return new CiudadRef((Integer) c[0], (String) c[1], (Integer) c[2]);
+        }).toList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<CiudadRef> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+
+        if (withTotals) {
+            long total = ((Number) em.createNativeQuery(SEARCH_COUNT)
+                    .setParameter("patron", patron)
+                    .setParameter("tope", SearchKeys.MAX_CANDIDATES + 1)
+                    .getSingleResult()).longValue();
+            if (total <= SearchKeys.MAX_CANDIDATES) return new PageImpl<>(content, pageable, total);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public List<CiudadRef> findRefsAfter(CiudadFilter filter, KeysetCursor after, int limit) {
+        List<String> where = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+
+        if (filter != null) {
+            if (filter.q() != null && !filter.q().isBlank()) {
+                where.add("c.nombreBusqueda like :q escape '\\'");
+                params.put("q", SearchKeys.containsPattern(SearchKeys.normalize(filter.q())));
+            }
+            if (filter.idDepartamento() != null) {
+                where.add("c.departamento.idDepartamento = :idDepartamento");
+                params.put("idDepartamento", filter.idDepartamento());
+            }
+        }
+        if (after != null) {
+            where.add("(c.nombreCiudad, c.idCiudad) > (:afterNombre, :afterId)");
+            params.put("afterNombre", after.key());
+            params.put("afterId", after.id());
+        }
+
+        String jpql = CiudadRepository.REF_SELECT
+                + (where.isEmpty() ? "" : "where " + String.join(" and ", where))
+                + " order by c.nombreCiudad asc, c.idCiudad asc";
+        TypedQuery<CiudadRef> query = em.createQuery(jpql, CiudadRef.class).setMaxResults(limit);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    public Optional<CiudadView> updateRow(UpdateCiudadInput in, String nombreBusqueda) {
+        Map<String, Object> set = new LinkedHashMap<>();
+        if (in.nombreCiudad() != null) {
+            set.put("nombre_ciudad", in.nombreCiudad());
+            set.put("nombre_busqueda", nombreBusqueda);
+        }
+        if (in.idDepartamento() != null) set.put("departamento", in.idDepartamento());
+
+        // El UPDATE va en un CTE para devolver también el nombre del departamento (nuevo o actual)
+        String source = set.isEmpty()
+                ? "(select id_ciudad, nombre_ciudad, departamento from public.tblciudades where id_ciudad = :id)"
+                : "(update public.tblciudades set "
+                        + set.keySet().stream().map(c -> c + " = :" + c).collect(Collectors.joining(", "))
+                        + " where id_ciudad = :id returning id_ciudad, nombre_ciudad, departamento)";
+        String sql = "with c as " + source + " "
+                + "select c.id_ciudad, c.nombre_ciudad, c.departamento, d.nombre_departamento "
+                + "from c join public.tbldepartamentos d on d.id_departamento = c.departamento";
+
+        NativeQuery<?> query = em.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addScalar("id_ciudad", Integer.class)
+                .addScalar("nombre_ciudad", String.class)
+                .addScalar("departamento", Integer.class)
+                .addScalar("nombre_departamento", String.class);
+        set.forEach(query::setParameter);
+        query.setParameter("id", in.idCiudad());
+
+        return query.getResultList().stream().findFirst().map(r -> {
+            Object[] c = (Object[]) r;
+            return new CiudadView((Integer) c[0], (String) c[1], (Integer) c[2], (String) c[3]);
+        });
+    }
+}
@@ -1,13 +1,48 @@
 package com.ep18.couriersync.backend.customers.repository;
 
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
 import com.ep18.couriersync.backend.customers.domain.Departamento;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface DepartamentoRepository extends JpaRepository<Departamento, Integer> {
 
-    Optional<Departamento> findByNombreDepartamentoIgnoreCase(String nombreDepartamento);
+    /** lower() en vez de upper() para usar ux_departamentos_nombre_lower (V7) */
+    @Query("select d from Departamento d where lower(d.nombreDepartamento) = lower(:nombre)")
+    Optional<Departamento> findByNombreDepartamentoIgnoreCase(@Param("nombre") String nombreDepartamento);
 
-    boolean existsByNombreDepartamentoIgnoreCase(String nombreDepartamento);
-}
\ No newline at end of file
+    @Query("select count(d) > 0 from Departamento d where lower(d.nombreDepartamento) = lower(:nombre)")
+    boolean existsByNombreDepartamentoIgnoreCase(@Param("nombre") String nombreDepartamento);
+
+    /** Listado paginado sin COUNT */
+    @Query("select d from Departamento d")
+    Slice<Departamento> findSlice(Pageable pageable);
+
+    /** Carga completa para el catálogo de referencia */
+    @Query("select new com.ep18.couriersync.backend.customers.catalog.CatalogRefs$DepartamentoRef("
+            + "d.idDepartamento, d.nombreDepartamento) from Departamento d")
+    List<DepartamentoRef> findAllRefs();
+
+    /** Ids que el catálogo aún no tiene (creados por otra instancia) */
+    @Query("select new com.ep18.couriersync.backend.customers.catalog.CatalogRefs$DepartamentoRef("
+            + "d.idDepartamento, d.nombreDepartamento) from Departamento d where d.idDepartamento in :ids")
+    List<DepartamentoRef> findRefsByIds(@Param("ids") Collection<Integer> ids);
+
+    /** UPDATE de una sentencia, sin carga previa; devuelve las filas afectadas (0 = no existe) */
+    @Modifying
+    @Query("update Departamento d set d.nombreDepartamento = :nombre where d.idDepartamento = :id")
+    int updateNombre(@Param("id") Integer id, @Param("nombre") String nombre);
+
+    /** DELETE de una sentencia (deleteById carga la entidad antes); devuelve las filas afectadas */
+    @Modifying
+    @Query("delete from Departamento d where d.idDepartamento = :id")
+    int deleteRowById(@Param("id") Integer id);
+}
@@ -1,13 +1,48 @@
 package com.ep18.couriersync.backend.customers.repository;
 
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
 import com.ep18.couriersync.backend.customers.domain.Rol;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface RolRepository extends JpaRepository<Rol, Integer> {
 
-    Optional<Rol> findByNombreRolIgnoreCase(String nombreRol);
+    /** lower() en vez de upper() para usar ux_roles_nombre_lower (V7) */
+    @Query("select r from Rol r where lower(r.nombreRol) = lower(:nombre)")
+    Optional<Rol> findByNombreRolIgnoreCase(@Param("nombre") String nombreRol);
 
-    boolean existsByNombreRolIgnoreCase(String nombreRol);
-}
\ No newline at end of file
+    @Query("select count(r) > 0 from Rol r where lower(r.nombreRol) = lower(:nombre)")
+    boolean existsByNombreRolIgnoreCase(@Param("nombre") String nombreRol);
+
+    /** Listado paginado sin COUNT */
+    @Query("select r from Rol r")
+    Slice<Rol> findSlice(Pageable pageable);
+
+    /** Carga completa para el catálogo de referencia */
+    @Query("select new com.ep18.couriersync.backend.customers.catalog.CatalogRefs$RolRef(r.idRol, r.nombreRol) "
+            + "from Rol r")
+    List<RolRef> findAllRefs();
+
+    /** Ids que el catálogo aún no tiene (creados por otra instancia) */
+    @Query("select new com.ep18.couriersync.backend.customers.catalog.CatalogRefs$RolRef(r.idRol, r.nombreRol) "
+            + "from Rol r where r.idRol in :ids")
+    List<RolRef> findRefsByIds(@Param("ids") Collection<Integer> ids);
+
+    /** UPDATE de una sentencia, sin carga previa; devuelve las filas afectadas (0 = no existe) */
+    @Modifying
+    @Query("update Rol r set r.nombreRol = :nombre where r.idRol = :id")
+    int updateNombre(@Param("id") Integer id, @Param("nombre") String nombre);
+
+    /** DELETE de una sentencia (deleteById carga la entidad antes); devuelve las filas afectadas */
+    @Modifying
+    @Query("delete from Rol r where r.idRol = :id")
+    int deleteRowById(@Param("id") Integer id);
+}
@@ -1,22 +1,88 @@
 package com.ep18.couriersync.backend.customers.repository;
 
 import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioNombreRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
+public interface UsuarioRepository extends JpaRepository<Usuario, Integer>, UsuarioRepositoryCustom {
 
-    Optional<Usuario> findByCorreoIgnoreCase(String correo);
-    boolean existsByCorreoIgnoreCase(String correo);
+    /**
+     * Proyección plana a UsuarioRow: las FKs se leen como columnas, sin joins; los nombres de
+     * ciudad/departamento/rol se resuelven en memoria solo si el cliente los pide.
+     */
+    String ROW_SELECT = "select new com.ep18.couriersync.backend.customers.dto.UsuarioDTOs$UsuarioRow("
+            + "u.idUsuario, u.nombre, u.correo, u.telefono, u.fechaRegistro, u.detalleDireccion, "
+            + "u.ciudad.idCiudad, u.departamento.idDepartamento, u.rol.idRol) "
+            + "from Usuario u ";
 
-    /** Búsqueda por nombre (paginada) */
-    Page<Usuario> findByNombreContainingIgnoreCase(String q, Pageable pageable);
+    /**
+     * Correo sin distinción de mayúsculas. Se compara con lower() (no el upper() de las consultas
+     * derivadas) para que lo resuelva el índice único ux_usuarios_correo_lower (V1).
+     */
+    @Query("select u from Usuario u where lower(u.correo) = lower(:correo)")
+    Optional<Usuario> findByCorreoIgnoreCase(@Param("correo") String correo);
+
+    @Query("select count(u) > 0 from Usuario u where lower(u.correo) = lower(:correo)")
+    boolean existsByCorreoIgnoreCase(@Param("correo") String correo);
+
+    /** De los correos dados (ya en minúsculas), los que existen: una sola consulta por lote. */
+    @Query("select lower(u.correo) from Usuario u where lower(u.correo) in :correos")
+    List<String> findExistingCorreos(@Param("correos") Collection<String> correos);
+
+    /** Recorrido completo (id, nombre) en streaming para construir el índice de autocompletado */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select new com.ep18.couriersync.backend.customers.dto.UsuarioDTOs$UsuarioNombreRow(u.idUsuario, u.nombre) "
+            + "from Usuario u")
+    Stream<UsuarioNombreRow> streamAllNombres();
+
+    /** Igual que streamAllNombres, acotado a un rango de ids (altas de una importación) */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select new com.ep18.couriersync.backend.customers.dto.UsuarioDTOs$UsuarioNombreRow(u.idUsuario, u.nombre) "
+            + "from Usuario u where u.idUsuario between :desde and :hasta")
+    Stream<UsuarioNombreRow> streamNombresByIdBetween(@Param("desde") Integer desde, @Param("hasta") Integer hasta);
+
+    @Query(ROW_SELECT + "where u.idUsuario = :id")
+    Optional<UsuarioRow> findRowById(@Param("id") Integer id);
 
     /** Filtros por FKs (paginados) */
-    Page<Usuario> findAllByCiudad_IdCiudad(Integer idCiudad, Pageable pageable);
-    Page<Usuario> findAllByDepartamento_IdDepartamento(Integer idDepartamento, Pageable pageable);
-    Page<Usuario> findAllByRol_IdRol(Integer idRol, Pageable pageable);
-}
\ No newline at end of file
+    @Query(value = ROW_SELECT + "where u.ciudad.idCiudad = :idCiudad",
+            countQuery = "select count(u) from Usuario u where u.ciudad.idCiudad = :idCiudad")
+    Page<UsuarioRow> findRowsByCiudad(@Param("idCiudad") Integer idCiudad, Pageable pageable);
+
+    @Query(value = ROW_SELECT + "where u.departamento.idDepartamento = :idDepartamento",
+            countQuery = "select count(u) from Usuario u where u.departamento.idDepartamento = :idDepartamento")
+    Page<UsuarioRow> findRowsByDepartamento(@Param("idDepartamento") Integer idDepartamento, Pageable pageable);
+
+    @Query(value = ROW_SELECT + "where u.rol.idRol = :idRol",
+            countQuery = "select count(u) from Usuario u where u.rol.idRol = :idRol")
+    Page<UsuarioRow> findRowsByRol(@Param("idRol") Integer idRol, Pageable pageable);
+
+    /** Variantes Slice: sin COUNT, leen size + 1 filas para saber si hay siguiente página. */
+    @Query(ROW_SELECT + "where u.ciudad.idCiudad = :idCiudad")
+    Slice<UsuarioRow> findRowSliceByCiudad(@Param("idCiudad") Integer idCiudad, Pageable pageable);
+
+    @Query(ROW_SELECT + "where u.departamento.idDepartamento = :idDepartamento")
+    Slice<UsuarioRow> findRowSliceByDepartamento(@Param("idDepartamento") Integer idDepartamento, Pageable pageable);
+
+    @Query(ROW_SELECT + "where u.rol.idRol = :idRol")
+    Slice<UsuarioRow> findRowSliceByRol(@Param("idRol") Integer idRol, Pageable pageable);
+
+    /** DELETE de una sentencia (deleteById carga la entidad antes); devuelve las filas afectadas */
+    @Modifying
+    @Query("delete from Usuario u where u.idUsuario = :id")
+    int deleteRowById(@Param("id") Integer id);
+}
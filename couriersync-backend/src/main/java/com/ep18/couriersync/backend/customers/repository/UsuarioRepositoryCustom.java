@@ -0,0 +1,66 @@
+package com.ep18.couriersync.backend.customers.repository;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/** Consultas dinámicas de Usuario que no encajan en métodos derivados. */
+public interface UsuarioRepositoryCustom {
+
+    /**
+     * Filtro combinado en una sola sentencia: solo se agregan los predicados presentes en
+     * {@code filter}. Con {@code withTotals} devuelve un Page (datos + COUNT); si no, un Slice.
+     */
+    Slice<UsuarioRow> findRows(UsuarioFilter filter, UsuarioSort sort, Pageable pageable, boolean withTotals);
+
+    /**
+     * Búsqueda por subcadena de {@code q} (normalizado con SearchKeys, sin comodines) ordenada
+     * por relevancia. Solo se paginan las SearchKeys.MAX_CANDIDATES coincidencias más parecidas:
+     * un término que coincide con media tabla no la ordena entera en cada página. Con
+     * {@code withTotals} devuelve un Page si hay a lo sumo ese tope de coincidencias; si hay más,
+     * un Slice (sin totales), porque contarlas todas sería recorrerlas.
+     */
+    Slice<UsuarioRow> searchRows(String q, Pageable pageable, boolean withTotals);
+
+    /**
+     * Paginación keyset ordenada por (nombre, idUsuario): devuelve como mucho {@code limit} filas
+     * estrictamente posteriores a {@code after} (null = desde el inicio).
+     */
+    List<UsuarioRow> findRowsAfter(UsuarioFilter filter, KeysetCursor after, int limit);
+
+    /**
+     * Mismo filtro y orden que findRows, sin paginar: cursor del servidor leído por bloques
+     * (fetch size). Debe consumirse y cerrarse dentro de una transacción.
+     */
+    Stream<UsuarioRow> streamRows(UsuarioFilter filter, UsuarioSort sort);
+
+    /**
+     * Actualiza en una sola sentencia (UPDATE ... RETURNING) las columnas presentes en {@code in}
+     * y devuelve la fila resultante; vacío si el usuario no existe. {@code nombreBusqueda} acompaña
+     * a un nombre nuevo. Duplicados y FKs inexistentes llegan como DataIntegrityViolationException.
+     */
+    Optional<UsuarioRow> updateRow(UpdateUsuarioInput in, String nombreBusqueda);
+
+    /**
+     * Feed de cambios: altas, modificaciones (tblusuarios) y bajas (tblusuarios_eliminados)
+     * ordenadas por (txid_cambio, idUsuario), estrictamente posteriores a {@code after}
+     * (key = txid; null = desde el inicio). Solo incluye transacciones anteriores a la más
+     * antigua aún en curso, así que ningún cambio puede aparecer después detrás del cursor.
+     */
+    List<UsuarioChangeRow> findChangesAfter(KeysetCursor after, int limit);
+
+    /**
+     * Posición actual del feed: desde ella, findChangesAfter entrega toda transacción que una
+     * lectura iniciada después aún pueda no ver (la más antigua en curso en adelante).
+     */
+    KeysetCursor changesHead();
+}
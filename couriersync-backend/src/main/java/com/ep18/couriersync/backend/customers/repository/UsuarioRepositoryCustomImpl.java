@@ -0,0 +1,315 @@
+package com.ep18.couriersync.backend.customers.repository;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeTipo;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class UsuarioRepositoryCustomImpl implements UsuarioRepositoryCustom {
+
+    /** Filas por ida y vuelta al servidor al recorrer un cursor (exportación) */
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    /** Columnas de UsuarioRow en SQL nativo, en el orden de su constructor */
+    private static final String ROW_COLUMNS = "id_usuario, nombre, correo, telefono, fecha_registro, "
+            + "detalle_direccion, ciudad, departamento, rol";
+
+    /**
+     * Feed de cambios. Cada rama lee a lo sumo :limit filas por su índice (txid_cambio, id_usuario)
+     * y la unión se recorta al final. La marca de agua es el xmin de la instantánea de la propia
+     * sentencia: toda transacción con txid menor ya terminó.
+     */
+    private static final String CHANGES_SQL = """
+            with w as (select pg_snapshot_xmin(pg_current_snapshot()) as xmin)
+            select c.* from (
+                (select cast(u.txid_cambio as text) as txid, u.txid_cambio as orden,
+                        case when u.updated_at = u.created_at then 'CREATED' else 'UPDATED' end as tipo,
+                        u.updated_at as cambio, u.id_usuario,
+                        u.nombre, u.correo, u.telefono, u.fecha_registro, u.detalle_direccion,
+                        u.ciudad, u.departamento, u.rol
+                 from public.tblusuarios u, w
+                 where (u.txid_cambio, u.id_usuario) > (cast(:txid as xid8), :id) and u.txid_cambio < w.xmin
+                 order by u.txid_cambio, u.id_usuario
+                 limit :limit)
+                union all
+                (select cast(e.txid_cambio as text), e.txid_cambio, 'DELETED', e.deleted_at, e.id_usuario,
+                        null, null, null, null, null, null, null, null
+                 from public.tblusuarios_eliminados e, w
+                 where (e.txid_cambio, e.id_usuario) > (cast(:txid as xid8), :id) and e.txid_cambio < w.xmin
+                 order by e.txid_cambio, e.id_usuario
+                 limit :limit)
+            ) c
+            order by c.orden, c.id_usuario
+            limit :limit
+            """;
+
+    /**
+     * Búsqueda por relevancia sobre un conjunto acotado: de las filas que contienen :q, las
+     * :candidatos más parecidas. El índice GiST trigrama (V15) resuelve el like y entrega las
+     * filas por distancia (<->, 1 - similarity), así el tope deja fuera a las peores y no a unas
+     * cualesquiera. La página se ordena por la misma distancia.
+     */
+    private static final String SEARCH_SQL = """
+            select %1$s
+            from (select %1$s, nombre_busqueda <-> :q as distancia
+                  from public.tblusuarios
+                  where nombre_busqueda like :patron escape '\\'
+                  order by nombre_busqueda <-> :q
+                  limit :candidatos) c
+            order by distancia, nombre, id_usuario
+            """.formatted(ROW_COLUMNS);
+
+    /** Coincidencias hasta :tope; contar más allá sería recorrerlas todas */
+    private static final String SEARCH_COUNT = """
+            select count(*)
+            from (select 1 from public.tblusuarios
+                  where nombre_busqueda like :patron escape '\\'
+                  limit :tope) c
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Slice<UsuarioRow> findRows(UsuarioFilter filter, UsuarioSort sort, Pageable pageable, boolean withTotals) {
+        Criteria criteria = new Criteria(filter);
+
+        TypedQuery<UsuarioRow> query = em.createQuery(
+                UsuarioRepository.ROW_SELECT + criteria.where() + " order by " + orderBy(sort), UsuarioRow.class);
+        criteria.bind(query);
+        // Sin COUNT se lee una fila de más para saber si hay siguiente página
+        query.setFirstResult((int) pageable.getOffset())
+                .setMaxResults(withTotals ? pageable.getPageSize() : pageable.getPageSize() + 1);
+        List<UsuarioRow> rows = query.getResultList();
+
+        if (!withTotals) {
+            boolean hasNext = rows.size() > pageable.getPageSize();
+            return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+        }
+        TypedQuery<Long> count = em.createQuery("select count(u) from Usuario u " + criteria.where(), Long.class);
+        criteria.bind(count);
+        return new PageImpl<>(rows, pageable, count.getSingleResult());
+    }
+
+    @Override
+    public Slice<UsuarioRow> searchRows(String q, Pageable pageable, boolean withTotals) {
+        String patron = SearchKeys.containsPattern(q);
+        NativeQuery<?> query = rowScalars(em.createNativeQuery(SEARCH_SQL).unwrap(NativeQuery.class));
+        query.setParameter("q", q)
+                .setParameter("patron", patron)
+                .setParameter("candidatos", SearchKeys.MAX_CANDIDATES)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        List<UsuarioRow> rows = query.getResultList().stream().map(UsuarioRepositoryCustomImpl::toRow).toList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<UsuarioRow> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+
+        if (withTotals) {
+            long total = ((Number) em.createNativeQuery(SEARCH_COUNT)
+                    .setParameter("patron", patron)
+                    .setParameter("tope", SearchKeys.MAX_CANDIDATES + 1)
+                    .getSingleResult()).longValue();
+            // Con más coincidencias que candidatos el total real no se conoce: sin totales
+            if (total <= SearchKeys.MAX_CANDIDATES) return new PageImpl<>(content, pageable, total);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public List<UsuarioRow> findRowsAfter(UsuarioFilter filter, KeysetCursor after, int limit) {
+        Criteria criteria = new Criteria(filter);
+        // Predicado de búsqueda (seek): comparación de tuplas, resuelta con el índice (nombre, id_usuario)
+        if (after != null) {
+            criteria.add("(u.nombre, u.idUsuario) > (:afterNombre, :afterId)");
+            criteria.params.put("afterNombre", after.key());
+            criteria.params.put("afterId", after.id());
+        }
+
+        TypedQuery<UsuarioRow> query = em.createQuery(
+                UsuarioRepository.ROW_SELECT + criteria.where() + " order by u.nombre asc, u.idUsuario asc",
+                UsuarioRow.class).setMaxResults(limit);
+        criteria.bind(query);
+        return query.getResultList();
+    }
+
+    @Override
+    public Stream<UsuarioRow> streamRows(UsuarioFilter filter, UsuarioSort sort) {
+        Criteria criteria = new Criteria(filter);
+
+        // Proyección a DTO: nada entra al contexto de persistencia, así que la memoria no crece con las filas
+        TypedQuery<UsuarioRow> query = em.createQuery(
+                UsuarioRepository.ROW_SELECT + criteria.where() + " order by " + orderBy(sort), UsuarioRow.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        criteria.bind(query);
+        return query.getResultStream();
+    }
+
+    @Override
+    public Optional<UsuarioRow> updateRow(UpdateUsuarioInput in, String nombreBusqueda) {
+        // Solo las columnas que cambian: sin lectura previa ni reescritura de lo demás
+        Map<String, Object> set = new LinkedHashMap<>();
+        if (in.nombre() != null) {
+            set.put("nombre", in.nombre());
+            set.put("nombre_busqueda", nombreBusqueda);
+        }
+        if (in.correo() != null) set.put("correo", in.correo());
+        if (in.telefono() != null) set.put("telefono", in.telefono());
+        if (in.fechaRegistro() != null) set.put("fecha_registro", in.fechaRegistro());
+        if (in.detalleDireccion() != null) set.put("detalle_direccion", in.detalleDireccion());
+        if (in.idCiudad() != null) set.put("ciudad", in.idCiudad());
+        if (in.idDepartamento() != null) set.put("departamento", in.idDepartamento());
+        if (in.idRol() != null) set.put("rol", in.idRol());
+
+        // Sin cambios no se escribe: basta con leer la fila
+        String sql = set.isEmpty()
+                ? "select " + ROW_COLUMNS + " from public.tblusuarios where id_usuario = :id"
+                : "update public.tblusuarios set "
+                        + set.keySet().stream().map(c -> c + " = :" + c).collect(Collectors.joining(", "))
+                        + " where id_usuario = :id returning " + ROW_COLUMNS;
+
+        NativeQuery<?> query = rowScalars(em.createNativeQuery(sql).unwrap(NativeQuery.class));
+        set.forEach(query::setParameter);
+        query.setParameter("id", in.idUsuario());
+
+        return query.getResultList().stream().findFirst().map(UsuarioRepositoryCustomImpl::toRow);
+    }
+
+    /** Tipos de las columnas de ROW_COLUMNS */
+    private static NativeQuery<?> rowScalars(NativeQuery<?> query) {
+        return query.addScalar("id_usuario", Integer.class)
+                .addScalar("nombre", String.class)
+                .addScalar("correo", String.class)
+                .addScalar("telefono", String.class)
+                .addScalar("fecha_registro", LocalDate.class)
+                .addScalar("detalle_direccion", String.class)
+                .addScalar("ciudad", Integer.class)
+                .addScalar("departamento", Integer.class)
+                .addScalar("rol", Integer.class);
+    }
+
+    private static UsuarioRow toRow(Object r) {
+        Object[] c = (Object[]) r;
+        return new UsuarioRow((Integer) c[0], (String) c[1], (String) c[2], (String) c[3],
+                (LocalDate) c[4], (String) c[5], (Integer) c[6], (Integer) c[7], (Integer) c[8]);
+    }
+
+    @Override
+    public List<UsuarioChangeRow> findChangesAfter(KeysetCursor after, int limit) {
+        NativeQuery<?> query = em.createNativeQuery(CHANGES_SQL).unwrap(NativeQuery.class)
+                .addScalar("txid", String.class)
+                .addScalar("tipo", String.class)
+                .addScalar("cambio", OffsetDateTime.class)
+                .addScalar("id_usuario", Integer.class)
+                .addScalar("nombre", String.class)
+                .addScalar("correo", String.class)
+                .addScalar("telefono", String.class)
+                .addScalar("fecha_registro", LocalDate.class)
+                .addScalar("detalle_direccion", String.class)
+                .addScalar("ciudad", Integer.class)
+                .addScalar("departamento", Integer.class)
+                .addScalar("rol", Integer.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        query.setParameter("txid", after != null ? after.key() : "0");
+        query.setParameter("id", after != null ? after.id() : 0);
+        query.setParameter("limit", limit);
+
+        return query.getResultList().stream().map(r -> {
+            Object[] c = (Object[]) r;
+            UsuarioChangeTipo tipo = UsuarioChangeTipo.valueOf((String) c[1]);
+            UsuarioRow usuario = tipo == UsuarioChangeTipo.DELETED ? null
+                    : new UsuarioRow((Integer) c[3], (String) c[4], (String) c[5], (String) c[6],
+                            (LocalDate) c[7], (String) c[8], (Integer) c[9], (Integer) c[10], (Integer) c[11]);
+            return new UsuarioChangeRow((String) c[0], tipo, (Integer) c[3], (OffsetDateTime) c[2], usuario);
+        }).toList();
+    }
+
+    @Override
+    public KeysetCursor changesHead() {
+        // (xmin, 0): los ids son positivos, así que el feed empieza en la propia transacción xmin
+        Object xmin = em.createNativeQuery("select cast(pg_snapshot_xmin(pg_current_snapshot()) as text)")
+                .getSingleResult();
+        return new KeysetCursor((String) xmin, 0);
+    }
+
+    /** Cada orden tiene índice propio (ver Usuario/@Table y V4__usuario_filter_indexes.sql). */
+    private static String orderBy(UsuarioSort sort) {
+        return switch (sort == null ? UsuarioSort.NOMBRE_ASC : sort) {
+            case NOMBRE_ASC -> "u.nombre asc, u.idUsuario asc";
+            case NOMBRE_DESC -> "u.nombre desc, u.idUsuario desc";
+            case FECHA_REGISTRO_ASC -> "u.fechaRegistro asc, u.idUsuario asc";
+            case FECHA_REGISTRO_DESC -> "u.fechaRegistro desc, u.idUsuario desc";
+        };
+    }
+
+    /** Predicados presentes en el filtro (AND) y sus parámetros. */
+    private static final class Criteria {
+        private final List<String> where = new ArrayList<>();
+        private final Map<String, Object> params = new HashMap<>();
+
+        Criteria(UsuarioFilter filter) {
+            if (filter == null) return;
+            if (filter.q() != null && !filter.q().isBlank()) {
+                add("u.nombreBusqueda like :q escape '\\'");
+                params.put("q", SearchKeys.containsPattern(SearchKeys.normalize(filter.q())));
+            }
+            if (filter.idCiudad() != null) {
+                add("u.ciudad.idCiudad = :idCiudad");
+                params.put("idCiudad", filter.idCiudad());
+            }
+            if (filter.idDepartamento() != null) {
+                add("u.departamento.idDepartamento = :idDepartamento");
+                params.put("idDepartamento", filter.idDepartamento());
+            }
+            if (filter.idRol() != null) {
+                add("u.rol.idRol = :idRol");
+                params.put("idRol", filter.idRol());
+            }
+            if (filter.fechaDesde() != null) {
+                add("u.fechaRegistro >= :fechaDesde");
+                params.put("fechaDesde", filter.fechaDesde());
+            }
+            if (filter.fechaHasta() != null) {
+                add("u.fechaRegistro <= :fechaHasta");
+                params.put("fechaHasta", filter.fechaHasta());
+            }
+        }
+
+        void add(String predicate) {
+            where.add(predicate);
+        }
+
+        String where() {
+            return where.isEmpty() ? "" : "where " + String.join(" and ", where);
+        }
+
+        void bind(TypedQuery<?> query) {
+            params.forEach(query::setParameter);
+        }
+    }
+}
@@ -1,29 +1,56 @@
 package com.ep18.couriersync.backend.customers.service;
 
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Connection;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ConstraintViolations;
+import com.ep18.couriersync.backend.common.exception.DomainException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
 import com.ep18.couriersync.backend.common.pagination.PageMapper;
 import com.ep18.couriersync.backend.common.pagination.PageRequestUtil;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Ciudad;
-import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CreateCiudadInput;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadFilter;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CreateCiudadInput;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
 import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
 import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class CiudadService {
 
+    /** Restricciones de tblciudades que puede violar un UPDATE */
+    private static final Map<String, Supplier<? extends DomainException>> UPDATE_VIOLATIONS = Map.of(
+            "ux_ciudades_departamento_nombre_lower",
+            () -> new ConflictException("Ya existe ciudad con ese nombre en el departamento"),
+            "departamento_ciudad", () -> new NotFoundException("Departamento no encontrado"));
+
     private final CiudadRepository ciudadRepo;
     private final DepartamentoRepository departamentoRepo;
+    private final ReferenceDataCatalog catalog;
+    private final SuggestionIndex suggestions;
 
     @Transactional
     public CiudadView create(CreateCiudadInput in) {
@@ -37,38 +64,33 @@ public class CiudadService {
 
         var c = new Ciudad();
         c.setNombreCiudad(in.nombreCiudad());
+        c.setNombreBusqueda(SearchKeys.normalize(in.nombreCiudad()));
         c.setDepartamento(depto);
 
-        return toView(ciudadRepo.save(c));
+        var saved = ciudadRepo.save(c);
+        catalog.refreshAfterCommit();
+        suggestions.indexAfterCommit(SuggestionTipo.CIUDAD, saved.getIdCiudad(), saved.getNombreCiudad());
+        return toView(saved);
     }
 
+    /**
+     * Una sola sentencia (UPDATE ... RETURNING, con el nombre del departamento en el mismo viaje):
+     * 0 filas = no existe; nombre repetido en el departamento y departamento inexistente los
+     * informa la BD (ux_ciudades_departamento_nombre_lower, departamento_ciudad).
+     */
     @Transactional
     public CiudadView update(UpdateCiudadInput in) {
-        var c = ciudadRepo.findById(in.idCiudad())
-                .orElseThrow(() -> new NotFoundException("Ciudad no encontrada"));
-
-        if (in.nombreCiudad()!=null &&
-                !in.nombreCiudad().equalsIgnoreCase(c.getNombreCiudad())) {
-            boolean exists = ciudadRepo.existsByNombreCiudadIgnoreCaseAndDepartamento_IdDepartamento(
-                    in.nombreCiudad(), c.getDepartamento().getIdDepartamento());
-            if (exists) throw new ConflictException("Ya existe ciudad con ese nombre en el departamento");
-            c.setNombreCiudad(in.nombreCiudad());
-        }
-
-        if (in.idDepartamento()!=null &&
-                !in.idDepartamento().equals(c.getDepartamento().getIdDepartamento())) {
-            var nuevo = departamentoRepo.findById(in.idDepartamento())
-                    .orElseThrow(() -> new NotFoundException("Departamento no encontrado"));
-
-            // Revalidar unicidad en el nuevo departamento
-            boolean exists = ciudadRepo.existsByNombreCiudadIgnoreCaseAndDepartamento_IdDepartamento(
-                    c.getNombreCiudad(), nuevo.getIdDepartamento());
-            if (exists) throw new ConflictException("Ya existe ciudad con ese nombre en el nuevo departamento");
-
-            c.setDepartamento(nuevo);
+        String nombreBusqueda = in.nombreCiudad() != null ? SearchKeys.normalize(in.nombreCiudad()) : null;
+        CiudadView view;
+        try {
+            view = ciudadRepo.updateRow(in, nombreBusqueda)
+                    .orElseThrow(() -> new NotFoundException("Ciudad no encontrada"));
+        } catch (DataIntegrityViolationException e) {
+            throw ConstraintViolations.translate(e, UPDATE_VIOLATIONS);
         }
-
-        return toView(ciudadRepo.save(c));
+        catalog.refreshAfterCommit();
+        suggestions.indexAfterCommit(SuggestionTipo.CIUDAD, view.idCiudad(), view.nombreCiudad());
+        return view;
     }
 
     @Transactional(readOnly = true)
@@ -79,27 +101,95 @@ public class CiudadService {
 
     @Transactional(readOnly = true)
     public PageResponse<CiudadView> listByDepartamento(Integer idDepartamento, Integer page, Integer size) {
-        Page<Ciudad> p = ciudadRepo.findAllByDepartamento_IdDepartamento(
-                idDepartamento, PageRequestUtil.of(page, size, Sort.by("nombreCiudad").ascending()));
+        return listByDepartamento(idDepartamento, page, size, true);
+    }
+
+    /** Con withTotals=false no se ejecuta el COUNT: pageInfo trae hasNext y totales en null. */
+    @Transactional(readOnly = true)
+    public PageResponse<CiudadView> listByDepartamento(Integer idDepartamento, Integer page, Integer size,
+                                                       boolean withTotals) {
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombreCiudad").ascending());
+        Slice<Ciudad> p = withTotals
+                ? ciudadRepo.findAllByDepartamento_IdDepartamento(idDepartamento, pageable)
+                : ciudadRepo.findSliceByDepartamento_IdDepartamento(idDepartamento, pageable);
         return PageMapper.map(p, this::toView);
     }
 
     @Transactional(readOnly = true)
     public PageResponse<CiudadView> search(String q, Integer page, Integer size) {
-        Page<Ciudad> p = ciudadRepo.findByNombreCiudadContainingIgnoreCase(
-                (q == null ? "" : q), PageRequestUtil.of(page, size, Sort.by("nombreCiudad").ascending()));
-        return PageMapper.map(p, this::toView);
+        return search(q, page, size, true);
+    }
+
+    /**
+     * q vacío o null lista todas las ciudades por nombre. Si no, q necesita al menos
+     * SearchKeys.MIN_SUBSTRING_LENGTH caracteres y el orden es por relevancia (similitud con q)
+     * entre las SearchKeys.MAX_CANDIDATES coincidencias más parecidas; con más coincidencias que
+     * ese tope los totales van en null.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<CiudadView> search(String q, Integer page, Integer size, boolean withTotals) {
+        if (q == null || q.isBlank()) {
+            Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombreCiudad", "idCiudad").ascending());
+            Slice<Ciudad> p = withTotals ? ciudadRepo.findAll(pageable) : ciudadRepo.findSliceBy(pageable);
+            return PageMapper.map(p, this::toView);
+        }
+        String term = SearchKeys.substringTerm(q);
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.unsorted());
+        Slice<CiudadRef> p = ciudadRepo.searchRefs(term, pageable, withTotals);
+        Map<Integer, DepartamentoRef> deptos = catalog.departamentos(
+                p.getContent().stream().map(CiudadRef::idDepartamento).collect(Collectors.toSet()));
+        return PageMapper.map(p, c -> toView(c, deptos.get(c.idDepartamento())));
+    }
+
+    /** Paginación keyset por (nombreCiudad, idCiudad); el departamento se resuelve desde el catálogo. */
+    @Transactional(readOnly = true)
+    public Connection<CiudadView> connection(CiudadFilter filter, Integer first, String after) {
+        int limit = PageRequestUtil.limit(first);
+        List<CiudadRef> rows = ciudadRepo.findRefsAfter(filter, KeysetCursor.decode(after), limit + 1);
+        Map<Integer, DepartamentoRef> deptos = catalog.departamentos(
+                rows.stream().map(CiudadRef::idDepartamento).collect(Collectors.toSet()));
+        return PageMapper.connection(rows, limit, c -> new KeysetCursor(c.nombreCiudad(), c.idCiudad()),
+                c -> toView(c, deptos.get(c.idDepartamento())));
     }
 
     @Transactional
     public boolean delete(Integer id) {
-        if (!ciudadRepo.existsById(id)) return false;
         try {
-            ciudadRepo.deleteById(id);
-            return true;
+            if (ciudadRepo.deleteRowById(id) == 0) return false;
         } catch (DataIntegrityViolationException e) {
             throw new ConflictException("No se puede eliminar: existen registros relacionados");
         }
+        catalog.refreshAfterCommit();
+        suggestions.removeAfterCommit(SuggestionTipo.CIUDAD, id);
+        return true;
+    }
+
+    /**
+     * Resolución por lotes desde el catálogo en memoria (DataLoader de Usuario.ciudad); lo que
+     * el catálogo no tiene lo lee de la BD. Solo devuelve ciudades con su departamento resuelto.
+     */
+    public Map<Integer, CiudadView> findViewsByIds(Collection<Integer> ids) {
+        Map<Integer, CiudadRef> ciudades = catalog.ciudades(ids);
+        Map<Integer, DepartamentoRef> deptos = catalog.departamentos(
+                ciudades.values().stream().map(CiudadRef::idDepartamento).collect(Collectors.toSet()));
+        Map<Integer, CiudadView> views = new HashMap<>();
+        ciudades.forEach((id, c) -> {
+            DepartamentoRef d = deptos.get(c.idDepartamento());
+            if (d != null) views.put(id, toView(c, d));
+        });
+        return views;
+    }
+
+    /**
+     * d viene del catálogo, que lee de la BD lo que aún no tiene: null solo si la FK
+     * departamento_ciudad apunta a un departamento inexistente, y eso no se oculta con un nombre nulo.
+     */
+    private CiudadView toView(CiudadRef c, DepartamentoRef d) {
+        if (d == null) {
+            throw new IllegalStateException("La ciudad " + c.idCiudad() + " apunta a departamento "
+                    + c.idDepartamento() + " inexistente");
+        }
+        return new CiudadView(c.idCiudad(), c.nombreCiudad(), c.idDepartamento(), d.nombreDepartamento());
     }
 
     private CiudadView toView(Ciudad c) {
@@ -2,9 +2,12 @@ package com.ep18.couriersync.backend.customers.service;
 
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ConstraintViolations;
+import com.ep18.couriersync.backend.common.exception.DomainException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
 import com.ep18.couriersync.backend.common.pagination.PageMapper;
 import com.ep18.couriersync.backend.common.pagination.PageRequestUtil;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Departamento;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.CreateDepartamentoInput;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.DepartamentoView;
@@ -12,16 +15,27 @@ import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.UpdateDeparta
 import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 @Service
 @RequiredArgsConstructor
 public class DepartamentoService {
 
+    /** Restricciones que puede violar un UPDATE */
+    private static final Map<String, Supplier<? extends DomainException>> UPDATE_VIOLATIONS = Map.of(
+            "ux_departamentos_nombre_lower", () -> new ConflictException("Ya existe un departamento con ese nombre"));
+
     private final DepartamentoRepository departamentoRepo;
+    private final ReferenceDataCatalog catalog;
 
     @Transactional
     public DepartamentoView create(CreateDepartamentoInput in) {
@@ -30,23 +44,26 @@ public class DepartamentoService {
         }
         var d = new Departamento();
         d.setNombreDepartamento(in.nombreDepartamento());
-        return toView(departamentoRepo.save(d));
+        var saved = departamentoRepo.save(d);
+        catalog.refreshAfterCommit();
+        return toView(saved);
     }
 
+    /**
+     * Una sola sentencia, sin carga previa ni consulta de duplicados: 0 filas = no existe, y el
+     * nombre repetido lo informa el índice único ux_departamentos_nombre_lower (V7).
+     */
     @Transactional
     public DepartamentoView update(UpdateDepartamentoInput in) {
-        var d = departamentoRepo.findById(in.idDepartamento())
-                .orElseThrow(() -> new NotFoundException("Departamento no encontrado"));
-
-        if (in.nombreDepartamento()!=null &&
-                !in.nombreDepartamento().equalsIgnoreCase(d.getNombreDepartamento()) &&
-                departamentoRepo.existsByNombreDepartamentoIgnoreCase(in.nombreDepartamento())) {
-            throw new ConflictException("Ya existe un departamento con ese nombre");
-        }
-        if (in.nombreDepartamento()!=null) {
-            d.setNombreDepartamento(in.nombreDepartamento());
+        int filas;
+        try {
+            filas = departamentoRepo.updateNombre(in.idDepartamento(), in.nombreDepartamento());
+        } catch (DataIntegrityViolationException e) {
+            throw ConstraintViolations.translate(e, UPDATE_VIOLATIONS);
         }
-        return toView(departamentoRepo.save(d));
+        if (filas == 0) throw new NotFoundException("Departamento no encontrado");
+        catalog.refreshAfterCommit();
+        return new DepartamentoView(in.idDepartamento(), in.nombreDepartamento());
     }
 
     @Transactional(readOnly = true)
@@ -58,20 +75,36 @@ public class DepartamentoService {
 
     @Transactional(readOnly = true)
     public PageResponse<DepartamentoView> list(Integer page, Integer size) {
-        Page<Departamento> p = departamentoRepo.findAll(
-                PageRequestUtil.of(page, size, Sort.by("nombreDepartamento").ascending()));
+        return list(page, size, true);
+    }
+
+    /** Con withTotals=false no se ejecuta el COUNT: pageInfo trae hasNext y totales en null. */
+    @Transactional(readOnly = true)
+    public PageResponse<DepartamentoView> list(Integer page, Integer size, boolean withTotals) {
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombreDepartamento").ascending());
+        Slice<Departamento> p = withTotals
+                ? departamentoRepo.findAll(pageable)
+                : departamentoRepo.findSlice(pageable);
         return PageMapper.map(p, this::toView);
     }
 
     @Transactional
     public boolean delete(Integer id) {
-        if (!departamentoRepo.existsById(id)) return false;
         try {
-            departamentoRepo.deleteById(id);
-            return true;
+            if (departamentoRepo.deleteRowById(id) == 0) return false;
         } catch (DataIntegrityViolationException e) {
             throw new ConflictException("No se puede eliminar: existen registros relacionados");
         }
+        catalog.refreshAfterCommit();
+        return true;
+    }
+
+    /** Resolución por lotes desde el catálogo en memoria (DataLoader de Usuario.departamento). */
+    public Map<Integer, DepartamentoView> findViewsByIds(Collection<Integer> ids) {
+        Map<Integer, DepartamentoView> views = new HashMap<>();
+        catalog.departamentos(ids).forEach((id, d) ->
+                views.put(id, new DepartamentoView(d.idDepartamento(), d.nombreDepartamento())));
+        return views;
     }
 
     private DepartamentoView toView(Departamento d) {
@@ -2,9 +2,12 @@ package com.ep18.couriersync.backend.customers.service;
 
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ConstraintViolations;
+import com.ep18.couriersync.backend.common.exception.DomainException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
 import com.ep18.couriersync.backend.common.pagination.PageMapper;
 import com.ep18.couriersync.backend.common.pagination.PageRequestUtil;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Rol;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.CreateRolInput;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.RolView;
@@ -12,16 +15,27 @@ import com.ep18.couriersync.backend.customers.dto.RolDTOs.UpdateRolInput;
 import com.ep18.couriersync.backend.customers.repository.RolRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 @Service
 @RequiredArgsConstructor
 public class RolService {
 
+    /** Restricciones que puede violar un UPDATE */
+    private static final Map<String, Supplier<? extends DomainException>> UPDATE_VIOLATIONS = Map.of(
+            "ux_roles_nombre_lower", () -> new ConflictException("Ya existe un rol con ese nombre"));
+
     private final RolRepository rolRepo;
+    private final ReferenceDataCatalog catalog;
 
     @Transactional
     public RolView create(CreateRolInput in) {
@@ -30,23 +44,26 @@ public class RolService {
         }
         var r = new Rol();
         r.setNombreRol(in.nombreRol());
-        return toView(rolRepo.save(r));
+        var saved = rolRepo.save(r);
+        catalog.refreshAfterCommit();
+        return toView(saved);
     }
 
+    /**
+     * Una sola sentencia, sin carga previa ni consulta de duplicados: 0 filas = no existe, y el
+     * nombre repetido lo informa el índice único ux_roles_nombre_lower (V7).
+     */
     @Transactional
     public RolView update(UpdateRolInput in) {
-        var r = rolRepo.findById(in.idRol())
-                .orElseThrow(() -> new NotFoundException("Rol no encontrado"));
-
-        if (in.nombreRol()!=null &&
-                !in.nombreRol().equalsIgnoreCase(r.getNombreRol()) &&
-                rolRepo.existsByNombreRolIgnoreCase(in.nombreRol())) {
-            throw new ConflictException("Ya existe un rol con ese nombre");
-        }
-        if (in.nombreRol()!=null) {
-            r.setNombreRol(in.nombreRol());
+        int filas;
+        try {
+            filas = rolRepo.updateNombre(in.idRol(), in.nombreRol());
+        } catch (DataIntegrityViolationException e) {
+            throw ConstraintViolations.translate(e, UPDATE_VIOLATIONS);
         }
-        return toView(rolRepo.save(r));
+        if (filas == 0) throw new NotFoundException("Rol no encontrado");
+        catalog.refreshAfterCommit();
+        return new RolView(in.idRol(), in.nombreRol());
     }
 
     @Transactional(readOnly = true)
@@ -57,19 +74,33 @@ public class RolService {
 
     @Transactional(readOnly = true)
     public PageResponse<RolView> list(Integer page, Integer size) {
-        Page<Rol> p = rolRepo.findAll(PageRequestUtil.of(page, size, Sort.by("nombreRol").ascending()));
+        return list(page, size, true);
+    }
+
+    /** Con withTotals=false no se ejecuta el COUNT: pageInfo trae hasNext y totales en null. */
+    @Transactional(readOnly = true)
+    public PageResponse<RolView> list(Integer page, Integer size, boolean withTotals) {
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombreRol").ascending());
+        Slice<Rol> p = withTotals ? rolRepo.findAll(pageable) : rolRepo.findSlice(pageable);
         return PageMapper.map(p, this::toView);
     }
 
     @Transactional
     public boolean delete(Integer id) {
-        if (!rolRepo.existsById(id)) return false;
         try {
-            rolRepo.deleteById(id);
-            return true;
+            if (rolRepo.deleteRowById(id) == 0) return false;
         } catch (DataIntegrityViolationException e) {
             throw new ConflictException("No se puede eliminar: existen usuarios asociados a este rol");
         }
+        catalog.refreshAfterCommit();
+        return true;
+    }
+
+    /** Resolución por lotes desde el catálogo en memoria (DataLoader de Usuario.rol). */
+    public Map<Integer, RolView> findViewsByIds(Collection<Integer> ids) {
+        Map<Integer, RolView> views = new HashMap<>();
+        catalog.roles(ids).forEach((id, r) -> views.put(id, new RolView(r.idRol(), r.nombreRol())));
+        return views;
     }
 
     private RolView toView(Rol r) {
@@ -0,0 +1,160 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.dto.BatchDTOs.ItemError;
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.DomainException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioResult;
+import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
+import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
+import com.ep18.couriersync.backend.customers.repository.RolRepository;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import com.ep18.couriersync.backend.customers.validator.UsuarioValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Alta masiva de usuarios (createUsuarios). Las mismas reglas que UsuarioService.create, pero
+ * validadas en memoria por elemento, con una sola consulta de correos para todo el lote y los
+ * INSERT agrupados en lotes JDBC (ids de secuencia pooled, ver Usuario). Un elemento inválido
+ * se informa en su resultado sin abortar los demás.
+ */
+@Service
+@RequiredArgsConstructor
+public class UsuarioBulkService {
+
+    /** Tope por petición: acota memoria del contexto de persistencia y tamaño de la lista IN */
+    public static final int MAX_BATCH = 1000;
+
+    private final UsuarioRepository usuarioRepo;
+    private final CiudadRepository ciudadRepo;
+    private final DepartamentoRepository departamentoRepo;
+    private final RolRepository rolRepo;
+    private final ReferenceDataCatalog catalog;
+    private final SuggestionIndex suggestions;
+    private final Validator validator;
+
+    /** Entrada que pasó las reglas en memoria, con sus referencias ya resueltas y el correo en minúsculas. */
+    record ValidUsuario(CreateUsuarioInput in, String correo, CiudadRef ciudad, DepartamentoRef depto, RolRef rol) {}
+
+    private record Pending(int index, ValidUsuario v) {
+        String correo() { return v.correo(); }
+    }
+
+    @Transactional
+    public List<CreateUsuarioResult> createAll(List<CreateUsuarioInput> inputs) {
+        if (inputs.size() > MAX_BATCH) {
+            throw new ValidationException("Máximo " + MAX_BATCH + " usuarios por lote");
+        }
+        CreateUsuarioResult[] results = new CreateUsuarioResult[inputs.size()];
+
+        // 1) Reglas por elemento, sin ir a BD (catálogo en memoria); correos repetidos dentro del lote
+        Map<String, Pending> byCorreo = new HashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            try {
+                Pending p = new Pending(i, validate(inputs.get(i)));
+                if (byCorreo.putIfAbsent(p.correo(), p) != null) {
+                    throw new ConflictException("El correo está repetido en el lote");
+                }
+            } catch (DomainException e) {
+                results[i] = CreateUsuarioResult.failed(i, ItemError.of(e));
+            }
+        }
+
+        // 2) Unicidad contra BD: una consulta para todos los correos (índice ux_usuarios_correo_lower)
+        Set<String> existentes = byCorreo.isEmpty()
+                ? Set.of()
+                : new HashSet<>(usuarioRepo.findExistingCorreos(byCorreo.keySet()));
+
+        List<Pending> aceptados = new ArrayList<>(byCorreo.size());
+        for (Pending p : byCorreo.values()) {
+            if (existentes.contains(p.correo())) {
+                results[p.index()] = CreateUsuarioResult.failed(
+                        p.index(), ItemError.of(new ConflictException("El correo ya está registrado")));
+            } else {
+                aceptados.add(p);
+            }
+        }
+        aceptados.sort((a, b) -> Integer.compare(a.index(), b.index()));
+
+        // 3) INSERT en lotes JDBC (hibernate.jdbc.batch_size) dentro de una sola transacción
+        List<Usuario> nuevos = aceptados.stream().map(this::toEntity).toList();
+        try {
+            usuarioRepo.saveAll(nuevos);
+            usuarioRepo.flush();
+        } catch (DataIntegrityViolationException e) {
+            // Otro proceso registró uno de los correos entre la consulta y el INSERT
+            throw new ConflictException("Un correo del lote se registró concurrentemente; reintente el lote");
+        }
+
+        for (int k = 0; k < aceptados.size(); k++) {
+            Pending p = aceptados.get(k);
+            Usuario saved = nuevos.get(k);
+            results[p.index()] = CreateUsuarioResult.ok(
+                    p.index(), UsuarioService.toView(saved, p.v().ciudad(), p.v().depto(), p.v().rol()));
+            suggestions.indexAfterCommit(SuggestionTipo.USUARIO, saved.getIdUsuario(), saved.getNombre());
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Reglas de CreateUsuarioInput (bean validation, FKs en el catálogo y ciudad-departamento)
+     * sin ir a BD; la unicidad del correo la comprueba cada llamador para todo su lote.
+     */
+    ValidUsuario validate(CreateUsuarioInput in) {
+        Set<ConstraintViolation<CreateUsuarioInput>> violations = validator.validate(in);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        CiudadRef ciudad = catalog.ciudad(in.idCiudad())
+                .orElseThrow(() -> new NotFoundException("Ciudad no encontrada"));
+        DepartamentoRef depto = catalog.departamento(in.idDepartamento())
+                .orElseThrow(() -> new NotFoundException("Departamento no encontrado"));
+        RolRef rol = catalog.rol(in.idRol())
+                .orElseThrow(() -> new NotFoundException("Rol no encontrado"));
+        UsuarioValidator.assertCiudadPerteneceADepartamento(ciudad, depto.idDepartamento());
+        return new ValidUsuario(in, in.correo().toLowerCase(Locale.ROOT), ciudad, depto, rol);
+    }
+
+    private Usuario toEntity(Pending p) {
+        CreateUsuarioInput in = p.v().in();
+        Usuario u = new Usuario();
+        u.setNombre(in.nombre());
+        u.setNombreBusqueda(SearchKeys.normalize(in.nombre()));
+        u.setCorreo(in.correo());
+        u.setTelefono(in.telefono());
+        u.setFechaRegistro(in.fechaRegistro() != null ? in.fechaRegistro() : LocalDate.now());
+        u.setDetalleDireccion(in.detalleDireccion());
+        u.setCiudad(ciudadRepo.getReferenceById(p.v().ciudad().idCiudad()));
+        u.setDepartamento(departamentoRepo.getReferenceById(p.v().depto().idDepartamento()));
+        u.setRol(rolRepo.getReferenceById(p.v().rol().idRol()));
+        return u;
+    }
+}
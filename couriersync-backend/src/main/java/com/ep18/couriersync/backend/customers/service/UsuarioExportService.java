@@ -0,0 +1,83 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.dto.ExportDTOs.UsuarioExportRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import com.ep18.couriersync.backend.customers.exporter.ExportFormat;
+import com.ep18.couriersync.backend.customers.exporter.ExportRowWriter;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación completa de usuarios para BI: recorre un cursor del servidor con los mismos filtros
+ * y órdenes que usuarios(filter, sort) y escribe cada fila en la respuesta a medida que llega, sin
+ * Page ni List intermedios. La memoria usada es la del búfer de salida y el bloque de filas del driver.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsuarioExportService {
+
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    private final UsuarioRepository usuarioRepo;
+    private final ReferenceDataCatalog catalog;
+    private final ObjectMapper mapper;
+
+    /** Para rechazar un filtro inválido antes de empezar a escribir la respuesta. */
+    public void validate(UsuarioFilter filter) {
+        UsuarioService.assertRangoFechas(filter);
+    }
+
+    /** Devuelve el número de filas escritas. No cierra {@code out}. */
+    @Transactional(readOnly = true)
+    public long export(UsuarioFilter filter, UsuarioSort sort, ExportFormat format, boolean gzip, OutputStream out) {
+        validate(filter);
+        long t0 = System.nanoTime();
+        long filas = 0;
+        try {
+            GZIPOutputStream gz = gzip ? new GZIPOutputStream(out, GZIP_BUFFER) : null;
+            ExportRowWriter writer = ExportRowWriter.open(format, gz != null ? gz : out, mapper);
+            try (Stream<UsuarioRow> rows = usuarioRepo.streamRows(filter, sort)) {
+                for (Iterator<UsuarioRow> it = rows.iterator(); it.hasNext(); filas++) {
+                    writer.write(toExportRow(it.next()));
+                }
+            }
+            writer.finish();
+            if (gz != null) gz.finish();
+            out.flush();
+        } catch (IOException e) {
+            // Normalmente el cliente cortó la descarga: ya no se puede responder con un error
+            log.warn("Exportación de usuarios interrumpida tras {} filas: {}", filas, e.toString());
+            throw new UncheckedIOException(e);
+        }
+        log.info("Exportación de usuarios ({}{}): {} filas en {} ms", format, gzip ? ", gzip" : "", filas,
+                (System.nanoTime() - t0) / 1_000_000);
+        return filas;
+    }
+
+    private UsuarioExportRow toExportRow(UsuarioRow r) {
+        return new UsuarioExportRow(
+                r.idUsuario(), r.nombre(), r.correo(), r.telefono(), r.fechaRegistro(), r.detalleDireccion(),
+                r.idCiudad(), catalog.ciudad(r.idCiudad()).map(CiudadRef::nombreCiudad).orElse(null),
+                r.idDepartamento(),
+                catalog.departamento(r.idDepartamento()).map(DepartamentoRef::nombreDepartamento).orElse(null),
+                r.idRol(), catalog.rol(r.idRol()).map(RolRef::nombreRol).orElse(null));
+    }
+}
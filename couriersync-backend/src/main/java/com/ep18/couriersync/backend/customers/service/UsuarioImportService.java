@@ -0,0 +1,312 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.csv.CsvReader.MalformedCsvException;
+import com.ep18.couriersync.backend.common.csv.CsvWriter;
+import com.ep18.couriersync.backend.common.exception.DomainException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.dto.ImportDTOs.ImportResult;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.importer.ImportFormat;
+import com.ep18.couriersync.backend.customers.importer.ImportRecord;
+import com.ep18.couriersync.backend.customers.importer.ImportRecordReader;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.ep18.couriersync.backend.customers.service.UsuarioBulkService.ValidUsuario;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Importación masiva de usuarios desde CSV o NDJSON en streaming, con memoria constante:
+ * <ol>
+ *   <li>cada registro se valida como CreateUsuarioInput (mismas reglas que createUsuarios, en memoria)
+ *       y, válido o rechazado, se escribe en un archivo temporal ya en el formato del COPY: mientras se
+ *       lee el cuerpo del cliente no se ocupa ninguna conexión ni transacción;</li>
+ *   <li>el archivo entra por un único COPY a una tabla temporal de la transacción;</li>
+ *   <li>SQL por conjuntos marca correos repetidos (en el archivo o ya registrados) e inserta el resto
+ *       en tblusuarios (ids de la secuencia, V5);</li>
+ *   <li>lo rechazado queda en tblimportaciones_rechazos para descargarlo como CSV.</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsuarioImportService {
+
+    private static final int BUFFER = 64 * 1024;
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE stg_import_usuarios (
+                linea             INTEGER NOT NULL,
+                nombre            VARCHAR(50),
+                nombre_busqueda   VARCHAR(50),
+                correo            VARCHAR(100),
+                telefono          VARCHAR(10),
+                fecha_registro    DATE,
+                detalle_direccion VARCHAR(100),
+                ciudad            INTEGER,
+                departamento      INTEGER,
+                rol               INTEGER,
+                motivo            TEXT,
+                contenido         TEXT
+            ) ON COMMIT DROP""";
+
+    /** Sin estadísticas el planificador subestima la tabla temporal y la fusión casi duplica su tiempo */
+    private static final String ANALYZE_STAGING = "ANALYZE stg_import_usuarios";
+
+    private static final String DROP_STAGING = "DROP TABLE stg_import_usuarios";
+
+    private static final String COPY_STAGING = "COPY stg_import_usuarios (linea, nombre, nombre_busqueda, correo, "
+            + "telefono, fecha_registro, detalle_direccion, ciudad, departamento, rol, motivo, contenido) "
+            + "FROM STDIN (FORMAT csv)";
+
+    /** Solo la primera aparición de cada correo dentro del archivo sigue adelante */
+    private static final String MARK_DUPLICATES = """
+            UPDATE stg_import_usuarios s SET motivo = 'El correo está repetido en el archivo'
+              FROM (SELECT linea, row_number() OVER (PARTITION BY lower(correo) ORDER BY linea) AS n
+                      FROM stg_import_usuarios WHERE motivo IS NULL) d
+             WHERE s.linea = d.linea AND d.n > 1""";
+
+    /** Resuelto con ux_usuarios_correo_lower por cada fila de la tabla temporal */
+    private static final String MARK_EXISTING = """
+            UPDATE stg_import_usuarios s SET motivo = 'El correo ya está registrado'
+             WHERE s.motivo IS NULL
+               AND EXISTS (SELECT 1 FROM public.tblusuarios u WHERE lower(u.correo) = lower(s.correo))""";
+
+    /**
+     * Inserta lo válido. Los ids salen de la secuencia en bloques de 50, igual que el optimizador
+     * pooled de Hibernate (cada nextval reserva v - 49 .. v), en lugar de gastar un nextval por fila.
+     * ON CONFLICT cubre un alta concurrente del mismo correo entre el paso anterior y este: esa fila
+     * se marca como rechazada en lugar de abortar la importación.
+     */
+    private static final String MERGE = """
+            WITH validos AS (
+                SELECT s.*, row_number() OVER (ORDER BY linea) - 1 AS n
+                  FROM stg_import_usuarios s WHERE motivo IS NULL
+            ), bloques AS (
+                SELECT b, nextval('public.tblusuarios_id_usuario_seq') AS hi
+                  FROM generate_series(0, (SELECT (count(*) - 1) / 50 FROM validos)) b
+            ), ins AS (
+                INSERT INTO public.tblusuarios (id_usuario, nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                SELECT b.hi - 49 + v.n % 50, v.nombre, v.nombre_busqueda, v.correo, v.telefono,
+                       coalesce(v.fecha_registro, current_date), v.detalle_direccion, v.ciudad, v.departamento, v.rol
+                  FROM validos v JOIN bloques b ON b.b = v.n / 50
+                 ORDER BY v.linea
+                ON CONFLICT DO NOTHING
+                RETURNING id_usuario, lower(correo) AS correo
+            ), perdidos AS (
+                UPDATE stg_import_usuarios s SET motivo = 'El correo se registró durante la importación'
+                 WHERE s.motivo IS NULL AND NOT EXISTS (SELECT 1 FROM ins WHERE ins.correo = lower(s.correo))
+            )
+            SELECT count(*) AS insertados, min(id_usuario) AS desde, max(id_usuario) AS hasta FROM ins""";
+
+    private static final String SAVE_SUMMARY = """
+            INSERT INTO public.tblimportaciones_usuarios (id_importacion, formato, total, insertados, rechazados)
+            SELECT ?, ?, count(*), ?, count(*) FILTER (WHERE motivo IS NOT NULL) FROM stg_import_usuarios""";
+
+    /** Las filas rechazadas al fusionar no traen contenido original: se rearma desde sus columnas */
+    private static final String SAVE_REJECTIONS = """
+            INSERT INTO public.tblimportaciones_rechazos (id_importacion, linea, motivo, contenido)
+            SELECT ?, linea, motivo,
+                   coalesce(contenido, concat_ws(',', nombre, correo, telefono, fecha_registro, detalle_direccion,
+                                                 ciudad, departamento, rol))
+              FROM stg_import_usuarios WHERE motivo IS NOT NULL""";
+
+    private static final String FIND_SUMMARY = "SELECT formato, total, insertados, rechazados "
+            + "FROM public.tblimportaciones_usuarios WHERE id_importacion = ?";
+
+    private static final String STREAM_REJECTIONS = "SELECT linea, motivo, contenido "
+            + "FROM public.tblimportaciones_rechazos WHERE id_importacion = ? ORDER BY linea";
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager txManager;
+    private final UsuarioBulkService rules;
+    private final UsuarioRepository usuarioRepo;
+    private final SuggestionIndex suggestions;
+    private final ObjectMapper mapper;
+
+    public ImportResult importar(ImportFormat formato, InputStream body) {
+        if (formato == null) throw new ValidationException("Formato no soportado: use text/csv o application/x-ndjson");
+        UUID id = UUID.randomUUID();
+        long t0 = System.nanoTime();
+
+        Path staged = spool(formato, body);
+        Map<String, Object> merged;
+        try {
+            merged = new TransactionTemplate(txManager).execute(status ->
+                    jdbc.execute((ConnectionCallback<Map<String, Object>>) con -> {
+                        jdbc.execute(CREATE_STAGING);
+                        copy(staged, con);
+                        jdbc.execute(ANALYZE_STAGING);
+                        jdbc.update(MARK_DUPLICATES);
+                        jdbc.update(MARK_EXISTING);
+                        Map<String, Object> m = jdbc.queryForMap(MERGE);
+                        jdbc.update(SAVE_SUMMARY, id, formato.name(), ((Number) m.get("insertados")).intValue());
+                        jdbc.update(SAVE_REJECTIONS, id);
+                        jdbc.execute(DROP_STAGING); // ON COMMIT DROP no basta si la transacción es de un llamador
+                        return m;
+                    }));
+        } finally {
+            delete(staged);
+        }
+
+        // Ya confirmada: las altas entran al índice de autocompletado
+        if (merged.get("desde") != null) {
+            indexar((Integer) merged.get("desde"), (Integer) merged.get("hasta"));
+        }
+        ImportResult result = resumen(id);
+        log.info("Importación {} ({}): {} registros, {} insertados, {} rechazados en {} ms", id, formato,
+                result.total(), result.insertados(), result.rechazados(), (System.nanoTime() - t0) / 1_000_000);
+        return result;
+    }
+
+    public ImportResult resumen(UUID id) {
+        return jdbc.query(FIND_SUMMARY, rs -> {
+            if (!rs.next()) throw new NotFoundException("Importación no encontrada");
+            return new ImportResult(id, ImportFormat.valueOf(rs.getString("formato")),
+                    rs.getLong("total"), rs.getLong("insertados"), rs.getLong("rechazados"));
+        }, id);
+    }
+
+    /** Reporte de rechazos (linea, motivo, contenido) en streaming: cursor con fetchSize, sin cargarlo entero. */
+    public void writeRechazos(UUID id, OutputStream out) {
+        resumen(id); // 404 si no existe
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try {
+                CsvWriter csv = new CsvWriter(
+                        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER), false);
+                csv.field("linea").field("motivo").field("contenido").endRow();
+                jdbc.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(STREAM_REJECTIONS);
+                    ps.setFetchSize(1000);
+                    ps.setObject(1, id);
+                    return ps;
+                }, rs -> {
+                    try {
+                        csv.field(rs.getInt(1)).field(rs.getString(2)).field(rs.getString(3)).endRow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                csv.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Lee y valida el cuerpo completo hacia un archivo temporal con las filas del COPY. Las
+     * validaciones pueden consultar el catálogo (y la BD si falta un id) con su propia conexión.
+     */
+    private Path spool(ImportFormat formato, InputStream body) {
+        Path staged = null;
+        try {
+            staged = Files.createTempFile("import-usuarios-", ".csv");
+            try (ImportRecordReader reader = ImportRecordReader.open(
+                         formato, new InputStreamReader(body, StandardCharsets.UTF_8), mapper);
+                 CsvWriter copy = new CsvWriter(Files.newBufferedWriter(staged, StandardCharsets.UTF_8), true)) {
+                for (ImportRecord rec = reader.next(); rec != null; rec = reader.next()) {
+                    stage(rec, copy);
+                }
+            }
+            return staged;
+        } catch (MalformedCsvException e) {
+            delete(staged);
+            throw new ValidationException(e.getMessage());
+        } catch (IOException e) {
+            delete(staged);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(staged);
+            throw e;
+        }
+    }
+
+    /** Carga el archivo preparado en la tabla temporal con un único COPY. */
+    private static void copy(Path staged, Connection con) throws SQLException {
+        try (InputStream in = Files.newInputStream(staged)) {
+            con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING, in, BUFFER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path staged) {
+        if (staged == null) return;
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el archivo temporal de importación {}: {}", staged, e.toString());
+        }
+    }
+
+    private void stage(ImportRecord rec, CsvWriter copy) throws IOException {
+        String motivo = rec.error();
+        ValidUsuario v = null;
+        if (motivo == null) {
+            try {
+                v = rules.validate(rec.input());
+            } catch (DomainException e) {
+                motivo = e.getMessage();
+            }
+        }
+        copy.field(rec.linea());
+        if (v == null) {
+            copy.field(null).field(null).field(null).field(null).field(null).field(null)
+                    .field(null).field(null).field(null)
+                    .field(motivo).field(rec.contenido());
+        } else {
+            CreateUsuarioInput in = v.in();
+            copy.field(in.nombre())
+                    .field(SearchKeys.normalize(in.nombre()))
+                    .field(in.correo())
+                    .field(in.telefono())
+                    .field(in.fechaRegistro())
+                    .field(in.detalleDireccion())
+                    .field(v.ciudad().idCiudad())
+                    .field(v.depto().idDepartamento())
+                    .field(v.rol().idRol())
+                    .field(null).field(null);
+        }
+        copy.endRow();
+    }
+
+    private void indexar(int desde, int hasta) {
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (var nombres = usuarioRepo.streamNombresByIdBetween(desde, hasta)) {
+                nombres.forEach(u -> suggestions.index(SuggestionTipo.USUARIO, u.idUsuario(), u.nombre()));
+            }
+        });
+    }
+}
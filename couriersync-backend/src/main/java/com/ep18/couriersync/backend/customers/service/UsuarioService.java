@@ -1,39 +1,70 @@
 package com.ep18.couriersync.backend.customers.service;
 
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Connection;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ConstraintViolations;
+import com.ep18.couriersync.backend.common.exception.DomainException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
 import com.ep18.couriersync.backend.common.pagination.PageMapper;
 import com.ep18.couriersync.backend.common.pagination.PageRequestUtil;
-import com.ep18.couriersync.backend.customers.domain.Ciudad;
-import com.ep18.couriersync.backend.customers.domain.Departamento;
-import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChange;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView;
 import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
 import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
 import com.ep18.couriersync.backend.customers.repository.RolRepository;
 import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
 import com.ep18.couriersync.backend.customers.validator.UsuarioValidator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class UsuarioService {
 
+    /** Cambios por llamada a changesSince: lotes grandes para ponerse al día en pocas idas */
+    public static final int CHANGES_DEFAULT_LIMIT = 500;
+    public static final int CHANGES_MAX_LIMIT = 1000;
+
+    /** Restricciones de tblusuarios (V1) que puede violar un UPDATE */
+    private static final Map<String, Supplier<? extends DomainException>> UPDATE_VIOLATIONS = Map.of(
+            "ux_usuarios_correo_lower", () -> new ConflictException("El correo ya está registrado"),
+            "ciudad_usuario", () -> new NotFoundException("Ciudad no encontrada"),
+            "departamento_usuario", () -> new NotFoundException("Departamento no encontrado"),
+            "rol_usuario", () -> new NotFoundException("Rol no encontrado"));
+
     private final UsuarioRepository usuarioRepo;
     private final CiudadRepository ciudadRepo;
     private final DepartamentoRepository departamentoRepo;
     private final RolRepository rolRepo;
+    private final ReferenceDataCatalog catalog;
+    private final SuggestionIndex suggestions;
 
     @Transactional
     public UsuarioView create(CreateUsuarioInput in) {
@@ -41,117 +72,239 @@ public class UsuarioService {
         if (usuarioRepo.existsByCorreoIgnoreCase(in.correo()))
             throw new ConflictException("El correo ya está registrado");
 
-        // FKs
-        Ciudad ciudad = ciudadRepo.findById(in.idCiudad())
-                .orElseThrow(() -> new NotFoundException("Ciudad no encontrada"));
-        Departamento depto = departamentoRepo.findById(in.idDepartamento())
-                .orElseThrow(() -> new NotFoundException("Departamento no encontrado"));
-        Rol rol = rolRepo.findById(in.idRol())
-                .orElseThrow(() -> new NotFoundException("Rol no encontrado"));
+        // FKs (catálogo en memoria, sin ida a BD)
+        CiudadRef ciudad = requireCiudad(in.idCiudad());
+        DepartamentoRef depto = requireDepartamento(in.idDepartamento());
+        RolRef rol = requireRol(in.idRol());
 
         // Coherencia ciudad-departamento
-        UsuarioValidator.assertCiudadPerteneceADepartamento(ciudad, depto.getIdDepartamento());
+        UsuarioValidator.assertCiudadPerteneceADepartamento(ciudad, depto.idDepartamento());
 
         Usuario u = new Usuario();
         u.setNombre(in.nombre());
+        u.setNombreBusqueda(SearchKeys.normalize(in.nombre()));
         u.setCorreo(in.correo());
         u.setTelefono(in.telefono());
         u.setFechaRegistro(in.fechaRegistro() != null ? in.fechaRegistro() : LocalDate.now());
         u.setDetalleDireccion(in.detalleDireccion());
-        u.setCiudad(ciudad);
-        u.setDepartamento(depto);
-        u.setRol(rol);
+        u.setCiudad(ciudadRepo.getReferenceById(ciudad.idCiudad()));
+        u.setDepartamento(departamentoRepo.getReferenceById(depto.idDepartamento()));
+        u.setRol(rolRepo.getReferenceById(rol.idRol()));
 
-        return toView(usuarioRepo.save(u));
+        Usuario saved = usuarioRepo.save(u);
+        suggestions.indexAfterCommit(SuggestionTipo.USUARIO, saved.getIdUsuario(), saved.getNombre());
+        return toView(saved, ciudad, depto, rol);
     }
 
+    /**
+     * Una sola sentencia (UPDATE ... RETURNING): sin lectura previa ni comprobación de correo;
+     * usuario inexistente = 0 filas, y correo duplicado o FK inexistente los informa la BD.
+     */
     @Transactional
     public UsuarioView update(UpdateUsuarioInput in) {
-        Usuario u = usuarioRepo.findById(in.idUsuario())
-                .orElseThrow(() -> new NotFoundException("Usuario no encontrado"));
-
-        if (in.correo()!=null && !in.correo().equalsIgnoreCase(u.getCorreo())
-                && usuarioRepo.existsByCorreoIgnoreCase(in.correo())) {
-            throw new ConflictException("El correo ya está registrado");
+        String nombreBusqueda = in.nombre() != null ? SearchKeys.normalize(in.nombre()) : null;
+        UsuarioRow row;
+        try {
+            row = usuarioRepo.updateRow(in, nombreBusqueda)
+                    .orElseThrow(() -> new NotFoundException("Usuario no encontrado"));
+        } catch (DataIntegrityViolationException e) {
+            throw ConstraintViolations.translate(e, UPDATE_VIOLATIONS);
         }
 
-        // Cambios simples
-        if (in.nombre()!=null) u.setNombre(in.nombre());
-        if (in.correo()!=null) u.setCorreo(in.correo());
-        if (in.telefono()!=null) u.setTelefono(in.telefono());
-        if (in.fechaRegistro()!=null) u.setFechaRegistro(in.fechaRegistro());
-        if (in.detalleDireccion()!=null) u.setDetalleDireccion(in.detalleDireccion());
-
-        // Cambios de FKs
-        Ciudad ciudad = (in.idCiudad()!=null)
-                ? ciudadRepo.findById(in.idCiudad()).orElseThrow(() -> new NotFoundException("Ciudad no encontrada"))
-                : u.getCiudad();
-
-        Departamento depto = (in.idDepartamento()!=null)
-                ? departamentoRepo.findById(in.idDepartamento()).orElseThrow(() -> new NotFoundException("Departamento no encontrado"))
-                : u.getDepartamento();
-
-        if (in.idCiudad()!=null || in.idDepartamento()!=null) {
-            UsuarioValidator.assertCiudadPerteneceADepartamento(ciudad, depto.getIdDepartamento());
-            u.setCiudad(ciudad);
-            u.setDepartamento(depto);
+        // Coherencia ciudad-departamento sobre la fila resultante (catálogo en memoria);
+        // si falla, la excepción revierte el UPDATE
+        if (in.idCiudad() != null || in.idDepartamento() != null) {
+            UsuarioValidator.assertCiudadPerteneceADepartamento(
+                    requireCiudad(row.idCiudad()), row.idDepartamento());
         }
 
-        if (in.idRol()!=null) {
-            Rol rol = rolRepo.findById(in.idRol())
-                    .orElseThrow(() -> new NotFoundException("Rol no encontrado"));
-            u.setRol(rol);
+        if (in.nombre() != null) {
+            suggestions.indexAfterCommit(SuggestionTipo.USUARIO, row.idUsuario(), row.nombre());
         }
-
-        return toView(usuarioRepo.save(u));
+        return toView(row);
     }
 
     @Transactional(readOnly = true)
     public UsuarioView findById(Integer id) {
-        return usuarioRepo.findById(id).map(this::toView)
+        return usuarioRepo.findRowById(id).map(this::toView)
                 .orElseThrow(() -> new NotFoundException("Usuario no encontrado"));
     }
 
     @Transactional(readOnly = true)
     public PageResponse<UsuarioView> search(String q, Integer page, Integer size) {
-        Page<Usuario> p = usuarioRepo.findByNombreContainingIgnoreCase(
-                (q == null ? "" : q), PageRequestUtil.of(page, size, Sort.by("nombre").ascending()));
-        return PageMapper.map(p, this::toView);
+        return search(q, page, size, true);
+    }
+
+    /**
+     * Con withTotals=false no se ejecuta el COUNT: pageInfo trae hasNext y totales en null.
+     * q vacío o null lista todos los usuarios por nombre. Si no, q necesita al menos
+     * SearchKeys.MIN_SUBSTRING_LENGTH caracteres y el orden es por relevancia (similitud con q)
+     * entre las SearchKeys.MAX_CANDIDATES coincidencias más parecidas; con más coincidencias que
+     * ese tope los totales van en null.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<UsuarioView> search(String q, Integer page, Integer size, boolean withTotals) {
+        if (q == null || q.isBlank()) {
+            Pageable pageable = PageRequestUtil.of(page, size, Sort.unsorted());
+            return PageMapper.map(usuarioRepo.findRows(null, UsuarioSort.NOMBRE_ASC, pageable, withTotals),
+                    this::toView);
+        }
+        String term = SearchKeys.substringTerm(q);
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.unsorted());
+        return PageMapper.map(usuarioRepo.searchRows(term, pageable, withTotals), this::toView);
     }
 
     @Transactional(readOnly = true)
     public PageResponse<UsuarioView> listByCiudad(Integer idCiudad, Integer page, Integer size) {
-        Page<Usuario> p = usuarioRepo.findAllByCiudad_IdCiudad(
-                idCiudad, PageRequestUtil.of(page, size, Sort.by("nombre").ascending()));
+        return listByCiudad(idCiudad, page, size, true);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<UsuarioView> listByCiudad(Integer idCiudad, Integer page, Integer size, boolean withTotals) {
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombre").ascending());
+        Slice<UsuarioRow> p = withTotals
+                ? usuarioRepo.findRowsByCiudad(idCiudad, pageable)
+                : usuarioRepo.findRowSliceByCiudad(idCiudad, pageable);
         return PageMapper.map(p, this::toView);
     }
 
     @Transactional(readOnly = true)
     public PageResponse<UsuarioView> listByDepartamento(Integer idDepto, Integer page, Integer size) {
-        Page<Usuario> p = usuarioRepo.findAllByDepartamento_IdDepartamento(
-                idDepto, PageRequestUtil.of(page, size, Sort.by("nombre").ascending()));
+        return listByDepartamento(idDepto, page, size, true);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<UsuarioView> listByDepartamento(Integer idDepto, Integer page, Integer size, boolean withTotals) {
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombre").ascending());
+        Slice<UsuarioRow> p = withTotals
+                ? usuarioRepo.findRowsByDepartamento(idDepto, pageable)
+                : usuarioRepo.findRowSliceByDepartamento(idDepto, pageable);
         return PageMapper.map(p, this::toView);
     }
 
     @Transactional(readOnly = true)
     public PageResponse<UsuarioView> listByRol(Integer idRol, Integer page, Integer size) {
-        Page<Usuario> p = usuarioRepo.findAllByRol_IdRol(
-                idRol, PageRequestUtil.of(page, size, Sort.by("nombre").ascending()));
+        return listByRol(idRol, page, size, true);
+    }
+
+    @Transactional(readOnly = true)
+    public PageResponse<UsuarioView> listByRol(Integer idRol, Integer page, Integer size, boolean withTotals) {
+        Pageable pageable = PageRequestUtil.of(page, size, Sort.by("nombre").ascending());
+        Slice<UsuarioRow> p = withTotals
+                ? usuarioRepo.findRowsByRol(idRol, pageable)
+                : usuarioRepo.findRowSliceByRol(idRol, pageable);
+        return PageMapper.map(p, this::toView);
+    }
+
+    /**
+     * Filtro combinado (ciudad, departamento, rol, fragmento de nombre y rango de fechaRegistro)
+     * con orden a elección, en una sola sentencia construida según los criterios presentes.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<UsuarioView> list(UsuarioFilter filter, UsuarioSort sort,
+                                          Integer page, Integer size, boolean withTotals) {
+        assertRangoFechas(filter);
+        Slice<UsuarioRow> p = usuarioRepo.findRows(filter, sort, PageRequestUtil.of(page, size, null), withTotals);
         return PageMapper.map(p, this::toView);
     }
 
+    /**
+     * Paginación keyset por (nombre, idUsuario): cada página es un seek sobre el índice,
+     * con coste constante sin importar la profundidad (a diferencia de OFFSET).
+     */
+    @Transactional(readOnly = true)
+    public Connection<UsuarioView> connection(UsuarioFilter filter, Integer first, String after) {
+        assertRangoFechas(filter);
+        int limit = PageRequestUtil.limit(first);
+        List<UsuarioRow> rows = usuarioRepo.findRowsAfter(filter, KeysetCursor.decode(after), limit + 1);
+        return PageMapper.connection(rows, limit, r -> new KeysetCursor(r.nombre(), r.idUsuario()), this::toView);
+    }
+
+    /**
+     * Feed de cambios para sincronización incremental: altas, modificaciones y bajas en orden de
+     * transacción, a partir de {@code cursor} (null = desde el inicio). El consumidor guarda el
+     * último endCursor y lo vuelve a pasar; sin cambios nuevos, endCursor viene en null y debe
+     * conservar el que tenía.
+     */
+    @Transactional(readOnly = true)
+    public Connection<UsuarioChange> changesSince(String cursor, Integer limit) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        if (after != null && (after.key().isEmpty() || !after.key().chars().allMatch(Character::isDigit))) {
+            throw new ValidationException("Cursor inválido");
+        }
+        int n = (limit == null || limit <= 0) ? CHANGES_DEFAULT_LIMIT : Math.min(limit, CHANGES_MAX_LIMIT);
+        List<UsuarioChangeRow> rows = usuarioRepo.findChangesAfter(after, n + 1);
+        return PageMapper.connection(rows, n, r -> new KeysetCursor(r.txid(), r.idUsuario()),
+                r -> new UsuarioChange(r.tipo(), r.idUsuario(), r.changedAt(),
+                        r.usuario() != null ? toView(r.usuario()) : null));
+    }
+
     @Transactional
     public boolean delete(Integer id) {
-        if (!usuarioRepo.existsById(id)) return false;
         try {
-            usuarioRepo.deleteById(id);
-            return true;
+            if (usuarioRepo.deleteRowById(id) == 0) return false;
         } catch (DataIntegrityViolationException e) {
             throw new ConflictException("No se puede eliminar: existen registros relacionados");
         }
+        suggestions.removeAfterCommit(SuggestionTipo.USUARIO, id);
+        return true;
+    }
+
+    static void assertRangoFechas(UsuarioFilter filter) {
+        if (filter != null && filter.fechaDesde() != null && filter.fechaHasta() != null
+                && filter.fechaDesde().isAfter(filter.fechaHasta())) {
+            throw new ValidationException("fechaDesde no puede ser posterior a fechaHasta");
+        }
+    }
+
+    private CiudadRef requireCiudad(int idCiudad) {
+        return catalog.ciudad(idCiudad)
+                .orElseThrow(() -> new NotFoundException("Ciudad no encontrada"));
+    }
+
+    private DepartamentoRef requireDepartamento(int idDepartamento) {
+        return catalog.departamento(idDepartamento)
+                .orElseThrow(() -> new NotFoundException("Departamento no encontrado"));
+    }
+
+    private RolRef requireRol(int idRol) {
+        return catalog.rol(idRol)
+                .orElseThrow(() -> new NotFoundException("Rol no encontrado"));
+    }
+
+    /**
+     * Completa los nombres de las FKs desde el catálogo en memoria (sin joins). Las FKs de una
+     * fila leída existen: si el catálogo no las tiene las lee de la BD, y si ni así aparecen es
+     * una inconsistencia del esquema, no un 404 del usuario.
+     */
+    private UsuarioView toView(UsuarioRow row) {
+        CiudadRef c = catalog.ciudad(row.idCiudad())
+                .orElseThrow(() -> referenciaRota("ciudad", row.idCiudad(), row.idUsuario()));
+        DepartamentoRef d = catalog.departamento(row.idDepartamento())
+                .orElseThrow(() -> referenciaRota("departamento", row.idDepartamento(), row.idUsuario()));
+        RolRef r = catalog.rol(row.idRol())
+                .orElseThrow(() -> referenciaRota("rol", row.idRol(), row.idUsuario()));
+        return new UsuarioView(
+                row.idUsuario(),
+                row.nombre(),
+                row.correo(),
+                row.telefono(),
+                row.fechaRegistro(),
+                row.detalleDireccion(),
+                c.idCiudad(),
+                c.nombreCiudad(),
+                d.idDepartamento(),
+                d.nombreDepartamento(),
+                r.idRol(),
+                r.nombreRol()
+        );
+    }
+
+    private static IllegalStateException referenciaRota(String tipo, int id, int idUsuario) {
+        return new IllegalStateException("El usuario " + idUsuario + " apunta a " + tipo + " " + id + " inexistente");
     }
 
-    private UsuarioView toView(Usuario u) {
+    static UsuarioView toView(Usuario u, CiudadRef c, DepartamentoRef d, RolRef r) {
         return new UsuarioView(
                 u.getIdUsuario(),
                 u.getNombre(),
@@ -159,12 +312,12 @@ public class UsuarioService {
                 u.getTelefono(),
                 u.getFechaRegistro(),
                 u.getDetalleDireccion(),
-                u.getCiudad().getIdCiudad(),
-                u.getCiudad().getNombreCiudad(),
-                u.getDepartamento().getIdDepartamento(),
-                u.getDepartamento().getNombreDepartamento(),
-                u.getRol().getIdRol(),
-                u.getRol().getNombreRol()
+                c.idCiudad(),
+                c.nombreCiudad(),
+                d.idDepartamento(),
+                d.nombreDepartamento(),
+                r.idRol(),
+                r.nombreRol()
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,304 @@
+package com.ep18.couriersync.backend.customers.suggest;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.common.tx.AfterCommit;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionView;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeRow;
+import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Índice en memoria para autocompletar nombres de ciudades y usuarios por prefijo.
+ * Cada nombre se indexa por su clave normalizada (SearchKeys) y por cada palabra posterior,
+ * así "ros" encuentra "Santa Rosa". La búsqueda no usa la BD.
+ *
+ * <p>La base es un {@link SuggestionSnapshot} inmutable que se construye en un hilo propio y se
+ * publica entero; los cambios posteriores (escrituras locales tras su commit, el feed de
+ * cambios de usuarios y la relectura de ciudades) quedan como pendientes que tienen prioridad
+ * sobre la base hasta que una compactación los incorpora. Así el resto de instancias ven las
+ * escrituras ajenas en un intervalo de refresco, sin reiniciar. El estado (CONSTRUYENDO, LISTO,
+ * FALLIDO) se publica en /actuator/health.
+ */
+@Slf4j
+@Component
+public class SuggestionIndex implements HealthIndicator {
+
+    public enum Estado { CONSTRUYENDO, LISTO, FALLIDO }
+
+    /** Cambios del feed leídos por consulta */
+    private static final int FEED_LOTE = 1000;
+
+    private static final Comparator<Coincidencia> ORDEN = Comparator
+            .<Coincidencia, byte[]>comparing(Coincidencia::clave, Arrays::compareUnsigned)
+            .thenComparing(c -> c.view().tipo())
+            .thenComparing(c -> c.view().id());
+
+    /** Nombre vigente de una entidad tras la base; view null = borrada. */
+    private record Pendiente(SuggestionView view, byte[][] palabras) {
+        static final Pendiente BORRADO = new Pendiente(null, new byte[0][]);
+    }
+
+    private record Coincidencia(byte[] clave, SuggestionView view) {}
+
+    private final UsuarioRepository usuarioRepo;
+    private final CiudadRepository ciudadRepo;
+    private final TransactionTemplate lectura;
+
+    private final AtomicReference<SuggestionSnapshot> base = new AtomicReference<>(SuggestionSnapshot.EMPTY);
+    private final Map<Long, Pendiente> pendientes = new ConcurrentHashMap<>();
+    private final AtomicBoolean compactacionProgramada = new AtomicBoolean();
+    private volatile Estado estado = Estado.CONSTRUYENDO;
+    private volatile String error;
+
+    /** Solo los usa el hilo de refresco */
+    private KeysetCursor feed;
+    private Map<Integer, String> ciudades = Map.of();
+
+    private ScheduledExecutorService refresco;
+    private volatile int maxPendientes = Integer.MAX_VALUE;
+
+    public SuggestionIndex(UsuarioRepository usuarioRepo, CiudadRepository ciudadRepo,
+                           PlatformTransactionManager txManager) {
+        this.usuarioRepo = usuarioRepo;
+        this.ciudadRepo = ciudadRepo;
+        this.lectura = new TransactionTemplate(txManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    /**
+     * Construye la base en un hilo propio y, una vez lista, aplica cada {@code intervalo} los
+     * cambios del feed y de ciudades. Con más de {@code maxPendientes} cambios sin compactar se
+     * reconstruye la base en memoria (base + pendientes, sin leer la BD).
+     */
+    public void start(Duration intervalo, int maxPendientes) {
+        this.maxPendientes = maxPendientes;
+        refresco = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "sugerencias");
+            t.setDaemon(true);
+            return t;
+        });
+        refresco.scheduleWithFixedDelay(this::refresh, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refresco != null) refresco.shutdownNow();
+    }
+
+    /** Una pasada de refresco: construir si aún no hay base, si no aplicar los cambios. */
+    void refresh() {
+        if (estado != Estado.LISTO) {
+            build();
+            return;
+        }
+        try {
+            lectura.executeWithoutResult(status -> {
+                applyFeed();
+                applyCiudades();
+            });
+        } catch (RuntimeException e) {
+            // La base sigue sirviendo; se reintenta en la siguiente pasada desde el mismo cursor
+            log.warn("Autocompletado: no se pudieron leer los cambios: {}", e.toString());
+        }
+        if (pendientes.size() >= maxPendientes) compact();
+    }
+
+    /**
+     * Lee la posición del feed antes de recorrer las tablas: lo que confirme durante el recorrido
+     * lo vuelve a entregar el feed, y lo que se escriba localmente queda como pendiente. Ninguno
+     * de los dos se pierde al publicar la base.
+     */
+    void build() {
+        try {
+            SuggestionSnapshot nueva = lectura.execute(status -> {
+                KeysetCursor desde = usuarioRepo.changesHead();
+                SuggestionSnapshot.Builder b = new SuggestionSnapshot.Builder();
+                Map<Integer, String> leidas = new HashMap<>();
+                for (CiudadRef c : ciudadRepo.findAllRefs()) {
+                    b.add(SuggestionTipo.CIUDAD, c.idCiudad(), c.nombreCiudad());
+                    leidas.put(c.idCiudad(), c.nombreCiudad());
+                }
+                try (var usuarios = usuarioRepo.streamAllNombres()) {
+                    usuarios.forEach(u -> b.add(SuggestionTipo.USUARIO, u.idUsuario(), u.nombre()));
+                }
+                feed = desde;
+                ciudades = leidas;
+                return b.build();
+            });
+            base.set(nueva);
+            error = null;
+            estado = Estado.LISTO;
+            log.info("Índice de autocompletado construido: {} entidades", nueva.size());
+        } catch (RuntimeException e) {
+            error = e.toString();
+            estado = Estado.FALLIDO;
+            log.error("No se pudo construir el índice de autocompletado (se reintenta): {}", e.toString());
+        }
+    }
+
+    private void applyFeed() {
+        List<UsuarioChangeRow> cambios;
+        do {
+            cambios = usuarioRepo.findChangesAfter(feed, FEED_LOTE);
+            for (UsuarioChangeRow c : cambios) {
+                if (c.usuario() == null) remove(SuggestionTipo.USUARIO, c.idUsuario());
+                else index(SuggestionTipo.USUARIO, c.idUsuario(), c.usuario().nombre());
+                feed = new KeysetCursor(c.txid(), c.idUsuario());
+            }
+            if (pendientes.size() >= maxPendientes) compact();
+        } while (cambios.size() == FEED_LOTE);
+    }
+
+    /** Las ciudades son pocas y no tienen feed: se releen y se aplican las diferencias. */
+    private void applyCiudades() {
+        Map<Integer, String> actuales = ciudadRepo.findAllRefs().stream()
+                .collect(Collectors.toMap(CiudadRef::idCiudad, CiudadRef::nombreCiudad));
+        actuales.forEach((id, nombre) -> {
+            if (!nombre.equals(ciudades.get(id))) index(SuggestionTipo.CIUDAD, id, nombre);
+        });
+        ciudades.keySet().stream().filter(id -> !actuales.containsKey(id))
+                .forEach(id -> remove(SuggestionTipo.CIUDAD, id));
+        ciudades = actuales;
+    }
+
+    /**
+     * Incorpora los pendientes a una base nueva. Solo retira los que no cambiaron mientras
+     * tanto; entre publicar la base y retirarlos, el pendiente (igual) sigue teniendo prioridad.
+     */
+    void compact() {
+        compactacionProgramada.set(false);
+        if (estado != Estado.LISTO) return;
+        Map<Long, Pendiente> aplicados = Map.copyOf(pendientes);
+        if (aplicados.isEmpty()) return;
+        SuggestionSnapshot.Builder b = new SuggestionSnapshot.Builder()
+                .copyAll(base.get(), dueno -> !aplicados.containsKey(dueno));
+        aplicados.values().forEach(p -> {
+            if (p.view() != null) b.add(p.view().tipo(), p.view().id(), p.view().texto());
+        });
+        base.set(b.build());
+        aplicados.forEach(pendientes::remove);
+    }
+
+    public Estado estado() {
+        return estado;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder h = switch (estado) {
+            case LISTO -> Health.up();
+            case CONSTRUYENDO -> Health.unknown();
+            case FALLIDO -> Health.down().withDetail("error", error);
+        };
+        return h.withDetail("estado", estado)
+                .withDetail("entidades", base.get().size())
+                .withDetail("pendientes", pendientes.size())
+                .build();
+    }
+
+    /** Hasta {@code limit} sugerencias cuyo nombre (o alguna de sus palabras) empieza por el prefijo. */
+    public List<SuggestionView> suggest(String prefix, int limit) {
+        String p = SearchKeys.normalize(prefix);
+        if (p.isEmpty() || limit <= 0) return List.of();
+        byte[] prefijo = SuggestionSnapshot.utf8(p);
+
+        List<Coincidencia> out = new ArrayList<>();
+        Set<Long> owners = new HashSet<>();
+        SuggestionSnapshot s = base.get();
+        s.scan(prefijo, (entidad, desde) -> {
+            long dueno = s.owner(entidad);
+            if (!pendientes.containsKey(dueno) && owners.add(dueno)) {
+                out.add(new Coincidencia(s.suffix(entidad, desde), s.view(entidad)));
+            }
+            return out.size() < limit;
+        });
+        pendientes.values().forEach(pend -> {
+            for (byte[] palabra : pend.palabras()) {
+                if (startsWith(palabra, prefijo)) {
+                    out.add(new Coincidencia(palabra, pend.view()));
+                    break;
+                }
+            }
+        });
+        out.sort(ORDEN);
+        return out.stream().limit(limit).map(Coincidencia::view).toList();
+    }
+
+    /** Programa el (re)indexado de una entidad para cuando confirme la transacción actual. */
+    public void indexAfterCommit(SuggestionTipo tipo, int id, String nombre) {
+        AfterCommit.run(() -> index(tipo, id, nombre));
+    }
+
+    public void removeAfterCommit(SuggestionTipo tipo, int id) {
+        AfterCommit.run(() -> remove(tipo, id));
+    }
+
+    /** Registra el nombre vigente de la entidad; no hace nada si ya es el indexado. */
+    public void index(SuggestionTipo tipo, int id, String nombre) {
+        long dueno = owner(tipo, id);
+        if (estado == Estado.LISTO && nombre.equals(current(dueno))) return;
+        byte[] clave = SuggestionSnapshot.utf8(SearchKeys.normalize(nombre));
+        int[] starts = SuggestionSnapshot.wordStarts(clave);
+        byte[][] palabras = new byte[starts.length][];
+        for (int i = 0; i < starts.length; i++) palabras[i] = Arrays.copyOfRange(clave, starts[i], clave.length);
+        put(dueno, new Pendiente(new SuggestionView(tipo, id, nombre), palabras));
+    }
+
+    public void remove(SuggestionTipo tipo, int id) {
+        long dueno = owner(tipo, id);
+        // Sin base lista no se sabe si la entidad entrará en ella: el borrado se registra igual
+        if (estado != Estado.LISTO || current(dueno) != null) put(dueno, Pendiente.BORRADO);
+    }
+
+    private void put(long dueno, Pendiente p) {
+        pendientes.put(dueno, p);
+        if (pendientes.size() >= maxPendientes && refresco != null && compactacionProgramada.compareAndSet(false, true)) {
+            refresco.execute(this::compact);
+        }
+    }
+
+    /** Nombre indexado de la entidad (pendiente o base), o null si no está. */
+    private String current(long dueno) {
+        Pendiente p = pendientes.get(dueno);
+        if (p != null) return p.view() != null ? p.view().texto() : null;
+        SuggestionSnapshot s = base.get();
+        int entidad = s.find(dueno);
+        return entidad >= 0 ? s.nombre(entidad) : null;
+    }
+
+    static long owner(SuggestionTipo tipo, int id) {
+        return ((long) tipo.ordinal() << 32) | (id & 0xffffffffL);
+    }
+
+    private static boolean startsWith(byte[] palabra, byte[] prefijo) {
+        return palabra.length >= prefijo.length
+                && Arrays.equals(palabra, 0, prefijo.length, prefijo, 0, prefijo.length);
+    }
+}
@@ -0,0 +1,234 @@
+package com.ep18.couriersync.backend.customers.suggest;
+
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionView;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Contenido inmutable del índice de autocompletado en arreglos primitivos. Las claves
+ * normalizadas y los nombres van concatenados en UTF-8 (un byte[] cada uno); cada comienzo de
+ * palabra es un long (posición en las claves, entidad) y el arreglo de palabras está ordenado
+ * por el texto desde esa posición. Un prefijo es una búsqueda binaria más un recorrido
+ * secuencial: 8 bytes por palabra y unos 13 por entidad además de sus textos, sin objetos por
+ * entrada. Se construye fuera del camino de lectura y se publica entero.
+ */
+final class SuggestionSnapshot {
+
+    static final SuggestionSnapshot EMPTY = new Builder().build();
+
+    private static final SuggestionTipo[] TIPOS = SuggestionTipo.values();
+
+    private final int[] ids;
+    private final byte[] tipos;
+    /** la clave de la entidad i ocupa claves[claveIni[i], claveIni[i + 1]) */
+    private final int[] claveIni;
+    private final byte[] claves;
+    private final int[] nombreIni;
+    private final byte[] nombres;
+    /** (posición en claves << 32 | entidad), ordenado por (texto desde la posición, tipo, id) */
+    private final long[] palabras;
+    /** entidades ordenadas por dueño, para buscar por (tipo, id) */
+    private final int[] porDueno;
+
+    private SuggestionSnapshot(int[] ids, byte[] tipos, int[] claveIni, byte[] claves,
+                               int[] nombreIni, byte[] nombres, long[] palabras, int[] porDueno) {
+        this.ids = ids;
+        this.tipos = tipos;
+        this.claveIni = claveIni;
+        this.claves = claves;
+        this.nombreIni = nombreIni;
+        this.nombres = nombres;
+        this.palabras = palabras;
+        this.porDueno = porDueno;
+    }
+
+    /** Recibe cada coincidencia en orden; devuelve false para terminar. */
+    @FunctionalInterface
+    interface Visitor {
+        boolean visit(int entidad, int desde);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /** Visita en orden las palabras que empiezan por {@code prefijo} (UTF-8 de la clave normalizada). */
+    void scan(byte[] prefijo, Visitor visitor) {
+        int lo = 0, hi = palabras.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffix(palabras[mid], prefijo) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int k = lo; k < palabras.length; k++) {
+            int desde = (int) (palabras[k] >>> 32);
+            int entidad = (int) palabras[k];
+            int fin = claveIni[entidad + 1];
+            if (fin - desde < prefijo.length
+                    || !Arrays.equals(claves, desde, desde + prefijo.length, prefijo, 0, prefijo.length)) {
+                return;
+            }
+            if (!visitor.visit(entidad, desde)) return;
+        }
+    }
+
+    /** Posición de la entidad (tipo, id), o -1 si no está. */
+    int find(long dueno) {
+        int lo = 0, hi = porDueno.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Long.compare(owner(porDueno[mid]), dueno);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return porDueno[mid];
+        }
+        return -1;
+    }
+
+    long owner(int entidad) {
+        return SuggestionIndex.owner(TIPOS[tipos[entidad]], ids[entidad]);
+    }
+
+    String nombre(int entidad) {
+        return new String(nombres, nombreIni[entidad], nombreIni[entidad + 1] - nombreIni[entidad],
+                StandardCharsets.UTF_8);
+    }
+
+    SuggestionView view(int entidad) {
+        return new SuggestionView(TIPOS[tipos[entidad]], ids[entidad], nombre(entidad));
+    }
+
+    /** Texto de la clave desde {@code desde} hasta el final, para ordenar contra otras coincidencias. */
+    byte[] suffix(int entidad, int desde) {
+        return Arrays.copyOfRange(claves, desde, claveIni[entidad + 1]);
+    }
+
+    private int compareSuffix(long palabra, byte[] prefijo) {
+        int desde = (int) (palabra >>> 32);
+        int fin = claveIni[(int) palabra + 1];
+        return Arrays.compareUnsigned(claves, desde, fin, prefijo, 0, prefijo.length);
+    }
+
+    /** "santa rosa de osos" -> posiciones de "santa...", "rosa...", "de...", "osos" */
+    static int[] wordStarts(byte[] clave) {
+        int n = clave.length == 0 ? 0 : 1;
+        for (byte b : clave) if (b == ' ') n++;
+        int[] starts = new int[n];
+        if (n == 0) return starts;
+        int k = 1;
+        for (int i = 0; i < clave.length; i++) if (clave[i] == ' ') starts[k++] = i + 1;
+        return starts;
+    }
+
+    static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Acumula entidades (sin repetir dueño) y empaqueta los arreglos en build(). */
+    static final class Builder {
+        private int[] ids = new int[64];
+        private byte[] tipos = new byte[64];
+        private int[] claveIni = new int[65];
+        private int[] nombreIni = new int[65];
+        private final ByteArrayOutputStream claves = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream nombres = new ByteArrayOutputStream();
+        private int n;
+        private int nPalabras;
+
+        Builder add(SuggestionTipo tipo, int id, String nombre) {
+            return add(tipo, id, utf8(nombre), utf8(SearchKeys.normalize(nombre)));
+        }
+
+        /** Copia una entidad de otro snapshot sin decodificar ni volver a normalizar. */
+        Builder copy(SuggestionSnapshot from, int entidad) {
+            return add(TIPOS[from.tipos[entidad]], from.ids[entidad],
+                    Arrays.copyOfRange(from.nombres, from.nombreIni[entidad], from.nombreIni[entidad + 1]),
+                    Arrays.copyOfRange(from.claves, from.claveIni[entidad], from.claveIni[entidad + 1]));
+        }
+
+        /** Copia las entidades de {@code from} cuyo dueño acepta {@code incluir}. */
+        Builder copyAll(SuggestionSnapshot from, LongPredicate incluir) {
+            for (int i = 0; i < from.size(); i++) {
+                if (incluir.test(from.owner(i))) copy(from, i);
+            }
+            return this;
+        }
+
+        private Builder add(SuggestionTipo tipo, int id, byte[] nombre, byte[] clave) {
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n * 2);
+                tipos = Arrays.copyOf(tipos, n * 2);
+                claveIni = Arrays.copyOf(claveIni, n * 2 + 1);
+                nombreIni = Arrays.copyOf(nombreIni, n * 2 + 1);
+            }
+            ids[n] = id;
+            tipos[n] = (byte) tipo.ordinal();
+            claves.writeBytes(clave);
+            nombres.writeBytes(nombre);
+            n++;
+            claveIni[n] = claves.size();
+            nombreIni[n] = nombres.size();
+            nPalabras += wordStarts(clave).length;
+            return this;
+        }
+
+        SuggestionSnapshot build() {
+            byte[] c = claves.toByteArray();
+            int[] ci = Arrays.copyOf(claveIni, n + 1);
+            int[] idsFinal = Arrays.copyOf(ids, n);
+            byte[] tiposFinal = Arrays.copyOf(tipos, n);
+
+            long[] palabras = new long[nPalabras];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                for (int start : wordStarts(Arrays.copyOfRange(c, ci[i], ci[i + 1]))) {
+                    palabras[k++] = ((long) (ci[i] + start) << 32) | i;
+                }
+            }
+            LongComparator porTexto = (a, b) -> {
+                int ea = (int) a, eb = (int) b;
+                int cmp = Arrays.compareUnsigned(c, (int) (a >>> 32), ci[ea + 1], c, (int) (b >>> 32), ci[eb + 1]);
+                if (cmp != 0) return cmp;
+                cmp = Byte.compare(tiposFinal[ea], tiposFinal[eb]);
+                return cmp != 0 ? cmp : Integer.compare(idsFinal[ea], idsFinal[eb]);
+            };
+            sort(palabras, porTexto);
+
+            long[] duenos = new long[n];
+            for (int i = 0; i < n; i++) duenos[i] = SuggestionIndex.owner(TIPOS[tiposFinal[i]], idsFinal[i]);
+            long[] entidades = new long[n];
+            for (int i = 0; i < n; i++) entidades[i] = i;
+            sort(entidades, (a, b) -> Long.compare(duenos[(int) a], duenos[(int) b]));
+            int[] porDueno = new int[n];
+            for (int i = 0; i < n; i++) porDueno[i] = (int) entidades[i];
+
+            return new SuggestionSnapshot(idsFinal, tiposFinal, ci, c,
+                    Arrays.copyOf(nombreIni, n + 1), nombres.toByteArray(), palabras, porDueno);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LongComparator {
+        int compare(long a, long b);
+    }
+
+    /** Mergesort estable sobre long[] con comparador (Arrays.sort no acepta uno para primitivos). */
+    private static void sort(long[] a, LongComparator cmp) {
+        long[] tmp = new long[a.length];
+        for (int ancho = 1; ancho < a.length; ancho *= 2) {
+            for (int lo = 0; lo < a.length - ancho; lo += 2 * ancho) {
+                int mid = lo + ancho, hi = Math.min(lo + 2 * ancho, a.length);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) tmp[k++] = cmp.compare(a[j], a[i]) < 0 ? a[j++] : a[i++];
+                while (i < mid) tmp[k++] = a[i++];
+                while (j < hi) tmp[k++] = a[j++];
+                System.arraycopy(tmp, lo, a, lo, hi - lo);
+            }
+        }
+    }
+}
@@ -1,17 +1,16 @@
 package com.ep18.couriersync.backend.customers.validator;
 
 import com.ep18.couriersync.backend.common.exception.ValidationException;
-import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
 
 /** Reglas de coherencia del agregado Usuario. */
 public final class UsuarioValidator {
     private UsuarioValidator() {}
 
     /** Valida que la Ciudad pertenezca al Departamento indicado. */
-    public static void assertCiudadPerteneceADepartamento(Ciudad ciudad, Integer idDepartamento) {
-        Integer idDeptoCiudad = ciudad.getDepartamento().getIdDepartamento();
-        if (!idDeptoCiudad.equals(idDepartamento)) {
+    public static void assertCiudadPerteneceADepartamento(CiudadRef ciudad, int idDepartamento) {
+        if (ciudad.idDepartamento() != idDepartamento) {
             throw new ValidationException("La ciudad no pertenece al departamento indicado");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.ep18.couriersync.backend.historial.api.graphql;
+
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambiarEstadoInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambioEstadoView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CreateEntregaInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EventoEntregaView;
+import com.ep18.couriersync.backend.historial.service.HistorialService;
+import com.ep18.couriersync.backend.historial.service.Responsable;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Controller
+@Validated
+@RequiredArgsConstructor
+public class HistorialGraphQL {
+
+    private final HistorialService service;
+
+    @QueryMapping
+    public EntregaView entregaById(@Argument Integer id) {
+        return service.findById(id);
+    }
+
+    /** Línea de tiempo del cliente, más reciente primero (ver HistorialService.timeline) */
+    @QueryMapping
+    public PageModels.EntregaConnection historialUsuario(@Argument Integer idUsuario,
+                                                         @Argument Integer first,
+                                                         @Argument String after,
+                                                         @Argument OffsetDateTime desde,
+                                                         @Argument OffsetDateTime hasta) {
+        var conn = service.timeline(idUsuario, first, after, desde, hasta);
+        return new PageModels.EntregaConnection(conn.edges(), conn.pageInfo());
+    }
+
+    @QueryMapping
+    public List<EventoEntregaView> eventosEntrega(@Argument Integer idEntrega) {
+        return service.eventos(idEntrega);
+    }
+
+    @MutationMapping
+    public EntregaView createEntrega(@Argument @Valid CreateEntregaInput input) {
+        return service.create(input);
+    }
+
+    /** Roles y responsable salen del JWT de la petición (null con el perfil dev-open) */
+    @MutationMapping
+    public CambioEstadoView cambiarEstadoEntrega(@Argument @Valid CambiarEstadoInput input,
+                                                 Authentication authentication) {
+        return service.cambiarEstado(input, Responsable.of(authentication));
+    }
+}
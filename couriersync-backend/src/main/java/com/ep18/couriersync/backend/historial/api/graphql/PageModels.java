@@ -0,0 +1,13 @@
+package com.ep18.couriersync.backend.historial.api.graphql;
+
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.CursorPageInfo;
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Edge;
+import java.util.List;
+
+public final class PageModels {
+    private PageModels() {}
+
+    public record EntregaConnection(
+            List<Edge<com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView>> edges,
+            CursorPageInfo pageInfo) {}
+}
@@ -0,0 +1,60 @@
+package com.ep18.couriersync.backend.historial.domain;
+
+import com.ep18.couriersync.backend.common.audit.AuditableEntity;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Tabla: public.tblhistorial_entregas
+ */
+@Entity
+@Table(
+        name = "tblhistorial_entregas",
+        schema = "public",
+        indexes = {
+                // Línea de tiempo por usuario, con estado y observación en INCLUDE. Ver V10__historial_entregas.sql
+                @Index(name = "idx_historial_usuario_fecha_id", columnList = "id_usuario, fecha DESC, id_entrega DESC")
+        }
+)
+@Getter @Setter
+@ToString(exclude = "usuario")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
+public class Entrega extends AuditableEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_entrega", nullable = false)
+    @EqualsAndHashCode.Include
+    private Integer idEntrega;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(
+            name = "id_usuario",
+            nullable = false,
+            foreignKey = @ForeignKey(name = "usuario_entrega")
+    )
+    private Usuario usuario;
+
+    @Column(name = "fecha", nullable = false)
+    private OffsetDateTime fecha;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20)
+    private EstadoEntrega estado;
+
+    @Column(name = "observacion", length = 200)
+    private String observacion;
+
+    /** Estado actual proyectado por los cambios de estado (V11); solo lo escribe cambiarEstado. */
+    @Column(name = "entregado_en", insertable = false, updatable = false)
+    private OffsetDateTime entregadoEn;
+
+    @Column(name = "entregado_por", length = 100, insertable = false, updatable = false)
+    private String entregadoPor;
+}
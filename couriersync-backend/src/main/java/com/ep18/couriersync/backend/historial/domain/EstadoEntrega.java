@@ -0,0 +1,31 @@
+package com.ep18.couriersync.backend.historial.domain;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/** Estados de una entrega; se guardan por nombre (CHECK estado_entrega, V10). */
+public enum EstadoEntrega {
+    REGISTRADA,
+    EN_CAMINO,
+    ENTREGADA,
+    DEVUELTA,
+    CANCELADA;
+
+    /** Estados a los que se puede pasar desde este; ENTREGADA y CANCELADA son finales. */
+    public Set<EstadoEntrega> siguientes() {
+        return switch (this) {
+            case REGISTRADA -> EnumSet.of(EN_CAMINO, CANCELADA);
+            case EN_CAMINO -> EnumSet.of(ENTREGADA, DEVUELTA, CANCELADA);
+            case DEVUELTA -> EnumSet.of(EN_CAMINO, CANCELADA);
+            case ENTREGADA, CANCELADA -> EnumSet.noneOf(EstadoEntrega.class);
+        };
+    }
+
+    /** Estados desde los que se puede llegar a {@code destino} (condición del UPDATE del cambio). */
+    public static Set<EstadoEntrega> origenesHacia(EstadoEntrega destino) {
+        EnumSet<EstadoEntrega> origenes = EnumSet.noneOf(EstadoEntrega.class);
+        Arrays.stream(values()).filter(e -> e.siguientes().contains(destino)).forEach(origenes::add);
+        return origenes;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ep18.couriersync.backend.historial.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Tabla: public.tblentrega_eventos (solo inserción, V11). Los eventos los inserta
+ * EntregaRepositoryCustomImpl.cambiarEstado junto con la proyección; desde JPA solo se leen.
+ */
+@Entity
+@Immutable
+@Table(name = "tblentrega_eventos", schema = "public")
+@Getter
+@ToString
+public class EventoEntrega {
+
+    @Id
+    @Column(name = "id_evento", nullable = false)
+    private Long idEvento;
+
+    @Column(name = "id_entrega", nullable = false)
+    private Integer idEntrega;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado_anterior", nullable = false, length = 20)
+    private EstadoEntrega estadoAnterior;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20)
+    private EstadoEntrega estado;
+
+    @Column(name = "responsable", nullable = false, length = 100)
+    private String responsable;
+
+    @Column(name = "fecha", nullable = false)
+    private OffsetDateTime fecha;
+
+    @Column(name = "observacion", length = 200)
+    private String observacion;
+}
@@ -0,0 +1,56 @@
+package com.ep18.couriersync.backend.historial.dto;
+
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.OffsetDateTime;
+
+/** DTOs del historial de entregas (crear/ver/cambiar estado). */
+public final class HistorialDTOs {
+    private HistorialDTOs() {}
+
+    public record CreateEntregaInput(
+            @NotNull Integer idUsuario,
+            // si viene null el service usará la hora actual
+            OffsetDateTime fecha,
+            @NotNull EstadoEntrega estado,
+            @Size(max = 200) String observacion
+    ) {}
+
+    /** Una entrada de la línea de tiempo; las columnas salen todas del índice de cobertura. */
+    public record EntregaView(
+            Integer idEntrega,
+            Integer idUsuario,
+            OffsetDateTime fecha,
+            EstadoEntrega estado,
+            String observacion
+    ) {}
+
+    public record CambiarEstadoInput(
+            @NotNull Integer idEntrega,
+            @NotNull EstadoEntrega estado,
+            @Size(max = 200) String observacion
+    ) {}
+
+    /** Estado de la entrega tras el cambio; entregadoEn/entregadoPor solo si está ENTREGADA. */
+    public record CambioEstadoView(
+            Integer idEntrega,
+            Integer idUsuario,
+            EstadoEntrega estadoAnterior,
+            EstadoEntrega estado,
+            OffsetDateTime fecha,
+            OffsetDateTime entregadoEn,
+            String entregadoPor
+    ) {}
+
+    public record EventoEntregaView(
+            Long idEvento,
+            Integer idEntrega,
+            EstadoEntrega estadoAnterior,
+            EstadoEntrega estado,
+            String responsable,
+            OffsetDateTime fecha,
+            String observacion
+    ) {}
+}
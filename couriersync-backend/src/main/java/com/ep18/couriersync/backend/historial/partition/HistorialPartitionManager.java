@@ -0,0 +1,129 @@
+package com.ep18.couriersync.backend.historial.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantiene las particiones mensuales de tblhistorial_entregas (V12): crea por adelantado los
+ * meses que vienen, para que ninguna inserción se quede sin partición, y desvincula (DETACH
+ * CONCURRENTLY) los meses que salen de la retención. Las particiones desvinculadas quedan como
+ * tablas sueltas con el mismo nombre, para archivarlas o borrarlas fuera de la aplicación.
+ */
+@Slf4j
+public class HistorialPartitionManager implements AutoCloseable {
+
+    private static final String CREAR = "select public.historial_crear_particion(?)";
+
+    /** Particiones actuales; inhdetachpending marca un DETACH CONCURRENTLY interrumpido */
+    private static final String PARTICIONES = """
+            select c.relname, i.inhdetachpending
+            from pg_inherits i join pg_class c on c.oid = i.inhrelid
+            where i.inhparent = 'public.tblhistorial_entregas'::regclass""";
+
+    private static final Pattern NOMBRE = Pattern.compile("tblhistorial_entregas_p(\\d{4})(\\d{2})");
+
+    private final JdbcTemplate jdbc;
+    private final int mesesAdelante;
+    private final int retencionMeses;
+    private final Duration intervalo;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param mesesAdelante  meses futuros que deben existir además del actual
+     * @param retencionMeses meses anteriores al actual que se conservan; 0 = no desvincular nunca
+     */
+    public HistorialPartitionManager(JdbcTemplate jdbc, int mesesAdelante, int retencionMeses,
+                                     Duration intervalo, Clock clock) {
+        this.jdbc = jdbc;
+        this.mesesAdelante = mesesAdelante;
+        this.retencionMeses = retencionMeses;
+        this.intervalo = intervalo;
+        this.clock = clock;
+    }
+
+    /** Una pasada completa: crear los meses que falten y desvincular los vencidos. */
+    public synchronized void mantener() {
+        List<YearMonth> creadas = crearFuturas();
+        List<String> desvinculadas = desvincularAntiguas();
+        if (!creadas.isEmpty() || !desvinculadas.isEmpty()) {
+            log.info("Historial: particiones creadas {}, desvinculadas {}", creadas, desvinculadas);
+        }
+    }
+
+    /** Crea las particiones del mes actual y de los mesesAdelante siguientes; devuelve las nuevas */
+    List<YearMonth> crearFuturas() {
+        YearMonth actual = YearMonth.now(clock.withZone(ZoneOffset.UTC));
+        List<YearMonth> creadas = new ArrayList<>();
+        for (int i = 0; i <= mesesAdelante; i++) {
+            YearMonth mes = actual.plusMonths(i);
+            if (Boolean.TRUE.equals(jdbc.queryForObject(CREAR, Boolean.class, Date.valueOf(mes.atDay(1))))) {
+                creadas.add(mes);
+            }
+        }
+        return creadas;
+    }
+
+    /**
+     * Desvincula las particiones de meses anteriores a (mes actual - retencionMeses). CONCURRENTLY
+     * no bloquea lecturas ni escrituras del resto de la tabla, pero no puede ir dentro de una
+     * transacción: cada ALTER se ejecuta en autocommit. Un DETACH interrumpido se completa con
+     * FINALIZE en la pasada siguiente.
+     */
+    List<String> desvincularAntiguas() {
+        if (retencionMeses <= 0) return List.of();
+        YearMonth limite = YearMonth.now(clock.withZone(ZoneOffset.UTC)).minusMonths(retencionMeses);
+        List<Particion> vencidas = jdbc.query(PARTICIONES,
+                (rs, i) -> new Particion(rs.getString("relname"), rs.getBoolean("inhdetachpending")))
+                .stream().filter(p -> p.pendiente() || p.anteriorA(limite)).toList();
+        for (Particion p : vencidas) {
+            jdbc.execute("alter table public.tblhistorial_entregas detach partition public.\"" + p.nombre() + "\""
+                    + (p.pendiente() ? " finalize" : " concurrently"));
+        }
+        return vencidas.stream().map(Particion::nombre).toList();
+    }
+
+    private record Particion(String nombre, boolean pendiente) {
+        boolean anteriorA(YearMonth limite) {
+            Matcher m = NOMBRE.matcher(nombre);
+            return m.matches() && YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))).isBefore(limite);
+        }
+    }
+
+    /** Primera pasada al arrancar y después cada intervalo. */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "historial-particiones");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::pasada, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void pasada() {
+        try {
+            mantener();
+        } catch (RuntimeException e) {
+            // Sin BD o con un DETACH bloqueado: se reintenta en la siguiente pasada
+            log.warn("Historial: no se pudieron mantener las particiones: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
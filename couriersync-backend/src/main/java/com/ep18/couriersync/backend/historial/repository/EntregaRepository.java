@@ -0,0 +1,24 @@
+package com.ep18.couriersync.backend.historial.repository;
+
+import com.ep18.couriersync.backend.historial.domain.Entrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface EntregaRepository extends JpaRepository<Entrega, Integer>, EntregaRepositoryCustom {
+
+    /** Proyección a EntregaView: la FK se lee como columna, sin join a tblusuarios. */
+    String VIEW_SELECT = "select new com.ep18.couriersync.backend.historial.dto.HistorialDTOs$EntregaView("
+            + "e.idEntrega, e.usuario.idUsuario, e.fecha, e.estado, e.observacion) "
+            + "from Entrega e ";
+
+    /** Orden de la línea de tiempo; lo da el índice idx_historial_usuario_fecha_id de cada mes. */
+    String TIMELINE_ORDER = " order by e.fecha desc, e.idEntrega desc";
+
+    /** Sin fecha no hay poda: una búsqueda en la PK (id_entrega, fecha) de cada partición. */
+    @Query(VIEW_SELECT + "where e.idEntrega = :id")
+    Optional<EntregaView> findViewById(@Param("id") Integer id);
+}
@@ -0,0 +1,39 @@
+package com.ep18.couriersync.backend.historial.repository;
+
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambioEstadoView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/** Línea de tiempo con filtros opcionales y escrituras de Entrega en SQL nativo. */
+public interface EntregaRepositoryCustom {
+
+    /**
+     * Línea de tiempo de un usuario (fecha desc, idEntrega desc), como mucho {@code limit} filas.
+     * {@code afterFecha}/{@code afterId}: seek estrictamente después de esa entrada (null = desde
+     * la más reciente). {@code desde} (inclusive) y {@code hasta} (exclusive) acotan la ventana.
+     * Todas las cotas de fecha llegan como comparaciones simples sobre la clave de partición
+     * (V12), así PostgreSQL descarta los meses que no pueden aportar filas.
+     */
+    List<EntregaView> findTimeline(Integer idUsuario, OffsetDateTime afterFecha, Integer afterId,
+                                   OffsetDateTime desde, OffsetDateTime hasta, int limit);
+
+    /**
+     * Estado de la entrega al ejecutar el cambio y, si estaba en uno de {@code origenes}, el
+     * cambio aplicado; {@code cambio} es null cuando la transición no está permitida.
+     */
+    record ResultadoCambio(EstadoEntrega estadoActual, CambioEstadoView cambio) {}
+
+    /**
+     * En una sola sentencia: bloquea la fila de la entrega, la pasa a {@code destino} si su
+     * estado está en {@code origenes} (con entregadoEn/entregadoPor al llegar a ENTREGADA) e
+     * inserta el evento en tblentrega_eventos. Vacío si la entrega no existe.
+     */
+    Optional<ResultadoCambio> cambiarEstado(Integer idEntrega, EstadoEntrega destino,
+                                            Collection<EstadoEntrega> origenes,
+                                            String responsable, String observacion);
+}
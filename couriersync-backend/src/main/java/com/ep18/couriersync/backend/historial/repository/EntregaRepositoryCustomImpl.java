@@ -0,0 +1,110 @@
+package com.ep18.couriersync.backend.historial.repository;
+
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambioEstadoView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class EntregaRepositoryCustomImpl implements EntregaRepositoryCustom {
+
+    /**
+     * El FOR UPDATE de "actual" lee el estado vigente aunque otra transacción lo haya cambiado
+     * mientras se esperaba el bloqueo; solo espera quien cambia la misma entrega. El UPDATE se
+     * une a esa fila, así estado_anterior es el que realmente se reemplazó. now() es la hora
+     * de la transacción: la del evento, la de entregado_en y la devuelta coinciden.
+     */
+    private static final String CAMBIAR_ESTADO = """
+            with actual as (
+                select id_entrega, estado from public.tblhistorial_entregas
+                where id_entrega = :id for update
+            ), cambio as (
+                update public.tblhistorial_entregas e
+                set estado = :estado,
+                    observacion = coalesce(:observacion, e.observacion),
+                    entregado_en = case when :estado = 'ENTREGADA' then now() else e.entregado_en end,
+                    entregado_por = case when :estado = 'ENTREGADA' then :responsable else e.entregado_por end
+                from actual a
+                where e.id_entrega = a.id_entrega and a.estado in (:origenes)
+                returning e.id_entrega, e.id_usuario, a.estado as estado_anterior, e.estado,
+                          e.entregado_en, e.entregado_por
+            ), evento as (
+                insert into public.tblentrega_eventos (id_entrega, estado_anterior, estado, responsable, observacion)
+                select id_entrega, estado_anterior, estado, :responsable, :observacion from cambio
+            )
+            select a.estado as estado_actual, c.id_entrega, c.id_usuario, c.estado_anterior,
+                   now() as fecha, c.entregado_en, c.entregado_por
+            from actual a left join cambio c on true""";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<EntregaView> findTimeline(Integer idUsuario, OffsetDateTime afterFecha, Integer afterId,
+                                          OffsetDateTime desde, OffsetDateTime hasta, int limit) {
+        List<String> where = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        where.add("e.usuario.idUsuario = :idUsuario");
+        params.put("idUsuario", idUsuario);
+
+        if (afterFecha != null) {
+            // La comparación de tuplas no poda particiones; la cota simple sobre fecha sí
+            where.add("e.fecha <= :afterFecha");
+            where.add("(e.fecha, e.idEntrega) < (:afterFecha, :afterId)");
+            params.put("afterFecha", afterFecha);
+            params.put("afterId", afterId);
+        }
+        if (desde != null) {
+            where.add("e.fecha >= :desde");
+            params.put("desde", desde);
+        }
+        if (hasta != null) {
+            where.add("e.fecha < :hasta");
+            params.put("hasta", hasta);
+        }
+
+        String jpql = EntregaRepository.VIEW_SELECT + "where " + String.join(" and ", where)
+                + EntregaRepository.TIMELINE_ORDER;
+        TypedQuery<EntregaView> query = em.createQuery(jpql, EntregaView.class).setMaxResults(limit);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    public Optional<ResultadoCambio> cambiarEstado(Integer idEntrega, EstadoEntrega destino,
+                                                   Collection<EstadoEntrega> origenes,
+                                                   String responsable, String observacion) {
+        NativeQuery<?> query = em.createNativeQuery(CAMBIAR_ESTADO).unwrap(NativeQuery.class)
+                .addScalar("estado_actual", String.class)
+                .addScalar("id_entrega", Integer.class)
+                .addScalar("id_usuario", Integer.class)
+                .addScalar("estado_anterior", String.class)
+                .addScalar("fecha", OffsetDateTime.class)
+                .addScalar("entregado_en", OffsetDateTime.class)
+                .addScalar("entregado_por", String.class);
+        query.setParameter("id", idEntrega);
+        query.setParameter("estado", destino.name());
+        query.setParameterList("origenes", origenes.stream().map(Enum::name).toList());
+        query.setParameter("responsable", responsable);
+        query.setParameter("observacion", observacion, String.class);
+
+        return query.getResultList().stream().findFirst().map(r -> {
+            Object[] c = (Object[]) r;
+            EstadoEntrega actual = EstadoEntrega.valueOf((String) c[0]);
+            CambioEstadoView cambio = c[1] == null ? null : new CambioEstadoView((Integer) c[1], (Integer) c[2],
+                    EstadoEntrega.valueOf((String) c[3]), destino, (OffsetDateTime) c[4],
+                    (OffsetDateTime) c[5], (String) c[6]);
+            return new ResultadoCambio(actual, cambio);
+        });
+    }
+}
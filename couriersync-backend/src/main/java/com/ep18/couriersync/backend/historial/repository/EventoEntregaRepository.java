@@ -0,0 +1,18 @@
+package com.ep18.couriersync.backend.historial.repository;
+
+import com.ep18.couriersync.backend.historial.domain.EventoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EventoEntregaView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface EventoEntregaRepository extends JpaRepository<EventoEntrega, Long> {
+
+    /** Eventos de la entrega en orden de registro; índice idx_entrega_eventos_entrega (V11). */
+    @Query("select new com.ep18.couriersync.backend.historial.dto.HistorialDTOs$EventoEntregaView("
+            + "v.idEvento, v.idEntrega, v.estadoAnterior, v.estado, v.responsable, v.fecha, v.observacion) "
+            + "from EventoEntrega v where v.idEntrega = :idEntrega order by v.idEvento")
+    List<EventoEntregaView> findViewsByIdEntrega(@Param("idEntrega") Integer idEntrega);
+}
@@ -0,0 +1,166 @@
+package com.ep18.couriersync.backend.historial.service;
+
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Connection;
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ConstraintViolations;
+import com.ep18.couriersync.backend.common.exception.DomainException;
+import com.ep18.couriersync.backend.common.exception.ForbiddenException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.common.pagination.PageMapper;
+import com.ep18.couriersync.backend.common.pagination.PageRequestUtil;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.ep18.couriersync.backend.historial.domain.Entrega;
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambiarEstadoInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambioEstadoView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CreateEntregaInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EventoEntregaView;
+import com.ep18.couriersync.backend.historial.repository.EntregaRepository;
+import com.ep18.couriersync.backend.historial.repository.EntregaRepositoryCustom.ResultadoCambio;
+import com.ep18.couriersync.backend.historial.repository.EventoEntregaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+@Service
+public class HistorialService {
+
+    /** Restricciones de tblhistorial_entregas (V10) que puede violar un INSERT */
+    private static final Map<String, Supplier<? extends DomainException>> INSERT_VIOLATIONS = Map.of(
+            "usuario_entrega", () -> new NotFoundException("Usuario no encontrado"));
+
+    private final EntregaRepository entregaRepo;
+    private final EventoEntregaRepository eventoRepo;
+    private final UsuarioRepository usuarioRepo;
+    /** Authorities (ROLE_ + realm role) que pueden cambiar el estado de una entrega */
+    private final Set<String> rolesCambioEstado;
+
+    /**
+     * rolesCambioEstado: realm roles de Keycloak (app.historial.roles-cambio-estado, "ADMIN" por
+     * defecto); el rol de los agentes del realm se agrega ahí, con o sin prefijo ROLE_.
+     */
+    public HistorialService(EntregaRepository entregaRepo,
+                            EventoEntregaRepository eventoRepo,
+                            UsuarioRepository usuarioRepo,
+                            @Value("${app.historial.roles-cambio-estado:ADMIN}") Set<String> rolesCambioEstado) {
+        this.entregaRepo = entregaRepo;
+        this.eventoRepo = eventoRepo;
+        this.usuarioRepo = usuarioRepo;
+        this.rolesCambioEstado = rolesCambioEstado.stream()
+                .map(String::strip)
+                .filter(r -> !r.isEmpty())
+                .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /** La FK la comprueba la BD: sin lectura previa del usuario. */
+    @Transactional
+    public EntregaView create(CreateEntregaInput in) {
+        Entrega e = new Entrega();
+        e.setUsuario(usuarioRepo.getReferenceById(in.idUsuario()));
+        e.setFecha(in.fecha() != null ? in.fecha() : OffsetDateTime.now());
+        e.setEstado(in.estado());
+        e.setObservacion(in.observacion());
+
+        Entrega saved;
+        try {
+            saved = entregaRepo.saveAndFlush(e);
+        } catch (DataIntegrityViolationException ex) {
+            if (ConstraintViolations.noPartitionForRow(ex)) {
+                throw new ValidationException("Fecha fuera del rango del historial");
+            }
+            throw ConstraintViolations.translate(ex, INSERT_VIOLATIONS);
+        }
+        return new EntregaView(saved.getIdEntrega(), in.idUsuario(), saved.getFecha(), saved.getEstado(),
+                saved.getObservacion());
+    }
+
+    /**
+     * Cambio de estado: una sentencia que registra el evento y actualiza el estado actual de la
+     * entrega en la misma transacción. Bloquea solo la fila de esa entrega, así que agentes que
+     * cambian entregas distintas no se esperan entre sí. Al pasar a ENTREGADA queda registrado
+     * quién y cuándo (entregadoPor, entregadoEn).
+     */
+    @Transactional
+    public CambioEstadoView cambiarEstado(CambiarEstadoInput in, Responsable responsable) {
+        if (!responsable.tieneAlgunRol(rolesCambioEstado)) {
+            throw new ForbiddenException("Sin permisos para cambiar el estado de la entrega");
+        }
+        Set<EstadoEntrega> origenes = EstadoEntrega.origenesHacia(in.estado());
+        if (origenes.isEmpty()) {
+            throw new ValidationException("Una entrega no puede pasar a " + in.estado());
+        }
+        ResultadoCambio r = entregaRepo.cambiarEstado(in.idEntrega(), in.estado(), origenes,
+                        responsable.nombre(), in.observacion())
+                .orElseThrow(() -> new NotFoundException("Entrega no encontrada"));
+        if (r.cambio() == null) {
+            throw new ConflictException("La entrega está " + r.estadoActual() + " y no puede pasar a " + in.estado());
+        }
+        return r.cambio();
+    }
+
+    /** Eventos de cambio de estado de la entrega, en orden; solo si no hay se comprueba que exista. */
+    @Transactional(readOnly = true)
+    public List<EventoEntregaView> eventos(Integer idEntrega) {
+        List<EventoEntregaView> eventos = eventoRepo.findViewsByIdEntrega(idEntrega);
+        if (eventos.isEmpty() && !entregaRepo.existsById(idEntrega)) {
+            throw new NotFoundException("Entrega no encontrada");
+        }
+        return eventos;
+    }
+
+    @Transactional(readOnly = true)
+    public EntregaView findById(Integer id) {
+        return entregaRepo.findViewById(id)
+                .orElseThrow(() -> new NotFoundException("Entrega no encontrada"));
+    }
+
+    /**
+     * Línea de tiempo de un usuario, de la entrega más reciente hacia atrás. Paginación keyset por
+     * (fecha, idEntrega): cada página es un seek sobre el índice de cobertura, con el mismo coste
+     * en la primera página que en la milésima. {@code desde}/{@code hasta} (opcionales) acotan la
+     * ventana y, con el cursor, limitan los meses (particiones) que se consultan. Solo si la
+     * primera página viene vacía se consulta si el usuario existe, para distinguir "sin entregas"
+     * de "usuario inexistente".
+     */
+    @Transactional(readOnly = true)
+    public Connection<EntregaView> timeline(Integer idUsuario, Integer first, String after,
+                                            OffsetDateTime desde, OffsetDateTime hasta) {
+        if (desde != null && hasta != null && !desde.isBefore(hasta)) {
+            throw new ValidationException("desde debe ser anterior a hasta");
+        }
+        int limit = PageRequestUtil.limit(first);
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<EntregaView> rows = entregaRepo.findTimeline(idUsuario,
+                cursor != null ? fechaDe(cursor) : null, cursor != null ? cursor.id() : null,
+                desde, hasta, limit + 1);
+        if (rows.isEmpty() && cursor == null && !usuarioRepo.existsById(idUsuario)) {
+            throw new NotFoundException("Usuario no encontrado");
+        }
+        return PageMapper.connection(rows, limit,
+                e -> new KeysetCursor(e.fecha().toInstant().toString(), e.idEntrega()), e -> e);
+    }
+
+    /** La clave del cursor es el instante exacto (microsegundos) de la última entrada entregada. */
+    private static OffsetDateTime fechaDe(KeysetCursor cursor) {
+        try {
+            return Instant.parse(cursor.key()).atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Cursor inválido");
+        }
+    }
+}
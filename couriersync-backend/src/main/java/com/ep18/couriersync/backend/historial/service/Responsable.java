@@ -0,0 +1,32 @@
+package com.ep18.couriersync.backend.historial.service;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Quién hace un cambio de estado: nombre que queda en el evento (y en entregadoPor) y sus
+ * authorities, que para un JWT son los realm roles con prefijo ROLE_ de KeycloakRealmRoleConverter.
+ */
+public record Responsable(String nombre, Set<String> roles) {
+
+    public static Responsable of(Authentication auth) {
+        if (auth == null || !auth.isAuthenticated()) return new Responsable(null, Set.of());
+        String nombre = auth.getName();
+        if (auth instanceof JwtAuthenticationToken jwt) {
+            String usuario = jwt.getToken().getClaimAsString("preferred_username");
+            if (usuario != null && !usuario.isBlank()) nombre = usuario;
+        }
+        return new Responsable(nombre, auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    public boolean tieneAlgunRol(Collection<String> permitidos) {
+        return nombre != null && permitidos.stream().anyMatch(roles::contains);
+    }
+}
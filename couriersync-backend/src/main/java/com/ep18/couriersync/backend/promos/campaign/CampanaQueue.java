@@ -0,0 +1,238 @@
+package com.ep18.couriersync.backend.promos.campaign;
+
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.CampanaEstado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cola de campañas sobre PostgreSQL (V13). Tomar un lote es un único UPDATE con FOR UPDATE SKIP
+ * LOCKED que lo deja EN_CURSO con un plazo: el bloqueo dura lo que la sentencia, así que varias
+ * instancias se reparten los lotes sin esperarse y ninguna transacción queda abierta durante el
+ * envío. Renovar y cerrar un lote exigen el mismo número de intento con el que se tomó; quien
+ * perdió el plazo ya no puede tocarlo.
+ */
+@Repository
+public class CampanaQueue {
+
+    /** Destinatarios por lote: lo que una instancia envía antes de volver a la cola */
+    static final int TAMANO_LOTE = 500;
+
+    /** Cómo terminó un lote para quien lo tenía */
+    enum Cierre { HECHO, REINTENTO, FALLIDO, PERDIDO }
+
+    /** Lote tomado, con la plantilla de su campaña; intentos es el número de esta toma */
+    record Lote(long idCampana, int lote, int intentos, String asunto, String html) {}
+
+    private static final String RECLAMAR = """
+            update public.tblcampana_lotes l
+            set estado = 'EN_CURSO', intentos = l.intentos + 1, tomado_por = ?,
+                vence_en = now() + make_interval(secs => ?)
+            from (select id_campana, lote from public.tblcampana_lotes
+                  where %s
+                  order by %s
+                  limit 1
+                  for update skip locked) t,
+                 public.tblcampanas c
+            where l.id_campana = t.id_campana and l.lote = t.lote and c.id_campana = l.id_campana
+            returning l.id_campana, l.lote, l.intentos, c.asunto, c.html""";
+    /** Primero lo que está listo; si no hay, lo que otra instancia dejó con el plazo vencido */
+    private static final String RECLAMAR_PENDIENTE =
+            RECLAMAR.formatted("estado = 'PENDIENTE' and disponible_en <= now()", "disponible_en");
+    private static final String RECLAMAR_VENCIDO =
+            RECLAMAR.formatted("estado = 'EN_CURSO' and vence_en < now()", "vence_en");
+
+    private static final String DEL_DUENO = " where id_campana = ? and lote = ? and estado = 'EN_CURSO' and intentos = ?";
+    private static final String RENOVAR =
+            "update public.tblcampana_lotes set vence_en = now() + make_interval(secs => ?)" + DEL_DUENO;
+    private static final String HECHO = "update public.tblcampana_lotes "
+            + "set estado = 'HECHO', vence_en = null, ultimo_error = null" + DEL_DUENO;
+    private static final String REINTENTO = "update public.tblcampana_lotes "
+            + "set estado = 'PENDIENTE', disponible_en = now() + make_interval(secs => ?), tomado_por = null, "
+            + "vence_en = null, ultimo_error = ?" + DEL_DUENO;
+    private static final String FALLIDO = "update public.tblcampana_lotes "
+            + "set estado = 'FALLIDO', vence_en = null, ultimo_error = ?" + DEL_DUENO;
+
+    private static final String PENDIENTES = """
+            select d.id_usuario, u.correo, u.nombre, c.nombre_ciudad, dp.nombre_departamento
+            from public.tblcampana_destinatarios d
+            join public.tblusuarios u on u.id_usuario = d.id_usuario
+            left join public.tblciudades c on c.id_ciudad = u.ciudad
+            left join public.tbldepartamentos dp on dp.id_departamento = u.departamento
+            where d.id_campana = ? and d.lote = ? and d.estado = 'PENDIENTE'
+            order by d.id_usuario""";
+    private static final String ELIMINADOS = """
+            update public.tblcampana_destinatarios d
+            set estado = 'FALLIDO', error = 'Usuario eliminado'
+            where d.id_campana = ? and d.lote = ? and d.estado = 'PENDIENTE'
+              and not exists (select 1 from public.tblusuarios u where u.id_usuario = d.id_usuario)""";
+    private static final String CONTAR_PENDIENTES = "select count(*) from public.tblcampana_destinatarios "
+            + "where id_campana = ? and lote = ? and estado = 'PENDIENTE'";
+
+    /** Solo si sigue pendiente: un segundo envío (plazo vencido y lote retomado) no se cuenta dos veces */
+    private static final String ENVIADO = "update public.tblcampana_destinatarios "
+            + "set estado = 'ENVIADO', enviado_en = now(), intentos = intentos + 1, error = null "
+            + "where id_campana = ? and id_usuario = ? and estado = 'PENDIENTE'";
+    private static final String FALLO = "update public.tblcampana_destinatarios "
+            + "set estado = ?, intentos = intentos + 1, error = ? "
+            + "where id_campana = ? and id_usuario = ? and estado = 'PENDIENTE'";
+    private static final String AGOTADOS = "update public.tblcampana_destinatarios "
+            + "set estado = 'FALLIDO', error = coalesce(error, ?) "
+            + "where id_campana = ? and lote = ? and estado = 'PENDIENTE'";
+
+    private static final String TERMINAR = """
+            update public.tblcampanas c set terminada_en = now()
+            where c.id_campana = ? and c.terminada_en is null
+              and not exists (select 1 from public.tblcampana_lotes l
+                              where l.id_campana = c.id_campana and l.estado in ('PENDIENTE', 'EN_CURSO'))""";
+
+    private static final String ESTADO = """
+            select c.id_campana, c.total, c.terminada_en is not null as terminada,
+                   count(*) filter (where d.estado = 'ENVIADO') as enviados,
+                   count(*) filter (where d.estado = 'FALLIDO') as fallidos,
+                   count(*) filter (where d.estado = 'PENDIENTE') as pendientes
+            from public.tblcampanas c
+            left join public.tblcampana_destinatarios d on d.id_campana = c.id_campana
+            where c.id_campana = ?
+            group by c.id_campana""";
+
+    private static final RowMapper<Lote> LOTE = (rs, n) -> new Lote(rs.getLong("id_campana"),
+            rs.getInt("lote"), rs.getInt("intentos"), rs.getString("asunto"), rs.getString("html"));
+    private static final RowMapper<Destinatario> DESTINATARIO = (rs, n) -> new Destinatario(
+            rs.getInt("id_usuario"), rs.getString("correo"), rs.getString("nombre"),
+            rs.getString("nombre_ciudad"), rs.getString("nombre_departamento"));
+    private static final RowMapper<CampanaEstado> ESTADO_ROW = (rs, n) -> new CampanaEstado(
+            rs.getLong("id_campana"), rs.getInt("total"), rs.getInt("enviados"), rs.getInt("fallidos"),
+            rs.getInt("pendientes"), rs.getBoolean("terminada"));
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    public CampanaQueue(JdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * Crea la campaña con los usuarios del segmento en una sola transacción: la copia y el reparto
+     * en lotes de {@value #TAMANO_LOTE} (por id_usuario) se hacen en la BD, sin traer filas.
+     */
+    public CampanaEstado crear(Segmento segmento, String asunto, String html) {
+        return tx.execute(s -> {
+            long id = jdbc.queryForObject("insert into public.tblcampanas (asunto, html) values (?, ?) "
+                    + "returning id_campana", Long.class, asunto, html);
+
+            List<Object> args = new ArrayList<>(List.of(id, TAMANO_LOTE));
+            String where = where(segmento, args);
+            int total = jdbc.update("""
+                    insert into public.tblcampana_destinatarios (id_campana, id_usuario, lote)
+                    select ?, u.id_usuario, (row_number() over (order by u.id_usuario) - 1) / ?
+                    from public.tblusuarios u""" + where, args.toArray());
+
+            int lotes = (total + TAMANO_LOTE - 1) / TAMANO_LOTE;
+            jdbc.update("insert into public.tblcampana_lotes (id_campana, lote) "
+                    + "select ?, g from generate_series(0, ? - 1) g", id, lotes);
+            // Sin destinatarios no hay nada que esperar
+            jdbc.update("update public.tblcampanas set total = ?, "
+                    + "terminada_en = case when ? = 0 then now() end where id_campana = ?", total, total, id);
+            return new CampanaEstado(id, total, 0, 0, total, total == 0);
+        });
+    }
+
+    public Optional<CampanaEstado> estado(long idCampana) {
+        return jdbc.query(ESTADO, ESTADO_ROW, idCampana).stream().findFirst();
+    }
+
+    /** Toma el lote disponible más antiguo (o uno con el plazo vencido) para {@code nodo}. */
+    Optional<Lote> reclamar(String nodo, Duration plazo) {
+        double segundos = plazo.toMillis() / 1000.0;
+        List<Lote> lote = jdbc.query(RECLAMAR_PENDIENTE, LOTE, nodo, segundos);
+        if (lote.isEmpty()) lote = jdbc.query(RECLAMAR_VENCIDO, LOTE, nodo, segundos);
+        return lote.stream().findFirst();
+    }
+
+    /** Extiende el plazo; false si el lote ya no es de esta toma (venció y otro lo retomó). */
+    boolean renovar(Lote l, Duration plazo) {
+        return jdbc.update(RENOVAR, plazo.toMillis() / 1000.0, l.idCampana(), l.lote(), l.intentos()) == 1;
+    }
+
+    /** Marca como fallidos a los pendientes del lote cuyo usuario ya no existe. */
+    int descartarEliminados(Lote l) {
+        return jdbc.update(ELIMINADOS, l.idCampana(), l.lote());
+    }
+
+    List<Destinatario> pendientes(Lote l) {
+        return jdbc.query(PENDIENTES, DESTINATARIO, l.idCampana(), l.lote());
+    }
+
+    /** false si ya constaba como enviado (o fallido): el envío fue un duplicado. */
+    boolean marcarEnviado(long idCampana, int idUsuario) {
+        return jdbc.update(ENVIADO, idCampana, idUsuario) == 1;
+    }
+
+    /** Un fallo definitivo lo saca de la campaña; si no, queda pendiente para el próximo intento. */
+    void marcarFallido(long idCampana, int idUsuario, String error, boolean definitivo) {
+        jdbc.update(FALLO, definitivo ? "FALLIDO" : "PENDIENTE", error, idCampana, idUsuario);
+    }
+
+    /**
+     * Sin pendientes el lote queda HECHO. Si quedan, vuelve a la cola tras {@code espera}, salvo
+     * que ya se haya intentado {@code maxIntentos} veces: entonces lote y pendientes quedan
+     * FALLIDO. PERDIDO = el plazo venció y el lote ya no es de esta toma.
+     */
+    Cierre cerrar(Lote l, int maxIntentos, Duration espera, String error) {
+        Integer pendientes = jdbc.queryForObject(CONTAR_PENDIENTES, Integer.class, l.idCampana(), l.lote());
+        if (pendientes == null || pendientes == 0) {
+            return jdbc.update(HECHO, l.idCampana(), l.lote(), l.intentos()) == 1 ? Cierre.HECHO : Cierre.PERDIDO;
+        }
+        if (l.intentos() < maxIntentos) {
+            return jdbc.update(REINTENTO, espera.toMillis() / 1000.0, error, l.idCampana(), l.lote(),
+                    l.intentos()) == 1 ? Cierre.REINTENTO : Cierre.PERDIDO;
+        }
+        return tx.execute(s -> {
+            if (jdbc.update(FALLIDO, error, l.idCampana(), l.lote(), l.intentos()) != 1) return Cierre.PERDIDO;
+            jdbc.update(AGOTADOS, "Sin más reintentos", l.idCampana(), l.lote());
+            return Cierre.FALLIDO;
+        });
+    }
+
+    /** Marca la campaña terminada si ya no le quedan lotes por procesar; true si la terminó ahora. */
+    boolean terminarSiCompleta(long idCampana) {
+        return jdbc.update(TERMINAR, idCampana) == 1;
+    }
+
+    private static String where(Segmento s, List<Object> args) {
+        List<String> where = new ArrayList<>();
+        if (s.idCiudad() != null) {
+            where.add("u.ciudad = ?");
+            args.add(s.idCiudad());
+        }
+        if (s.idDepartamento() != null) {
+            where.add("u.departamento = ?");
+            args.add(s.idDepartamento());
+        }
+        if (s.idRol() != null) {
+            where.add("u.rol = ?");
+            args.add(s.idRol());
+        }
+        if (s.fechaDesde() != null) {
+            where.add("u.fecha_registro >= ?");
+            args.add(Date.valueOf(s.fechaDesde()));
+        }
+        if (s.fechaHasta() != null) {
+            where.add("u.fecha_registro <= ?");
+            args.add(Date.valueOf(s.fechaHasta()));
+        }
+        return where.isEmpty() ? "" : " where " + String.join(" and ", where);
+    }
+}
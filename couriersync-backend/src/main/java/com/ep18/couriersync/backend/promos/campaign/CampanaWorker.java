@@ -0,0 +1,196 @@
+package com.ep18.couriersync.backend.promos.campaign;
+
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue.Cierre;
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue.Lote;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.ResultadoEnvio;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.template.PlantillaCache;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Procesa lotes de campañas de la {@link CampanaQueue} en esta instancia: toma uno, envía a sus
+ * pendientes con el {@link PromoDispatcher} y anota cada resultado apenas llega, así que si la
+ * instancia muere solo se repiten los envíos que estaban en curso. El plazo del lote se renueva
+ * a mitad de camino mientras se envía; si se pierde, se deja de enviar. Los fallos del servidor
+ * o de la conexión devuelven el lote a la cola tras una espera exponencial; los del
+ * destinatario son definitivos. Cada instancia tiene su pool y su cupo de mensajes por segundo,
+ * y las instancias no se coordinan entre sí: con N workers el proveedor recibe hasta N veces
+ * app.promos.mensajes-por-segundo (y N veces las conexiones). El rendimiento crece con las
+ * instancias, pero respetar el límite del proveedor depende de configurar el cupo de cada una
+ * como ese límite dividido por la cantidad de instancias con worker.
+ */
+@Slf4j
+public class CampanaWorker implements AutoCloseable {
+
+    private final CampanaQueue cola;
+    private final PromoDispatcher dispatcher;
+    private final PlantillaCache plantillas;
+    private final String nodo;
+    private final Duration plazo;
+    private final Duration sondeo;
+    private final int maxIntentos;
+    private final Duration esperaReintento;
+    private final Duration esperaMaxima;
+
+    private final Map<Cierre, Counter> lotes = new EnumMap<>(Cierre.class);
+    private final Counter duplicados;
+    private ScheduledExecutorService scheduler;
+
+    public CampanaWorker(CampanaQueue cola, PromoDispatcher dispatcher, PlantillaCache plantillas, String nodo,
+                         Duration plazo, Duration sondeo, int maxIntentos, Duration esperaReintento,
+                         Duration esperaMaxima, MeterRegistry registry) {
+        this.cola = cola;
+        this.dispatcher = dispatcher;
+        this.plantillas = plantillas;
+        this.nodo = nodo;
+        this.plazo = plazo;
+        this.sondeo = sondeo;
+        this.maxIntentos = maxIntentos;
+        this.esperaReintento = esperaReintento;
+        this.esperaMaxima = esperaMaxima;
+        for (Cierre c : Cierre.values()) {
+            lotes.put(c, Counter.builder("couriersync.campaigns.chunks")
+                    .description("Lotes de campaña procesados por esta instancia, según cómo terminaron")
+                    .tag("resultado", c.name().toLowerCase())
+                    .register(registry));
+        }
+        this.duplicados = Counter.builder("couriersync.campaigns.duplicates")
+                .description("Envíos a destinatarios que ya constaban como enviados (lote retomado)")
+                .register(registry);
+    }
+
+    /**
+     * Procesa lotes hasta que no quede ninguno disponible y devuelve cuántos tomó. Lo llama el
+     * planificador; las pruebas lo invocan directamente.
+     */
+    public synchronized int drain() {
+        int n = 0;
+        Optional<Lote> lote;
+        while ((lote = cola.reclamar(nodo, plazo)).isPresent()) {
+            procesar(lote.get());
+            n++;
+        }
+        return n;
+    }
+
+    private void procesar(Lote lote) {
+        cola.descartarEliminados(lote);
+        List<Destinatario> pendientes = cola.pendientes(lote);
+        PlantillaPromo asunto = plantillas.obtener(lote.asunto(), Formato.TEXTO);
+        PlantillaPromo html = plantillas.obtener(lote.html(), Formato.HTML);
+
+        ConPlazo fuente = new ConPlazo(lote, pendientes.iterator());
+        AtomicReference<String> ultimoError = new AtomicReference<>();
+        dispatcher.enviar(fuente, asunto, html, r -> registrar(lote, r, ultimoError));
+
+        Cierre cierre = fuente.perdido ? Cierre.PERDIDO
+                : cola.cerrar(lote, maxIntentos, backoff(lote.intentos()), ultimoError.get());
+        lotes.get(cierre).increment();
+        switch (cierre) {
+            case PERDIDO -> log.warn("Campaña {}: el lote {} venció mientras se enviaba y lo retomó otra instancia",
+                    lote.idCampana(), lote.lote());
+            case REINTENTO -> log.info("Campaña {}: lote {} con pendientes tras el intento {}, se reintenta en {} s",
+                    lote.idCampana(), lote.lote(), lote.intentos(), backoff(lote.intentos()).toSeconds());
+            case FALLIDO -> log.warn("Campaña {}: lote {} sin más reintentos tras {} intentos: {}",
+                    lote.idCampana(), lote.lote(), lote.intentos(), ultimoError.get());
+            case HECHO -> { }
+        }
+        if (cierre != Cierre.PERDIDO && cola.terminarSiCompleta(lote.idCampana())) {
+            log.info("Campaña {} terminada", lote.idCampana());
+        }
+    }
+
+    private void registrar(Lote lote, ResultadoEnvio r, AtomicReference<String> ultimoError) {
+        try {
+            if (r.enviado()) {
+                if (!cola.marcarEnviado(lote.idCampana(), r.idUsuario())) duplicados.increment();
+            } else {
+                cola.marcarFallido(lote.idCampana(), r.idUsuario(), r.error(), !r.reintentable());
+                if (r.reintentable()) ultimoError.set(r.error());
+            }
+        } catch (RuntimeException e) {
+            // Queda pendiente: se repetirá en el próximo intento del lote
+            log.warn("Campaña {}: no se pudo anotar el resultado de {}: {}", lote.idCampana(), r.idUsuario(),
+                    e.toString());
+        }
+    }
+
+    /** Espera tras el intento n: esperaReintento, 2x, 4x... hasta esperaMaxima */
+    Duration backoff(int intento) {
+        long factor = 1L << Math.min(Math.max(intento - 1, 0), 20);
+        Duration espera = esperaReintento.multipliedBy(factor);
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "campanas-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = sondeo.toMillis();
+        scheduler.scheduleWithFixedDelay(this::poll, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // Sin BD (reinicio, failover): el lote en curso vuelve a la cola al vencer su plazo
+            log.warn("Campañas: falló el procesamiento de lotes: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /** Entrega los pendientes mientras el lote siga siendo de esta toma, renovando el plazo a la mitad. */
+    private final class ConPlazo implements Iterator<Destinatario> {
+        private final Lote lote;
+        private final Iterator<Destinatario> pendientes;
+        private long renovarEn;
+        private boolean perdido;
+
+        ConPlazo(Lote lote, Iterator<Destinatario> pendientes) {
+            this.lote = lote;
+            this.pendientes = pendientes;
+            this.renovarEn = System.nanoTime() + plazo.toNanos() / 2;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (perdido || !pendientes.hasNext()) return false;
+            if (System.nanoTime() >= renovarEn) {
+                if (!cola.renovar(lote, plazo)) {
+                    perdido = true;
+                    return false;
+                }
+                renovarEn = System.nanoTime() + plazo.toNanos() / 2;
+            }
+            return true;
+        }
+
+        @Override
+        public Destinatario next() {
+            return pendientes.next();
+        }
+    }
+}
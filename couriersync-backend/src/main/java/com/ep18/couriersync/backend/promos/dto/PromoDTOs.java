@@ -0,0 +1,88 @@
+package com.ep18.couriersync.backend.promos.dto;
+
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** DTOs del envío de promociones por correo. */
+public final class PromoDTOs {
+    private PromoDTOs() {}
+
+    /**
+     * Un destinatario con los campos que usan las plantillas; salvo el correo todos son opcionales
+     * (envíos a correos sueltos).
+     */
+    public record Destinatario(
+            Integer idUsuario,
+            String correo,
+            String nombre,
+            String nombreCiudad,
+            String nombreDepartamento
+    ) {
+        public Destinatario(Integer idUsuario, String correo, String nombre) {
+            this(idUsuario, correo, nombre, null, null);
+        }
+
+        public static Destinatario de(UsuarioView u) {
+            return new Destinatario(u.idUsuario(), u.correo(), u.nombre(), u.nombreCiudad(), u.nombreDepartamento());
+        }
+    }
+
+    /** Usuarios que cumplen todos los criterios presentes (ninguno = todos los usuarios). */
+    public record Segmento(
+            Integer idCiudad,
+            Integer idDepartamento,
+            Integer idRol,
+            LocalDate fechaDesde,
+            LocalDate fechaHasta
+    ) {
+        public UsuarioFilter toFilter() {
+            return new UsuarioFilter(null, idCiudad, idDepartamento, idRol, fechaDesde, fechaHasta);
+        }
+    }
+
+    /**
+     * Resultado por destinatario; error solo si no se envió. reintentable = el fallo fue del
+     * servidor o de la conexión (4xx, sin conexión) y no del destinatario: una campaña lo
+     * vuelve a intentar más tarde.
+     */
+    public record ResultadoEnvio(
+            Integer idUsuario,
+            String correo,
+            boolean enviado,
+            String error,
+            boolean reintentable
+    ) {
+        public ResultadoEnvio(Integer idUsuario, String correo, boolean enviado, String error) {
+            this(idUsuario, correo, enviado, error, false);
+        }
+    }
+
+    /**
+     * ok = todos enviados. Con lista de destinatarios, resultados trae uno por destinatario y en su
+     * orden; con segmento, solo los primeros fallos (los envíos no se acumulan en memoria).
+     */
+    public record PromoResultado(
+            boolean ok,
+            int total,
+            int enviados,
+            int fallidos,
+            long elapsedMs,
+            List<ResultadoEnvio> resultados
+    ) {}
+
+    /**
+     * Avance de una campaña persistente. pendientes incluye los que esperan un reintento;
+     * terminada = ningún lote queda por procesar.
+     */
+    public record CampanaEstado(
+            long idCampana,
+            int total,
+            int enviados,
+            int fallidos,
+            int pendientes,
+            boolean terminada
+    ) {}
+}
@@ -0,0 +1,102 @@
+package com.ep18.couriersync.backend.promos.mail;
+
+import jakarta.activation.DataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Cuerpo HTML de un envío en un buffer que se reutiliza de un destinatario al siguiente. El
+ * mensaje lo lee como DataSource y los caracteres se codifican a UTF-8 por tramos mientras se
+ * escriben hacia el servidor: el cuerpo no pasa a un String por destinatario ni se vuelve a
+ * copiar en setText. Lo usa un solo envío a la vez, que lo lee de forma secuencial (al calcular
+ * la codificación en saveChanges y en cada intento de envío).
+ */
+final class CuerpoPromo implements DataSource {
+
+    private static final String TIPO = "text/html; charset=UTF-8";
+    private static final int TRAMO = 8 * 1024;
+
+    private final StringBuilder texto = new StringBuilder();
+    private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(TRAMO);
+
+    /** Vacía el buffer para el siguiente destinatario y lo devuelve para escribir en él. */
+    StringBuilder vaciar(int capacidad) {
+        texto.setLength(0);
+        texto.ensureCapacity(capacidad);
+        return texto;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new Lector();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("El cuerpo de la promoción es de solo lectura");
+    }
+
+    @Override
+    public String getContentType() {
+        return TIPO;
+    }
+
+    @Override
+    public String getName() {
+        return null;
+    }
+
+    /** Codifica el texto desde el inicio; abrir otro lector invalida el anterior. */
+    private final class Lector extends InputStream {
+        private final CharBuffer pendiente = CharBuffer.wrap(texto);
+        private boolean terminado;
+
+        private Lector() {
+            utf8.reset();
+            bytes.clear().flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return llenar() ? bytes.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) return 0;
+            if (!llenar()) return -1;
+            int n = Math.min(len, bytes.remaining());
+            bytes.get(b, off, n);
+            return n;
+        }
+
+        private boolean llenar() throws CharacterCodingException {
+            while (!bytes.hasRemaining()) {
+                if (terminado) return false;
+                bytes.clear();
+                CoderResult r = utf8.encode(pendiente, bytes, true);
+                if (r.isError()) r.throwException();
+                if (r.isUnderflow()) {
+                    utf8.flush(bytes);
+                    terminado = true;
+                }
+                bytes.flip();
+            }
+            return true;
+        }
+    }
+}
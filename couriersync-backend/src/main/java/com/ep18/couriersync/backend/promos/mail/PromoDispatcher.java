@@ -0,0 +1,248 @@
+package com.ep18.couriersync.backend.promos.mail;
+
+import com.ep18.couriersync.backend.common.ratelimit.TokenBucket;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.PromoResultado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.ResultadoEnvio;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Envía una promoción a muchos destinatarios en paralelo: un hilo virtual por destinatario, que
+ * por cada intento espera una ficha en la cubeta (mensajes por segundo de esta instancia) y una
+ * conexión del {@link SmtpTransportPool}. El paralelismo efectivo lo fija el tamaño del pool; los
+ * hilos virtuales solo abaratan la espera. Un fallo de conexión o un aplazamiento (4xx) se
+ * reintenta en otra conexión, con su propia ficha; un rechazo del destinatario (RCPT 5xx) no. Cada
+ * destinatario tiene su resultado. Asunto y cuerpo llegan compilados ({@link PlantillaPromo}); sin
+ * campos se renderizan una sola vez para todos.
+ * <p>
+ * Un cuerpo con campos se escribe en uno de los buffers ({@link CuerpoPromo}) del dispatcher,
+ * tantos como conexiones: quien tiene uno solo espera la ficha y la conexión, así que nunca hay
+ * más cuerpos renderizados que envíos posibles. El mensaje lee el
+ * buffer al enviarse; por destinatario quedan el MimeMessage, sus cabeceras y el asunto, no una
+ * copia del cuerpo.
+ */
+@Slf4j
+public class PromoDispatcher {
+
+    static final int MAX_INTENTOS = 2;
+    /** Envíos en curso por conexión del pool al consumir una fuente (esperando cupo o conexión) */
+    static final int EN_VUELO_POR_CONEXION = 4;
+    private static final Destinatario SIN_DESTINATARIO = new Destinatario(null, null, null);
+
+    private final SmtpTransportPool pool;
+    private final TokenBucket limite;
+    private final InternetAddress remitente;
+    private final BlockingQueue<CuerpoPromo> cuerpos;
+
+    private final Counter enviados;
+    private final Counter fallidos;
+    private final Timer envio;
+
+    /** limite null = sin tope de mensajes por segundo */
+    public PromoDispatcher(SmtpTransportPool pool, TokenBucket limite, InternetAddress remitente,
+                           MeterRegistry registry) {
+        this.pool = pool;
+        this.limite = limite;
+        this.remitente = remitente;
+        this.cuerpos = new ArrayBlockingQueue<>(pool.tamano());
+        for (int i = 0; i < pool.tamano(); i++) cuerpos.add(new CuerpoPromo());
+        this.enviados = Counter.builder("couriersync.promos.sent")
+                .description("Correos de promoción aceptados por el servidor SMTP")
+                .register(registry);
+        this.fallidos = Counter.builder("couriersync.promos.failed")
+                .description("Correos de promoción que no se pudieron enviar")
+                .register(registry);
+        this.envio = Timer.builder("couriersync.promos.send")
+                .description("Duración del envío SMTP de cada correo, sin la espera por cupo")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    public PromoResultado enviar(List<Destinatario> destinatarios, PlantillaPromo asunto, PlantillaPromo html) {
+        long t0 = System.nanoTime();
+        String asuntoFijo = asunto.tieneCampos() ? null : asunto.render(SIN_DESTINATARIO);
+        String htmlFijo = html.tieneCampos() ? null : html.render(SIN_DESTINATARIO);
+        List<ResultadoEnvio> resultados;
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ResultadoEnvio>> pendientes = destinatarios.stream()
+                    .map(d -> hilos.submit(() -> enviarUno(d,
+                            asuntoFijo != null ? asuntoFijo : asunto.render(d), htmlFijo, html)))
+                    .toList();
+            resultados = pendientes.stream().map(PromoDispatcher::esperar).toList();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+        int ok = (int) resultados.stream().filter(ResultadoEnvio::enviado).count();
+        int fallos = resultados.size() - ok;
+        log.info("Promoción {}: {} enviados, {} fallidos en {} ms", html.hash(), ok, fallos, elapsedMs);
+        return new PromoResultado(fallos == 0, resultados.size(), ok, fallos, elapsedMs, resultados);
+    }
+
+    /**
+     * Variante para fuentes grandes (segmentos): toma destinatarios de {@code fuente} solo cuando
+     * hay lugar entre los envíos en curso, así la fuente marca el ritmo de lectura y la memoria no
+     * crece con el total. Cada resultado va a {@code alTerminar} (desde el hilo del envío); el
+     * PromoResultado devuelto solo trae los conteos.
+     */
+    public PromoResultado enviar(Iterator<Destinatario> fuente, PlantillaPromo asunto, PlantillaPromo html,
+                                 Consumer<ResultadoEnvio> alTerminar) {
+        long t0 = System.nanoTime();
+        String asuntoFijo = asunto.tieneCampos() ? null : asunto.render(SIN_DESTINATARIO);
+        String htmlFijo = html.tieneCampos() ? null : html.render(SIN_DESTINATARIO);
+        Semaphore enVuelo = new Semaphore(pool.tamano() * EN_VUELO_POR_CONEXION);
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger fallos = new AtomicInteger();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (fuente.hasNext()) {
+                Destinatario d = fuente.next();
+                enVuelo.acquireUninterruptibly();
+                hilos.submit(() -> {
+                    try {
+                        ResultadoEnvio r = enviarUno(d,
+                                asuntoFijo != null ? asuntoFijo : asunto.render(d), htmlFijo, html);
+                        (r.enviado() ? ok : fallos).incrementAndGet();
+                        alTerminar.accept(r);
+                    } finally {
+                        enVuelo.release();
+                    }
+                });
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+        int total = ok.get() + fallos.get();
+        log.info("Promoción {}: {} enviados, {} fallidos en {} ms", html.hash(), ok.get(), fallos.get(), elapsedMs);
+        return new PromoResultado(fallos.get() == 0, total, ok.get(), fallos.get(), elapsedMs, List.of());
+    }
+
+    /** htmlFijo: el cuerpo ya renderizado para todos, o null para renderizar {@code html} para d */
+    private ResultadoEnvio enviarUno(Destinatario d, String asunto, String htmlFijo, PlantillaPromo html) {
+        MimeMessage mensaje;
+        try {
+            mensaje = mensaje(d, asunto);
+        } catch (MessagingException | UnsupportedEncodingException e) {
+            return fallo(d, "Correo inválido: " + e.getMessage(), false);
+        }
+        try {
+            if (htmlFijo != null) {
+                mensaje.setText(htmlFijo, StandardCharsets.UTF_8.name(), "html");
+                mensaje.saveChanges();
+                return enviar(d, mensaje);
+            }
+            CuerpoPromo cuerpo = cuerpos.take();
+            try {
+                html.render(d, cuerpo.vaciar(html.capacidadEstimada()));
+                mensaje.setDataHandler(new DataHandler(cuerpo));
+                mensaje.saveChanges();
+                return enviar(d, mensaje);
+            } finally {
+                cuerpos.add(cuerpo);
+            }
+        } catch (MessagingException e) {
+            return fallo(d, "Correo inválido: " + e.getMessage(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallo(d, "Envío interrumpido", true);
+        }
+    }
+
+    /**
+     * Intenta el envío hasta MAX_INTENTOS veces, cada una con su ficha de la cubeta (el proveedor
+     * cuenta también los reintentos) y en la conexión que toque.
+     */
+    private ResultadoEnvio enviar(Destinatario d, MimeMessage mensaje) throws InterruptedException {
+        MessagingException ultimo = null;
+        for (int intento = 1; intento <= MAX_INTENTOS; intento++) {
+            if (limite != null) limite.acquire();
+            SmtpTransportPool.Conexion conexion;
+            try {
+                conexion = pool.tomar();
+            } catch (MessagingException e) {
+                ultimo = e;
+                continue;
+            }
+            long inicio = System.nanoTime();
+            try {
+                conexion.enviar(mensaje);
+                pool.devolver(conexion);
+                envio.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                enviados.increment();
+                return new ResultadoEnvio(d.idUsuario(), d.correo(), true, null);
+            } catch (MessagingException e) {
+                if (e instanceof SendFailedException sf && rechazoDestinatario(sf)) {
+                    // El servidor rechazó la dirección y dejó la sesión lista (RSET): la conexión sirve
+                    pool.devolver(conexion);
+                    return fallo(d, detalle(e), false);
+                }
+                pool.descartar(conexion);
+                ultimo = e;
+            }
+        }
+        return fallo(d, detalle(ultimo), true);
+    }
+
+    /** Remitente, destinatario y asunto; el cuerpo se agrega aparte. */
+    private MimeMessage mensaje(Destinatario d, String asunto)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage m = new MimeMessage(pool.getSession());
+        m.setFrom(remitente);
+        InternetAddress para = new InternetAddress(d.correo(), true);
+        if (d.nombre() != null) para.setPersonal(d.nombre(), StandardCharsets.UTF_8.name());
+        m.setRecipient(Message.RecipientType.TO, para);
+        m.setSubject(asunto, StandardCharsets.UTF_8.name());
+        return m;
+    }
+
+    private static boolean rechazoDestinatario(SendFailedException e) {
+        Address[] invalidas = e.getInvalidAddresses();
+        return invalidas != null && invalidas.length > 0;
+    }
+
+    /** La respuesta del servidor ("451 4.3.0 ...") si viene anidada, en lugar de "Invalid Addresses" */
+    private static String detalle(MessagingException e) {
+        Exception anidada = e.getNextException();
+        return anidada instanceof MessagingException && anidada.getMessage() != null
+                ? anidada.getMessage().strip()
+                : e.getMessage();
+    }
+
+    private ResultadoEnvio fallo(Destinatario d, String error, boolean reintentable) {
+        fallidos.increment();
+        return new ResultadoEnvio(d.idUsuario(), d.correo(), false, error, reintentable);
+    }
+
+    private static ResultadoEnvio esperar(Future<ResultadoEnvio> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Envío de promoción interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Envío de promoción falló", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.ep18.couriersync.backend.promos.mail;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexiones SMTP reutilizables: cada una queda abierta entre mensajes (y entre campañas), así un
+ * envío no paga conexión, saludo y autenticación por destinatario. El tamaño del pool es también
+ * el máximo de envíos en curso hacia el servidor. Una conexión que estuvo inactiva más de
+ * {@code validarTrasInactividad} se comprueba (NOOP) antes de usarla; si un envío falla por la
+ * conexión, quien la tomó la descarta y se vuelve a abrir al tomarla de nuevo.
+ * <p>
+ * Jakarta Mail hace la E/S dentro de métodos synchronized del Transport; en Java 21 eso fija el
+ * hilo virtual a su portador mientras espera al servidor (con pocos núcleos, todos los portadores).
+ * Por eso la E/S corre en hilos de plataforma propios, uno por conexión, y quien toma la conexión
+ * (un hilo virtual) solo espera el resultado.
+ * <p>
+ * Jakarta Mail 2.1 pide su StreamProvider a FactoryFinder cada vez que codifica (asunto, nombre
+ * del destinatario, cuerpo, líneas del mensaje) y, sin la propiedad de sistema, eso es un recorrido
+ * de ServiceLoader por los jars del classpath: unos 40 KB asignados y lecturas de jar por llamada,
+ * cuatro veces por mensaje. La propiedad (jakarta.mail.util.StreamProvider) no se fija aquí: la
+ * fija PromoConfig al crear el pool, o la JVM con -D.
+ */
+public class SmtpTransportPool implements AutoCloseable {
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String usuario;
+    private final String clave;
+    private final long validarTrasNanos;
+    private final BlockingQueue<Conexion> libres;
+    private final List<Conexion> todas;
+    private final ExecutorService io;
+
+    public SmtpTransportPool(Session session, String host, int port, String usuario, String clave,
+                             int tamano, Duration validarTrasInactividad) {
+        if (tamano < 1) throw new IllegalArgumentException("tamano debe ser al menos 1");
+        this.session = session;
+        this.host = host;
+        this.port = port;
+        this.usuario = usuario;
+        this.clave = clave;
+        this.validarTrasNanos = validarTrasInactividad.toNanos();
+        this.libres = new ArrayBlockingQueue<>(tamano);
+        List<Conexion> conexiones = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) conexiones.add(new Conexion());
+        this.todas = List.copyOf(conexiones);
+        libres.addAll(todas);
+        AtomicInteger n = new AtomicInteger();
+        this.io = Executors.newFixedThreadPool(tamano, tarea -> {
+            Thread t = new Thread(tarea, "smtp-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Espera una conexión libre y la deja conectada; se devuelve con devolver() o descartar(). */
+    public Conexion tomar() throws InterruptedException, MessagingException {
+        Conexion c = libres.take();
+        try {
+            enHiloDeIo(() -> {
+                c.asegurarConectada();
+                return null;
+            });
+            return c;
+        } catch (MessagingException | InterruptedException | RuntimeException e) {
+            descartar(c);
+            throw e;
+        }
+    }
+
+    public void devolver(Conexion c) {
+        c.ultimoUso = System.nanoTime();
+        libres.add(c);
+    }
+
+    /** Cierra la conexión (falló o quedó en estado dudoso) y libera su lugar en el pool. */
+    public void descartar(Conexion c) {
+        // El QUIT también es E/S sincronizada: en un hilo virtual fijaría al portador
+        try {
+            enHiloDeIo(() -> {
+                c.cerrar();
+                return null;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (MessagingException | RuntimeException e) {
+            // pool cerrado: se suelta sin más
+        } finally {
+            libres.add(c);
+        }
+    }
+
+    public int tamano() {
+        return todas.size();
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    @Override
+    public void close() {
+        io.shutdownNow();
+        todas.forEach(Conexion::cerrar);
+    }
+
+    private <T> T enHiloDeIo(Callable<T> operacion) throws MessagingException, InterruptedException {
+        try {
+            return io.submit(operacion).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MessagingException me) throw me;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new MessagingException("Fallo en la conexión SMTP", (Exception) e.getCause());
+        }
+    }
+
+    public final class Conexion {
+        private Transport transport;
+        private long ultimoUso;
+
+        private Conexion() {}
+
+        public void enviar(Message mensaje) throws MessagingException, InterruptedException {
+            enHiloDeIo(() -> {
+                transport.sendMessage(mensaje, mensaje.getAllRecipients());
+                return null;
+            });
+        }
+
+        private void asegurarConectada() throws MessagingException {
+            if (transport != null
+                    && (System.nanoTime() - ultimoUso < validarTrasNanos || transport.isConnected())) {
+                return;
+            }
+            cerrar();
+            Transport nuevo = session.getTransport();
+            nuevo.connect(host, port, usuario, clave);
+            transport = nuevo;
+        }
+
+        private void cerrar() {
+            if (transport == null) return;
+            try {
+                transport.close();
+            } catch (MessagingException ignored) {
+                // la conexión ya no sirve; basta con soltarla
+            }
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ep18.couriersync.backend.promos.segment;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Destinatarios de un segmento, leídos hacia adelante por páginas keyset (nombre, idUsuario) en
+ * un hilo productor y entregados por una cola acotada: si el envío va más lento que la lectura,
+ * la cola se llena y el productor espera antes de pedir la siguiente página. En memoria hay a lo
+ * sumo la cola y una página, sin importar el tamaño del segmento. Un solo consumidor; cerrarla
+ * antes del final detiene al productor.
+ */
+@Slf4j
+public final class FuenteDestinatarios implements Iterator<Destinatario>, AutoCloseable {
+
+    private static final Destinatario FIN = new Destinatario(null, null, null);
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private final BlockingQueue<Destinatario> cola;
+    private final Function<KeysetCursor, List<Destinatario>> paginas;
+    private final int tamanoPagina;
+    private final Thread productor;
+
+    private volatile boolean cerrada;
+    private volatile RuntimeException error;
+    private Destinatario siguiente;
+
+    /** {@code paginas} devuelve hasta tamanoPagina destinatarios posteriores al cursor (null = desde el inicio). */
+    FuenteDestinatarios(Function<KeysetCursor, List<Destinatario>> paginas, int tamanoPagina, int capacidad) {
+        this.paginas = paginas;
+        this.tamanoPagina = tamanoPagina;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.productor = new Thread(this::producir, "segmento-promo-" + SECUENCIA.incrementAndGet());
+        productor.setDaemon(true);
+        productor.start();
+    }
+
+    private void producir() {
+        try {
+            KeysetCursor after = null;
+            while (!cerrada) {
+                List<Destinatario> pagina = paginas.apply(after);
+                for (Destinatario d : pagina) cola.put(d);
+                if (pagina.size() < tamanoPagina) break;
+                Destinatario ultimo = pagina.get(pagina.size() - 1);
+                after = new KeysetCursor(ultimo.nombre(), ultimo.idUsuario());
+            }
+        } catch (InterruptedException e) {
+            return; // close(): nadie espera el FIN
+        } catch (RuntimeException e) {
+            log.warn("Segmento de promoción: falló la lectura de destinatarios: {}", e.toString());
+            error = e;
+        }
+        try {
+            cola.put(FIN);
+        } catch (InterruptedException e) {
+            // cerrada mientras esperaba lugar para el FIN
+        }
+    }
+
+    /** Espera el siguiente destinatario; relanza el error de lectura si el productor falló. */
+    @Override
+    public boolean hasNext() {
+        if (siguiente == null) {
+            try {
+                siguiente = cola.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Lectura del segmento interrumpida", e);
+            }
+        }
+        if (siguiente != FIN) return true;
+        if (error != null) throw error;
+        return false;
+    }
+
+    @Override
+    public Destinatario next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Destinatario d = siguiente;
+        siguiente = null;
+        return d;
+    }
+
+    @Override
+    public void close() {
+        cerrada = true;
+        productor.interrupt();
+    }
+}
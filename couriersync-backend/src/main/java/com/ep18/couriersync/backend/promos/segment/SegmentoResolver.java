@@ -0,0 +1,69 @@
+package com.ep18.couriersync.backend.promos.segment;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Convierte un segmento (ciudad/departamento/rol/rango de fechaRegistro) en una
+ * {@link FuenteDestinatarios}. Cada página es un seek sobre los índices (filtro, nombre,
+ * id_usuario) de V4 en su propia transacción de solo lectura (réplica si las hay): una campaña
+ * limitada por el cupo del proveedor dura horas, y un cursor abierto todo ese tiempo retendría
+ * una instantánea y frenaría el vacuum. La primera página llega en milisegundos.
+ */
+@Component
+public class SegmentoResolver {
+
+    /** Filas por consulta; la cola guarda dos páginas para leer la siguiente mientras se envía */
+    static final int TAMANO_PAGINA = 1000;
+    static final int CAPACIDAD_COLA = 2 * TAMANO_PAGINA;
+
+    private final UsuarioRepository usuarioRepo;
+    private final ReferenceDataCatalog catalog;
+    private final TransactionTemplate soloLectura;
+
+    public SegmentoResolver(UsuarioRepository usuarioRepo, ReferenceDataCatalog catalog,
+                            PlatformTransactionManager txManager) {
+        this.usuarioRepo = usuarioRepo;
+        this.catalog = catalog;
+        this.soloLectura = new TransactionTemplate(txManager);
+        this.soloLectura.setReadOnly(true);
+    }
+
+    /** Empieza a leer de inmediato; el llamador debe cerrarla. */
+    public FuenteDestinatarios abrir(Segmento segmento) {
+        return abrir(segmento, TAMANO_PAGINA, CAPACIDAD_COLA);
+    }
+
+    FuenteDestinatarios abrir(Segmento segmento, int tamanoPagina, int capacidad) {
+        UsuarioFilter filter = segmento.toFilter();
+        if (filter.fechaDesde() != null && filter.fechaHasta() != null
+                && filter.fechaDesde().isAfter(filter.fechaHasta())) {
+            throw new ValidationException("fechaDesde no puede ser posterior a fechaHasta");
+        }
+        return new FuenteDestinatarios(after -> pagina(filter, after, tamanoPagina), tamanoPagina, capacidad);
+    }
+
+    private List<Destinatario> pagina(UsuarioFilter filter, KeysetCursor after, int limit) {
+        List<UsuarioRow> rows = soloLectura.execute(s -> usuarioRepo.findRowsAfter(filter, after, limit));
+        return rows.stream().map(this::destinatario).toList();
+    }
+
+    private Destinatario destinatario(UsuarioRow r) {
+        return new Destinatario(r.idUsuario(), r.correo(), r.nombre(),
+                catalog.ciudad(r.idCiudad()).map(CiudadRef::nombreCiudad).orElse(null),
+                catalog.departamento(r.idDepartamento()).map(DepartamentoRef::nombreDepartamento).orElse(null));
+    }
+}
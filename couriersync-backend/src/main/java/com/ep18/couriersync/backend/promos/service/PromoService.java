@@ -0,0 +1,124 @@
+package com.ep18.couriersync.backend.promos.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.CampanaEstado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.PromoResultado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.ResultadoEnvio;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.segment.FuenteDestinatarios;
+import com.ep18.couriersync.backend.promos.segment.SegmentoResolver;
+import com.ep18.couriersync.backend.promos.template.PlantillaCache;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class PromoService {
+
+    /** Fallos que se devuelven al enviar a un segmento; el resto solo cuenta */
+    static final int MAX_FALLOS_REPORTADOS = 100;
+
+    /** Solo existe con spring.mail.host definido (PromoConfig) */
+    private final ObjectProvider<PromoDispatcher> dispatcher;
+    private final PlantillaCache plantillas;
+    private final SegmentoResolver segmentos;
+    private final CampanaQueue campanas;
+
+    /**
+     * Envía la oferta a cada destinatario una sola vez (correo repetido, sin distinguir
+     * mayúsculas, se envía al primero) y devuelve el resultado por destinatario. Asunto y HTML
+     * son plantillas con campos del destinatario ({{nombre}}, {{nombreCiudad}}...).
+     */
+    public PromoResultado sendToGroup(List<Destinatario> destinatarios, String asunto, String html) {
+        if (asunto == null || asunto.isBlank()) throw new ValidationException("El asunto es obligatorio");
+        if (html == null || html.isBlank()) throw new ValidationException("El contenido es obligatorio");
+        if (destinatarios == null || destinatarios.isEmpty()) {
+            throw new ValidationException("Debe indicar al menos un destinatario");
+        }
+        List<Destinatario> unicos = unicos(destinatarios);
+        PlantillaPromo plantillaAsunto = plantillas.obtener(asunto, Formato.TEXTO);
+        PlantillaPromo plantillaHtml = plantillas.obtener(html, Formato.HTML);
+        PromoDispatcher d = dispatcher.getIfAvailable();
+        if (d == null) throw new ConflictException("El envío de correo no está configurado");
+        return d.enviar(unicos, plantillaAsunto, plantillaHtml);
+    }
+
+    /**
+     * Envía la oferta a los usuarios del segmento a medida que se leen (ver SegmentoResolver):
+     * memoria constante y primer envío sin esperar a resolver el segmento completo. Devuelve los
+     * conteos y los primeros {@value #MAX_FALLOS_REPORTADOS} fallos.
+     */
+    public PromoResultado sendToSegment(Segmento segmento, String asunto, String html) {
+        if (segmento == null) throw new ValidationException("El segmento es obligatorio");
+        if (asunto == null || asunto.isBlank()) throw new ValidationException("El asunto es obligatorio");
+        if (html == null || html.isBlank()) throw new ValidationException("El contenido es obligatorio");
+        PlantillaPromo plantillaAsunto = plantillas.obtener(asunto, Formato.TEXTO);
+        PlantillaPromo plantillaHtml = plantillas.obtener(html, Formato.HTML);
+        PromoDispatcher d = dispatcher.getIfAvailable();
+        if (d == null) throw new ConflictException("El envío de correo no está configurado");
+
+        List<ResultadoEnvio> fallos = new ArrayList<>();
+        PromoResultado r;
+        try (FuenteDestinatarios fuente = segmentos.abrir(segmento)) {
+            r = d.enviar(fuente, plantillaAsunto, plantillaHtml, e -> {
+                if (e.enviado()) return;
+                synchronized (fallos) {
+                    if (fallos.size() < MAX_FALLOS_REPORTADOS) fallos.add(e);
+                }
+            });
+        }
+        synchronized (fallos) {
+            return new PromoResultado(r.ok(), r.total(), r.enviados(), r.fallidos(), r.elapsedMs(),
+                    List.copyOf(fallos));
+        }
+    }
+
+    /**
+     * Crea una campaña persistente para el segmento y vuelve de inmediato: los envíos los hacen
+     * los CampanaWorker de cualquier instancia, por lotes y con reintentos. No necesita SMTP en
+     * esta instancia.
+     */
+    public CampanaEstado crearCampana(Segmento segmento, String asunto, String html) {
+        if (segmento == null) throw new ValidationException("El segmento es obligatorio");
+        if (asunto == null || asunto.isBlank()) throw new ValidationException("El asunto es obligatorio");
+        if (html == null || html.isBlank()) throw new ValidationException("El contenido es obligatorio");
+        if (segmento.fechaDesde() != null && segmento.fechaHasta() != null
+                && segmento.fechaDesde().isAfter(segmento.fechaHasta())) {
+            throw new ValidationException("fechaDesde no puede ser posterior a fechaHasta");
+        }
+        // Se compilan ahora para rechazar campos desconocidos antes de encolar nada
+        plantillas.obtener(asunto, Formato.TEXTO);
+        plantillas.obtener(html, Formato.HTML);
+        return campanas.crear(segmento, asunto, html);
+    }
+
+    public CampanaEstado estadoCampana(long idCampana) {
+        return campanas.estado(idCampana).orElseThrow(() -> new NotFoundException("Campaña no encontrada"));
+    }
+
+    private static List<Destinatario> unicos(List<Destinatario> destinatarios) {
+        Set<String> vistos = new HashSet<>();
+        List<Destinatario> unicos = new ArrayList<>(destinatarios.size());
+        for (Destinatario d : destinatarios) {
+            if (d.correo() == null || d.correo().isBlank()) {
+                throw new ValidationException("Destinatario sin correo");
+            }
+            if (vistos.add(d.correo().strip().toLowerCase(Locale.ROOT))) unicos.add(d);
+        }
+        return unicos;
+    }
+}
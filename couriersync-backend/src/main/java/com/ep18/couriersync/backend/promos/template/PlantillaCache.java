@@ -0,0 +1,59 @@
+package com.ep18.couriersync.backend.promos.template;
+
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Plantillas compiladas por hash de su contenido: la misma oferta enviada en varias tandas o
+ * campañas se analiza una vez. Guarda las {@value #MAX_PLANTILLAS} usadas más recientemente.
+ */
+@Component
+public class PlantillaCache {
+
+    static final int MAX_PLANTILLAS = 128;
+
+    private final Map<String, PlantillaPromo> plantillas =
+            new LinkedHashMap<>(MAX_PLANTILLAS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PlantillaPromo> eldest) {
+                    return size() > MAX_PLANTILLAS;
+                }
+            };
+
+    public PlantillaPromo obtener(String fuente, Formato formato) {
+        String hash = hash(formato, fuente);
+        synchronized (plantillas) {
+            PlantillaPromo p = plantillas.get(hash);
+            if (p != null) return p;
+        }
+        // Se compila fuera del candado; si dos hilos compilan la misma, queda la primera
+        PlantillaPromo compilada = PlantillaPromo.compilar(fuente, formato, hash);
+        synchronized (plantillas) {
+            return plantillas.merge(hash, compilada, (actual, nueva) -> actual);
+        }
+    }
+
+    int size() {
+        synchronized (plantillas) {
+            return plantillas.size();
+        }
+    }
+
+    static String hash(Formato formato, String fuente) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(formato.name().getBytes(StandardCharsets.US_ASCII));
+            sha.update((byte) 0);
+            return HexFormat.of().formatHex(sha.digest(fuente.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
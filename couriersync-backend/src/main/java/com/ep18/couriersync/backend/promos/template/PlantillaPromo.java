@@ -0,0 +1,132 @@
+package com.ep18.couriersync.backend.promos.template;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Plantilla de promoción compilada una sola vez: el texto queda partido en tramos literales y
+ * campos ({{nombre}}, {{nombreCiudad}}...), y renderizar un destinatario es recorrer ese plan
+ * escribiendo en un StringBuilder del llamador, sin volver a analizar el texto ni crear objetos
+ * intermedios. Inmutable; se comparte entre hilos y campañas (ver {@link PlantillaCache}).
+ */
+public final class PlantillaPromo {
+
+    /** Campos disponibles en las plantillas; salen del usuario destinatario (UsuarioView). */
+    public enum Campo {
+        NOMBRE("nombre", Destinatario::nombre),
+        CORREO("correo", Destinatario::correo),
+        NOMBRE_CIUDAD("nombreCiudad", Destinatario::nombreCiudad),
+        NOMBRE_DEPARTAMENTO("nombreDepartamento", Destinatario::nombreDepartamento);
+
+        private final String clave;
+        private final Function<Destinatario, String> valor;
+
+        Campo(String clave, Function<Destinatario, String> valor) {
+            this.clave = clave;
+            this.valor = valor;
+        }
+
+        public String clave() { return clave; }
+
+        static Campo porClave(String clave) {
+            for (Campo c : values()) if (c.clave.equals(clave)) return c;
+            return null;
+        }
+    }
+
+    /** HTML escapa los valores de los campos; TEXTO (asunto) los copia tal cual */
+    public enum Formato { HTML, TEXTO }
+
+    private static final String ABRE = "{{";
+    private static final String CIERRA = "}}";
+    /** Holgura por campo al estimar el tamaño de salida */
+    private static final int POR_CAMPO = 24;
+
+    private final Formato formato;
+    private final String hash;
+    /** Tramos alternados: literales[i], campos[i], literales[i + 1]...; literales.length = campos.length + 1 */
+    private final String[] literales;
+    private final Campo[] campos;
+    private final int capacidadEstimada;
+
+    private PlantillaPromo(Formato formato, String hash, String[] literales, Campo[] campos) {
+        this.formato = formato;
+        this.hash = hash;
+        this.literales = literales;
+        this.campos = campos;
+        this.capacidadEstimada = Arrays.stream(literales).mapToInt(String::length).sum() + campos.length * POR_CAMPO;
+    }
+
+    /** Analiza el texto; un campo desconocido o una llave sin cerrar es ValidationException. */
+    public static PlantillaPromo compilar(String fuente, Formato formato) {
+        return compilar(fuente, formato, PlantillaCache.hash(formato, fuente));
+    }
+
+    static PlantillaPromo compilar(String fuente, Formato formato, String hash) {
+        List<String> literales = new ArrayList<>();
+        List<Campo> campos = new ArrayList<>();
+        int desde = 0;
+        int abre;
+        while ((abre = fuente.indexOf(ABRE, desde)) >= 0) {
+            int cierra = fuente.indexOf(CIERRA, abre + ABRE.length());
+            if (cierra < 0) throw new ValidationException("Plantilla: '" + ABRE + "' sin cerrar en la posición " + abre);
+            String clave = fuente.substring(abre + ABRE.length(), cierra).strip();
+            Campo campo = Campo.porClave(clave);
+            if (campo == null) {
+                throw new ValidationException("Plantilla: campo desconocido '" + clave + "'; disponibles: "
+                        + Arrays.stream(Campo.values()).map(Campo::clave).collect(Collectors.joining(", ")));
+            }
+            literales.add(fuente.substring(desde, abre));
+            campos.add(campo);
+            desde = cierra + CIERRA.length();
+        }
+        literales.add(fuente.substring(desde));
+        return new PlantillaPromo(formato, hash, literales.toArray(String[]::new), campos.toArray(Campo[]::new));
+    }
+
+    /** Escribe la plantilla para el destinatario al final de {@code salida}; no asigna memoria propia. */
+    public void render(Destinatario d, StringBuilder salida) {
+        salida.append(literales[0]);
+        for (int i = 0; i < campos.length; i++) {
+            String valor = campos[i].valor.apply(d);
+            if (valor != null) {
+                if (formato == Formato.HTML) escaparHtml(valor, salida);
+                else salida.append(valor);
+            }
+            salida.append(literales[i + 1]);
+        }
+    }
+
+    public String render(Destinatario d) {
+        StringBuilder sb = new StringBuilder(capacidadEstimada);
+        render(d, sb);
+        return sb.toString();
+    }
+
+    /** SHA-256 (hex) del formato y el texto fuente: identifica la plantilla en la caché */
+    public String hash() { return hash; }
+
+    public int capacidadEstimada() { return capacidadEstimada; }
+
+    public boolean tieneCampos() { return campos.length > 0; }
+
+    private static void escaparHtml(String valor, StringBuilder salida) {
+        for (int i = 0, n = valor.length(); i < n; i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '<' -> salida.append("&lt;");
+                case '>' -> salida.append("&gt;");
+                case '&' -> salida.append("&amp;");
+                case '"' -> salida.append("&quot;");
+                case '\'' -> salida.append("&#39;");
+                default -> salida.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ep18.couriersync.backend.satisfaccion.api.graphql;
+
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.AgrupacionSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.EncuestaInput;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RangoFechas;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RegistroEncuestaResult;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RespuestaView;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.SatisfactionDashboard;
+import com.ep18.couriersync.backend.satisfaccion.service.SatisfaccionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.List;
+
+@Controller
+@Validated
+@RequiredArgsConstructor
+public class SatisfaccionGraphQL {
+
+    private final SatisfaccionService service;
+
+    /** Lee solo los agregados diarios (ver SatisfaccionService.dashboard) */
+    @QueryMapping
+    public SatisfactionDashboard satisfactionDashboard(@Argument @Valid RangoFechas range,
+                                                       @Argument List<AgrupacionSatisfaccion> groupBy,
+                                                       @Argument Integer idDepartamento,
+                                                       @Argument Integer idCiudad) {
+        return service.dashboard(range, groupBy, idDepartamento, idCiudad);
+    }
+
+    @MutationMapping
+    public RespuestaView registrarEncuesta(@Argument @Valid EncuestaInput input) {
+        return service.registrar(input);
+    }
+
+    /** Registro masivo: validación por elemento, los errores vienen en cada resultado */
+    @MutationMapping
+    public List<RegistroEncuestaResult> registrarEncuestas(@Argument List<EncuestaInput> inputs) {
+        return service.registrarTodas(inputs);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ep18.couriersync.backend.satisfaccion.dto;
+
+import com.ep18.couriersync.backend.common.dto.BatchDTOs.ItemError;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/** DTOs de encuestas de satisfacción y del tablero (satisfactionDashboard). */
+public final class SatisfaccionDTOs {
+    private SatisfaccionDTOs() {}
+
+    /** Puntajes posibles: 1..PUNTAJE_MAXIMO (el histograma tiene una posición por puntaje) */
+    public static final int PUNTAJE_MAXIMO = 5;
+
+    public record EncuestaInput(
+            @NotNull Integer idUsuario,
+            // entrega calificada; con ella la respuesta es única por (usuario, entrega)
+            Integer idEntrega,
+            @NotNull @Min(1) @Max(PUNTAJE_MAXIMO) Integer puntaje,
+            @Size(max = 500) String comentario,
+            // si viene null se usa la hora actual
+            OffsetDateTime fecha
+    ) {}
+
+    /** Respuesta registrada, con la ciudad y el departamento del usuario al responder. */
+    public record RespuestaView(
+            Long idRespuesta,
+            Integer idUsuario,
+            Integer idEntrega,
+            Integer puntaje,
+            OffsetDateTime fecha,
+            Integer idCiudad,
+            Integer idDepartamento
+    ) {}
+
+    /** Resultado de un elemento de registrarEncuestas: la respuesta o el error que la descartó. */
+    public record RegistroEncuestaResult(
+            int index,
+            RespuestaView respuesta,
+            ItemError error
+    ) {
+        public static RegistroEncuestaResult ok(int index, RespuestaView respuesta) {
+            return new RegistroEncuestaResult(index, respuesta, null);
+        }
+
+        public static RegistroEncuestaResult failed(int index, ItemError error) {
+            return new RegistroEncuestaResult(index, null, error);
+        }
+    }
+
+    /** Días (UTC), ambos inclusive. */
+    public record RangoFechas(
+            @NotNull LocalDate desde,
+            @NotNull LocalDate hasta
+    ) {}
+
+    /** Dimensiones del tablero; a lo sumo una temporal. CIUDAD incluye su departamento. */
+    public enum AgrupacionSatisfaccion {
+        DIA,
+        SEMANA,
+        MES,
+        DEPARTAMENTO,
+        CIUDAD;
+
+        public boolean temporal() {
+            return this == DIA || this == SEMANA || this == MES;
+        }
+    }
+
+    /**
+     * Métricas de un grupo. periodo es el primer día del día/semana/mes (null si no se agrupa por
+     * tiempo); ciudad y departamento son null si no se agrupa por ellos. promedio y satisfechos
+     * (proporción de puntajes 4 y 5) son null sin respuestas; histograma[i] = respuestas con
+     * puntaje i + 1.
+     */
+    public record GrupoSatisfaccion(
+            LocalDate periodo,
+            Integer idDepartamento,
+            String nombreDepartamento,
+            Integer idCiudad,
+            String nombreCiudad,
+            long respuestas,
+            Double promedio,
+            Double satisfechos,
+            List<Long> histograma
+    ) {}
+
+    public record SatisfactionDashboard(
+            LocalDate desde,
+            LocalDate hasta,
+            GrupoSatisfaccion total,
+            List<GrupoSatisfaccion> grupos
+    ) {}
+}
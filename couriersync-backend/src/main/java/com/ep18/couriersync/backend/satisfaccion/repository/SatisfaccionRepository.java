@@ -0,0 +1,169 @@
+package com.ep18.couriersync.backend.satisfaccion.repository;
+
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.AgrupacionSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.EncuestaInput;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RespuestaView;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Respuestas de encuestas y sus agregados diarios (V14) en SQL nativo. Registrar es una sola
+ * sentencia que inserta las respuestas y suma cada una a su fila de tblsatisfaccion_diaria, así
+ * los agregados nunca quedan atrás de las respuestas. El tablero solo lee los agregados.
+ */
+@Repository
+public class SatisfaccionRepository {
+
+    /** Resultado de una entrada de registrar; respuesta es null si no se insertó */
+    public record Registro(int indice, boolean usuarioExiste, RespuestaView respuesta) {}
+
+    /** Suma de los agregados diarios de un grupo; las dimensiones por las que no se agrupa son null */
+    public record Agregado(LocalDate periodo, Integer idDepartamento, Integer idCiudad,
+                           long respuestas, long suma, List<Long> histograma) {}
+
+    /**
+     * entrada: las encuestas con la ciudad y el departamento actuales del usuario (null si no
+     * existe) y el id ya reservado, para unir cada entrada con su fila insertada. Las que chocan
+     * con respuesta_entrega_unica no se insertan ni se suman. Los agregados se insertan en orden
+     * de clave: dos lotes concurrentes bloquean sus filas en el mismo orden y no se interbloquean.
+     */
+    private static final String REGISTRAR = """
+            with entrada as (
+                select e.indice, e.id_usuario, e.id_entrega, e.puntaje, e.comentario,
+                       coalesce(e.fecha, now()) as fecha, u.ciudad, u.departamento,
+                       nextval(pg_get_serial_sequence('public.tblsatisfaccion_respuestas', 'id_respuesta'))
+                           as id_respuesta
+                from unnest(?::int[], ?::int[], ?::int[], ?::text[], ?::timestamptz[]) with ordinality
+                         as e(id_usuario, id_entrega, puntaje, comentario, fecha, indice)
+                left join public.tblusuarios u on u.id_usuario = e.id_usuario
+            ), nuevas as (
+                insert into public.tblsatisfaccion_respuestas
+                    (id_respuesta, id_usuario, id_entrega, puntaje, comentario, fecha, ciudad, departamento)
+                select id_respuesta, id_usuario, id_entrega, puntaje, comentario, fecha, ciudad, departamento
+                from entrada
+                where ciudad is not null
+                order by indice
+                on conflict (id_usuario, id_entrega) do nothing
+                returning id_respuesta, puntaje, fecha, ciudad, departamento
+            ), acumulado as (
+                insert into public.tblsatisfaccion_diaria as d
+                    (dia, ciudad, departamento, respuestas, suma, p1, p2, p3, p4, p5)
+                select (fecha at time zone 'UTC')::date, ciudad, departamento, count(*), sum(puntaje),
+                       count(*) filter (where puntaje = 1), count(*) filter (where puntaje = 2),
+                       count(*) filter (where puntaje = 3), count(*) filter (where puntaje = 4),
+                       count(*) filter (where puntaje = 5)
+                from nuevas
+                group by 1, 2, 3
+                order by 1, 2, 3
+                on conflict (dia, ciudad, departamento) do update
+                set respuestas = d.respuestas + excluded.respuestas, suma = d.suma + excluded.suma,
+                    p1 = d.p1 + excluded.p1, p2 = d.p2 + excluded.p2, p3 = d.p3 + excluded.p3,
+                    p4 = d.p4 + excluded.p4, p5 = d.p5 + excluded.p5
+            )
+            select e.indice, e.ciudad is not null as usuario_existe, n.id_respuesta, e.id_usuario,
+                   e.id_entrega, n.puntaje, n.fecha, n.ciudad, n.departamento
+            from entrada e
+            left join nuevas n on n.id_respuesta = e.id_respuesta
+            order by e.indice""";
+
+    /**
+     * El rango va como literal (viene de LocalDate, no de texto del cliente): con parámetros, tras
+     * unas ejecuciones el driver reutiliza un plan genérico que supone un rango corto y, para un
+     * año entero, recorre el índice y ordena en disco en lugar de leer la tabla.
+     */
+    private static final String AGREGADOS = """
+            select %s as periodo, %s as departamento, %s as ciudad,
+                   sum(respuestas) as respuestas, sum(suma) as suma,
+                   sum(p1) as p1, sum(p2) as p2, sum(p3) as p3, sum(p4) as p4, sum(p5) as p5
+            from public.tblsatisfaccion_diaria
+            where dia between date '%s' and date '%s'%s
+            %s""";
+
+    private final JdbcTemplate jdbc;
+
+    public SatisfaccionRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Registra las encuestas y actualiza sus agregados; un Registro por entrada, en el mismo orden. */
+    public List<Registro> registrar(List<EncuestaInput> entradas) {
+        int n = entradas.size();
+        Integer[] usuarios = new Integer[n];
+        Integer[] entregas = new Integer[n];
+        Integer[] puntajes = new Integer[n];
+        String[] comentarios = new String[n];
+        String[] fechas = new String[n];
+        for (int i = 0; i < n; i++) {
+            EncuestaInput e = entradas.get(i);
+            usuarios[i] = e.idUsuario();
+            entregas[i] = e.idEntrega();
+            puntajes[i] = e.puntaje();
+            comentarios[i] = e.comentario();
+            fechas[i] = e.fecha() != null ? DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(e.fecha()) : null;
+        }
+        return jdbc.query(REGISTRAR, (rs, k) -> new Registro(rs.getInt("indice") - 1,
+                        rs.getBoolean("usuario_existe"), respuesta(rs)),
+                new Object[] {usuarios, entregas, puntajes, comentarios, fechas});
+    }
+
+    /**
+     * Agregados de los días [desde, hasta] agrupados por {@code agrupar} (a lo sumo una dimensión
+     * temporal), opcionalmente de un departamento o una ciudad. Sin dimensiones, una fila con el
+     * total del rango. SEMANA y MES empiezan en lunes y día 1; solo suman los días del rango.
+     */
+    public List<Agregado> agregados(LocalDate desde, LocalDate hasta, Collection<AgrupacionSatisfaccion> agrupar,
+                                    Integer idDepartamento, Integer idCiudad) {
+        String periodo = agrupar.contains(AgrupacionSatisfaccion.DIA) ? "dia"
+                : agrupar.contains(AgrupacionSatisfaccion.SEMANA) ? "date_trunc('week', dia::timestamp)::date"
+                : agrupar.contains(AgrupacionSatisfaccion.MES) ? "date_trunc('month', dia::timestamp)::date"
+                : null;
+        boolean porCiudad = agrupar.contains(AgrupacionSatisfaccion.CIUDAD);
+        boolean porDepartamento = porCiudad || agrupar.contains(AgrupacionSatisfaccion.DEPARTAMENTO);
+
+        List<String> grupo = new ArrayList<>();
+        if (periodo != null) grupo.add(periodo);
+        if (porDepartamento) grupo.add("departamento");
+        if (porCiudad) grupo.add("ciudad");
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder filtros = new StringBuilder();
+        if (idDepartamento != null) {
+            filtros.append(" and departamento = ?");
+            params.add(idDepartamento);
+        }
+        if (idCiudad != null) {
+            filtros.append(" and ciudad = ?");
+            params.add(idCiudad);
+        }
+        String groupBy = grupo.isEmpty() ? ""
+                : "group by " + String.join(", ", grupo) + " order by " + String.join(", ", grupo);
+        String sql = AGREGADOS.formatted(periodo != null ? periodo : "null::date",
+                porDepartamento ? "departamento" : "null::int", porCiudad ? "ciudad" : "null::int",
+                desde, hasta, filtros, groupBy);
+
+        return jdbc.query(sql, (rs, k) -> new Agregado(
+                rs.getObject("periodo", LocalDate.class),
+                rs.getObject("departamento", Integer.class),
+                rs.getObject("ciudad", Integer.class),
+                rs.getLong("respuestas"), rs.getLong("suma"),
+                List.of(rs.getLong("p1"), rs.getLong("p2"), rs.getLong("p3"), rs.getLong("p4"), rs.getLong("p5"))),
+                params.toArray());
+    }
+
+    private static RespuestaView respuesta(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id_respuesta");
+        if (rs.wasNull()) return null;
+        return new RespuestaView(id, rs.getInt("id_usuario"), rs.getObject("id_entrega", Integer.class),
+                rs.getInt("puntaje"), rs.getObject("fecha", OffsetDateTime.class),
+                rs.getInt("ciudad"), rs.getInt("departamento"));
+    }
+}
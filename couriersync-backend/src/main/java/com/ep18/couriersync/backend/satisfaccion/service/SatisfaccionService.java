@@ -0,0 +1,205 @@
+package com.ep18.couriersync.backend.satisfaccion.service;
+
+import com.ep18.couriersync.backend.common.dto.BatchDTOs.ItemError;
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.DomainException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.validator.UsuarioValidator;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.AgrupacionSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.EncuestaInput;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.GrupoSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RangoFechas;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RegistroEncuestaResult;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RespuestaView;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.SatisfactionDashboard;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository.Agregado;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository.Registro;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.PUNTAJE_MAXIMO;
+
+/**
+ * Encuestas de satisfacción y tablero de experiencia. Cada respuesta se suma en la misma
+ * sentencia a su agregado diario (día UTC × ciudad × departamento, ver V14); el tablero lee solo
+ * esos agregados y los nombres del catálogo en memoria, así su coste depende de los días y las
+ * ciudades del rango, no de cuántas respuestas haya.
+ */
+@Service
+@RequiredArgsConstructor
+public class SatisfaccionService {
+
+    /** Tope por petición de registrarEncuestas: acota el tamaño de los arreglos de la sentencia */
+    public static final int MAX_BATCH = 1000;
+
+    /** Rango máximo del tablero: por día y ciudad son a lo sumo 2 años de filas por ciudad */
+    static final int MAX_DIAS_RANGO = 731;
+
+    /** Margen para relojes de clientes algo adelantados */
+    private static final Duration TOLERANCIA_RELOJ = Duration.ofMinutes(5);
+
+    private final SatisfaccionRepository repo;
+    private final ReferenceDataCatalog catalog;
+    private final Validator validator;
+
+    /** Una respuesta; el usuario lo comprueba la propia sentencia (sin lectura previa). */
+    @Transactional
+    public RespuestaView registrar(EncuestaInput in) {
+        validarFecha(in);
+        Registro r = repo.registrar(List.of(in)).get(0);
+        if (!r.usuarioExiste()) throw new NotFoundException("Usuario no encontrado");
+        if (r.respuesta() == null) throw new ConflictException("El usuario ya calificó esa entrega");
+        return r.respuesta();
+    }
+
+    /**
+     * Registro masivo (p. ej. importación de una herramienta de encuestas): una sentencia para
+     * todo el lote. Un elemento inválido, de un usuario inexistente o que repite una entrega ya
+     * calificada se informa en su resultado sin abortar los demás.
+     */
+    @Transactional
+    public List<RegistroEncuestaResult> registrarTodas(List<EncuestaInput> inputs) {
+        if (inputs.size() > MAX_BATCH) {
+            throw new ValidationException("Máximo " + MAX_BATCH + " encuestas por lote");
+        }
+        RegistroEncuestaResult[] results = new RegistroEncuestaResult[inputs.size()];
+        List<Integer> indices = new ArrayList<>(inputs.size());
+        List<EncuestaInput> validas = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            try {
+                validar(inputs.get(i));
+                indices.add(i);
+                validas.add(inputs.get(i));
+            } catch (DomainException e) {
+                results[i] = RegistroEncuestaResult.failed(i, ItemError.of(e));
+            }
+        }
+
+        if (!validas.isEmpty()) {
+            for (Registro r : repo.registrar(validas)) {
+                int i = indices.get(r.indice());
+                if (!r.usuarioExiste()) {
+                    results[i] = RegistroEncuestaResult.failed(i,
+                            ItemError.of(new NotFoundException("Usuario no encontrado")));
+                } else if (r.respuesta() == null) {
+                    results[i] = RegistroEncuestaResult.failed(i,
+                            ItemError.of(new ConflictException("El usuario ya calificó esa entrega")));
+                } else {
+                    results[i] = RegistroEncuestaResult.ok(i, r.respuesta());
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Tablero de satisfacción de los días [desde, hasta] (UTC) agrupado por {@code groupBy}, con
+     * filtro opcional por departamento o ciudad. total resume todo lo filtrado; grupos trae solo
+     * los grupos con respuestas.
+     */
+    @Transactional(readOnly = true)
+    public SatisfactionDashboard dashboard(RangoFechas rango, List<AgrupacionSatisfaccion> groupBy,
+                                           Integer idDepartamento, Integer idCiudad) {
+        if (rango.desde().isAfter(rango.hasta())) {
+            throw new ValidationException("desde no puede ser posterior a hasta");
+        }
+        if (ChronoUnit.DAYS.between(rango.desde(), rango.hasta()) >= MAX_DIAS_RANGO) {
+            throw new ValidationException("El rango no puede superar " + MAX_DIAS_RANGO + " días");
+        }
+        Set<AgrupacionSatisfaccion> agrupar = groupBy == null || groupBy.isEmpty()
+                ? EnumSet.noneOf(AgrupacionSatisfaccion.class) : EnumSet.copyOf(groupBy);
+        if (agrupar.stream().filter(AgrupacionSatisfaccion::temporal).count() > 1) {
+            throw new ValidationException("Solo se puede agrupar por una de DIA, SEMANA o MES");
+        }
+        if (idDepartamento != null && catalog.departamento(idDepartamento).isEmpty()) {
+            throw new NotFoundException("Departamento no encontrado");
+        }
+        Integer departamento = idDepartamento;
+        if (idCiudad != null) {
+            CiudadRef ciudad = catalog.ciudad(idCiudad)
+                    .orElseThrow(() -> new NotFoundException("Ciudad no encontrada"));
+            if (idDepartamento != null) UsuarioValidator.assertCiudadPerteneceADepartamento(ciudad, idDepartamento);
+            // El departamento de la ciudad acota la lectura con idx_satisfaccion_diaria_depto_dia
+            departamento = ciudad.idDepartamento();
+        }
+
+        List<Agregado> agregados = repo.agregados(rango.desde(), rango.hasta(), agrupar, departamento, idCiudad)
+                .stream().filter(a -> a.respuestas() > 0).toList();
+
+        Map<Integer, DepartamentoRef> departamentos = catalog.departamentos(agregados.stream()
+                .map(Agregado::idDepartamento).filter(Objects::nonNull).collect(Collectors.toSet()));
+        Map<Integer, CiudadRef> ciudades = catalog.ciudades(agregados.stream()
+                .map(Agregado::idCiudad).filter(Objects::nonNull).collect(Collectors.toSet()));
+        List<GrupoSatisfaccion> grupos = agregados.stream().map(a -> {
+            DepartamentoRef d = a.idDepartamento() != null ? departamentos.get(a.idDepartamento()) : null;
+            CiudadRef c = a.idCiudad() != null ? ciudades.get(a.idCiudad()) : null;
+            return grupo(a.periodo(), a.idDepartamento(), d != null ? d.nombreDepartamento() : null,
+                    a.idCiudad(), c != null ? c.nombreCiudad() : null, a.respuestas(), a.suma(), a.histograma());
+        }).toList();
+
+        return new SatisfactionDashboard(rango.desde(), rango.hasta(), total(agregados), grupos);
+    }
+
+    /** Los grupos reparten lo filtrado sin solaparse: el total es su suma. */
+    private static GrupoSatisfaccion total(List<Agregado> agregados) {
+        long respuestas = 0;
+        long suma = 0;
+        long[] histograma = new long[PUNTAJE_MAXIMO];
+        for (Agregado a : agregados) {
+            respuestas += a.respuestas();
+            suma += a.suma();
+            for (int i = 0; i < PUNTAJE_MAXIMO; i++) histograma[i] += a.histograma().get(i);
+        }
+        return grupo(null, null, null, null, null, respuestas, suma,
+                Arrays.stream(histograma).boxed().toList());
+    }
+
+    private static GrupoSatisfaccion grupo(LocalDate periodo, Integer idDepartamento, String departamento,
+                                           Integer idCiudad, String ciudad, long respuestas, long suma,
+                                           List<Long> histograma) {
+        Double promedio = respuestas > 0 ? (double) suma / respuestas : null;
+        Double satisfechos = respuestas > 0
+                ? (double) (histograma.get(PUNTAJE_MAXIMO - 2) + histograma.get(PUNTAJE_MAXIMO - 1)) / respuestas
+                : null;
+        return new GrupoSatisfaccion(periodo, idDepartamento, departamento, idCiudad, ciudad, respuestas,
+                promedio, satisfechos, histograma);
+    }
+
+    private void validar(EncuestaInput in) {
+        Set<ConstraintViolation<EncuestaInput>> violations = validator.validate(in);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        validarFecha(in);
+    }
+
+    private static void validarFecha(EncuestaInput in) {
+        if (in.fecha() != null && in.fecha().isAfter(OffsetDateTime.now().plus(TOLERANCIA_RELOJ))) {
+            throw new ValidationException("La fecha de la encuesta no puede ser futura");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+-- Historial de entregas por usuario (módulo historial). La consulta principal es la línea de
+-- tiempo de un cliente, de la más reciente hacia atrás y paginada por cursor (fecha, id_entrega).
+CREATE TABLE public.tblhistorial_entregas (
+    id_entrega  INTEGER      GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id_usuario  INTEGER      NOT NULL,
+    fecha       TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    estado      VARCHAR(20)  NOT NULL,
+    observacion VARCHAR(200),
+    created_at  TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at  TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    CONSTRAINT usuario_entrega FOREIGN KEY (id_usuario) REFERENCES public.tblusuarios (id_usuario),
+    CONSTRAINT estado_entrega CHECK (estado IN ('REGISTRADA', 'EN_CAMINO', 'ENTREGADA', 'DEVUELTA', 'CANCELADA'))
+);
+
+-- Índice de cobertura de la línea de tiempo: igualdad por usuario, orden (fecha desc, id desc)
+-- ya resuelto por el índice y las columnas de la página en INCLUDE, así cada página es un
+-- Index Only Scan de a lo sumo first + 1 entradas sin visitar el heap, sin importar cuántas
+-- entregas tenga el cliente. También sirve a la FK al borrar usuarios.
+CREATE INDEX idx_historial_usuario_fecha_id
+    ON public.tblhistorial_entregas (id_usuario, fecha DESC, id_entrega DESC)
+    INCLUDE (estado, observacion);
+
+CREATE TRIGGER tg_historial_entregas_updated_at BEFORE UPDATE ON public.tblhistorial_entregas
+    FOR EACH ROW EXECUTE FUNCTION public.tg_set_updated_at();
@@ -0,0 +1,37 @@
+-- Cambios de estado de las entregas: registro de eventos de solo inserción más el estado actual
+-- proyectado en tblhistorial_entregas. Ambos se escriben en la misma sentencia (CTE en
+-- EntregaRepositoryCustomImpl.cambiarEstado), así las lecturas usan la fila de la entrega sin
+-- reproducir eventos y el registro nunca queda desalineado con la proyección.
+
+-- Estado actual: quién y cuándo marcó la entrega como ENTREGADA
+ALTER TABLE public.tblhistorial_entregas
+    ADD COLUMN entregado_en  TIMESTAMPTZ,
+    ADD COLUMN entregado_por VARCHAR(100);
+
+-- Registro de eventos. Sin FK a tblhistorial_entregas: la entrega ya está bloqueada por la misma
+-- sentencia y la FK solo añadiría un KEY SHARE y una búsqueda por inserción. Sin UPDATE ni
+-- DELETE (trigger abajo): las inserciones de agentes distintos no compiten por ninguna fila.
+CREATE TABLE public.tblentrega_eventos (
+    id_evento       BIGINT       GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id_entrega      INTEGER      NOT NULL,
+    estado_anterior VARCHAR(20)  NOT NULL,
+    estado          VARCHAR(20)  NOT NULL,
+    responsable     VARCHAR(100) NOT NULL,
+    fecha           TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    observacion     VARCHAR(200)
+);
+
+-- Eventos de una entrega en orden de registro (eventosEntrega)
+CREATE INDEX idx_entrega_eventos_entrega ON public.tblentrega_eventos (id_entrega, id_evento);
+
+CREATE FUNCTION public.tg_solo_insercion() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    RAISE EXCEPTION '% es de solo inserción', TG_TABLE_NAME
+        USING ERRCODE = 'restrict_violation';
+END;
+$$;
+
+CREATE TRIGGER tg_entrega_eventos_solo_insercion BEFORE UPDATE OR DELETE ON public.tblentrega_eventos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_solo_insercion();
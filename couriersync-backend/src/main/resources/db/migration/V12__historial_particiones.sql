@@ -0,0 +1,79 @@
+-- tblhistorial_entregas particionada por rango mensual de fecha (meses UTC). Cada mes es una
+-- tabla propia: vacuum e índices por partición no crecen con todo el historial, las consultas
+-- por ventana de fechas solo tocan los meses que cubren y los meses antiguos se desvinculan
+-- (DETACH) sin DELETE masivo. HistorialPartitionManager crea los meses futuros por adelantado
+-- y desvincula los que salen de la retención. Sin partición DEFAULT: con ella PostgreSQL no
+-- puede recorrer las particiones en orden de fecha (Append ordenado) para la línea de tiempo,
+-- y cada mes nuevo tendría que revisarla entera.
+
+ALTER TABLE public.tblhistorial_entregas RENAME TO tblhistorial_entregas_v11;
+ALTER INDEX public.tblhistorial_entregas_pkey RENAME TO tblhistorial_entregas_v11_pkey;
+ALTER INDEX public.idx_historial_usuario_fecha_id RENAME TO idx_historial_v11_usuario_fecha_id;
+ALTER SEQUENCE public.tblhistorial_entregas_id_entrega_seq RENAME TO tblhistorial_entregas_v11_id_entrega_seq;
+
+-- Ids desde una secuencia propia: la clave de partición tiene que estar en la PK, así que
+-- id_entrega ya no es único por sí mismo para la BD; la secuencia lo sigue garantizando.
+CREATE SEQUENCE public.tblhistorial_entregas_id_entrega_seq AS INTEGER;
+
+CREATE TABLE public.tblhistorial_entregas (
+    id_entrega    INTEGER      NOT NULL DEFAULT nextval('public.tblhistorial_entregas_id_entrega_seq'),
+    id_usuario    INTEGER      NOT NULL,
+    fecha         TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    estado        VARCHAR(20)  NOT NULL,
+    observacion   VARCHAR(200),
+    created_at    TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at    TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    entregado_en  TIMESTAMPTZ,
+    entregado_por VARCHAR(100),
+    CONSTRAINT tblhistorial_entregas_pkey PRIMARY KEY (id_entrega, fecha),
+    CONSTRAINT usuario_entrega FOREIGN KEY (id_usuario) REFERENCES public.tblusuarios (id_usuario),
+    CONSTRAINT estado_entrega CHECK (estado IN ('REGISTRADA', 'EN_CAMINO', 'ENTREGADA', 'DEVUELTA', 'CANCELADA'))
+) PARTITION BY RANGE (fecha);
+
+ALTER SEQUENCE public.tblhistorial_entregas_id_entrega_seq OWNED BY public.tblhistorial_entregas.id_entrega;
+
+-- Mismo índice de cobertura que en V10, ahora uno por partición
+CREATE INDEX idx_historial_usuario_fecha_id
+    ON public.tblhistorial_entregas (id_usuario, fecha DESC, id_entrega DESC)
+    INCLUDE (estado, observacion);
+
+CREATE TRIGGER tg_historial_entregas_updated_at BEFORE UPDATE ON public.tblhistorial_entregas
+    FOR EACH ROW EXECUTE FUNCTION public.tg_set_updated_at();
+
+-- Crea (si no existe) la partición del mes de "mes": tblhistorial_entregas_pAAAAMM con límites
+-- [primer día del mes, primer día del mes siguiente) en UTC. Devuelve true si la creó.
+CREATE FUNCTION public.historial_crear_particion(mes DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    inicio DATE := date_trunc('month', mes)::date;
+    nombre TEXT := 'tblhistorial_entregas_p' || to_char(mes, 'YYYYMM');
+BEGIN
+    IF to_regclass('public.' || nombre) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE public.%I PARTITION OF public.tblhistorial_entregas '
+                       || 'FOR VALUES FROM (%L) TO (%L)',
+                   nombre,
+                   inicio::timestamp AT TIME ZONE 'UTC',
+                   (inicio + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC');
+    RETURN true;
+END;
+$$;
+
+-- Meses con datos y, desde el actual, tres por delante (después los mantiene la aplicación)
+SELECT public.historial_crear_particion(m::date)
+FROM generate_series(
+        date_trunc('month', LEAST(COALESCE((SELECT min(fecha) FROM public.tblhistorial_entregas_v11), now()), now())
+                                AT TIME ZONE 'UTC'),
+        date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months',
+        INTERVAL '1 month') AS m;
+
+INSERT INTO public.tblhistorial_entregas
+SELECT id_entrega, id_usuario, fecha, estado, observacion, created_at, updated_at, entregado_en, entregado_por
+FROM public.tblhistorial_entregas_v11;
+
+SELECT setval('public.tblhistorial_entregas_id_entrega_seq',
+              COALESCE((SELECT max(id_entrega) FROM public.tblhistorial_entregas), 0) + 1, false);
+
+DROP TABLE public.tblhistorial_entregas_v11;
@@ -0,0 +1,53 @@
+-- Campañas de promoción persistentes (PromoService.crearCampana, CampanaWorker). Los
+-- destinatarios del segmento se copian al crearla y se reparten en lotes; cualquier instancia
+-- toma un lote con FOR UPDATE SKIP LOCKED y lo retiene por un plazo (vence_en), no con un
+-- bloqueo abierto. Si la instancia muere, al vencer el plazo otra lo retoma desde los
+-- destinatarios que aún no constan como enviados.
+CREATE TABLE public.tblcampanas (
+    id_campana    BIGINT       GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    asunto        TEXT         NOT NULL,
+    html          TEXT         NOT NULL,
+    total         INTEGER      NOT NULL DEFAULT 0,
+    created_at    TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    -- Sin lotes pendientes ni en curso
+    terminada_en  TIMESTAMPTZ
+);
+
+CREATE TABLE public.tblcampana_lotes (
+    id_campana    BIGINT       NOT NULL REFERENCES public.tblcampanas ON DELETE CASCADE,
+    lote          INTEGER      NOT NULL,
+    estado        VARCHAR(10)  NOT NULL DEFAULT 'PENDIENTE'
+                  CHECK (estado IN ('PENDIENTE', 'EN_CURSO', 'HECHO', 'FALLIDO')),
+    -- Veces que se tomó; con el id del lote identifica a quién lo tiene (un dueño anterior cuyo
+    -- plazo venció ya no puede cerrarlo ni renovarlo)
+    intentos      INTEGER      NOT NULL DEFAULT 0,
+    disponible_en TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    tomado_por    VARCHAR(100),
+    vence_en      TIMESTAMPTZ,
+    ultimo_error  TEXT,
+    PRIMARY KEY (id_campana, lote)
+);
+
+-- La cola: lotes listos por orden de disponibilidad, y plazos vencidos
+CREATE INDEX ix_campana_lotes_pendientes ON public.tblcampana_lotes (disponible_en)
+    WHERE estado = 'PENDIENTE';
+CREATE INDEX ix_campana_lotes_en_curso ON public.tblcampana_lotes (vence_en)
+    WHERE estado = 'EN_CURSO';
+
+-- Una fila por (campaña, usuario): un usuario no entra dos veces en la misma campaña, y marcarlo
+-- enviado es un UPDATE condicionado a que siga pendiente. Sin FK a tblusuarios: un usuario
+-- borrado después simplemente no se envía.
+CREATE TABLE public.tblcampana_destinatarios (
+    id_campana  BIGINT       NOT NULL REFERENCES public.tblcampanas ON DELETE CASCADE,
+    id_usuario  INTEGER      NOT NULL,
+    lote        INTEGER      NOT NULL,
+    estado      VARCHAR(10)  NOT NULL DEFAULT 'PENDIENTE'
+                CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'FALLIDO')),
+    intentos    INTEGER      NOT NULL DEFAULT 0,
+    enviado_en  TIMESTAMPTZ,
+    error       TEXT,
+    PRIMARY KEY (id_campana, id_usuario)
+);
+
+CREATE INDEX ix_campana_destinatarios_lote ON public.tblcampana_destinatarios (id_campana, lote, id_usuario)
+    WHERE estado = 'PENDIENTE';
@@ -0,0 +1,43 @@
+-- Encuestas de satisfacción (módulo satisfaccion). Cada respuesta guarda la ciudad y el
+-- departamento del usuario al responder: las métricas quedan donde estaba el cliente aunque
+-- luego cambie de dirección o se elimine (por eso no hay FK a tblusuarios).
+CREATE TABLE public.tblsatisfaccion_respuestas (
+    id_respuesta  BIGINT        GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id_usuario    INTEGER       NOT NULL,
+    -- Entrega calificada (opcional). Sin FK: tblhistorial_entregas está particionada por fecha
+    id_entrega    INTEGER,
+    puntaje       SMALLINT      NOT NULL CHECK (puntaje BETWEEN 1 AND 5),
+    comentario    VARCHAR(500),
+    fecha         TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    ciudad        INTEGER       NOT NULL,
+    departamento  INTEGER       NOT NULL,
+    created_at    TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    -- Una calificación por entrega: reenviar la misma encuesta no la cuenta dos veces. Las
+    -- respuestas sin entrega (NULL) no se restringen
+    CONSTRAINT respuesta_entrega_unica UNIQUE (id_usuario, id_entrega)
+);
+
+-- Agregados por día (UTC) × ciudad × departamento, al día con cada respuesta: los inserta o
+-- suma la misma sentencia que registra las respuestas (SatisfaccionRepository.registrar). El
+-- tablero solo lee esta tabla; agrupar por semana, mes, ciudad o departamento suma a lo sumo
+-- días × ciudades filas, sin importar cuántas respuestas haya. p1..p5 es el histograma de
+-- puntajes; suma / respuestas el promedio.
+CREATE TABLE public.tblsatisfaccion_diaria (
+    dia           DATE     NOT NULL,
+    ciudad        INTEGER  NOT NULL,
+    departamento  INTEGER  NOT NULL,
+    respuestas    BIGINT   NOT NULL,
+    suma          BIGINT   NOT NULL,
+    p1            BIGINT   NOT NULL DEFAULT 0,
+    p2            BIGINT   NOT NULL DEFAULT 0,
+    p3            BIGINT   NOT NULL DEFAULT 0,
+    p4            BIGINT   NOT NULL DEFAULT 0,
+    p5            BIGINT   NOT NULL DEFAULT 0,
+    PRIMARY KEY (dia, ciudad, departamento),
+    CONSTRAINT histograma_cuadra CHECK (p1 + p2 + p3 + p4 + p5 = respuestas
+                                        AND p1 + 2 * p2 + 3 * p3 + 4 * p4 + 5 * p5 = suma)
+);
+
+-- Tablero filtrado por departamento (o ciudad) dentro de un rango de días
+CREATE INDEX idx_satisfaccion_diaria_depto_dia
+    ON public.tblsatisfaccion_diaria (departamento, dia);
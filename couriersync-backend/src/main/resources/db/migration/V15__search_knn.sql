@@ -0,0 +1,9 @@
+-- Búsqueda por relevancia: índices GiST trigrama sobre las claves normalizadas. Además del
+-- like '%q%' resuelven order by nombre_busqueda <-> q (distancia = 1 - similarity) recorriendo
+-- el índice de la fila más parecida a la menos, así el tope de candidatos conserva las mejores.
+-- Los GIN de V3 siguen sirviendo al filtro por subcadena sin orden por relevancia.
+CREATE INDEX IF NOT EXISTS idx_usuarios_busqueda_gist
+    ON public.tblusuarios USING gist (nombre_busqueda gist_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_ciudades_busqueda_gist
+    ON public.tblciudades USING gist (nombre_busqueda gist_trgm_ops);
@@ -0,0 +1,61 @@
+-- Interruptor de los triggers del outbox (V9). Sin relay nadie vacía tbloutbox, así que apagado
+-- (lo normal: app.outbox.enabled=false) los triggers no escriben nada. La aplicación lo deja
+-- igual a app.outbox.enabled al arrancar; una sola fila, leída una vez por sentencia.
+CREATE TABLE public.tbloutbox_estado (
+    unica  BOOLEAN PRIMARY KEY DEFAULT true CHECK (unica),
+    activo BOOLEAN NOT NULL DEFAULT false
+);
+INSERT INTO public.tbloutbox_estado DEFAULT VALUES;
+
+CREATE OR REPLACE FUNCTION public.tg_outbox_usuarios() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF NOT (SELECT activo FROM public.tbloutbox_estado) THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'usuario', n.id_usuario, 'usuario.created', public.outbox_usuario_payload(n)
+        FROM nuevos n ORDER BY n.id_usuario;
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- Solo filas con cambios visibles en el evento (no nombre_busqueda ni marcas de auditoría)
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'usuario', n.id_usuario, 'usuario.updated', public.outbox_usuario_payload(n)
+        FROM nuevos n JOIN viejos v USING (id_usuario)
+        WHERE public.outbox_usuario_payload(n) IS DISTINCT FROM public.outbox_usuario_payload(v)
+        ORDER BY n.id_usuario;
+    ELSE
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'usuario', v.id_usuario, 'usuario.deleted', jsonb_build_object('idUsuario', v.id_usuario)
+        FROM viejos v ORDER BY v.id_usuario;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION public.tg_outbox_ciudades() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF NOT (SELECT activo FROM public.tbloutbox_estado) THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'ciudad', n.id_ciudad, 'ciudad.created', public.outbox_ciudad_payload(n)
+        FROM nuevos n ORDER BY n.id_ciudad;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'ciudad', n.id_ciudad, 'ciudad.updated', public.outbox_ciudad_payload(n)
+        FROM nuevos n JOIN viejos v USING (id_ciudad)
+        WHERE public.outbox_ciudad_payload(n) IS DISTINCT FROM public.outbox_ciudad_payload(v)
+        ORDER BY n.id_ciudad;
+    ELSE
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'ciudad', v.id_ciudad, 'ciudad.deleted', jsonb_build_object('idCiudad', v.id_ciudad)
+        FROM viejos v ORDER BY v.id_ciudad;
+    END IF;
+    RETURN NULL;
+END
+$$;
@@ -1,4 +1,55 @@
-CREATE TABLE tblciudades (
-    id SERIAL PRIMARY KEY,
-    nombre VARCHAR(100) NOT NULL
+-- Esquema base del módulo customers, tal como lo espera el modelo JPA (ddl-auto: validate).
+-- Las columnas nombre_busqueda llegan en V3 y los índices compuestos de tblusuarios en V4.
+CREATE TABLE public.tbldepartamentos (
+    id_departamento     INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre_departamento VARCHAR(30) NOT NULL
 );
+
+CREATE TABLE public.tblroles (
+    id_rol     INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre_rol VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE public.tblciudades (
+    id_ciudad     INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre_ciudad VARCHAR(30) NOT NULL,
+    departamento  INTEGER     NOT NULL,
+    CONSTRAINT departamento_ciudad FOREIGN KEY (departamento)
+        REFERENCES public.tbldepartamentos (id_departamento)
+);
+
+CREATE TABLE public.tblusuarios (
+    id_usuario        INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre            VARCHAR(50)  NOT NULL,
+    correo            VARCHAR(100) NOT NULL,
+    telefono          VARCHAR(10)  NOT NULL,
+    fecha_registro    DATE         NOT NULL,
+    detalle_direccion VARCHAR(100) NOT NULL,
+    ciudad            INTEGER      NOT NULL,
+    departamento      INTEGER      NOT NULL,
+    rol               INTEGER      NOT NULL,
+    CONSTRAINT ciudad_usuario FOREIGN KEY (ciudad) REFERENCES public.tblciudades (id_ciudad),
+    CONSTRAINT departamento_usuario FOREIGN KEY (departamento) REFERENCES public.tbldepartamentos (id_departamento),
+    CONSTRAINT rol_usuario FOREIGN KEY (rol) REFERENCES public.tblroles (id_rol)
+);
+
+-- FK de ciudades + listado por departamento ordenado por nombre (findAllByDepartamento_IdDepartamento)
+CREATE INDEX idx_ciudades_departamento_nombre_id
+    ON public.tblciudades (departamento, nombre_ciudad, id_ciudad);
+
+-- Búsquedas sin distinción de mayúsculas: los repositorios comparan lower(col) = lower(:valor).
+-- Es además la única unicidad del correo: un UNIQUE (correo) exacto sería redundante.
+CREATE UNIQUE INDEX ux_usuarios_correo_lower
+    ON public.tblusuarios (lower(correo));
+CREATE INDEX idx_ciudades_departamento_nombre_lower
+    ON public.tblciudades (departamento, lower(nombre_ciudad));
+CREATE INDEX idx_departamentos_nombre_lower
+    ON public.tbldepartamentos (lower(nombre_departamento));
+CREATE INDEX idx_roles_nombre_lower
+    ON public.tblroles (lower(nombre_rol));
+
+-- Orden de los listados paginados
+CREATE INDEX idx_departamentos_nombre_id
+    ON public.tbldepartamentos (nombre_departamento, id_departamento);
+CREATE INDEX idx_roles_nombre_id
+    ON public.tblroles (nombre_rol, id_rol);
@@ -0,0 +1,5 @@
+-- Búsqueda por subcadena (like '%q%') indexada con trigramas.
+-- Un B-tree no sirve para comodines al inicio; GIN + gin_trgm_ops sí, y además
+-- habilita similarity() para ordenar por relevancia. Los índices se crean en V3,
+-- directamente sobre las claves normalizadas (nombre_busqueda) que compara la búsqueda.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,21 @@
+-- Claves de búsqueda normalizadas (minúsculas, sin tildes, espacios colapsados).
+-- La aplicación las mantiene al escribir (SearchKeys.normalize); aquí solo se rellenan
+-- las filas existentes. unaccent se usa únicamente para este relleno.
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+ALTER TABLE public.tblusuarios ADD COLUMN IF NOT EXISTS nombre_busqueda VARCHAR(50);
+UPDATE public.tblusuarios
+   SET nombre_busqueda = btrim(regexp_replace(lower(unaccent(nombre)), '\s+', ' ', 'g'));
+ALTER TABLE public.tblusuarios ALTER COLUMN nombre_busqueda SET NOT NULL;
+
+ALTER TABLE public.tblciudades ADD COLUMN IF NOT EXISTS nombre_busqueda VARCHAR(30);
+UPDATE public.tblciudades
+   SET nombre_busqueda = btrim(regexp_replace(lower(unaccent(nombre_ciudad)), '\s+', ' ', 'g'));
+ALTER TABLE public.tblciudades ALTER COLUMN nombre_busqueda SET NOT NULL;
+
+-- Índices trigrama (pg_trgm, V2) sobre la columna normalizada: la búsqueda no aplica funciones por fila
+CREATE INDEX IF NOT EXISTS idx_usuarios_busqueda_trgm
+    ON public.tblusuarios USING gin (nombre_busqueda gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_ciudades_busqueda_trgm
+    ON public.tblciudades USING gin (nombre_busqueda gin_trgm_ops);
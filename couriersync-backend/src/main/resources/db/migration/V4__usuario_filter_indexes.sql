@@ -0,0 +1,26 @@
+-- Índices compuestos para el filtro combinado de usuarios y la paginación keyset.
+-- Igualdad (ciudad | departamento | rol) primero, luego la columna de orden y el id como desempate:
+-- cada combinación filtro+orden se resuelve con un Index Scan que ya entrega las filas ordenadas
+-- (el LIMIT corta sin ordenar en memoria). El fragmento de nombre usa el GIN trigrama (V3).
+-- Las columnas iniciales cubren además las FKs ciudad/departamento/rol.
+CREATE INDEX IF NOT EXISTS idx_usuarios_nombre_id
+    ON public.tblusuarios (nombre, id_usuario);
+CREATE INDEX IF NOT EXISTS idx_usuarios_ciudad_nombre_id
+    ON public.tblusuarios (ciudad, nombre, id_usuario);
+CREATE INDEX IF NOT EXISTS idx_usuarios_departamento_nombre_id
+    ON public.tblusuarios (departamento, nombre, id_usuario);
+CREATE INDEX IF NOT EXISTS idx_usuarios_rol_nombre_id
+    ON public.tblusuarios (rol, nombre, id_usuario);
+
+CREATE INDEX IF NOT EXISTS idx_usuarios_fecha_id
+    ON public.tblusuarios (fecha_registro, id_usuario);
+CREATE INDEX IF NOT EXISTS idx_usuarios_ciudad_fecha_id
+    ON public.tblusuarios (ciudad, fecha_registro, id_usuario);
+CREATE INDEX IF NOT EXISTS idx_usuarios_departamento_fecha_id
+    ON public.tblusuarios (departamento, fecha_registro, id_usuario);
+CREATE INDEX IF NOT EXISTS idx_usuarios_rol_fecha_id
+    ON public.tblusuarios (rol, fecha_registro, id_usuario);
+
+-- Paginación keyset de ciudades
+CREATE INDEX IF NOT EXISTS idx_ciudades_nombre_id
+    ON public.tblciudades (nombre_ciudad, id_ciudad);
@@ -0,0 +1,16 @@
+-- Ids de usuario desde una secuencia con INCREMENT BY 50: Hibernate reserva bloques de 50 ids
+-- (optimizador pooled, allocationSize = 50 en Usuario) y puede agrupar los INSERT en lotes JDBC,
+-- cosa que IDENTITY impide. El DEFAULT sigue sirviendo a los INSERT manuales: cada nextval es
+-- el tope de un bloque que Hibernate nunca recibe, así que no hay choques.
+ALTER TABLE public.tblusuarios ALTER COLUMN id_usuario DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE public.tblusuarios_id_usuario_seq
+    INCREMENT BY 50
+    OWNED BY public.tblusuarios.id_usuario;
+
+-- pooled usa (v - 49 .. v): el primer valor debe quedar al menos 50 por encima del máximo actual
+SELECT setval('public.tblusuarios_id_usuario_seq',
+              COALESCE((SELECT max(id_usuario) FROM public.tblusuarios), 0) + 50, false);
+
+ALTER TABLE public.tblusuarios
+    ALTER COLUMN id_usuario SET DEFAULT nextval('public.tblusuarios_id_usuario_seq');
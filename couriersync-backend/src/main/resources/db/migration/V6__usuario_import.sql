@@ -0,0 +1,19 @@
+-- Importaciones masivas de usuarios (POST /api/usuarios/import) y su reporte de rechazos.
+-- Las filas válidas se cargan con COPY en una tabla temporal por importación y se fusionan en
+-- tblusuarios con SQL por conjuntos; aquí solo queda el resumen y lo rechazado.
+CREATE TABLE public.tblimportaciones_usuarios (
+    id_importacion UUID        PRIMARY KEY,
+    formato        VARCHAR(10) NOT NULL,
+    fecha          TIMESTAMPTZ NOT NULL DEFAULT now(),
+    total          INTEGER     NOT NULL,
+    insertados     INTEGER     NOT NULL,
+    rechazados     INTEGER     NOT NULL
+);
+
+CREATE TABLE public.tblimportaciones_rechazos (
+    id_importacion UUID    NOT NULL REFERENCES public.tblimportaciones_usuarios (id_importacion) ON DELETE CASCADE,
+    linea          INTEGER NOT NULL,
+    motivo         TEXT    NOT NULL,
+    contenido      TEXT,
+    PRIMARY KEY (id_importacion, linea)
+);
@@ -0,0 +1,16 @@
+-- Unicidad de nombres sin distinción de mayúsculas en los catálogos (ciudad por departamento,
+-- departamento, rol). Hasta ahora solo la comprobaban los servicios con una consulta previa;
+-- con índices únicos las actualizaciones son una sola sentencia y el duplicado se reconoce por
+-- el nombre del índice (ConstraintViolations). Mismas columnas que los índices que reemplazan,
+-- así que las búsquedas lower(col) = lower(:valor) siguen resolviéndose por índice.
+DROP INDEX IF EXISTS public.idx_ciudades_departamento_nombre_lower;
+CREATE UNIQUE INDEX ux_ciudades_departamento_nombre_lower
+    ON public.tblciudades (departamento, lower(nombre_ciudad));
+
+DROP INDEX IF EXISTS public.idx_departamentos_nombre_lower;
+CREATE UNIQUE INDEX ux_departamentos_nombre_lower
+    ON public.tbldepartamentos (lower(nombre_departamento));
+
+DROP INDEX IF EXISTS public.idx_roles_nombre_lower;
+CREATE UNIQUE INDEX ux_roles_nombre_lower
+    ON public.tblroles (lower(nombre_rol));
@@ -0,0 +1,85 @@
+-- Marcas de auditoría persistidas (AuditableEntity) y feed de cambios de usuarios
+-- (usuariosChangedSince) para sincronización incremental.
+--
+-- created_at/updated_at los mantiene la BD: DEFAULT al insertar y trigger al actualizar, de modo
+-- que cubren también las escrituras en SQL (UPDATE ... RETURNING, importación con COPY).
+-- Las filas existentes toman la hora de la migración (DEFAULT estable: sin reescribir la tabla).
+ALTER TABLE public.tbldepartamentos
+    ADD COLUMN created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE public.tblroles
+    ADD COLUMN created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+ALTER TABLE public.tblciudades
+    ADD COLUMN created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+-- txid_cambio: transacción de la última escritura de la fila. El feed ordena por (txid_cambio,
+-- id_usuario) y solo entrega transacciones anteriores a pg_snapshot_xmin (todas terminadas), así
+-- una transacción lenta que confirma tarde nunca queda detrás de un cursor ya entregado, cosa que
+-- sí puede pasar ordenando por updated_at (hora de inicio de la transacción, no de confirmación).
+-- Las filas existentes quedan con txid 0: entran al principio del feed.
+ALTER TABLE public.tblusuarios
+    ADD COLUMN created_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN updated_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN txid_cambio XID8        NOT NULL DEFAULT '0';
+ALTER TABLE public.tblusuarios
+    ALTER COLUMN txid_cambio SET DEFAULT pg_current_xact_id();
+
+CREATE INDEX idx_usuarios_txid_cambio_id
+    ON public.tblusuarios (txid_cambio, id_usuario);
+-- Consultas por fecha de última modificación (cargas analíticas acotadas por rango)
+CREATE INDEX idx_usuarios_updated_at
+    ON public.tblusuarios (updated_at);
+
+-- Lápidas: usuarios eliminados, en el mismo orden de transacción que tblusuarios
+CREATE TABLE public.tblusuarios_eliminados (
+    id_usuario  INTEGER     PRIMARY KEY,
+    deleted_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    txid_cambio XID8        NOT NULL DEFAULT pg_current_xact_id()
+);
+
+CREATE INDEX idx_usuarios_eliminados_txid_id
+    ON public.tblusuarios_eliminados (txid_cambio, id_usuario);
+
+CREATE FUNCTION public.tg_set_updated_at() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    NEW.updated_at := now();
+    RETURN NEW;
+END
+$$;
+
+CREATE FUNCTION public.tg_usuarios_cambio() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    NEW.updated_at := now();
+    NEW.txid_cambio := pg_current_xact_id();
+    RETURN NEW;
+END
+$$;
+
+CREATE FUNCTION public.tg_usuarios_lapida() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    INSERT INTO public.tblusuarios_eliminados (id_usuario)
+    VALUES (OLD.id_usuario)
+    ON CONFLICT (id_usuario) DO UPDATE
+        SET deleted_at = now(), txid_cambio = pg_current_xact_id();
+    RETURN OLD;
+END
+$$;
+
+CREATE TRIGGER tg_departamentos_updated_at BEFORE UPDATE ON public.tbldepartamentos
+    FOR EACH ROW EXECUTE FUNCTION public.tg_set_updated_at();
+CREATE TRIGGER tg_roles_updated_at BEFORE UPDATE ON public.tblroles
+    FOR EACH ROW EXECUTE FUNCTION public.tg_set_updated_at();
+CREATE TRIGGER tg_ciudades_updated_at BEFORE UPDATE ON public.tblciudades
+    FOR EACH ROW EXECUTE FUNCTION public.tg_set_updated_at();
+CREATE TRIGGER tg_usuarios_cambio BEFORE UPDATE ON public.tblusuarios
+    FOR EACH ROW EXECUTE FUNCTION public.tg_usuarios_cambio();
+CREATE TRIGGER tg_usuarios_lapida AFTER DELETE ON public.tblusuarios
+    FOR EACH ROW EXECUTE FUNCTION public.tg_usuarios_lapida();
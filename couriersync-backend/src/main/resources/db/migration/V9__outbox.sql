@@ -0,0 +1,108 @@
+-- Outbox transaccional: eventos de cambio de usuarios y ciudades para otros módulos (envíos,
+-- facturación), escritos en la misma transacción que el cambio y publicados después por
+-- OutboxRelay. Los escriben triggers por sentencia con tablas de transición: cubren todas las
+-- rutas de escritura (servicios, altas por lotes, importación con COPY) con un único INSERT por
+-- sentencia y sin idas adicionales desde la aplicación.
+CREATE TABLE public.tbloutbox (
+    id_evento    BIGINT       GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    agregado     VARCHAR(20)  NOT NULL,
+    id_agregado  INTEGER      NOT NULL,
+    tipo         VARCHAR(40)  NOT NULL,
+    payload      JSONB        NOT NULL,
+    created_at   TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    -- Publicaciones fallidas del evento; el relay reintenta su lote tras el backoff (sin orden global)
+    intentos     INTEGER      NOT NULL DEFAULT 0,
+    ultimo_error TEXT
+);
+
+CREATE FUNCTION public.outbox_usuario_payload(u public.tblusuarios) RETURNS jsonb
+    LANGUAGE sql IMMUTABLE AS
+$$
+SELECT jsonb_build_object(
+    'idUsuario', u.id_usuario,
+    'nombre', u.nombre,
+    'correo', u.correo,
+    'telefono', u.telefono,
+    'fechaRegistro', u.fecha_registro,
+    'detalleDireccion', u.detalle_direccion,
+    'idCiudad', u.ciudad,
+    'idDepartamento', u.departamento,
+    'idRol', u.rol)
+$$;
+
+CREATE FUNCTION public.outbox_ciudad_payload(c public.tblciudades) RETURNS jsonb
+    LANGUAGE sql IMMUTABLE AS
+$$
+SELECT jsonb_build_object(
+    'idCiudad', c.id_ciudad,
+    'nombreCiudad', c.nombre_ciudad,
+    'idDepartamento', c.departamento)
+$$;
+
+CREATE FUNCTION public.tg_outbox_usuarios() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'usuario', n.id_usuario, 'usuario.created', public.outbox_usuario_payload(n)
+        FROM nuevos n ORDER BY n.id_usuario;
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- Solo filas con cambios visibles en el evento (no nombre_busqueda ni marcas de auditoría)
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'usuario', n.id_usuario, 'usuario.updated', public.outbox_usuario_payload(n)
+        FROM nuevos n JOIN viejos v USING (id_usuario)
+        WHERE public.outbox_usuario_payload(n) IS DISTINCT FROM public.outbox_usuario_payload(v)
+        ORDER BY n.id_usuario;
+    ELSE
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'usuario', v.id_usuario, 'usuario.deleted', jsonb_build_object('idUsuario', v.id_usuario)
+        FROM viejos v ORDER BY v.id_usuario;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE FUNCTION public.tg_outbox_ciudades() RETURNS trigger
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'ciudad', n.id_ciudad, 'ciudad.created', public.outbox_ciudad_payload(n)
+        FROM nuevos n ORDER BY n.id_ciudad;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'ciudad', n.id_ciudad, 'ciudad.updated', public.outbox_ciudad_payload(n)
+        FROM nuevos n JOIN viejos v USING (id_ciudad)
+        WHERE public.outbox_ciudad_payload(n) IS DISTINCT FROM public.outbox_ciudad_payload(v)
+        ORDER BY n.id_ciudad;
+    ELSE
+        INSERT INTO public.tbloutbox (agregado, id_agregado, tipo, payload)
+        SELECT 'ciudad', v.id_ciudad, 'ciudad.deleted', jsonb_build_object('idCiudad', v.id_ciudad)
+        FROM viejos v ORDER BY v.id_ciudad;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+-- Una tabla de transición por trigger: PostgreSQL no admite varias operaciones con transición
+CREATE TRIGGER tg_outbox_usuarios_insert AFTER INSERT ON public.tblusuarios
+    REFERENCING NEW TABLE AS nuevos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_outbox_usuarios();
+CREATE TRIGGER tg_outbox_usuarios_update AFTER UPDATE ON public.tblusuarios
+    REFERENCING OLD TABLE AS viejos NEW TABLE AS nuevos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_outbox_usuarios();
+CREATE TRIGGER tg_outbox_usuarios_delete AFTER DELETE ON public.tblusuarios
+    REFERENCING OLD TABLE AS viejos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_outbox_usuarios();
+
+CREATE TRIGGER tg_outbox_ciudades_insert AFTER INSERT ON public.tblciudades
+    REFERENCING NEW TABLE AS nuevos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_outbox_ciudades();
+CREATE TRIGGER tg_outbox_ciudades_update AFTER UPDATE ON public.tblciudades
+    REFERENCING OLD TABLE AS viejos NEW TABLE AS nuevos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_outbox_ciudades();
+CREATE TRIGGER tg_outbox_ciudades_delete AFTER DELETE ON public.tblciudades
+    REFERENCING OLD TABLE AS viejos
+    FOR EACH STATEMENT EXECUTE FUNCTION public.tg_outbox_ciudades();
@@ -0,0 +1,106 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.service.CiudadService;
+import com.ep18.couriersync.backend.customers.service.UsuarioService;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de searchUsuarios sobre una tabla de varios millones de filas
+ * (-Dbenchmark.rows, 3.000.000 por defecto). No corre con el build normal:
+ * {@code mvn test -Pbenchmark}. Verifica que el plan use el índice trigrama e
+ * imprime la latencia p50/p95 de la búsqueda completa (datos + COUNT).
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, CiudadService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BusquedaTrigramaBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 3_000_000);
+    private static final int RUNS = 30;
+    private static boolean seeded;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) return;
+        jdbc.update("insert into public.tbldepartamentos (nombre_departamento) values ('Antioquia')");
+        jdbc.update("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "select 'Medellin', 'medellin', id_departamento from public.tbldepartamentos");
+        jdbc.update("insert into public.tblroles (nombre_rol) values ('Cliente')");
+        // Nombres combinando 40 nombres x 40 apellidos + sufijo numérico: muchas coincidencias parciales
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select n.nombres[1 + i % 40] || ' ' || n.apellidos[1 + (i / 40) % 40] || ' ' || i,
+                       lower(n.nombres[1 + i % 40] || ' ' || n.apellidos[1 + (i / 40) % 40] || ' ' || i),
+                       'u' || i || '@example.com', '3000000000', current_date - (i % 3650),
+                       'Calle ' || i, c.id_ciudad, c.departamento, r.id_rol
+                from generate_series(1, ?) i,
+                     (select array['Ana','Juan','Maria','Pedro','Luisa','Carlos','Sofia','Andres','Camila','Jorge',
+                                   'Valentina','Diego','Daniela','Felipe','Laura','Santiago','Paula','Mateo','Sara','Tomas',
+                                   'Lucia','Nicolas','Isabella','Samuel','Gabriela','Sebastian','Mariana','David','Juliana','Esteban',
+                                   'Natalia','Miguel','Catalina','Alejandro','Manuela','Julian','Antonia','Simon','Emilia','Martin'] nombres,
+                             array['Gomez','Rodriguez','Lopez','Martinez','Garcia','Perez','Sanchez','Ramirez','Torres','Diaz',
+                                   'Vargas','Castro','Rojas','Moreno','Jimenez','Munoz','Ortiz','Herrera','Medina','Suarez',
+                                   'Restrepo','Correa','Zapata','Arango','Londono','Mejia','Ospina','Cardona','Giraldo','Velez',
+                                   'Osorio','Rios','Montoya','Agudelo','Salazar','Henao','Valencia','Duque','Quintero','Betancur'] apellidos) n,
+                     public.tblciudades c, public.tblroles r
+                """, ROWS);
+        jdbc.execute("analyze public.tblusuarios");
+        catalog.reload();
+        seeded = true;
+    }
+
+    @Test
+    void searchUsuarios_variosMillonesDeFilas() {
+        String plan = String.join("\n", jdbc.queryForList(
+                "explain select * from public.tblusuarios where nombre_busqueda like '%valencia 12%'", String.class));
+        assertTrue(plan.contains("idx_usuarios_busqueda_trgm"), plan);
+
+        for (String q : new String[]{"valencia 12", "sofia ospina", "rtinez 99"}) {
+            usuarioService.search(q, 0, 20); // calentamiento
+            long[] nanos = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                long t0 = System.nanoTime();
+                var page = usuarioService.search(q, 0, 20);
+                nanos[i] = System.nanoTime() - t0;
+                assertFalse(page.content().isEmpty());
+            }
+            Arrays.sort(nanos);
+            System.out.printf("searchUsuarios(\"%s\") sobre %,d filas: p50=%.1f ms p95=%.1f ms%n",
+                    q, ROWS, nanos[RUNS / 2] / 1e6, nanos[RUNS * 95 / 100] / 1e6);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.common.ratelimit.TokenBucket;
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue;
+import com.ep18.couriersync.backend.promos.campaign.CampanaWorker;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.CampanaEstado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.mail.SmtpStandIn;
+import com.ep18.couriersync.backend.promos.mail.SmtpTransportPool;
+import com.ep18.couriersync.backend.promos.template.PlantillaCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rendimiento de una campaña de -Dbenchmark.rows destinatarios (6.000 por defecto) con 1, 2 y 4
+ * instancias sobre la misma PostgreSQL. Cada instancia es un CampanaWorker con su propio pool
+ * SMTP (4 conexiones) y su cupo de 200 mensajes por segundo, como desplegadas por separado; el
+ * servidor tarda 10 ms por mensaje. Con la cola repartiendo lotes por SKIP LOCKED el rendimiento
+ * debe crecer casi en proporción a las instancias (4 instancias, al menos 3 veces una) y ningún
+ * destinatario debe recibir dos correos.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CampanaQueue.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CampanaInstanciasBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 6_000);
+    private static final double CUPO_POR_INSTANCIA = 200;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private CampanaQueue cola;
+    @Autowired private JdbcTemplate jdbc;
+
+    @Test
+    void rendimientoCreceConLasInstancias() throws Exception {
+        int departamento = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Campaña benchmark') returning id_departamento", Integer.class);
+        int ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, "
+                + "departamento) values ('Campaña', 'campana', ?) returning id_ciudad", Integer.class, departamento);
+        int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Campaña') "
+                + "returning id_rol", Integer.class);
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Cliente ' || i, 'cliente ' || i, 'bench' || i || '@campana.example.com', '3000000000',
+                       current_date, 'Calle ' || i, ?, ?, ?
+                from generate_series(1, ?) i
+                """, ciudad, departamento, rol, ROWS);
+        jdbc.execute("analyze public.tblusuarios");
+        Segmento segmento = new Segmento(null, departamento, null, null, null);
+
+        Map<Integer, Double> porSegundo = new LinkedHashMap<>();
+        for (int instancias : new int[] {1, 2, 4}) {
+            try (SmtpStandIn smtp = new SmtpStandIn()) {
+                smtp.latencia(Duration.ofMillis(10));
+                CampanaEstado campana = cola.crear(segmento, "Oferta para {{nombre}}", "<p>Hola {{nombre}}</p>");
+                List<SmtpTransportPool> pools = new ArrayList<>();
+                List<CampanaWorker> workers = new ArrayList<>();
+                for (int i = 0; i < instancias; i++) {
+                    SmtpTransportPool pool = pool(smtp);
+                    pools.add(pool);
+                    workers.add(new CampanaWorker(cola, new PromoDispatcher(pool,
+                            new TokenBucket(CUPO_POR_INSTANCIA, 10), new InternetAddress("promos@example.com"),
+                            new SimpleMeterRegistry()), new PlantillaCache(), "instancia-" + i,
+                            Duration.ofMinutes(5), Duration.ofSeconds(1), 5, Duration.ofSeconds(1),
+                            Duration.ofMinutes(1), new SimpleMeterRegistry()));
+                }
+
+                long t0 = System.nanoTime();
+                List<CompletableFuture<Integer>> lotes = workers.stream()
+                        .map(w -> CompletableFuture.supplyAsync(w::drain))
+                        .toList();
+                lotes.forEach(CompletableFuture::join);
+                double segundos = (System.nanoTime() - t0) / 1e9;
+                pools.forEach(SmtpTransportPool::close);
+
+                CampanaEstado estado = cola.estado(campana.idCampana()).orElseThrow();
+                double tasa = estado.enviados() / segundos;
+                porSegundo.put(instancias, tasa);
+                System.out.printf("campaña con %d instancias: %d enviados en %.2f s (%.0f/s), lotes por instancia %s%n",
+                        instancias, estado.enviados(), segundos, tasa,
+                        lotes.stream().map(CompletableFuture::join).toList());
+
+                assertEquals(ROWS, estado.enviados());
+                assertTrue(estado.terminada());
+                assertEquals(ROWS, smtp.recibidos().size());
+                assertEquals(ROWS, smtp.recibidos().stream().flatMap(m -> m.destinatarios().stream())
+                        .collect(Collectors.toSet()).size());
+            }
+        }
+        assertTrue(porSegundo.get(4) >= 3 * porSegundo.get(1), "mensajes por segundo: " + porSegundo);
+    }
+
+    private static SmtpTransportPool pool(SmtpStandIn smtp) {
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.connectiontimeout", "5000");
+        props.setProperty("mail.smtp.timeout", "5000");
+        return new SmtpTransportPool(Session.getInstance(props), "127.0.0.1", smtp.port(), null, null, 4,
+                Duration.ofSeconds(30));
+    }
+}
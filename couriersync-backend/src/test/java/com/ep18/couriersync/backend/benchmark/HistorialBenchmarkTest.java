@@ -0,0 +1,169 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.historial.service.HistorialService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de la línea de tiempo por cliente (-Dbenchmark.rows entregas, 50.000.000 por
+ * defecto) repartidas entre rows/500 usuarios, más un cliente con 50.000 entregas. Se corre con
+ * {@code mvn test -Pbenchmark}. Mide la primera página de clientes al azar y páginas a
+ * profundidad al azar del cliente grande (cursor tomado de la tabla), exige p99 < 50 ms y que la
+ * consulta sea un Index Only Scan sin visitas al heap sobre las particiones mensuales.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HistorialService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HistorialBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 50_000_000);
+    private static final int CLIENTE_GRANDE = 50_000;
+    private static final int RUNS = 500;
+    private static final int PAGE = 20;
+    private static boolean seeded;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private HistorialService historialService;
+    @Autowired private JdbcTemplate jdbc;
+
+    private int primerUsuario;
+    private int[] ids;
+
+    @BeforeEach
+    void seed() {
+        int usuarios = Math.max(ROWS / 500, 1);
+        if (!seeded) {
+            int depto = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                    + "values ('Benchmark') returning id_departamento", Integer.class);
+            int ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, "
+                    + "departamento) values ('Benchmark', 'benchmark', ?) returning id_ciudad", Integer.class, depto);
+            int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Cliente') "
+                    + "returning id_rol", Integer.class);
+            jdbc.update("""
+                    insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                    detalle_direccion, ciudad, departamento, rol)
+                    select 'Cliente ' || i, 'cliente ' || i, 'c' || i || '@benchmark.example.com', '3000000000',
+                           current_date, 'Calle ' || i, ?, ?, ?
+                    from generate_series(1, ?) i""", ciudad, depto, rol, usuarios);
+
+            // Meses que cubren los datos (el más antiguo es el de la carga general o el del cliente grande)
+            jdbc.queryForList("""
+                    select public.historial_crear_particion(m::date) from generate_series(
+                        date_trunc('month', least(timestamptz '2025-12-31' - ? * interval '7 seconds',
+                                                  timestamptz '2025-12-31' - ? * interval '13 minutes') at time zone 'UTC'),
+                        date '2025-12-01', interval '1 month') m""", ROWS, CLIENTE_GRANDE);
+
+            // Carga sin el índice y se crea al final: mucho más rápido que mantenerlo fila a fila
+            jdbc.execute("drop index public.idx_historial_usuario_fecha_id");
+            // El DEFAULT de id_usuario avanza de a 50 (V5): se reparte sobre el arreglo de ids reales
+            jdbc.update("""
+                    insert into public.tblhistorial_entregas (id_usuario, fecha, estado, observacion)
+                    select u.ids[i % u.n + 1], timestamptz '2025-12-31' - (i * interval '7 seconds'),
+                           (array['REGISTRADA','EN_CAMINO','ENTREGADA','DEVUELTA'])[i % 4 + 1], 'Observación ' || i
+                    from (select array_agg(id_usuario order by id_usuario) ids, count(*)::int n
+                          from public.tblusuarios where correo like '%@benchmark.example.com') u,
+                         generate_series(1, ?) i""", ROWS);
+            jdbc.update("""
+                    insert into public.tblhistorial_entregas (id_usuario, fecha, estado, observacion)
+                    select ?, timestamptz '2025-12-31' - (i * interval '13 minutes'), 'ENTREGADA', 'Grande ' || i
+                    from generate_series(1, ?) i""", clientes()[0], CLIENTE_GRANDE);
+            jdbc.execute("""
+                    create index idx_historial_usuario_fecha_id
+                        on public.tblhistorial_entregas (id_usuario, fecha desc, id_entrega desc)
+                        include (estado, observacion)""");
+            // Mapa de visibilidad al día: condición para que el Index Only Scan no visite el heap
+            jdbc.execute("vacuum analyze public.tblhistorial_entregas");
+            seeded = true;
+        }
+        ids = clientes();
+        primerUsuario = ids[0];
+    }
+
+    @Test
+    void lineaDeTiempo_p99MenorA50ms() {
+        Random random = new Random(42);
+        String plan = String.join("\n", jdbc.queryForList("""
+                explain (analyze, buffers) select id_entrega, id_usuario, fecha, estado, observacion
+                from public.tblhistorial_entregas
+                where id_usuario = ? and fecha <= timestamptz '2025-06-01'
+                  and (fecha, id_entrega) < (timestamptz '2025-06-01', 0)
+                order by fecha desc, id_entrega desc limit 21""", String.class, primerUsuario));
+        // Índice de cobertura de cada mes (V12), recorridos en orden y sin visitar el heap
+        assertTrue(plan.contains("Index Only Scan using tblhistorial_entregas_p"), plan);
+        assertFalse(plan.matches("(?s).*Heap Fetches: [1-9].*"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+
+        for (int i = 0; i < 50; i++) historialService.timeline(ids[random.nextInt(ids.length)], PAGE, null, null, null);
+
+        long[] primeras = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            int usuario = ids[random.nextInt(ids.length)];
+            long t0 = System.nanoTime();
+            var page = historialService.timeline(usuario, PAGE, null, null, null);
+            primeras[i] = System.nanoTime() - t0;
+            assertFalse(page.edges().isEmpty());
+        }
+
+        // Cursores a profundidades al azar del cliente grande, tomados de la propia tabla
+        long[] profundas = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            Map<String, Object> fila = jdbc.queryForMap("""
+                    select id_entrega, fecha from public.tblhistorial_entregas where id_usuario = ?
+                    order by fecha desc, id_entrega desc offset ? limit 1""",
+                    primerUsuario, random.nextInt(CLIENTE_GRANDE));
+            String after = new KeysetCursor(((java.sql.Timestamp) fila.get("fecha")).toInstant().toString(),
+                    (Integer) fila.get("id_entrega")).encode();
+            long t0 = System.nanoTime();
+            var page = historialService.timeline(primerUsuario, PAGE, after, null, null);
+            profundas[i] = System.nanoTime() - t0;
+            assertFalse(page.edges().isEmpty());
+        }
+
+        double p99Primeras = report("primera página, cliente al azar", primeras);
+        double p99Profundas = report("página a profundidad al azar, cliente con " + CLIENTE_GRANDE, profundas);
+        assertTrue(p99Primeras < 50, "p99 primera página " + p99Primeras + " ms");
+        assertTrue(p99Profundas < 50, "p99 página profunda " + p99Profundas + " ms");
+    }
+
+    private int[] clientes() {
+        return jdbc.queryForList("select id_usuario from public.tblusuarios "
+                + "where correo like '%@benchmark.example.com' order by id_usuario", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double report(String caso, long[] nanos) {
+        Arrays.sort(nanos);
+        double p50 = nanos[nanos.length / 2] / 1e6;
+        double p95 = nanos[nanos.length * 95 / 100] / 1e6;
+        double p99 = nanos[nanos.length * 99 / 100] / 1e6;
+        System.out.printf("historialUsuario(%s) sobre %,d entregas: p50=%.2f ms p95=%.2f ms p99=%.2f ms%n",
+                caso, ROWS, p50, p95, p99);
+        return p99;
+    }
+}
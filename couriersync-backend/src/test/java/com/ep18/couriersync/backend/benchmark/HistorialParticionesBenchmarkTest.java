@@ -0,0 +1,185 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Historial particionado por mes (V12) frente a la misma carga en una tabla sin particionar
+ * (-Dbenchmark.rows entregas, 20.000.000 por defecto, repartidas en 24 meses). La tabla plana
+ * lleva además un índice por fecha, el que se usaría sin particiones para las ventanas globales.
+ * Se corre con {@code mvn test -Pbenchmark}. Mide:
+ * <ul>
+ *   <li>línea de tiempo de un cliente en los últimos 30 días (primera página);</li>
+ *   <li>resumen por estado de todas las entregas de los últimos 7 días (solo informativo: con el
+ *       índice por fecha la tabla plana lee menos filas que el barrido de la partición);</li>
+ *   <li>retención del mes más antiguo: DETACH de la partición frente a DELETE en la tabla plana.</li>
+ * </ul>
+ * Exige que las consultas de ventana solo lean el último mes de la tabla particionada, que la
+ * línea de tiempo tenga p99 < 50 ms y que desvincular un mes sea más rápido que borrarlo.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HistorialParticionesBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000_000);
+    private static final OffsetDateTime FIN = OffsetDateTime.parse("2025-12-31T00:00:00Z");
+    private static final int RUNS_CLIENTE = 500;
+    private static final int RUNS_RESUMEN = 30;
+    private static boolean seeded;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private JdbcTemplate jdbc;
+
+    private int[] ids;
+
+    @BeforeEach
+    void seed() {
+        if (!seeded) {
+            int usuarios = Math.max(ROWS / 500, 1);
+            int depto = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                    + "values ('Benchmark') returning id_departamento", Integer.class);
+            int ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, "
+                    + "departamento) values ('Benchmark', 'benchmark', ?) returning id_ciudad", Integer.class, depto);
+            int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Cliente') "
+                    + "returning id_rol", Integer.class);
+            jdbc.update("""
+                    insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                    detalle_direccion, ciudad, departamento, rol)
+                    select 'Cliente ' || i, 'cliente ' || i, 'c' || i || '@benchmark.example.com', '3000000000',
+                           current_date, 'Calle ' || i, ?, ?, ?
+                    from generate_series(1, ?) i""", ciudad, depto, rol, usuarios);
+
+            jdbc.queryForList("select public.historial_crear_particion(m::date) from generate_series("
+                    + "date '2024-01-01', date '2025-12-01', interval '1 month') m");
+            jdbc.execute("drop index public.idx_historial_usuario_fecha_id");
+            // 24 meses hacia atrás desde FIN, repartidos en parejo entre los clientes
+            jdbc.update("""
+                    insert into public.tblhistorial_entregas (id_usuario, fecha, estado, observacion)
+                    select u.ids[i % u.n + 1], ?::timestamptz - (i::double precision / ? * interval '730 days'),
+                           (array['REGISTRADA','EN_CAMINO','ENTREGADA','DEVUELTA'])[i % 4 + 1], 'Observación ' || i
+                    from (select array_agg(id_usuario order by id_usuario) ids, count(*)::int n
+                          from public.tblusuarios where correo like '%@benchmark.example.com') u,
+                         generate_series(1, ?) i""", FIN, ROWS, ROWS);
+            jdbc.execute("""
+                    create index idx_historial_usuario_fecha_id
+                        on public.tblhistorial_entregas (id_usuario, fecha desc, id_entrega desc)
+                        include (estado, observacion)""");
+
+            jdbc.execute("create table public.bench_historial_plano as select * from public.tblhistorial_entregas");
+            jdbc.execute("alter table public.bench_historial_plano add primary key (id_entrega)");
+            jdbc.execute("""
+                    create index bench_plano_usuario_fecha_id
+                        on public.bench_historial_plano (id_usuario, fecha desc, id_entrega desc)
+                        include (estado, observacion)""");
+            jdbc.execute("create index bench_plano_fecha on public.bench_historial_plano (fecha)");
+
+            jdbc.execute("vacuum analyze public.tblhistorial_entregas");
+            jdbc.execute("vacuum analyze public.bench_historial_plano");
+            seeded = true;
+        }
+        ids = jdbc.queryForList("select id_usuario from public.tblusuarios "
+                        + "where correo like '%@benchmark.example.com' order by id_usuario", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void ventanaReciente_particionadoFrenteAPlano() {
+        String cliente = """
+                select id_entrega, id_usuario, fecha, estado, observacion from public.%s
+                where id_usuario = ? and fecha >= ?
+                order by fecha desc, id_entrega desc limit 21""";
+        String resumen = "select estado, count(*) from public.%s where fecha >= ? group by estado";
+        OffsetDateTime mes = FIN.minusDays(30);
+        OffsetDateTime semana = FIN.minusDays(7);
+
+        String planCliente = explain(cliente.formatted("tblhistorial_entregas"), ids[0], mes);
+        String planResumen = explain(resumen.formatted("tblhistorial_entregas"), semana);
+        for (String plan : new String[] {planCliente, planResumen}) {
+            assertTrue(plan.contains("tblhistorial_entregas_p202512"), plan);
+            assertFalse(plan.contains("tblhistorial_entregas_p202510"), plan);
+        }
+
+        Random random = new Random(42);
+        double p99Particionado = medir("cliente 30 días, particionado", RUNS_CLIENTE, i ->
+                jdbc.queryForList(cliente.formatted("tblhistorial_entregas"), ids[random.nextInt(ids.length)], mes));
+        medir("cliente 30 días, plano", RUNS_CLIENTE, i ->
+                jdbc.queryForList(cliente.formatted("bench_historial_plano"), ids[random.nextInt(ids.length)], mes));
+
+        medir("resumen 7 días, particionado", RUNS_RESUMEN, i ->
+                jdbc.queryForList(resumen.formatted("tblhistorial_entregas"), semana));
+        medir("resumen 7 días, plano", RUNS_RESUMEN, i ->
+                jdbc.queryForList(resumen.formatted("bench_historial_plano"), semana));
+
+        System.out.printf("Tamaño con índices: particionado %s, plano %s%n",
+                jdbc.queryForObject("select pg_size_pretty(sum(pg_total_relation_size(inhrelid))) from pg_inherits "
+                        + "where inhparent = 'public.tblhistorial_entregas'::regclass", String.class),
+                jdbc.queryForObject("select pg_size_pretty(pg_total_relation_size('public.bench_historial_plano'))",
+                        String.class));
+
+        assertTrue(p99Particionado < 50, "p99 cliente particionado " + p99Particionado + " ms");
+    }
+
+    @Test
+    void retencion_desvincularFrenteABorrar() {
+        long t0 = System.nanoTime();
+        jdbc.execute("alter table public.tblhistorial_entregas "
+                + "detach partition public.tblhistorial_entregas_p202401 concurrently");
+        double desvincular = (System.nanoTime() - t0) / 1e6;
+
+        t0 = System.nanoTime();
+        int borradas = jdbc.update("delete from public.bench_historial_plano where fecha < '2024-02-01'");
+        double borrar = (System.nanoTime() - t0) / 1e6;
+
+        System.out.printf("historial retención de un mes (%,d entregas): detach=%.2f ms delete=%.2f ms%n",
+                borradas, desvincular, borrar);
+        assertTrue(borradas > 0);
+        assertEquals(0, jdbc.queryForObject("select count(*) from public.tblhistorial_entregas "
+                + "where fecha < '2024-02-01'", Integer.class));
+        assertTrue(desvincular < borrar, "detach " + desvincular + " ms, delete " + borrar + " ms");
+    }
+
+    private String explain(String sql, Object... args) {
+        return String.join("\n", jdbc.queryForList("explain " + sql, String.class, args));
+    }
+
+    /** Corre la consulta (con calentamiento) y devuelve el p99 en ms */
+    private static double medir(String caso, int runs, IntConsumer consulta) {
+        for (int i = 0; i < Math.max(runs / 10, 3); i++) consulta.accept(i);
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long t0 = System.nanoTime();
+            consulta.accept(i);
+            nanos[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[runs / 2] / 1e6;
+        double p99 = nanos[Math.min(runs * 99 / 100, runs - 1)] / 1e6;
+        System.out.printf("historial %s sobre %,d entregas: p50=%.2f ms p99=%.2f ms%n", caso, ROWS, p50, p99);
+        return p99;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Render de una oferta HTML de ~4 KB con seis campos para -Dbenchmark.rows destinatarios
+ * (100.000 por defecto), en un solo hilo: renders por segundo por núcleo y bytes asignados por
+ * render. Compara la plantilla compilada (buffer reutilizado y String por mensaje) con reemplazar
+ * los campos en el texto fuente para cada destinatario. Se corre con {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class PlantillaPromoBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int PASADAS = 5;
+
+    private static final String HTML = "<html><body><h1>Hola {{nombre}}</h1>"
+            + "<p>Ofertas de envío para {{nombreCiudad}} ({{nombreDepartamento}}).</p>"
+            + "<table>" + "<tr><td>Envío nacional</td><td>20% de descuento</td></tr>".repeat(60) + "</table>"
+            + "<p>{{nombre}}, esta oferta llega a {{correo}} y vence el domingo.</p>"
+            + "<p>Ver en <a href=\"https://couriersync.example.com/promos\">{{nombreCiudad}}</a></p></body></html>";
+
+    private final Destinatario[] destinatarios = IntStream.range(0, ROWS)
+            .mapToObj(i -> new Destinatario(i, "cliente" + i + "@benchmark.example.com", "Cliente & Cía " + i,
+                    i % 2 == 0 ? "Medellín" : "Bogotá D.C.", i % 2 == 0 ? "Antioquia" : "Cundinamarca"))
+            .toArray(Destinatario[]::new);
+
+    @Test
+    void renderCompiladoFrenteAReemplazoPorMensaje() {
+        PlantillaPromo plantilla = PlantillaPromo.compilar(HTML, Formato.HTML);
+        StringBuilder buffer = new StringBuilder(plantilla.capacidadEstimada());
+
+        Medicion reutilizado = medir("compilada, buffer reutilizado", d -> {
+            buffer.setLength(0);
+            plantilla.render(d, buffer);
+            return buffer.length();
+        });
+        Medicion porMensaje = medir("compilada, String por mensaje", d -> plantilla.render(d).length());
+        Medicion reemplazo = medir("reemplazo en el texto fuente", d -> reemplazar(HTML, d).length());
+
+        assertTrue(reutilizado.bytesPorRender() < 64, reutilizado.bytesPorRender() + " bytes por render");
+        assertTrue(porMensaje.rendersPorSegundo() > reemplazo.rendersPorSegundo(),
+                porMensaje + " frente a " + reemplazo);
+    }
+
+    private record Medicion(String caso, double rendersPorSegundo, double bytesPorRender) {}
+
+    private Medicion medir(String caso, ToIntFunction<Destinatario> render) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().threadId();
+        long checksum = 0;
+        for (Destinatario d : destinatarios) checksum += render.applyAsInt(d);
+
+        long bytes0 = mx.getThreadAllocatedBytes(hilo);
+        long t0 = System.nanoTime();
+        for (int p = 0; p < PASADAS; p++) {
+            for (Destinatario d : destinatarios) checksum += render.applyAsInt(d);
+        }
+        long nanos = System.nanoTime() - t0;
+        long bytes = mx.getThreadAllocatedBytes(hilo) - bytes0;
+
+        long renders = (long) ROWS * PASADAS;
+        Medicion m = new Medicion(caso, renders * 1e9 / nanos, (double) bytes / renders);
+        System.out.printf("plantilla %s: %,.0f renders/s por núcleo, %,.0f bytes por render (checksum %d)%n",
+                caso, m.rendersPorSegundo(), m.bytesPorRender(), checksum);
+        return m;
+    }
+
+    /** Lo que se haría sin compilar: recorrer el texto fuente una vez por campo y destinatario */
+    private static String reemplazar(String fuente, Destinatario d) {
+        return fuente.replace("{{nombre}}", escapar(d.nombre()))
+                .replace("{{correo}}", escapar(d.correo()))
+                .replace("{{nombreCiudad}}", escapar(d.nombreCiudad()))
+                .replace("{{nombreDepartamento}}", escapar(d.nombreDepartamento()));
+    }
+
+    private static String escapar(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&#39;");
+    }
+}
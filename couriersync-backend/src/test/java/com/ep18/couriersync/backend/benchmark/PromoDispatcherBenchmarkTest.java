@@ -0,0 +1,154 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.PromoResultado;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.mail.SmtpTransportPool;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.StreamProvider;
+import org.eclipse.angus.mail.util.MailStreamProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Memoria asignada por mensaje en el camino real del dispatcher: PromoDispatcher con su pool
+ * (4 conexiones) y un transporte que escribe cada mensaje completo, MIME incluido, a un destino
+ * nulo, así no se mide la red ni al servidor. La oferta es la de PlantillaPromoBenchmarkTest
+ * (~4 KB, seis campos) para -Dbenchmark.rows destinatarios (20.000 por defecto). Se cuenta lo
+ * asignado por todos los hilos de la JVM (hilos virtuales, futures y resultados incluidos) y se
+ * compara con armar el mismo mensaje con el cuerpo como String y setText, en un solo hilo. Como
+ * en producción (PromoConfig), con el StreamProvider de Angus fijado. Se corre con
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class PromoDispatcherBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000);
+    private static final int PASADAS = 3;
+
+    private static final String HTML = "<html><body><h1>Hola {{nombre}}</h1>"
+            + "<p>Ofertas de envío para {{nombreCiudad}} ({{nombreDepartamento}}).</p>"
+            + "<table>" + "<tr><td>Envío nacional</td><td>20% de descuento</td></tr>".repeat(60) + "</table>"
+            + "<p>{{nombre}}, esta oferta llega a {{correo}} y vence el domingo.</p>"
+            + "<p>Ver en <a href=\"https://couriersync.example.com/promos\">{{nombreCiudad}}</a></p></body></html>";
+
+    private final List<Destinatario> destinatarios = IntStream.range(0, ROWS)
+            .mapToObj(i -> new Destinatario(i, "cliente" + i + "@benchmark.example.com", "Cliente & Cía " + i,
+                    i % 2 == 0 ? "Medellín" : "Bogotá D.C.", i % 2 == 0 ? "Antioquia" : "Cundinamarca"))
+            .toList();
+
+    @BeforeAll
+    static void streamProvider() {
+        System.setProperty(StreamProvider.class.getName(), MailStreamProvider.class.getName());
+    }
+
+    @Test
+    void bytesPorMensajeDelDespacho() throws Exception {
+        PlantillaPromo asunto = PlantillaPromo.compilar("Ofertas en {{nombreCiudad}}", Formato.TEXTO);
+        PlantillaPromo html = PlantillaPromo.compilar(HTML, Formato.HTML);
+        Session session = session();
+        InternetAddress remitente = new InternetAddress("promos@couriersync.example.com");
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        double despacho;
+        try (SmtpTransportPool pool = new SmtpTransportPool(session, "127.0.0.1", 25, null, null, 4,
+                Duration.ofSeconds(30))) {
+            PromoDispatcher dispatcher = new PromoDispatcher(pool, null, remitente, new SimpleMeterRegistry());
+            assertTrue(dispatcher.enviar(destinatarios, asunto, html).ok());
+
+            long bytes0 = mx.getTotalThreadAllocatedBytes();
+            long t0 = System.nanoTime();
+            for (int p = 0; p < PASADAS; p++) {
+                PromoResultado r = dispatcher.enviar(destinatarios, asunto, html);
+                assertEquals(ROWS, r.enviados());
+            }
+            long nanos = System.nanoTime() - t0;
+            despacho = (double) (mx.getTotalThreadAllocatedBytes() - bytes0) / ((long) ROWS * PASADAS);
+            System.out.printf("despacho: %,.0f mensajes/s, %,.0f bytes por mensaje (todos los hilos)%n",
+                    (long) ROWS * PASADAS * 1e9 / nanos, despacho);
+        }
+
+        long hilo = Thread.currentThread().threadId();
+        long tamano = 0;
+        for (Destinatario d : destinatarios) tamano += conStringYSetText(session, remitente, asunto, html, d);
+        long bytes0 = mx.getThreadAllocatedBytes(hilo);
+        for (int p = 0; p < PASADAS; p++) {
+            for (Destinatario d : destinatarios) tamano += conStringYSetText(session, remitente, asunto, html, d);
+        }
+        double referencia = (double) (mx.getThreadAllocatedBytes(hilo) - bytes0) / ((long) ROWS * PASADAS);
+        System.out.printf("String por mensaje y setText: %,.0f bytes por mensaje (un hilo); cuerpo de ~%,d bytes%n",
+                referencia, tamano / ((long) ROWS * (PASADAS + 1)));
+
+        assertTrue(despacho < referencia, despacho + " frente a " + referencia + " bytes por mensaje");
+    }
+
+    /** El mensaje como se armaba antes de los buffers del dispatcher; devuelve el tamaño del cuerpo */
+    private static int conStringYSetText(Session session, InternetAddress remitente, PlantillaPromo asunto,
+                                         PlantillaPromo html, Destinatario d) throws Exception {
+        String cuerpo = html.render(d);
+        MimeMessage m = new MimeMessage(session);
+        m.setFrom(remitente);
+        InternetAddress para = new InternetAddress(d.correo(), true);
+        para.setPersonal(d.nombre(), StandardCharsets.UTF_8.name());
+        m.setRecipient(Message.RecipientType.TO, para);
+        m.setSubject(asunto.render(d), StandardCharsets.UTF_8.name());
+        m.setText(cuerpo, StandardCharsets.UTF_8.name(), "html");
+        m.saveChanges();
+        m.writeTo(OutputStream.nullOutputStream());
+        return cuerpo.length();
+    }
+
+    private static Session session() {
+        Properties props = new Properties();
+        props.setProperty("mail.transport.protocol", "nulo");
+        Session session = Session.getInstance(props);
+        session.addProvider(new Provider(Provider.Type.TRANSPORT, "nulo", TransporteNulo.class.getName(),
+                "couriersync", "1"));
+        return session;
+    }
+
+    /** Escribe el mensaje entero (cabeceras y cuerpo codificado) sin enviarlo a ninguna parte */
+    public static class TransporteNulo extends Transport {
+
+        public TransporteNulo(Session session, URLName url) {
+            super(session, url);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) {
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message mensaje, Address[] destinatarios) throws MessagingException {
+            try {
+                mensaje.writeTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new MessagingException("No se pudo escribir el mensaje", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.AgrupacionSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.EncuestaInput;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RangoFechas;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.SatisfactionDashboard;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository;
+import com.ep18.couriersync.backend.satisfaccion.service.SatisfaccionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tablero de satisfacción sobre -Dbenchmark.rows respuestas (3.000.000 por defecto) de un año,
+ * repartidas en 200 ciudades de 20 departamentos. Compara satisfactionDashboard (solo lee
+ * tblsatisfaccion_diaria) con el GROUP BY equivalente sobre las respuestas, y mide cuántas
+ * encuestas por segundo se registran manteniendo los agregados. La carga inicial se hace en SQL
+ * y sus agregados con un GROUP BY; después se registran lotes por el servicio y se comprueba
+ * que los agregados siguen siendo exactamente los de las respuestas.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SatisfaccionService.class, SatisfaccionRepository.class, ReferenceDataCatalog.class,
+        SimpleMeterRegistry.class, LocalValidatorFactoryBean.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SatisfaccionTableroBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 3_000_000);
+    private static final int DEPARTAMENTOS = 20;
+    private static final int CIUDADES_POR_DEPARTAMENTO = 10;
+    private static final int USUARIOS = 20_000;
+    private static final int LOTES_INGESTA = 50;
+    private static final int RUNS = 20;
+
+    private static final String AGREGAR = """
+            select (fecha at time zone 'UTC')::date, ciudad, departamento, count(*), sum(puntaje),
+                   count(*) filter (where puntaje = 1), count(*) filter (where puntaje = 2),
+                   count(*) filter (where puntaje = 3), count(*) filter (where puntaje = 4),
+                   count(*) filter (where puntaje = 5)
+            from public.tblsatisfaccion_respuestas group by 1, 2, 3""";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private SatisfaccionService service;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    @Test
+    void tableroLeeAgregadosEnLugarDeRespuestas() {
+        int primerDepartamento = sembrar();
+        LocalDate inicio = LocalDate.of(2025, 1, 1);
+        RangoFechas anio = new RangoFechas(inicio, LocalDate.of(2025, 12, 31));
+        RangoFechas trimestre = new RangoFechas(LocalDate.of(2025, 10, 1), LocalDate.of(2025, 12, 29));
+
+        double[] p99 = {
+                comparar("año por MES y DEPARTAMENTO",
+                        () -> service.dashboard(anio, List.of(AgrupacionSatisfaccion.MES,
+                                AgrupacionSatisfaccion.DEPARTAMENTO), null, null),
+                        """
+                        select date_trunc('month', fecha at time zone 'UTC') as mes, departamento,
+                               count(*), avg(puntaje), count(*) filter (where puntaje >= 4)
+                        from public.tblsatisfaccion_respuestas
+                        where fecha >= timestamptz '2025-01-01 00:00Z' and fecha < timestamptz '2026-01-01 00:00Z'
+                        group by 1, 2 order by 1, 2""", 12 * DEPARTAMENTOS),
+                comparar("trimestre por SEMANA y CIUDAD",
+                        () -> service.dashboard(trimestre, List.of(AgrupacionSatisfaccion.SEMANA,
+                                AgrupacionSatisfaccion.CIUDAD), null, null),
+                        """
+                        select date_trunc('week', fecha at time zone 'UTC') as semana, departamento, ciudad,
+                               count(*), avg(puntaje), count(*) filter (where puntaje >= 4)
+                        from public.tblsatisfaccion_respuestas
+                        where fecha >= timestamptz '2025-10-01 00:00Z' and fecha < timestamptz '2025-12-30 00:00Z'
+                        group by 1, 2, 3 order by 1, 2, 3""", 14 * DEPARTAMENTOS * CIUDADES_POR_DEPARTAMENTO),
+                comparar("un departamento, año por DIA",
+                        () -> service.dashboard(anio, List.of(AgrupacionSatisfaccion.DIA), primerDepartamento, null),
+                        """
+                        select (fecha at time zone 'UTC')::date as dia, count(*), avg(puntaje),
+                               count(*) filter (where puntaje >= 4)
+                        from public.tblsatisfaccion_respuestas
+                        where departamento = %d
+                          and fecha >= timestamptz '2025-01-01 00:00Z' and fecha < timestamptz '2026-01-01 00:00Z'
+                        group by 1 order by 1""".formatted(primerDepartamento), 365)
+        };
+
+        // Ingesta por el servicio: cada lote suma sus respuestas a los agregados en la misma sentencia
+        int[] usuarios = jdbc.queryForList("select id_usuario from public.tblusuarios "
+                + "where correo like '%@satisfaccion.example.com'", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+        Random random = new Random(42);
+        OffsetDateTime desde = inicio.atStartOfDay().atOffset(ZoneOffset.UTC);
+        long t0 = System.nanoTime();
+        for (int lote = 0; lote < LOTES_INGESTA; lote++) {
+            List<EncuestaInput> entradas = new ArrayList<>(SatisfaccionService.MAX_BATCH);
+            for (int i = 0; i < SatisfaccionService.MAX_BATCH; i++) {
+                entradas.add(new EncuestaInput(usuarios[random.nextInt(usuarios.length)], null,
+                        1 + random.nextInt(5), null, desde.plusMinutes(random.nextInt(365 * 24 * 60))));
+            }
+            service.registrarTodas(entradas);
+        }
+        double segundos = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("registrarEncuestas: %,d encuestas en lotes de %d en %.2f s (%,.0f/s)%n",
+                LOTES_INGESTA * SatisfaccionService.MAX_BATCH, SatisfaccionService.MAX_BATCH, segundos,
+                LOTES_INGESTA * SatisfaccionService.MAX_BATCH / segundos);
+
+        assertEquals(0, jdbc.queryForObject("select count(*) from ((select dia, ciudad, departamento, respuestas, "
+                + "suma, p1, p2, p3, p4, p5 from public.tblsatisfaccion_diaria except " + AGREGAR + ") union all ("
+                + AGREGAR + " except select dia, ciudad, departamento, respuestas, suma, p1, p2, p3, p4, p5 "
+                + "from public.tblsatisfaccion_diaria)) d", Integer.class));
+        for (double p : p99) assertTrue(p < 200, "p99 del tablero " + Arrays.toString(p99) + " ms");
+    }
+
+    /** Tablero frente al GROUP BY sobre las respuestas; devuelve el p99 del tablero en ms */
+    private double comparar(String caso, Supplier<SatisfactionDashboard> tablero, String sobreRespuestas,
+                            int gruposEsperados) {
+        for (int i = 0; i < 3; i++) tablero.get();
+        long[] agregados = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long t0 = System.nanoTime();
+            SatisfactionDashboard d = tablero.get();
+            agregados[i] = System.nanoTime() - t0;
+            assertEquals(gruposEsperados, d.grupos().size(), caso);
+        }
+        long[] respuestas = new long[Math.max(RUNS / 4, 3)];
+        jdbc.queryForList(sobreRespuestas);
+        for (int i = 0; i < respuestas.length; i++) {
+            long t0 = System.nanoTime();
+            assertEquals(gruposEsperados, jdbc.queryForList(sobreRespuestas).size(), caso);
+            respuestas[i] = System.nanoTime() - t0;
+        }
+        double p99 = percentil(agregados, 99);
+        System.out.printf("satisfactionDashboard(%s) sobre %,d respuestas: agregados p50=%.1f ms p99=%.1f ms | "
+                        + "GROUP BY de respuestas p50=%.1f ms%n",
+                caso, ROWS, percentil(agregados, 50), p99, percentil(respuestas, 50));
+        return p99;
+    }
+
+    /** Devuelve el id del primer departamento */
+    private int sembrar() {
+        jdbc.update("""
+                insert into public.tbldepartamentos (nombre_departamento)
+                select 'Departamento satisfacción ' || d from generate_series(1, ?) d""", DEPARTAMENTOS);
+        jdbc.update("""
+                insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento)
+                select 'Ciudad ' || d.id_departamento || '-' || c, 'ciudad ' || d.id_departamento || '-' || c,
+                       d.id_departamento
+                from public.tbldepartamentos d, generate_series(1, ?) c
+                where d.nombre_departamento like 'Departamento satisfacción %'""", CIUDADES_POR_DEPARTAMENTO);
+        int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Encuestado') "
+                + "returning id_rol", Integer.class);
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Cliente ' || i, 'cliente ' || i, 'c' || i || '@satisfaccion.example.com', '3000000000',
+                       current_date, 'Calle ' || i, c.ids[i % c.n + 1], c.deptos[i % c.n + 1], ?
+                from (select array_agg(id_ciudad order by id_ciudad) ids,
+                             array_agg(departamento order by id_ciudad) deptos, count(*)::int n
+                      from public.tblciudades where nombre_ciudad like 'Ciudad %-%') c,
+                     generate_series(1, ?) i""", rol, USUARIOS);
+        // Respuestas repartidas por el año; puntajes sesgados hacia 4 y 5
+        jdbc.update("""
+                insert into public.tblsatisfaccion_respuestas (id_usuario, puntaje, fecha, ciudad, departamento)
+                select u.ids[i % u.n + 1], (array[1, 2, 3, 3, 4, 4, 4, 5, 5, 5])[(i::bigint * 7919) % 10 + 1],
+                       timestamptz '2025-01-01 00:00Z' + ((i::bigint * 104729) % 31536000) * interval '1 second',
+                       u.ciudades[i % u.n + 1], u.deptos[i % u.n + 1]
+                from (select array_agg(id_usuario order by id_usuario) ids, array_agg(ciudad order by id_usuario) ciudades,
+                             array_agg(departamento order by id_usuario) deptos, count(*)::int n
+                      from public.tblusuarios where correo like '%@satisfaccion.example.com') u,
+                     generate_series(1, ?) i""", ROWS);
+        jdbc.update("insert into public.tblsatisfaccion_diaria "
+                + "(dia, ciudad, departamento, respuestas, suma, p1, p2, p3, p4, p5) " + AGREGAR);
+        jdbc.execute("vacuum analyze public.tblsatisfaccion_respuestas");
+        jdbc.execute("vacuum analyze public.tblsatisfaccion_diaria");
+        catalog.reload();
+        return jdbc.queryForObject("select min(id_departamento) from public.tbldepartamentos "
+                + "where nombre_departamento like 'Departamento satisfacción %'", Integer.class);
+    }
+
+    private static double percentil(long[] nanos, int p) {
+        long[] ordenados = nanos.clone();
+        Arrays.sort(ordenados);
+        return ordenados[Math.min(ordenados.length * p / 100, ordenados.length - 1)] / 1e6;
+    }
+}
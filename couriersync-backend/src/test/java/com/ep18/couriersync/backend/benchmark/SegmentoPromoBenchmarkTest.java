@@ -0,0 +1,113 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import com.ep18.couriersync.backend.promos.segment.FuenteDestinatarios;
+import com.ep18.couriersync.backend.promos.segment.SegmentoResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark del segmento de una campaña (-Dbenchmark.rows usuarios, 1.000.000 por defecto, la
+ * mitad en el departamento elegido): tiempo hasta el primer destinatario, que debe estar por
+ * debajo de un segundo, y heap retenido en cada décimo del recorrido, que debe mantenerse plano
+ * (menos de 32 MB de diferencia). Imprime destinatarios/segundo.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SegmentoResolver.class, ReferenceDataCatalog.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SegmentoPromoBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final long MB = 1024 * 1024;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private SegmentoResolver resolver;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    @Test
+    void segmento_primerDestinatarioRapidoYHeapPlano() {
+        int elegido = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Segmento') returning id_departamento", Integer.class);
+        int otro = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Fuera del segmento') returning id_departamento", Integer.class);
+        int ciudadElegida = ciudad("Segmento", elegido);
+        int ciudadOtra = ciudad("Fuera", otro);
+        int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Segmento') "
+                + "returning id_rol", Integer.class);
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Usuario ' || md5(i::text), 'usuario ' || md5(i::text), 'seg' || i || '@example.com',
+                       '3000000000', current_date - (i % 3650), 'Calle ' || i,
+                       case when i % 2 = 0 then ? else ? end, case when i % 2 = 0 then ? else ? end, ?
+                from generate_series(1, ?) i
+                """, ciudadElegida, ciudadOtra, elegido, otro, rol, ROWS);
+        jdbc.execute("analyze public.tblusuarios");
+        catalog.reload();
+        long esperados = jdbc.queryForObject("select count(*) from public.tblusuarios where departamento = ?",
+                Long.class, elegido);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<Long> retenido = new ArrayList<>();
+        long cada = Math.max(1, esperados / 10);
+        long leidos = 0;
+        long t0 = System.nanoTime();
+        double primero;
+        try (FuenteDestinatarios fuente = resolver.abrir(new Segmento(null, elegido, rol, null, null))) {
+            assertTrue(fuente.hasNext());
+            primero = (System.nanoTime() - t0) / 1e9;
+            while (fuente.hasNext()) {
+                Destinatario d = fuente.next();
+                assertNotNull(d.correo());
+                if (++leidos % cada == 0) {
+                    System.gc();
+                    retenido.add(memory.getHeapMemoryUsage().getUsed());
+                }
+            }
+        }
+        double segundos = (System.nanoTime() - t0) / 1e9;
+
+        long min = Collections.min(retenido);
+        long max = Collections.max(retenido);
+        System.out.printf("segmento: %d destinatarios en %.2f s (%.0f/s), primero a los %.0f ms; "
+                + "heap retenido %d..%d MB%n", leidos, segundos, leidos / segundos, primero * 1000, min / MB, max / MB);
+        assertEquals(esperados, leidos);
+        assertTrue(primero < 1.0, "primer destinatario a los " + primero + " s");
+        assertTrue(max - min < 32 * MB, "heap retenido " + min / MB + ".." + max / MB + " MB");
+    }
+
+    private int ciudad(String nombre, int departamento) {
+        return jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values (?, ?, ?) returning id_ciudad", Integer.class, nombre, nombre.toLowerCase(), departamento);
+    }
+}
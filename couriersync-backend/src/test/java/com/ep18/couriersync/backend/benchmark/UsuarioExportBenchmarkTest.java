@@ -0,0 +1,121 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.exporter.ExportFormat;
+import com.ep18.couriersync.backend.customers.service.UsuarioExportService;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de la exportación (-Dbenchmark.rows, 1.000.000 por defecto). Escribe a un destino
+ * que descarta los bytes y, en cada décimo del recorrido, fuerza un GC y anota el heap retenido:
+ * con el cursor del servidor debe mantenerse plano (menos de 32 MB de diferencia) en lugar de
+ * crecer con las filas. Imprime filas/segundo y los MB retenidos.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({UsuarioExportService.class, ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsuarioExportBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final long MB = 1024 * 1024;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioExportService exportService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    @Test
+    void export_heapPlano() {
+        jdbc.update("insert into public.tbldepartamentos (nombre_departamento) values ('Exportación')");
+        jdbc.update("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "select 'Exportación', 'exportacion', max(id_departamento) from public.tbldepartamentos");
+        jdbc.update("insert into public.tblroles (nombre_rol) values ('Exportación')");
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Usuario ' || md5(i::text), 'usuario ' || md5(i::text), 'exp' || i || '@example.com',
+                       '3000000000', current_date - (i % 3650), 'Calle ' || i, c.id_ciudad, c.departamento, r.id_rol
+                from generate_series(1, ?) i,
+                     (select max(id_ciudad) id_ciudad, max(departamento) departamento from public.tblciudades) c,
+                     (select max(id_rol) id_rol from public.tblroles) r
+                """, ROWS);
+        jdbc.execute("analyze public.tblusuarios");
+        catalog.reload();
+        long total = jdbc.queryForObject("select count(*) from public.tblusuarios", Long.class);
+
+        for (ExportFormat format : ExportFormat.values()) {
+            HeapSampler out = new HeapSampler(total / 10);
+            long t0 = System.nanoTime();
+            long filas = exportService.export(null, null, format, false, out);
+            double segundos = (System.nanoTime() - t0) / 1e9;
+
+            long min = Collections.min(out.retenido);
+            long max = Collections.max(out.retenido);
+            System.out.printf("export %s: %d filas, %d MB en %.2f s (%.0f filas/s); heap retenido %d..%d MB%n",
+                    format, filas, out.bytes / MB, segundos, filas / segundos, min / MB, max / MB);
+            assertEquals(total, filas);
+            assertTrue(out.retenido.size() >= 9, "muestras: " + out.retenido.size());
+            assertTrue(max - min < 32 * MB, "heap retenido " + min / MB + ".." + max / MB + " MB");
+        }
+    }
+
+    /** Descarta lo escrito; cada {@code cada} líneas fuerza un GC y anota el heap retenido. */
+    private static final class HeapSampler extends OutputStream {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final long cada;
+        private final List<Long> retenido = new ArrayList<>();
+        private long lineas;
+        private long bytes;
+
+        HeapSampler(long cada) {
+            this.cada = Math.max(1, cada);
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n' && ++lineas % cada == 0) {
+                System.gc();
+                retenido.add(memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) write(b[i]);
+        }
+    }
+}
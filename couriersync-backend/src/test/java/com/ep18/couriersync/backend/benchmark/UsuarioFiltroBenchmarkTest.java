@@ -0,0 +1,148 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import com.ep18.couriersync.backend.customers.service.UsuarioService;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark del filtro combinado de usuarios (-Dbenchmark.rows, 1.000.000 por defecto) con
+ * 20 departamentos, 100 ciudades, 4 roles y diez años de fechas de registro. Se corre con
+ * {@code mvn test -Pbenchmark}. Para cada combinación filtro+orden verifica que el plan de la
+ * consulta equivalente no haga Seq Scan sobre tblusuarios e imprime la latencia p50/p95 de
+ * la primera página.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsuarioFiltroBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int RUNS = 30;
+    private static final LocalDate HOY = LocalDate.now();
+    private static boolean seeded;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    private int idCiudad;
+    private int idDepartamento;
+    private int idRol;
+
+    @BeforeEach
+    void seed() {
+        if (!seeded) {
+            jdbc.update("insert into public.tbldepartamentos (nombre_departamento) "
+                    + "select 'Departamento ' || d from generate_series(1, 20) d");
+            jdbc.update("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                    + "select 'Ciudad ' || d.id_departamento || '-' || c, 'ciudad ' || d.id_departamento || '-' || c, "
+                    + "d.id_departamento from public.tbldepartamentos d, generate_series(1, 5) c");
+            jdbc.update("insert into public.tblroles (nombre_rol) values ('Cliente'), ('Agente'), ('Admin'), ('Soporte')");
+            jdbc.update("""
+                    insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                    detalle_direccion, ciudad, departamento, rol)
+                    select 'Usuario ' || md5(i::text), 'usuario ' || md5(i::text),
+                           'u' || i || '@example.com', '3000000000', current_date - (i % 3650),
+                           'Calle ' || i, c.id_ciudad, c.departamento, r.id_rol
+                    from generate_series(1, ?) i
+                    join (select id_ciudad, departamento, row_number() over (order by id_ciudad) - 1 n
+                          from public.tblciudades) c on c.n = i % 100
+                    join (select id_rol, row_number() over (order by id_rol) - 1 n
+                          from public.tblroles) r on r.n = (i / 7) % 4
+                    """, ROWS);
+            jdbc.execute("analyze public.tblusuarios");
+            catalog.reload();
+            seeded = true;
+        }
+        idCiudad = jdbc.queryForObject("select min(id_ciudad) from public.tblciudades", Integer.class);
+        idDepartamento = jdbc.queryForObject("select departamento from public.tblciudades where id_ciudad = ?",
+                Integer.class, idCiudad);
+        idRol = jdbc.queryForObject("select min(id_rol) from public.tblroles", Integer.class);
+    }
+
+    @Test
+    void usuarios_cadaCombinacionUsaIndice() {
+        List<UsuarioFilter> filtros = List.of(
+                new UsuarioFilter(null, null, null, null, null, null),
+                new UsuarioFilter(null, idCiudad, null, null, null, null),
+                new UsuarioFilter(null, null, idDepartamento, null, null, null),
+                new UsuarioFilter(null, null, null, idRol, null, null),
+                new UsuarioFilter(null, null, null, null, HOY.minusDays(30), HOY),
+                new UsuarioFilter(null, idCiudad, null, idRol, HOY.minusYears(1), HOY),
+                new UsuarioFilter(null, null, idDepartamento, idRol, HOY.minusYears(2), HOY.minusYears(1)),
+                new UsuarioFilter("ab12", null, idDepartamento, null, null, null));
+
+        for (UsuarioFilter filter : filtros) {
+            for (UsuarioSort sort : UsuarioSort.values()) {
+                String plan = explain(filter, sort);
+                assertFalse(plan.contains("Seq Scan on tblusuarios"), filter + " " + sort + "\n" + plan);
+                assertTrue(plan.contains("Index"), filter + " " + sort + "\n" + plan);
+
+                usuarioService.list(filter, sort, 0, 20, false); // calentamiento
+                long[] nanos = new long[RUNS];
+                for (int i = 0; i < RUNS; i++) {
+                    long t0 = System.nanoTime();
+                    usuarioService.list(filter, sort, 0, 20, false);
+                    nanos[i] = System.nanoTime() - t0;
+                }
+                Arrays.sort(nanos);
+                System.out.printf("usuarios(%s, %s) sobre %,d filas: p50=%.1f ms p95=%.1f ms%n",
+                        filter, sort, ROWS, nanos[RUNS / 2] / 1e6, nanos[RUNS * 95 / 100] / 1e6);
+            }
+        }
+    }
+
+    /** EXPLAIN de la misma forma de consulta que arma UsuarioRepositoryCustomImpl (predicados en AND + orden + LIMIT). */
+    private String explain(UsuarioFilter f, UsuarioSort sort) {
+        List<String> where = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (f.q() != null) { where.add("u.nombre_busqueda like '%' || ? || '%'"); args.add(f.q()); }
+        if (f.idCiudad() != null) { where.add("u.ciudad = ?"); args.add(f.idCiudad()); }
+        if (f.idDepartamento() != null) { where.add("u.departamento = ?"); args.add(f.idDepartamento()); }
+        if (f.idRol() != null) { where.add("u.rol = ?"); args.add(f.idRol()); }
+        if (f.fechaDesde() != null) { where.add("u.fecha_registro >= ?"); args.add(f.fechaDesde()); }
+        if (f.fechaHasta() != null) { where.add("u.fecha_registro <= ?"); args.add(f.fechaHasta()); }
+        String order = switch (sort) {
+            case NOMBRE_ASC -> "u.nombre asc, u.id_usuario asc";
+            case NOMBRE_DESC -> "u.nombre desc, u.id_usuario desc";
+            case FECHA_REGISTRO_ASC -> "u.fecha_registro asc, u.id_usuario asc";
+            case FECHA_REGISTRO_DESC -> "u.fecha_registro desc, u.id_usuario desc";
+        };
+        String sql = "explain select u.* from public.tblusuarios u"
+                + (where.isEmpty() ? "" : " where " + String.join(" and ", where))
+                + " order by " + order + " limit 21";
+        return String.join("\n", jdbc.queryForList(sql, String.class, args.toArray()));
+    }
+}
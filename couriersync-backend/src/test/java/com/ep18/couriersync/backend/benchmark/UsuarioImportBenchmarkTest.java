@@ -0,0 +1,164 @@
+package com.ep18.couriersync.backend.benchmark;
+
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.dto.ImportDTOs.ImportResult;
+import com.ep18.couriersync.backend.customers.importer.ImportFormat;
+import com.ep18.couriersync.backend.customers.service.UsuarioBulkService;
+import com.ep18.couriersync.backend.customers.service.UsuarioImportService;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de la importación (-Dbenchmark.rows, 500.000 por defecto): un CSV generado al vuelo,
+ * sin materializarlo, con un 1 % de filas inválidas. Imprime filas/segundo junto al techo del
+ * propio servidor, un INSERT ... SELECT de las mismas filas en una copia de tblusuarios con todos
+ * sus índices y claves foráneas. Exige que la importación de punta a punta (lectura, validación,
+ * archivo temporal, COPY, fusión) no tarde más de MAX_VECES_TECHO veces ese techo: las filas/s
+ * absolutas dependen de la máquina y solo se imprimen.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({UsuarioImportService.class, UsuarioBulkService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class, LocalValidatorFactoryBean.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsuarioImportBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 500_000);
+    private static final int MAX_VECES_TECHO = 3;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioImportService importService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    @Test
+    void importar_throughput() {
+        jdbc.update("insert into public.tbldepartamentos (nombre_departamento) values ('Benchmark')");
+        int depto = jdbc.queryForObject("select max(id_departamento) from public.tbldepartamentos", Integer.class);
+        jdbc.update("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values ('Benchmark', 'benchmark', ?)", depto);
+        int ciudad = jdbc.queryForObject("select max(id_ciudad) from public.tblciudades", Integer.class);
+        jdbc.update("insert into public.tblroles (nombre_rol) values ('Benchmark')");
+        int rol = jdbc.queryForObject("select max(id_rol) from public.tblroles", Integer.class);
+        catalog.reload();
+        long antes = jdbc.queryForObject("select count(*) from public.tblusuarios", Long.class);
+        double techo = insertSelectSeconds(ciudad, depto, rol);
+
+        long t0 = System.nanoTime();
+        ImportResult r = importService.importar(ImportFormat.CSV, new GeneratedCsv(ROWS, ciudad, depto, rol));
+        double segundos = (System.nanoTime() - t0) / 1e9;
+        double filasPorSegundo = ROWS / segundos;
+        System.out.printf("importar: %d filas en %.2f s (%.0f filas/s), %d insertadas, %d rechazadas; "
+                        + "INSERT ... SELECT: %.2f s (%.0f filas/s)%n",
+                ROWS, segundos, filasPorSegundo, r.insertados(), r.rechazados(), techo, ROWS / techo);
+
+        assertEquals(ROWS, r.total());
+        assertEquals(ROWS / 100, r.rechazados());
+        assertEquals(antes + r.insertados(), jdbc.queryForObject("select count(*) from public.tblusuarios", Long.class));
+        assertTrue(segundos <= MAX_VECES_TECHO * techo,
+                "importar: " + segundos + " s, INSERT ... SELECT: " + techo + " s");
+    }
+
+    /**
+     * Tiempo de insertar ROWS filas por conjuntos en una copia de tblusuarios con los mismos
+     * defaults, índices y FKs.
+     */
+    private double insertSelectSeconds(int ciudad, int depto, int rol) {
+        jdbc.execute("create table bench_usuarios (like public.tblusuarios including defaults including indexes)");
+        try {
+            jdbc.execute("""
+                    alter table bench_usuarios
+                        add foreign key (ciudad) references public.tblciudades (id_ciudad),
+                        add foreign key (departamento) references public.tbldepartamentos (id_departamento),
+                        add foreign key (rol) references public.tblroles (id_rol)
+                    """);
+            long t0 = System.nanoTime();
+            jdbc.update("""
+                    insert into bench_usuarios (id_usuario, nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                    select i, 'Importado ' || i, 'importado ' || i, 'imp' || i || '@bench.example.com', '3001234567',
+                           current_date, 'Calle 1', ?, ?, ?
+                    from generate_series(1, ?) i
+                    """, ciudad, depto, rol, ROWS);
+            return (System.nanoTime() - t0) / 1e9;
+        } finally {
+            jdbc.execute("drop table bench_usuarios");
+        }
+    }
+
+    /** CSV de importación producido fila a fila; cada fila número 100 trae un teléfono inválido. */
+    private static final class GeneratedCsv extends InputStream {
+        private final int rows;
+        private final String sufijo;
+        private int next = -1;
+        private byte[] chunk = new byte[0];
+        private int pos;
+
+        GeneratedCsv(int rows, int ciudad, int depto, int rol) {
+            this.rows = rows;
+            this.sufijo = ",Calle 1," + ciudad + "," + depto + "," + rol + "\n";
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) return -1;
+            return chunk[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, chunk.length - pos);
+            System.arraycopy(chunk, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        private boolean fill() {
+            while (pos == chunk.length) {
+                if (next >= rows) return false;
+                StringBuilder sb = new StringBuilder(64 * 1024);
+                if (next < 0) {
+                    sb.append("nombre,correo,telefono,detalleDireccion,idCiudad,idDepartamento,idRol\n");
+                    next = 0;
+                }
+                for (int end = Math.min(rows, next + 1000); next < end; next++) {
+                    sb.append("Importado ").append(next).append(",imp").append(next).append("@bench.example.com,")
+                            .append(next % 100 == 99 ? "x" : "3001234567").append(sufijo);
+                }
+                chunk = sb.toString().getBytes(StandardCharsets.UTF_8);
+                pos = 0;
+            }
+            return true;
+        }
+    }
+}
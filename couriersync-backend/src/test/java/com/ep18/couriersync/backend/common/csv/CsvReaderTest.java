@@ -0,0 +1,45 @@
+package com.ep18.couriersync.backend.common.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void next_comillasSaltosDeLineaYLineasVacias() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(
+                "a,\"b,c\",\"d \"\"e\"\"\"\r\n\r\n\"x\ny\",,z\nultimo"));
+
+        assertEquals(List.of("a", "b,c", "d \"e\""), csv.next());
+        assertEquals(1, csv.recordLine());
+        assertEquals(List.of("x\ny", "", "z"), csv.next());
+        assertEquals(3, csv.recordLine());
+        assertEquals(List.of("ultimo"), csv.next());
+        assertEquals(5, csv.recordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void next_comillasSinCerrar() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("ok\n\"abierto,sin cerrar\n"));
+
+        assertEquals(List.of("ok"), csv.next());
+        assertThrows(CsvReader.MalformedCsvException.class, csv::next);
+    }
+
+    @Test
+    void writer_nullSinComillasYVacioConComillas() throws IOException {
+        StringWriter out = new StringWriter();
+        new CsvWriter(out, true).field(null).field("").field("a\"b").endRow();
+
+        assertEquals(",\"\",\"a\"\"b\"\n", out.toString());
+        assertEquals("1,\"a,b\",", CsvWriter.line(Arrays.asList(1, "a,b", null)));
+    }
+}
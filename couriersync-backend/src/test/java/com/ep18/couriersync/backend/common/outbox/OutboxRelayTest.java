@@ -0,0 +1,222 @@
+package com.ep18.couriersync.backend.common.outbox;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CreateCiudadInput;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.service.CiudadService;
+import com.ep18.couriersync.backend.customers.service.UsuarioService;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox contra PostgreSQL: con el interruptor de V16 encendido, los triggers de V9 escriben los
+ * eventos junto con el cambio (y nada si la transacción se revierte o si está apagado), y el relay
+ * los entrega en orden, reintenta tras un fallo y no toca los eventos que otra transacción tiene
+ * bloqueados. Sin transacción de prueba envolvente: el relay solo ve lo confirmado.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UsuarioService.class, CiudadService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class})
+class OutboxRelayTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private CiudadService ciudadService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private DataSource dataSource;
+    @Autowired private PlatformTransactionManager txManager;
+
+    private final List<OutboxEvent> recibidos = new ArrayList<>();
+    private final OutboxSink registro = recibidos::addAll;
+    private SimpleMeterRegistry metrics;
+    private int departamento;
+    private int otroDepartamento;
+    private int rol;
+
+    @BeforeEach
+    void setUp() {
+        departamento = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Outbox') returning id_departamento", Integer.class);
+        otroDepartamento = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Outbox 2') returning id_departamento", Integer.class);
+        rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Outbox') returning id_rol",
+                Integer.class);
+        jdbc.update("delete from public.tbloutbox");
+        jdbc.update("update public.tbloutbox_estado set activo = true");
+        metrics = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from public.tblusuarios where departamento in (?, ?)", departamento, otroDepartamento);
+        jdbc.update("delete from public.tblusuarios_eliminados");
+        jdbc.update("delete from public.tblciudades where departamento in (?, ?)", departamento, otroDepartamento);
+        jdbc.update("delete from public.tbldepartamentos where id_departamento in (?, ?)",
+                departamento, otroDepartamento);
+        jdbc.update("delete from public.tblroles where id_rol = ?", rol);
+        jdbc.update("delete from public.tbloutbox");
+        jdbc.update("update public.tbloutbox_estado set activo = false");
+    }
+
+    @Test
+    void interruptorApagadoNoEscribeEventos() {
+        jdbc.update("update public.tbloutbox_estado set activo = false");
+        int ciudad = ciudadService.create(new CreateCiudadInput("Outbox", departamento)).idCiudad();
+        catalog.reload();
+        int usuario = crearUsuario(ciudad, "apagado@outbox.example.com");
+        usuarioService.update(new UpdateUsuarioInput(usuario, "Otro Nombre", null, null, null, null, null, null, null));
+        usuarioService.delete(usuario);
+
+        assertEquals(0, jdbc.queryForObject("select count(*) from public.tbloutbox", Integer.class));
+    }
+
+    @Test
+    void escriturasDeLosServiciosSePublicanEnOrden() {
+        int ciudad = ciudadService.create(new CreateCiudadInput("Outbox", departamento)).idCiudad();
+        catalog.reload();
+        int usuario = crearUsuario(ciudad, "evento@outbox.example.com");
+        usuarioService.update(new UpdateUsuarioInput(usuario, "Otro Nombre", null, null, null, null, null, null, null));
+        // Sin cambios visibles: no genera evento
+        usuarioService.update(new UpdateUsuarioInput(usuario, null, null, "3000000000", null, null, null, null, null));
+        usuarioService.delete(usuario);
+        ciudadService.update(new UpdateCiudadInput(ciudad, "Outbox Norte", null));
+
+        OutboxRelay relay = relay(List.of(registro), 2);
+        assertEquals(5, relay.drain());
+
+        assertEquals(List.of("ciudad.created", "usuario.created", "usuario.updated", "usuario.deleted",
+                "ciudad.updated"), recibidos.stream().map(OutboxEvent::tipo).toList());
+        assertTrue(recibidos.get(2).payload().contains("\"nombre\": \"Otro Nombre\""));
+        assertEquals(usuario, recibidos.get(3).idAgregado());
+        assertEquals(0, jdbc.queryForObject("select count(*) from public.tbloutbox", Integer.class));
+        assertEquals(5, metrics.get("couriersync.outbox.published").counter().count());
+        assertEquals(5, metrics.get("couriersync.outbox.lag").timer().count());
+        assertEquals(0, metrics.get("couriersync.outbox.oldest.age").gauge().value());
+    }
+
+    @Test
+    void transaccionRevertidaNoDejaEventos() {
+        int ciudad = ciudadService.create(new CreateCiudadInput("Outbox", departamento)).idCiudad();
+        catalog.reload();
+        int usuario = crearUsuario(ciudad, "revertido@outbox.example.com");
+        jdbc.update("delete from public.tbloutbox");
+
+        // El UPDATE se ejecuta y luego la validación ciudad-departamento revierte la transacción
+        assertThrows(ValidationException.class, () -> usuarioService.update(
+                new UpdateUsuarioInput(usuario, null, null, null, null, null, null, otroDepartamento, null)));
+
+        assertEquals(0, jdbc.queryForObject("select count(*) from public.tbloutbox", Integer.class));
+    }
+
+    @Test
+    void destinoCaidoReintentaSinPerderNiAdelantar() {
+        int ciudad = ciudadService.create(new CreateCiudadInput("Outbox", departamento)).idCiudad();
+        int[] fallos = {1};
+        OutboxSink inestable = events -> {
+            if (fallos[0]-- > 0) throw new IllegalStateException("destino caído");
+            recibidos.addAll(events);
+        };
+        OutboxRelay relay = relay(List.of(inestable), 10);
+
+        assertEquals(0, relay.drain());
+        assertEquals(1, jdbc.queryForObject("select intentos from public.tbloutbox", Integer.class));
+        assertTrue(jdbc.queryForObject("select ultimo_error from public.tbloutbox", String.class)
+                .contains("destino caído"));
+        assertEquals(1, metrics.get("couriersync.outbox.failures").counter().count());
+
+        ciudadService.update(new UpdateCiudadInput(ciudad, "Outbox Sur", null));
+        assertEquals(2, relay.drain());
+        assertEquals(List.of("ciudad.created", "ciudad.updated"), recibidos.stream().map(OutboxEvent::tipo).toList());
+        assertEquals(Duration.ofSeconds(4), relay.backoff(3));
+        assertEquals(Duration.ofMinutes(1), relay.backoff(30));
+    }
+
+    @Test
+    void eventosBloqueadosPorOtroRelaySeSaltan() throws Exception {
+        ciudadService.create(new CreateCiudadInput("Outbox A", departamento));
+        ciudadService.create(new CreateCiudadInput("Outbox B", departamento));
+
+        try (var otro = dataSource.getConnection()) {
+            otro.setAutoCommit(false);
+            long tomado;
+            try (var st = otro.createStatement();
+                 var rs = st.executeQuery("select id_evento from public.tbloutbox order by id_evento "
+                         + "limit 1 for update skip locked")) {
+                rs.next();
+                tomado = rs.getLong(1);
+            }
+
+            assertEquals(1, relay(List.of(registro), 10).drain());
+            assertNotEquals(tomado, recibidos.get(0).idEvento());
+            otro.rollback();
+        }
+        assertEquals(1, jdbc.queryForObject("select count(*) from public.tbloutbox", Integer.class));
+    }
+
+    @Test
+    void destinoArchivoNdjson(@TempDir Path dir) throws Exception {
+        ciudadService.create(new CreateCiudadInput("Outbox", departamento));
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Path archivo = dir.resolve("eventos/outbox.ndjson");
+
+        try (NdjsonFileOutboxSink sink = new NdjsonFileOutboxSink(archivo, mapper)) {
+            assertEquals(1, relay(List.of(sink, registro), 10).drain());
+        }
+
+        List<String> lineas = Files.readAllLines(archivo);
+        assertEquals(1, lineas.size());
+        JsonNode evento = mapper.readTree(lineas.get(0));
+        assertEquals("ciudad.created", evento.get("tipo").asText());
+        assertEquals("Outbox", evento.get("payload").get("nombreCiudad").asText());
+        assertEquals(recibidos.get(0).idEvento(), evento.get("idEvento").asLong());
+    }
+
+    private OutboxRelay relay(List<OutboxSink> sinks, int batchSize) {
+        return new OutboxRelay(jdbc, txManager, sinks, batchSize, Duration.ofSeconds(1), Duration.ofMinutes(1),
+                metrics);
+    }
+
+    private int crearUsuario(int ciudad, String correo) {
+        return usuarioService.create(new CreateUsuarioInput("Usuario Outbox", correo, "3000000000", null,
+                "Calle 1", ciudad, departamento, rol)).idUsuario();
+    }
+}
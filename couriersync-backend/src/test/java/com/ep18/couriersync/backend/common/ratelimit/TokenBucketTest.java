@@ -0,0 +1,53 @@
+package com.ep18.couriersync.backend.common.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong ahora = new AtomicLong();
+
+    @Test
+    void rafagaYLuegoRitmoConstante() {
+        TokenBucket bucket = new TokenBucket(10, 3, ahora::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // 10 por segundo: una ficha cada 100 ms
+        ahora.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+        assertFalse(bucket.tryAcquire());
+        ahora.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void noAcumulaMasQueLaRafaga() {
+        TokenBucket bucket = new TokenBucket(10, 2, ahora::get);
+
+        ahora.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void acquireEsperaLaSiguienteFicha() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        bucket.acquire();
+
+        long t0 = System.nanoTime();
+        bucket.acquire();
+        bucket.acquire();
+
+        assertTrue(System.nanoTime() - t0 >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+}
@@ -0,0 +1,27 @@
+package com.ep18.couriersync.backend.common.text;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchKeysTest {
+
+    @Test
+    void normalize_quitaTildesMayusculasYEspacios() {
+        assertEquals("bogota d.c.", SearchKeys.normalize("  Bogotá   D.C. "));
+        assertEquals("munoz", SearchKeys.normalize("MUÑOZ"));
+        assertEquals("pinguino jose", SearchKeys.normalize("Pingüino\tJosé"));
+    }
+
+    @Test
+    void containsPattern_escapaComodines() {
+        assertEquals("%ana%", SearchKeys.containsPattern("ana"));
+        assertEquals("%\\%\\%\\%%", SearchKeys.containsPattern("%%%"));
+        assertEquals("%a\\_b\\\\c%", SearchKeys.containsPattern("a_b\\c"));
+    }
+
+    @Test
+    void normalize_nullEsVacio() {
+        assertEquals("", SearchKeys.normalize(null));
+    }
+}
@@ -0,0 +1,163 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReplicaDataSourceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Connection primaryCon = mock(Connection.class);
+    private final Connection r0Con = mock(Connection.class);
+    private final Connection r1Con = mock(Connection.class);
+    private DataSource primary;
+    private DataSource r0;
+    private DataSource r1;
+    private ReplicaDataSource ds;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = dataSource(primaryCon);
+        r0 = dataSource(r0Con);
+        r1 = dataSource(r1Con);
+        ds = new ReplicaDataSource(primary, List.of(
+                new ReplicaDataSource.Replica("r0", r0, registry),
+                new ReplicaDataSource.Replica("r1", r1, registry)), true, Duration.ofSeconds(10),
+                Duration.ofSeconds(2), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.close();
+    }
+
+    @Test
+    void getConnection_reparteEntreReplicas() throws SQLException {
+        assertSame(r0Con, ds.getConnection());
+        assertSame(r1Con, ds.getConnection());
+        assertSame(r0Con, ds.getConnection());
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void getConnection_replicaCaidaSaleDeRotacionYVuelveConElSondeo() throws SQLException {
+        when(r0.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertSame(r1Con, ds.getConnection());
+        assertSame(r1Con, ds.getConnection());
+        verify(r0, times(1)).getConnection();
+        assertEquals(1.0, registry.get("couriersync.datasource.replicas.healthy").gauge().value());
+
+        doReturn(r0Con).when(r0).getConnection();
+        stubLag(r0Con, 0);
+        stubLag(r1Con, 0);
+        ds.checkHealth();
+        assertEquals(2.0, registry.get("couriersync.datasource.replicas.healthy").gauge().value());
+    }
+
+    @Test
+    void getConnection_sinReplicasSanasCaeAlPrimario() throws SQLException {
+        when(r0.getConnection()).thenThrow(new SQLException("down"));
+        when(r1.getConnection()).thenThrow(new SQLException("down"));
+
+        assertSame(primaryCon, ds.getConnection());
+        assertEquals(1.0, registry.get("couriersync.datasource.reads").tag("reason", "fallback").counter().count());
+    }
+
+    @Test
+    void checkHealth_retrasoExcesivoSacaLaReplica() throws SQLException {
+        stubLag(r0Con, 30);
+        stubLag(r1Con, 1);
+
+        ds.checkHealth();
+
+        assertSame(r1Con, ds.getConnection());
+        assertSame(r1Con, ds.getConnection());
+    }
+
+    @Test
+    void checkHealth_sondeaPorSuPropiaConexionConTimeoutCorto() throws SQLException {
+        Connection probeCon = mock(Connection.class);
+        DataSource probe = dataSource(probeCon);
+        DataSource pool = mock(DataSource.class);
+        stubLag(probeCon, 0);
+        ReplicaDataSource conSondeo = new ReplicaDataSource(primary, List.of(
+                new ReplicaDataSource.Replica("r0", pool, probe, registry)), true, Duration.ofSeconds(10),
+                Duration.ofMillis(1500), registry);
+
+        conSondeo.checkHealth();
+        verify(probeCon.createStatement()).setQueryTimeout(2);
+        verifyNoInteractions(pool);
+
+        when(probe.getConnection()).thenThrow(new SQLException("connect timed out"));
+        conSondeo.checkHealth();
+        // Fuera de rotación sin haber pedido nada al pool: la lectura va directo al primario
+        assertSame(primaryCon, conSondeo.getConnection());
+        verifyNoInteractions(pool);
+    }
+
+    @Test
+    void getConnection_conCredencialesUsaLasDeLaConfiguracion() throws SQLException {
+        assertSame(r0Con, ds.getConnection("otro", "secreto"));
+        assertSame(r1Con, ds.getConnection("otro", "secreto"));
+    }
+
+    @Test
+    void getConnection_readYourWritesTrasEscribirEnLaPeticion() throws SQLException {
+        WriteTrackingDataSource writes = new WriteTrackingDataSource(primary);
+        ReadYourWrites.open();
+        assertSame(r0Con, ds.getConnection());
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            writes.getConnection();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertSame(primaryCon, ds.getConnection());
+        ReadYourWrites.close();
+        assertNotSame(primaryCon, ds.getConnection());
+    }
+
+    @Test
+    void writeTracking_fueraDeUnaPeticionNoFijaElPrimario() throws SQLException {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            new WriteTrackingDataSource(primary).getConnection();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertFalse(ReadYourWrites.active());
+        assertSame(r0Con, ds.getConnection());
+    }
+
+    private static DataSource dataSource(Connection con) throws SQLException {
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(con);
+        return ds;
+    }
+
+    private static void stubLag(Connection con, double seconds) throws SQLException {
+        Statement st = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(con.createStatement()).thenReturn(st);
+        when(st.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getDouble(1)).thenReturn(seconds);
+    }
+}
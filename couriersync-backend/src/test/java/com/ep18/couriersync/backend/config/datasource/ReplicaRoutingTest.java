@@ -0,0 +1,86 @@
+package com.ep18.couriersync.backend.config.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Enrutamiento con el JpaTransactionManager real. La "réplica" es la misma base con otro
+ * application_name en la URL, así cada consulta revela por qué pool pasó.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "app.datasource.replicas.enabled=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReplicaRoutingConfig.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingTest {
+
+    private static final String REPLICA = "couriersync-replica";
+    private static final String APP_NAME = "select current_setting('application_name')";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        registry.add("app.datasource.replicas.nodes[0].url", () -> withApplicationName(postgres.getJdbcUrl()));
+    }
+
+    @Autowired private PlatformTransactionManager txManager;
+    @Autowired private JdbcTemplate jdbc;
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.close();
+        jdbc.update("delete from public.tblroles where nombre_rol = 'Replica'");
+    }
+
+    @Test
+    void readOnlyVaALaReplicaYEscriturasAlPrimario() {
+        assertEquals(REPLICA, inTransaction(true));
+        assertNotEquals(REPLICA, inTransaction(false));
+        assertNotEquals(REPLICA, jdbc.queryForObject(APP_NAME, String.class)); // sin transacción: primario
+    }
+
+    @Test
+    void readYourWritesDentroDeLaPeticion() {
+        ReadYourWrites.open();
+        assertEquals(REPLICA, inTransaction(true));
+
+        new TransactionTemplate(txManager).executeWithoutResult(
+                s -> jdbc.update("insert into public.tblroles (nombre_rol) values ('Replica')"));
+
+        assertNotEquals(REPLICA, inTransaction(true));
+        ReadYourWrites.close();
+        assertEquals(REPLICA, inTransaction(true));
+    }
+
+    private String inTransaction(boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(s -> jdbc.queryForObject(APP_NAME, String.class));
+    }
+
+    static String withApplicationName(String url) {
+        return url + (url.contains("?") ? "&" : "?") + "ApplicationName=" + REPLICA;
+    }
+}
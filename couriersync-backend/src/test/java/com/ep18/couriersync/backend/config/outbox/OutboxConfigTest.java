@@ -0,0 +1,58 @@
+package com.ep18.couriersync.backend.config.outbox;
+
+import com.ep18.couriersync.backend.common.outbox.OutboxEvent;
+import com.ep18.couriersync.backend.common.outbox.OutboxSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class OutboxConfigTest {
+
+    static class Consumidor {
+        @EventListener
+        void on(OutboxEvent e) {}
+    }
+
+    static class OtroListener {
+        @EventListener
+        void on(Object e) {}
+    }
+
+    @Test
+    void applicationEvents_exigeUnListenerDeOutboxEvent() {
+        DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+        bf.registerBeanDefinition("otro", new RootBeanDefinition(OtroListener.class));
+        assertFalse(OutboxConfig.hasOutboxEventListener(bf));
+        assertThrows(IllegalStateException.class,
+                () -> new OutboxConfig().applicationEventOutboxSink(e -> {}, bf));
+
+        bf.registerBeanDefinition("consumidor", new RootBeanDefinition(Consumidor.class));
+        assertTrue(OutboxConfig.hasOutboxEventListener(bf));
+        assertNotNull(new OutboxConfig().applicationEventOutboxSink(e -> {}, bf));
+    }
+
+    @Test
+    void relay_sinDestinosNoArranca() {
+        DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new OutboxConfig().outboxRelay(
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class),
+                bf.getBeanProvider(OutboxSink.class),
+                new OutboxProperties(), new SimpleMeterRegistry()));
+        assertTrue(e.getMessage().contains("sin destinos"));
+    }
+
+    @Test
+    void interruptor_sigueAAppOutboxEnabledAunqueElRelayEsteApagado() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        new OutboxSwitchConfig().outboxTriggerSwitch(jdbc, new OutboxProperties()).onApplicationEvent(null);
+        verify(jdbc).update(OutboxSwitchConfig.SWITCH, false, false);
+    }
+}
@@ -0,0 +1,122 @@
+package com.ep18.couriersync.backend.customers.catalog;
+
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
+import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
+import com.ep18.couriersync.backend.customers.repository.RolRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReferenceDataCatalogTest {
+
+    @Mock
+    private DepartamentoRepository departamentoRepo;
+    @Mock
+    private CiudadRepository ciudadRepo;
+    @Mock
+    private RolRepository rolRepo;
+
+    private SimpleMeterRegistry registry;
+    private ReferenceDataCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registry = new SimpleMeterRegistry();
+
+        when(departamentoRepo.findAllRefs()).thenReturn(List.of(
+                new DepartamentoRef(5, "Antioquia"), new DepartamentoRef(1, "Cundinamarca")));
+        when(ciudadRepo.findAllRefs()).thenReturn(List.of(
+                new CiudadRef(10, "Medellin", 5), new CiudadRef(3, "Bogota", 1)));
+        when(rolRepo.findAllRefs()).thenReturn(List.of(new RolRef(1, "Cliente")));
+
+        catalog = new ReferenceDataCatalog(departamentoRepo, ciudadRepo, rolRepo, registry, Duration.ofHours(1));
+    }
+
+    @Test
+    void lookups_seResuelvenDesdeElSnapshotSinConsultarDeNuevo() {
+        assertEquals("Medellin", catalog.ciudad(10).orElseThrow().nombreCiudad());
+        assertEquals(1, catalog.ciudad(3).orElseThrow().idDepartamento());
+        assertEquals("Antioquia", catalog.departamento(5).orElseThrow().nombreDepartamento());
+        assertEquals("Cliente", catalog.rol(1).orElseThrow().nombreRol());
+
+        verify(ciudadRepo, times(1)).findAllRefs();
+        assertEquals(4, registry.counter("couriersync.catalog.lookups", "tipo", "ciudad", "resultado", "hit").count()
+                + registry.counter("couriersync.catalog.lookups", "tipo", "departamento", "resultado", "hit").count()
+                + registry.counter("couriersync.catalog.lookups", "tipo", "rol", "resultado", "hit").count());
+        assertEquals(1, registry.counter("couriersync.catalog.reloads").count());
+    }
+
+    @Test
+    void miss_recargaComoMuchoUnaVezPorIntervalo() {
+        catalog.reload();
+
+        assertTrue(catalog.ciudad(99).isEmpty());
+        assertTrue(catalog.ciudad(98).isEmpty());
+
+        // Solo la recarga explícita: dentro del intervalo no se recarga por fallos
+        verify(ciudadRepo, times(1)).findAllRefs();
+        assertEquals(2, registry.counter("couriersync.catalog.lookups", "tipo", "ciudad", "resultado", "miss").count());
+    }
+
+    @Test
+    void miss_dentroDelIntervalo_leeLaCiudadDeLaBdYLaConserva() {
+        catalog.reload();
+        // Creada por otra instancia después de la recarga
+        when(ciudadRepo.findRefsByIds(List.of(42))).thenReturn(List.of(new CiudadRef(42, "Envigado", 5)));
+
+        assertEquals("Envigado", catalog.ciudad(42).orElseThrow().nombreCiudad());
+        assertEquals("Envigado", catalog.ciudad(42).orElseThrow().nombreCiudad());
+        assertEquals("Medellin", catalog.ciudad(10).orElseThrow().nombreCiudad());
+
+        verify(ciudadRepo, times(1)).findAllRefs();
+        verify(ciudadRepo, times(1)).findRefsByIds(any());
+        assertEquals(1, registry.counter("couriersync.catalog.lookups", "tipo", "ciudad", "resultado", "bd").count());
+    }
+
+    @Test
+    void lotes_leenDeLaBdSoloLosQueFaltan() {
+        catalog.reload();
+        when(ciudadRepo.findRefsByIds(List.of(42, 99))).thenReturn(List.of(new CiudadRef(42, "Envigado", 5)));
+
+        Map<Integer, CiudadRef> found = catalog.ciudades(List.of(10, 42, 99));
+
+        assertEquals(Set.of(10, 42), found.keySet());
+        verify(ciudadRepo).findRefsByIds(List.of(42, 99));
+        assertEquals(1, registry.counter("couriersync.catalog.lookups", "tipo", "ciudad", "resultado", "miss").count());
+    }
+
+    @Test
+    void miss_fueraDelIntervalo_recogeCiudadNueva() {
+        catalog = new ReferenceDataCatalog(departamentoRepo, ciudadRepo, rolRepo, registry, Duration.ZERO);
+        catalog.reload();
+        when(ciudadRepo.findAllRefs()).thenReturn(List.of(new CiudadRef(42, "Envigado", 5)));
+
+        assertEquals("Envigado", catalog.ciudad(42).orElseThrow().nombreCiudad());
+    }
+
+    @Test
+    void refreshAfterCommit_sinTransaccion_recargaDeInmediato() {
+        catalog.reload();
+        when(rolRepo.findAllRefs()).thenReturn(List.of(new RolRef(1, "Cliente"), new RolRef(2, "Agente")));
+
+        catalog.refreshAfterCommit();
+
+        assertEquals("Agente", catalog.rol(2).orElseThrow().nombreRol());
+        verify(rolRepo, times(2)).findAllRefs();
+    }
+}
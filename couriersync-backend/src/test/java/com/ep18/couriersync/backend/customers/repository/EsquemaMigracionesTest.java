@@ -0,0 +1,125 @@
+package com.ep18.couriersync.backend.customers.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Esquema creado solo por Flyway (db/migration) y validado por Hibernate con ddl-auto: validate
+ * (si no coincide con las entidades, el contexto no arranca). Comprueba además que las consultas
+ * de los repositorios tienen un índice que las resuelve: con enable_seqscan = off el planificador
+ * solo cae en Seq Scan si no existe ningún índice aplicable.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class EsquemaMigracionesTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioRepository usuarioRepo;
+    @Autowired private CiudadRepository ciudadRepo;
+    @Autowired private DepartamentoRepository departamentoRepo;
+    @Autowired private RolRepository rolRepo;
+    @Autowired private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("insert into public.tbldepartamentos (nombre_departamento) "
+                + "select 'Departamento ' || d from generate_series(1, 10) d");
+        jdbc.update("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "select 'Ciudad ' || c, 'ciudad ' || c, id_departamento "
+                + "from public.tbldepartamentos, generate_series(1, 5) c");
+        jdbc.update("insert into public.tblroles (nombre_rol) values ('Cliente'), ('Agente')");
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Usuario ' || i, 'usuario ' || i, 'U' || i || '@Example.com', '3000000000',
+                       current_date - i, 'Calle ' || i, c.id_ciudad, c.departamento, r.id_rol
+                from generate_series(1, 2000) i
+                join (select id_ciudad, departamento, row_number() over (order by id_ciudad) - 1 n
+                      from public.tblciudades) c on c.n = i % 50
+                join (select id_rol, row_number() over (order by id_rol) - 1 n
+                      from public.tblroles) r on r.n = i % 2
+                """);
+        jdbc.execute("analyze");
+    }
+
+    @Test
+    void migracionesAplicadasEnOrden() throws IOException {
+        List<String> scripts = Arrays.stream(new PathMatchingResourcePatternResolver()
+                        .getResources("classpath:db/migration/V*__*.sql"))
+                .map(r -> r.getFilename().substring(1, r.getFilename().indexOf("__")))
+                .sorted(Comparator.comparingInt(Integer::parseInt))
+                .toList();
+        List<String> versiones = jdbc.queryForList(
+                "select version from couriersync_flyway_history where success order by installed_rank", String.class);
+
+        assertEquals(scripts, versiones);
+    }
+
+    @Test
+    void busquedasSinDistincionDeMayusculas() {
+        Integer idDepartamento = jdbc.queryForObject(
+                "select min(id_departamento) from public.tbldepartamentos", Integer.class);
+
+        assertTrue(usuarioRepo.existsByCorreoIgnoreCase("u7@example.COM"));
+        assertEquals("Usuario 7", usuarioRepo.findByCorreoIgnoreCase("U7@EXAMPLE.com").orElseThrow().getNombre());
+        assertTrue(ciudadRepo.existsByNombreCiudadIgnoreCaseAndDepartamento_IdDepartamento("CIUDAD 3", idDepartamento));
+        assertTrue(departamentoRepo.findByNombreDepartamentoIgnoreCase("departamento 4").isPresent());
+        assertFalse(rolRepo.existsByNombreRolIgnoreCase("admin"));
+    }
+
+    @Test
+    void consultasDeRepositoriosUsanIndice() {
+        // Misma forma que el SQL que generan los repositorios para cada búsqueda
+        Map<String, String> esperado = new LinkedHashMap<>();
+        esperado.put("select * from public.tblusuarios where lower(correo) = lower('u7@example.com')",
+                "ux_usuarios_correo_lower");
+        esperado.put("select * from public.tblusuarios where ciudad = 1 order by nombre limit 11",
+                "idx_usuarios_ciudad_nombre_id");
+        esperado.put("select * from public.tblusuarios where departamento = 1 order by nombre limit 11",
+                "idx_usuarios_departamento_nombre_id");
+        esperado.put("select * from public.tblusuarios where rol = 1 order by nombre limit 11",
+                "idx_usuarios_rol_nombre_id");
+        esperado.put("select * from public.tblciudades where departamento = 1 order by nombre_ciudad limit 11",
+                "idx_ciudades_departamento_nombre_id");
+        esperado.put("select * from public.tblciudades where departamento = 1 and lower(nombre_ciudad) = lower('ciudad 3')",
+                "ux_ciudades_departamento_nombre_lower");
+        esperado.put("select * from public.tbldepartamentos where lower(nombre_departamento) = lower('departamento 4')",
+                "ux_departamentos_nombre_lower");
+        esperado.put("select * from public.tbldepartamentos order by nombre_departamento limit 11",
+                "idx_departamentos_nombre_id");
+        esperado.put("select * from public.tblroles where lower(nombre_rol) = lower('cliente')",
+                "ux_roles_nombre_lower");
+        esperado.put("select * from public.tblroles order by nombre_rol limit 11",
+                "idx_roles_nombre_id");
+
+        jdbc.execute("set local enable_seqscan = off");
+        esperado.forEach((sql, indice) -> {
+            String plan = String.join("\n", jdbc.queryForList("explain " + sql, String.class));
+            assertTrue(plan.contains(indice), sql + "\n" + plan);
+            assertFalse(plan.contains("Seq Scan"), sql + "\n" + plan);
+        });
+    }
+}
@@ -0,0 +1,185 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Búsqueda por subcadena con pg_trgm sobre las claves normalizadas: insensible a tildes,
+ * ordenada por relevancia con los candidatos tomados del índice GiST por distancia y con el
+ * like '%q%' resuelto por el índice GIN (esquema, extensiones
+ * e índices salen de las mismas migraciones Flyway que en producción).
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, CiudadService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class})
+class BusquedaTrigramaTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private CiudadService ciudadService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+    @Autowired private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        Departamento d = new Departamento();
+        d.setNombreDepartamento("Antioquia");
+        em.persist(d);
+        Ciudad ciudad = null;
+        for (String nombre : List.of("Santa Rosa de Osos", "Rosales", "La Rosa", "Bogotá")) {
+            Ciudad c = new Ciudad();
+            c.setNombreCiudad(nombre);
+            c.setNombreBusqueda(SearchKeys.normalize(nombre));
+            c.setDepartamento(d);
+            ciudad = em.persist(c);
+        }
+        Rol rol = new Rol();
+        rol.setNombreRol("Cliente");
+        em.persist(rol);
+
+        int i = 0;
+        for (String nombre : List.of("Mariana Ruiz", "Ana", "Juliana Ana Gomez", "Pedro Lopez", "Julián Muñoz")) {
+            Usuario u = new Usuario();
+            u.setNombre(nombre);
+            u.setNombreBusqueda(SearchKeys.normalize(nombre));
+            u.setCorreo("usuario" + (i++) + "@example.com");
+            u.setTelefono("3000000000");
+            u.setFechaRegistro(LocalDate.now());
+            u.setDetalleDireccion("Calle 1");
+            u.setCiudad(ciudad);
+            u.setDepartamento(d);
+            u.setRol(rol);
+            em.persist(u);
+        }
+        em.flush();
+        em.clear();
+        catalog.reload();
+    }
+
+    @Test
+    void searchUsuarios_ordenaPorRelevancia() {
+        var page = usuarioService.search("ana", 0, 10);
+
+        List<String> nombres = page.content().stream().map(UsuarioView::nombre).toList();
+        assertEquals(3, page.pageInfo().totalElements());
+        assertEquals("Ana", nombres.get(0));
+        assertFalse(nombres.contains("Pedro Lopez"));
+    }
+
+    @Test
+    void searchCiudades_ordenaPorRelevanciaYResuelveDepartamento() {
+        var page = ciudadService.search("rosa", 0, 10, false);
+
+        List<String> nombres = page.content().stream().map(CiudadView::nombreCiudad).toList();
+        assertEquals(3, nombres.size());
+        assertEquals("La Rosa", nombres.get(0));
+        assertEquals("Antioquia", page.content().get(0).nombreDepartamento());
+    }
+
+    @Test
+    void searchUsuarios_conMasCoincidenciasQueCandidatos_conservaLosMejoresYNoInventaTotales() {
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Susana ' || i, 'susana ' || i, 'susana' || i || '@example.com', '3000000000',
+                       current_date, 'Calle 1', c.id_ciudad, c.departamento, r.id_rol
+                from generate_series(1, ?) i,
+                     (select id_ciudad, departamento from public.tblciudades limit 1) c,
+                     (select id_rol from public.tblroles limit 1) r
+                """, SearchKeys.MAX_CANDIDATES + 100);
+
+        var page = usuarioService.search("ana", 0, 10);
+
+        // "Ana" se insertó antes que las 1100 "Susana n": el tope no la deja fuera
+        assertEquals("Ana", page.content().get(0).nombre());
+        assertNull(page.pageInfo().totalElements());
+        assertNull(page.pageInfo().totalPages());
+        assertTrue(page.pageInfo().hasNext());
+        assertEquals(10, page.content().size());
+        assertTrue(usuarioService.search("ana", SearchKeys.MAX_CANDIDATES / 10, 10, false).content().isEmpty());
+    }
+
+    @Test
+    void search_comodinesEnElTerminoSonLiterales() {
+        assertTrue(usuarioService.search("%%%", 0, 10).content().isEmpty());
+        assertTrue(usuarioService.search("_na", 0, 10).content().isEmpty());
+        assertTrue(ciudadService.search("r_sa", 0, 10).content().isEmpty());
+    }
+
+    @Test
+    void search_sinTermino_listaTodoPorNombre() {
+        var usuarios = usuarioService.search(null, 0, 10);
+        List<String> nombres = usuarios.content().stream().map(UsuarioView::nombre).toList();
+        assertEquals(5, nombres.size());
+        assertEquals("Ana", nombres.get(0));
+        assertEquals("Pedro Lopez", nombres.get(4));
+        assertEquals(5, usuarios.pageInfo().totalElements());
+
+        var ciudades = ciudadService.search("", 0, 10);
+        assertEquals(List.of("Bogotá", "La Rosa", "Rosales", "Santa Rosa de Osos"),
+                ciudades.content().stream().map(CiudadView::nombreCiudad).toList());
+    }
+
+    @Test
+    void search_ignoraTildesYMayusculas() {
+        assertEquals("Julián Muñoz", usuarioService.search("MUNOZ", 0, 10).content().get(0).nombre());
+        assertEquals("Julián Muñoz", usuarioService.search("julian  muñoz", 0, 10).content().get(0).nombre());
+        assertEquals("Bogotá", ciudadService.search("bogota", 0, 10).content().get(0).nombreCiudad());
+    }
+
+    @Test
+    void searchUsuarios_usaElIndiceTrigrama() {
+        // Con pocas filas el planner prefiere seq scan: se desactiva para ver si el índice es aplicable
+        jdbc.execute("set local enable_seqscan = off");
+        String plan = String.join("\n", jdbc.queryForList(
+                "explain select * from public.tblusuarios where nombre_busqueda like '%ana%'", String.class));
+
+        // GIN (V3) o GiST (V15): los dos resuelven el like con trigramas
+        assertTrue(plan.contains("idx_usuarios_busqueda_trgm") || plan.contains("idx_usuarios_busqueda_gist"), plan);
+    }
+
+    @Test
+    void searchUsuarios_tomaLosCandidatosEnOrdenDeDistanciaDesdeElIndice() {
+        jdbc.execute("set local enable_seqscan = off");
+        jdbc.execute("set local enable_bitmapscan = off");
+        String plan = String.join("\n", jdbc.queryForList("""
+                explain select id_usuario from public.tblusuarios
+                where nombre_busqueda like '%ana%' order by nombre_busqueda <-> 'ana' limit 1000
+                """, String.class));
+
+        assertTrue(plan.contains("idx_usuarios_busqueda_gist"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+    }
+}
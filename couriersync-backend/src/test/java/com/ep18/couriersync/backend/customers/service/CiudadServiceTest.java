@@ -2,28 +2,41 @@ package com.ep18.couriersync.backend.customers.service;
 
 import com.ep18.couriersync.backend.common.exception.ConflictException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Ciudad;
 import com.ep18.couriersync.backend.customers.domain.Departamento;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CreateCiudadInput;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
 import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadView;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
 import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
 import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -35,6 +48,11 @@ class CiudadServiceTest {
     @Mock
     private DepartamentoRepository departamentoRepo;
 
+    @Mock
+    private ReferenceDataCatalog catalog;
+    @Mock
+    private SuggestionIndex suggestions;
+
     @InjectMocks
     private CiudadService ciudadService;
 
@@ -64,6 +82,7 @@ class CiudadServiceTest {
         CiudadView result = ciudadService.create(input);
 
         assertEquals("Miraflores", result.nombreCiudad());
+        verify(ciudadRepo).save(argThat(c -> "miraflores".equals(c.getNombreBusqueda())));
         assertEquals(1, result.idDepartamento());
     }
 
@@ -77,23 +96,57 @@ class CiudadServiceTest {
 
     @Test
     void testUpdateCiudad_Success() {
-        Ciudad existing = new Ciudad();
-        existing.setIdCiudad(100);
-        existing.setNombreCiudad("San Isidro");
-        existing.setDepartamento(depto);
-
         UpdateCiudadInput input = new UpdateCiudadInput(100, "Miraflores", null);
 
-        when(ciudadRepo.findById(100)).thenReturn(Optional.of(existing));
-        when(ciudadRepo.existsByNombreCiudadIgnoreCaseAndDepartamento_IdDepartamento("Miraflores", 1))
-                .thenReturn(false);
-        when(ciudadRepo.save(any(Ciudad.class))).thenAnswer(invocation -> invocation.getArgument(0)); // devolver el objeto actualizado
+        when(ciudadRepo.updateRow(input, "miraflores"))
+                .thenReturn(Optional.of(new CiudadView(100, "Miraflores", 1, "Lima")));
 
         CiudadView result = ciudadService.update(input);
 
         assertEquals("Miraflores", result.nombreCiudad()); // ahora coincide con la actualización
+        assertEquals("Lima", result.nombreDepartamento());
+        verify(ciudadRepo, never()).findById(any());
+        verify(ciudadRepo, never()).save(any());
+        verify(suggestions).indexAfterCommit(SuggestionTipo.CIUDAD, 100, "Miraflores");
     }
 
+    @Test
+    void testUpdateCiudad_NotFound() {
+        UpdateCiudadInput input = new UpdateCiudadInput(999, "Miraflores", null);
+        when(ciudadRepo.updateRow(input, "miraflores")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> ciudadService.update(input));
+        verify(catalog, never()).refreshAfterCommit();
+    }
+
+    @Test
+    void testUpdateCiudad_RestriccionesMapeadas() {
+        UpdateCiudadInput duplicada = new UpdateCiudadInput(100, "Miraflores", null);
+        when(ciudadRepo.updateRow(duplicada, "miraflores"))
+                .thenThrow(violacion("ux_ciudades_departamento_nombre_lower"));
+        UpdateCiudadInput sinDepto = new UpdateCiudadInput(100, null, 77);
+        when(ciudadRepo.updateRow(sinDepto, null)).thenThrow(violacion("departamento_ciudad"));
+
+        assertThrows(ConflictException.class, () -> ciudadService.update(duplicada));
+        assertThrows(NotFoundException.class, () -> ciudadService.update(sinDepto));
+    }
+
+    @Test
+    void testDelete_ConUsuarios() {
+        when(ciudadRepo.deleteRowById(100)).thenThrow(violacion("ciudad_usuario"));
+
+        assertThrows(ConflictException.class, () -> ciudadService.delete(100));
+        verify(suggestions, never()).removeAfterCommit(any(), anyInt());
+    }
+
+    @Test
+    void testDelete_Success() {
+        when(ciudadRepo.deleteRowById(100)).thenReturn(1);
+
+        assertTrue(ciudadService.delete(100));
+        verify(ciudadRepo, never()).existsById(any());
+        verify(suggestions).removeAfterCommit(SuggestionTipo.CIUDAD, 100);
+    }
 
     @Test
     void testFindById_NotFound() {
@@ -120,18 +173,56 @@ class CiudadServiceTest {
 
     @Test
     void testSearch() {
+        Page<CiudadRef> page = new PageImpl<>(List.of(new CiudadRef(1, "Miraflores", 1)));
+        when(ciudadRepo.searchRefs(eq("mira"), any(), eq(true))).thenReturn(page);
+        when(catalog.departamentos(Set.of(1))).thenReturn(Map.of(1, new DepartamentoRef(1, "Lima")));
+
+        PageResponse<?> response = ciudadService.search("Mira", 0, 10);
+
+        assertEquals(1, response.content().size());
+        CiudadView view = (CiudadView) response.content().get(0);
+        assertEquals("Miraflores", view.nombreCiudad());
+        assertEquals("Lima", view.nombreDepartamento());
+    }
+
+    @Test
+    void testSearch_sinTermino_listaTodasPorNombre() {
         Ciudad c1 = new Ciudad();
         c1.setIdCiudad(1);
         c1.setNombreCiudad("Miraflores");
         c1.setDepartamento(depto);
+        when(ciudadRepo.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(c1)));
 
-        Page<Ciudad> page = new PageImpl<>(List.of(c1));
-        when(ciudadRepo.findByNombreCiudadContainingIgnoreCase(eq("Mira"), any())).thenReturn(page);
-
-        PageResponse<?> response = ciudadService.search("Mira", 0, 10);
+        PageResponse<?> response = ciudadService.search(null, 0, 10);
 
         assertEquals(1, response.content().size());
-        CiudadView view = (CiudadView) response.content().get(0);
-        assertEquals("Miraflores", view.nombreCiudad());
+        assertEquals(1L, response.pageInfo().totalElements());
+        verify(ciudadRepo, never()).searchRefs(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testSearch_departamentoSinResolver_noDevuelveVistaParcial() {
+        Page<CiudadRef> page = new PageImpl<>(List.of(new CiudadRef(1, "Miraflores", 1)));
+        when(ciudadRepo.searchRefs(eq("mira"), any(), eq(true))).thenReturn(page);
+        when(catalog.departamentos(Set.of(1))).thenReturn(Map.of());
+
+        assertThrows(IllegalStateException.class, () -> ciudadService.search("Mira", 0, 10));
+    }
+
+    @Test
+    void testFindViewsByIds_desdeCatalogo() {
+        when(catalog.ciudades(Set.of(1, 2))).thenReturn(Map.of(1, new CiudadRef(1, "Miraflores", 1)));
+        when(catalog.departamentos(Set.of(1))).thenReturn(Map.of(1, new DepartamentoRef(1, "Lima")));
+
+        Map<Integer, CiudadView> views = ciudadService.findViewsByIds(Set.of(1, 2));
+
+        assertEquals(1, views.size());
+        assertEquals("Lima", views.get(1).nombreDepartamento());
+        verifyNoInteractions(ciudadRepo, departamentoRepo);
+    }
+
+    private static DataIntegrityViolationException violacion(String constraint) {
+        return new DataIntegrityViolationException(constraint,
+                new ConstraintViolationException(constraint, new SQLException(constraint), constraint));
     }
 }
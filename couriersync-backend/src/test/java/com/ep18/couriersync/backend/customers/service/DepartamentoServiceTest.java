@@ -3,17 +3,21 @@ package com.ep18.couriersync.backend.customers.service;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Departamento;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.CreateDepartamentoInput;
 import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.UpdateDepartamentoInput;
 import com.ep18.couriersync.backend.customers.repository.DepartamentoRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +29,9 @@ class DepartamentoServiceTest {
     @Mock
     private DepartamentoRepository departamentoRepo;
 
+    @Mock
+    private ReferenceDataCatalog catalog;
+
     @InjectMocks
     private DepartamentoService departamentoService;
 
@@ -61,25 +68,31 @@ class DepartamentoServiceTest {
     @Test
     void testUpdateDepartamento_Success() {
         UpdateDepartamentoInput input = new UpdateDepartamentoInput(1, "Cusco");
-        Departamento dep = new Departamento();
-        dep.setIdDepartamento(1);
-        dep.setNombreDepartamento("Lima");
-
-        when(departamentoRepo.findById(1)).thenReturn(Optional.of(dep));
-        when(departamentoRepo.existsByNombreDepartamentoIgnoreCase("Cusco")).thenReturn(false);
-        when(departamentoRepo.save(any(Departamento.class))).thenAnswer(i -> i.getArgument(0));
+        when(departamentoRepo.updateNombre(1, "Cusco")).thenReturn(1);
 
         var result = departamentoService.update(input);
 
         assertEquals("Cusco", result.nombreDepartamento());
+        verify(departamentoRepo, never()).findById(any());
+        verify(departamentoRepo, never()).existsByNombreDepartamentoIgnoreCase(any());
+        verify(catalog).refreshAfterCommit();
     }
 
     @Test
     void testUpdateDepartamento_NotFound() {
         UpdateDepartamentoInput input = new UpdateDepartamentoInput(1, "Cusco");
-        when(departamentoRepo.findById(1)).thenReturn(Optional.empty());
+        when(departamentoRepo.updateNombre(1, "Cusco")).thenReturn(0);
 
         assertThrows(NotFoundException.class, () -> departamentoService.update(input));
+        verify(catalog, never()).refreshAfterCommit();
+    }
+
+    @Test
+    void testUpdateDepartamento_NombreDuplicado() {
+        UpdateDepartamentoInput input = new UpdateDepartamentoInput(1, "Cusco");
+        when(departamentoRepo.updateNombre(1, "Cusco")).thenThrow(violacion("ux_departamentos_nombre_lower"));
+
+        assertThrows(ConflictException.class, () -> departamentoService.update(input));
     }
 
     @Test
@@ -125,17 +138,30 @@ class DepartamentoServiceTest {
 
     @Test
     void testDelete_Success() {
-        when(departamentoRepo.existsById(1)).thenReturn(true);
-        doNothing().when(departamentoRepo).deleteById(1);
+        when(departamentoRepo.deleteRowById(1)).thenReturn(1);
 
         boolean result = departamentoService.delete(1);
         assertTrue(result);
+        verify(departamentoRepo, never()).existsById(any());
     }
 
     @Test
     void testDelete_NotFound() {
-        when(departamentoRepo.existsById(1)).thenReturn(false);
+        when(departamentoRepo.deleteRowById(1)).thenReturn(0);
         boolean result = departamentoService.delete(1);
         assertFalse(result);
+        verify(catalog, never()).refreshAfterCommit();
+    }
+
+    @Test
+    void testDelete_ConCiudades() {
+        when(departamentoRepo.deleteRowById(1)).thenThrow(violacion("departamento_ciudad"));
+
+        assertThrows(ConflictException.class, () -> departamentoService.delete(1));
+    }
+
+    private static DataIntegrityViolationException violacion(String constraint) {
+        return new DataIntegrityViolationException(constraint,
+                new ConstraintViolationException(constraint, new SQLException(constraint), constraint));
     }
 }
@@ -0,0 +1,220 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.UpdateCiudadInput;
+import com.ep18.couriersync.backend.customers.dto.DepartamentoDTOs.UpdateDepartamentoInput;
+import com.ep18.couriersync.backend.customers.dto.RolDTOs.UpdateRolInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contra PostgreSQL: update y delete de los cuatro servicios cuestan una sola sentencia, y las
+ * violaciones de unicidad/FK se traducen por nombre de restricción a Conflict/NotFound.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, CiudadService.class, DepartamentoService.class, RolService.class,
+        ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class})
+class EscrituraUnaSentenciaTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private CiudadService ciudadService;
+    @Autowired private DepartamentoService departamentoService;
+    @Autowired private RolService rolService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+
+    private Statistics stats;
+    private Departamento antioquia;
+    private Departamento cundinamarca;
+    private Ciudad medellin;
+    private Ciudad bogota;
+    private Rol cliente;
+    private Rol agente;
+    private Usuario ana;
+
+    @BeforeEach
+    void setUp() {
+        antioquia = departamento("Antioquia");
+        cundinamarca = departamento("Cundinamarca");
+        medellin = ciudad("Medellin", antioquia);
+        ciudad("Envigado", antioquia);
+        bogota = ciudad("Bogota", cundinamarca);
+        cliente = rol("Cliente");
+        agente = rol("Agente");
+        ana = usuario("Ana", "ana@example.com");
+        usuario("Luis", "luis@example.com");
+        em.flush();
+        em.clear();
+
+        catalog.reload();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void updateUsuario_unaSentencia() {
+        var view = usuarioService.update(new UpdateUsuarioInput(ana.getIdUsuario(), "Ana María", null, null,
+                null, null, bogota.getIdCiudad(), cundinamarca.getIdDepartamento(), agente.getIdRol()));
+
+        assertEquals("Ana María", view.nombre());
+        assertEquals("ana@example.com", view.correo());
+        assertEquals("Bogota", view.nombreCiudad());
+        assertEquals("Agente", view.nombreRol());
+        assertEquals(1, stats.getPrepareStatementCount());
+
+        Usuario u = em.find(Usuario.class, ana.getIdUsuario());
+        assertEquals("ana maria", u.getNombreBusqueda());
+        assertEquals(bogota.getIdCiudad(), u.getCiudad().getIdCiudad());
+    }
+
+    @Test
+    void updateUsuario_correoDuplicadoSinDistinguirMayusculas() {
+        ConflictException e = assertThrows(ConflictException.class, () -> usuarioService.update(
+                new UpdateUsuarioInput(ana.getIdUsuario(), null, "LUIS@example.com", null, null, null, null, null, null)));
+        assertEquals("El correo ya está registrado", e.getMessage());
+    }
+
+    @Test
+    void updateUsuario_mismoCorreoNoEsConflicto() {
+        var view = usuarioService.update(
+                new UpdateUsuarioInput(ana.getIdUsuario(), null, "ANA@example.com", null, null, null, null, null, null));
+        assertEquals("ANA@example.com", view.correo());
+    }
+
+    @Test
+    void updateUsuario_inexistente() {
+        assertThrows(NotFoundException.class, () -> usuarioService.update(
+                new UpdateUsuarioInput(-1, "X", null, null, null, null, null, null, null)));
+    }
+
+    @Test
+    void updateUsuario_fkInexistente() {
+        NotFoundException e = assertThrows(NotFoundException.class, () -> usuarioService.update(
+                new UpdateUsuarioInput(ana.getIdUsuario(), null, null, null, null, null, null, null, -1)));
+        assertEquals("Rol no encontrado", e.getMessage());
+    }
+
+    @Test
+    void updateUsuario_ciudadDeOtroDepartamento() {
+        assertThrows(ValidationException.class, () -> usuarioService.update(
+                new UpdateUsuarioInput(ana.getIdUsuario(), null, null, null, null, null, bogota.getIdCiudad(), null, null)));
+    }
+
+    @Test
+    void updateCiudad_unaSentenciaConNombreDeDepartamento() {
+        var view = ciudadService.update(new UpdateCiudadInput(medellin.getIdCiudad(), "Medellín", null));
+
+        assertEquals("Medellín", view.nombreCiudad());
+        assertEquals("Antioquia", view.nombreDepartamento());
+        assertEquals(1, stats.getPrepareStatementCount());
+        assertEquals("medellin", em.find(Ciudad.class, medellin.getIdCiudad()).getNombreBusqueda());
+    }
+
+    @Test
+    void updateCiudad_restricciones() {
+        assertThrows(ConflictException.class, () -> ciudadService.update(
+                new UpdateCiudadInput(medellin.getIdCiudad(), "ENVIGADO", null)));
+    }
+
+    @Test
+    void updateCiudad_departamentoInexistente() {
+        assertThrows(NotFoundException.class, () -> ciudadService.update(
+                new UpdateCiudadInput(medellin.getIdCiudad(), null, -1)));
+    }
+
+    @Test
+    void updateDepartamentoYRol_unaSentencia() {
+        assertEquals("Antioquía", departamentoService.update(
+                new UpdateDepartamentoInput(antioquia.getIdDepartamento(), "Antioquía")).nombreDepartamento());
+        assertEquals("Clientes", rolService.update(new UpdateRolInput(cliente.getIdRol(), "Clientes")).nombreRol());
+        assertEquals(2, stats.getPrepareStatementCount());
+
+        assertThrows(NotFoundException.class, () -> rolService.update(new UpdateRolInput(-1, "X")));
+    }
+
+    @Test
+    void updateRol_nombreDuplicado() {
+        assertThrows(ConflictException.class, () -> rolService.update(new UpdateRolInput(cliente.getIdRol(), "agente")));
+    }
+
+    @Test
+    void delete_unaSentencia() {
+        assertTrue(usuarioService.delete(ana.getIdUsuario()));
+        assertFalse(usuarioService.delete(ana.getIdUsuario()));
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void delete_conRegistrosRelacionados() {
+        assertThrows(ConflictException.class, () -> ciudadService.delete(medellin.getIdCiudad()));
+    }
+
+    private Departamento departamento(String nombre) {
+        Departamento d = new Departamento();
+        d.setNombreDepartamento(nombre);
+        return em.persist(d);
+    }
+
+    private Ciudad ciudad(String nombre, Departamento d) {
+        Ciudad c = new Ciudad();
+        c.setNombreCiudad(nombre);
+        c.setNombreBusqueda(SearchKeys.normalize(nombre));
+        c.setDepartamento(d);
+        return em.persist(c);
+    }
+
+    private Rol rol(String nombre) {
+        Rol r = new Rol();
+        r.setNombreRol(nombre);
+        return em.persist(r);
+    }
+
+    private Usuario usuario(String nombre, String correo) {
+        Usuario u = new Usuario();
+        u.setNombre(nombre);
+        u.setNombreBusqueda(SearchKeys.normalize(nombre));
+        u.setCorreo(correo);
+        u.setTelefono("3000000000");
+        u.setFechaRegistro(LocalDate.now());
+        u.setDetalleDireccion("Calle 1");
+        u.setCiudad(medellin);
+        u.setDepartamento(antioquia);
+        u.setRol(cliente);
+        return em.persist(u);
+    }
+}
@@ -3,17 +3,21 @@ package com.ep18.couriersync.backend.customers.service;
 import com.ep18.couriersync.backend.common.dto.PagingDTOs.PageResponse;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.Rol;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.CreateRolInput;
 import com.ep18.couriersync.backend.customers.dto.RolDTOs.UpdateRolInput;
 import com.ep18.couriersync.backend.customers.repository.RolRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +29,9 @@ class RolServiceTest {
     @Mock
     private RolRepository rolRepo;
 
+    @Mock
+    private ReferenceDataCatalog catalog;
+
     @InjectMocks
     private RolService rolService;
 
@@ -48,6 +55,7 @@ class RolServiceTest {
         assertNotNull(result);
         assertEquals("Admin", result.nombreRol());
         assertEquals(1, result.idRol());
+        verify(catalog).refreshAfterCommit();
     }
 
     @Test
@@ -61,27 +69,32 @@ class RolServiceTest {
     @Test
     void testUpdateRol_Success() {
         UpdateRolInput input = new UpdateRolInput(1, "User");
-        Rol rol = new Rol();
-        rol.setIdRol(1);
-        rol.setNombreRol("Admin");
-
-        when(rolRepo.findById(1)).thenReturn(Optional.of(rol));
-        when(rolRepo.existsByNombreRolIgnoreCase("User")).thenReturn(false);
-        when(rolRepo.save(any(Rol.class))).thenAnswer(i -> i.getArgument(0));
+        when(rolRepo.updateNombre(1, "User")).thenReturn(1);
 
         var result = rolService.update(input);
 
         assertEquals("User", result.nombreRol());
+        verify(rolRepo, never()).findById(any());
+        verify(rolRepo, never()).save(any());
     }
 
     @Test
     void testUpdateRol_NotFound() {
         UpdateRolInput input = new UpdateRolInput(1, "User");
-        when(rolRepo.findById(1)).thenReturn(Optional.empty());
+        when(rolRepo.updateNombre(1, "User")).thenReturn(0);
 
         assertThrows(NotFoundException.class, () -> rolService.update(input));
     }
 
+    @Test
+    void testUpdateRol_NombreDuplicado() {
+        UpdateRolInput input = new UpdateRolInput(1, "User");
+        when(rolRepo.updateNombre(1, "User")).thenThrow(violacion("ux_roles_nombre_lower"));
+
+        assertThrows(ConflictException.class, () -> rolService.update(input));
+        verify(catalog, never()).refreshAfterCommit();
+    }
+
     @Test
     void testFindById_Success() {
         Rol rol = new Rol();
@@ -121,21 +134,52 @@ class RolServiceTest {
         PageResponse<?> result = rolService.list(0, 10);
 
         assertEquals(2, result.content().size());
+        assertEquals(2L, result.pageInfo().totalElements());
+        assertFalse(result.pageInfo().hasNext());
+    }
+
+    @Test
+    void testList_SinTotales_UsaSlice() {
+        Rol rol1 = new Rol();
+        rol1.setIdRol(1);
+        rol1.setNombreRol("Admin");
+
+        Slice<Rol> slice = new SliceImpl<>(List.of(rol1), PageRequest.of(0, 1), true);
+        when(rolRepo.findSlice(any(Pageable.class))).thenReturn(slice);
+
+        PageResponse<?> result = rolService.list(0, 1, false);
+
+        assertEquals(1, result.content().size());
+        assertTrue(result.pageInfo().hasNext());
+        assertNull(result.pageInfo().totalElements());
+        verify(rolRepo, never()).findAll(any(Pageable.class));
     }
 
     @Test
     void testDelete_Success() {
-        when(rolRepo.existsById(1)).thenReturn(true);
-        doNothing().when(rolRepo).deleteById(1);
+        when(rolRepo.deleteRowById(1)).thenReturn(1);
 
         boolean result = rolService.delete(1);
         assertTrue(result);
+        verify(catalog).refreshAfterCommit();
     }
 
     @Test
     void testDelete_NotFound() {
-        when(rolRepo.existsById(1)).thenReturn(false);
+        when(rolRepo.deleteRowById(1)).thenReturn(0);
         boolean result = rolService.delete(1);
         assertFalse(result);
     }
+
+    @Test
+    void testDelete_ConUsuarios() {
+        when(rolRepo.deleteRowById(1)).thenThrow(violacion("rol_usuario"));
+
+        assertThrows(ConflictException.class, () -> rolService.delete(1));
+    }
+
+    private static DataIntegrityViolationException violacion(String constraint) {
+        return new DataIntegrityViolationException(constraint,
+                new ConstraintViolationException(constraint, new SQLException(constraint), constraint));
+    }
 }
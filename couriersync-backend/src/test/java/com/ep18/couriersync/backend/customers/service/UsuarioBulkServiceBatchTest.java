@@ -0,0 +1,115 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioResult;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Alta masiva contra PostgreSQL: ids de secuencia pooled y INSERT en lotes JDBC, de modo que
+ * el número de sentencias preparadas depende de los lotes y no del número de usuarios.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioBulkService.class, ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class,
+        LocalValidatorFactoryBean.class})
+class UsuarioBulkServiceBatchTest {
+
+    private static final int USUARIOS = 120;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioBulkService bulkService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+    @Autowired private JdbcTemplate jdbc;
+
+    private Statistics stats;
+    private Ciudad ciudad;
+    private Departamento departamento;
+    private Rol rol;
+
+    @BeforeEach
+    void setUp() {
+        departamento = new Departamento();
+        departamento.setNombreDepartamento("Antioquia");
+        em.persist(departamento);
+
+        ciudad = new Ciudad();
+        ciudad.setNombreCiudad("Medellin");
+        ciudad.setNombreBusqueda(SearchKeys.normalize("Medellin"));
+        ciudad.setDepartamento(departamento);
+        em.persist(ciudad);
+
+        rol = new Rol();
+        rol.setNombreRol("Cliente");
+        em.persist(rol);
+        em.flush();
+        em.clear();
+
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                values ('Previo', 'previo', 'previo@example.com', '3000000000', current_date, 'Calle 0', ?, ?, ?)
+                """, ciudad.getIdCiudad(), departamento.getIdDepartamento(), rol.getIdRol());
+        catalog.reload();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void createAll_insertaEnLotes() {
+        List<CreateUsuarioInput> inputs = new ArrayList<>();
+        for (int i = 0; i < USUARIOS; i++) inputs.add(input("usuario" + i + "@example.com"));
+        inputs.add(input("PREVIO@example.com"));
+
+        List<CreateUsuarioResult> results = bulkService.createAll(inputs);
+
+        assertEquals("CONFLICT", results.get(USUARIOS).error().code());
+        List<Integer> ids = results.subList(0, USUARIOS).stream().map(r -> r.usuario().idUsuario()).toList();
+        assertTrue(ids.stream().allMatch(Objects::nonNull));
+        assertEquals(USUARIOS, ids.stream().distinct().count());
+        assertEquals(USUARIOS + 1, jdbc.queryForObject("select count(*) from public.tblusuarios", Integer.class));
+
+        // 1 consulta de correos + 3 nextval (bloques de 50) + 3 lotes de INSERT; sin lotes serían 120 INSERT
+        assertTrue(stats.getPrepareStatementCount() <= 8,
+                "sentencias preparadas: " + stats.getPrepareStatementCount());
+    }
+
+    private CreateUsuarioInput input(String correo) {
+        return new CreateUsuarioInput("Usuario " + correo, correo, "3001234567", null, "Calle 1",
+                ciudad.getIdCiudad(), departamento.getIdDepartamento(), rol.getIdRol());
+    }
+}
@@ -0,0 +1,131 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.*;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioResult;
+import com.ep18.couriersync.backend.customers.repository.*;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UsuarioBulkServiceTest {
+
+    private UsuarioBulkService bulkService;
+
+    @Mock private UsuarioRepository usuarioRepo;
+    @Mock private CiudadRepository ciudadRepo;
+    @Mock private DepartamentoRepository departamentoRepo;
+    @Mock private RolRepository rolRepo;
+    @Mock private ReferenceDataCatalog catalog;
+    @Mock private SuggestionIndex suggestions;
+
+    @Captor private ArgumentCaptor<List<Usuario>> saved;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bulkService = new UsuarioBulkService(usuarioRepo, ciudadRepo, departamentoRepo, rolRepo, catalog,
+                suggestions, Validation.buildDefaultValidatorFactory().getValidator());
+
+        when(catalog.ciudad(1)).thenReturn(Optional.of(new CiudadRef(1, "Ciudad 1", 1)));
+        when(catalog.ciudad(2)).thenReturn(Optional.of(new CiudadRef(2, "Ciudad 2", 2)));
+        when(catalog.departamento(1)).thenReturn(Optional.of(new DepartamentoRef(1, "Departamento 1")));
+        when(catalog.rol(1)).thenReturn(Optional.of(new RolRef(1, "Admin")));
+        when(ciudadRepo.getReferenceById(anyInt())).thenReturn(new Ciudad());
+        when(departamentoRepo.getReferenceById(anyInt())).thenReturn(new Departamento());
+        when(rolRepo.getReferenceById(anyInt())).thenReturn(new Rol());
+
+        AtomicInteger ids = new AtomicInteger(100);
+        when(usuarioRepo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Usuario> us = inv.getArgument(0);
+            us.forEach(u -> u.setIdUsuario(ids.incrementAndGet()));
+            return us;
+        });
+    }
+
+    @Test
+    void createAll_erroresPorElementoSinAbortarElLote() {
+        when(usuarioRepo.findExistingCorreos(anyCollection())).thenReturn(List.of("existe@example.com"));
+
+        List<CreateUsuarioResult> results = bulkService.createAll(List.of(
+                input("Ana", "ana@example.com", 1),
+                input("Luis", "Existe@Example.com", 1),
+                new CreateUsuarioInput("Sin Telefono", "tel@example.com", "123", null, "Calle 1", 1, 1, 1),
+                input("Ciudad Ajena", "ajena@example.com", 2),
+                input("Ciudad Inexistente", "nada@example.com", 9),
+                input("Ana Bis", "ANA@example.com", 1),
+                input("Pedro", "pedro@example.com", 1)));
+
+        assertEquals(7, results.size());
+        for (int i = 0; i < results.size(); i++) assertEquals(i, results.get(i).index());
+
+        assertEquals("Ana", results.get(0).usuario().nombre());
+        assertEquals("CONFLICT", results.get(1).error().code());
+        assertEquals("VALIDATION_ERROR", results.get(2).error().code());
+        assertTrue(results.get(2).error().message().startsWith("telefono"));
+        assertEquals("VALIDATION_ERROR", results.get(3).error().code());
+        assertEquals("NOT_FOUND", results.get(4).error().code());
+        assertEquals("El correo está repetido en el lote", results.get(5).error().message());
+        assertEquals("Pedro", results.get(6).usuario().nombre());
+        assertEquals("Ciudad 1", results.get(6).usuario().nombreCiudad());
+
+        // Una sola consulta de correos (en minúsculas) y un solo saveAll con los válidos, en orden
+        verify(usuarioRepo).findExistingCorreos(argThat(c -> c.size() == 3 && c.contains("existe@example.com")));
+        verify(usuarioRepo, never()).existsByCorreoIgnoreCase(any());
+        verify(usuarioRepo).saveAll(saved.capture());
+        assertEquals(List.of("Ana", "Pedro"), saved.getValue().stream().map(Usuario::getNombre).toList());
+        assertEquals("ana", saved.getValue().get(0).getNombreBusqueda());
+        verify(usuarioRepo).flush();
+        verify(suggestions).indexAfterCommit(SuggestionTipo.USUARIO, 101, "Ana");
+        verify(suggestions).indexAfterCommit(SuggestionTipo.USUARIO, 102, "Pedro");
+    }
+
+    @Test
+    void createAll_todosInvalidosNoConsultaNiInserta() {
+        List<CreateUsuarioResult> results = bulkService.createAll(List.of(input("X", "no-es-correo", 1)));
+
+        assertEquals("VALIDATION_ERROR", results.get(0).error().code());
+        verify(usuarioRepo, never()).findExistingCorreos(any());
+        verify(usuarioRepo).saveAll(List.of());
+    }
+
+    @Test
+    void createAll_excedeElMaximo() {
+        List<CreateUsuarioInput> inputs = Collections.nCopies(UsuarioBulkService.MAX_BATCH + 1,
+                input("Ana", "ana@example.com", 1));
+
+        assertThrows(ValidationException.class, () -> bulkService.createAll(inputs));
+        verifyNoInteractions(usuarioRepo);
+    }
+
+    @Test
+    void createAll_choqueConcurrenteDeCorreo() {
+        when(usuarioRepo.findExistingCorreos(anyCollection())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException("ux_usuarios_correo_lower")).when(usuarioRepo).flush();
+
+        assertThrows(ConflictException.class,
+                () -> bulkService.createAll(List.of(input("Ana", "ana@example.com", 1))));
+        verifyNoInteractions(suggestions);
+    }
+
+    private static CreateUsuarioInput input(String nombre, String correo, int idCiudad) {
+        return new CreateUsuarioInput(nombre, correo, "3001234567", null, "Calle 1", idCiudad, 1, 1);
+    }
+}
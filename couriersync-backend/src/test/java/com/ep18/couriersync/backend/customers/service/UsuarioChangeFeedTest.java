@@ -0,0 +1,209 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Connection;
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Edge;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UpdateUsuarioInput;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChange;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeTipo;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Feed de cambios contra PostgreSQL. Sin transacción de prueba envolvente: el feed solo entrega
+ * transacciones ya terminadas, así que cada escritura tiene que confirmarse de verdad.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UsuarioService.class, ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class})
+class UsuarioChangeFeedTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private DataSource dataSource;
+
+    private int ciudad;
+    private int departamento;
+    private int rol;
+
+    @BeforeEach
+    void setUp() {
+        departamento = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Feed') returning id_departamento", Integer.class);
+        ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values ('Feed', 'feed', ?) returning id_ciudad", Integer.class, departamento);
+        rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Feed') returning id_rol",
+                Integer.class);
+        catalog.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from public.tblusuarios where departamento = ?", departamento);
+        jdbc.update("delete from public.tblusuarios_eliminados");
+        jdbc.update("delete from public.tblciudades where id_ciudad = ?", ciudad);
+        jdbc.update("delete from public.tbldepartamentos where id_departamento = ?", departamento);
+        jdbc.update("delete from public.tblroles where id_rol = ?", rol);
+    }
+
+    @Test
+    void altasModificacionesYBajasEnOrdenDeTransaccion() {
+        String inicio = ultimoCursor();
+        int a = insertUsuario("a@feed.example.com");
+        int b = insertUsuario("b@feed.example.com");
+
+        Connection<UsuarioChange> feed = usuarioService.changesSince(inicio, 10);
+        assertEquals(List.of(a, b), ids(feed));
+        assertTrue(feed.edges().stream().allMatch(e -> e.node().tipo() == UsuarioChangeTipo.CREATED));
+        assertEquals("Feed", feed.edges().get(0).node().usuario().nombreCiudad());
+        String cursor = feed.pageInfo().endCursor();
+
+        usuarioService.update(new UpdateUsuarioInput(a, "Ana Feed", null, null, null, null, null, null, null));
+        usuarioService.delete(b);
+
+        feed = usuarioService.changesSince(cursor, 10);
+        assertEquals(List.of(a, b), ids(feed));
+        UsuarioChange cambio = feed.edges().get(0).node();
+        assertEquals(UsuarioChangeTipo.UPDATED, cambio.tipo());
+        assertEquals("Ana Feed", cambio.usuario().nombre());
+        UsuarioChange baja = feed.edges().get(1).node();
+        assertEquals(UsuarioChangeTipo.DELETED, baja.tipo());
+        assertNull(baja.usuario());
+        assertNotNull(baja.changedAt());
+
+        // Al día: sin cambios nuevos no hay endCursor y el consumidor conserva el suyo
+        feed = usuarioService.changesSince(feed.pageInfo().endCursor(), 10);
+        assertTrue(feed.edges().isEmpty());
+        assertNull(feed.pageInfo().endCursor());
+        assertFalse(feed.pageInfo().hasNextPage());
+    }
+
+    @Test
+    void paginasPequenasSinDuplicadosNiHuecos() {
+        String cursor = ultimoCursor();
+        List<Integer> creados = new ArrayList<>();
+        for (int i = 0; i < 5; i++) creados.add(insertUsuario("p" + i + "@feed.example.com"));
+
+        List<Integer> leidos = new ArrayList<>();
+        Connection<UsuarioChange> feed;
+        do {
+            feed = usuarioService.changesSince(cursor, 2);
+            leidos.addAll(ids(feed));
+            cursor = feed.pageInfo().endCursor();
+        } while (feed.pageInfo().hasNextPage());
+
+        assertEquals(creados, leidos);
+    }
+
+    @Test
+    void transaccionAbiertaRetieneLasPosteriores() throws Exception {
+        String cursor = ultimoCursor();
+        try (var lenta = dataSource.getConnection()) {
+            // Empieza antes (txid menor) y confirma después que la rápida
+            lenta.setAutoCommit(false);
+            int primera;
+            try (PreparedStatement ps = lenta.prepareStatement(INSERT_USUARIO)) {
+                bind(ps, "lenta@feed.example.com");
+                var rs = ps.executeQuery();
+                rs.next();
+                primera = rs.getInt(1);
+            }
+            int segunda = insertUsuario("rapida@feed.example.com");
+
+            // Mientras la lenta sigue abierta no se entrega nada posterior a ella
+            assertTrue(usuarioService.changesSince(cursor, 10).edges().isEmpty());
+
+            lenta.commit();
+            assertEquals(List.of(primera, segunda), ids(usuarioService.changesSince(cursor, 10)));
+        }
+    }
+
+    @Test
+    void marcasDeAuditoriaPersistidas() {
+        int id = insertUsuario("audit@feed.example.com");
+        OffsetDateTime creado = marca("created_at", id);
+        assertEquals(creado, marca("updated_at", id));
+
+        usuarioService.update(new UpdateUsuarioInput(id, null, null, "3110000000", null, null, null, null, null));
+
+        assertEquals(creado, marca("created_at", id));
+        assertTrue(marca("updated_at", id).isAfter(creado));
+    }
+
+    private OffsetDateTime marca(String columna, int id) {
+        return jdbc.queryForObject("select " + columna + " from public.tblusuarios where id_usuario = ?",
+                OffsetDateTime.class, id);
+    }
+
+    @Test
+    void cursorInvalido() {
+        String ajeno = new KeysetCursor("1; drop table x", 1).encode();
+        assertThrows(ValidationException.class, () -> usuarioService.changesSince(ajeno, 10));
+        assertThrows(ValidationException.class, () -> usuarioService.changesSince("%%%", 10));
+    }
+
+    private static final String INSERT_USUARIO = """
+            insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                            detalle_direccion, ciudad, departamento, rol)
+            values ('Usuario Feed', 'usuario feed', ?, '3000000000', current_date, 'Calle 1', ?, ?, ?)
+            returning id_usuario
+            """;
+
+    private int insertUsuario(String correo) {
+        return jdbc.queryForObject(INSERT_USUARIO, Integer.class, correo, ciudad, departamento, rol);
+    }
+
+    private void bind(PreparedStatement ps, String correo) throws Exception {
+        ps.setString(1, correo);
+        ps.setInt(2, ciudad);
+        ps.setInt(3, departamento);
+        ps.setInt(4, rol);
+    }
+
+    /** Cursor posterior a todo lo ya confirmado (las pruebas comparten BD con datos previos) */
+    private String ultimoCursor() {
+        String cursor = null;
+        Connection<UsuarioChange> feed;
+        do {
+            feed = usuarioService.changesSince(cursor, UsuarioService.CHANGES_MAX_LIMIT);
+            if (feed.pageInfo().endCursor() != null) cursor = feed.pageInfo().endCursor();
+        } while (feed.pageInfo().hasNextPage());
+        return cursor;
+    }
+
+    private static List<Integer> ids(Connection<UsuarioChange> feed) {
+        return feed.edges().stream().map(Edge::node).map(UsuarioChange::idUsuario).toList();
+    }
+}
@@ -0,0 +1,142 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import com.ep18.couriersync.backend.customers.exporter.ExportFormat;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Exportación contra PostgreSQL: mismos filtros y orden que el listado, CSV, NDJSON y gzip. */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({UsuarioExportService.class, ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class})
+class UsuarioExportServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+
+    @Autowired private UsuarioExportService exportService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+    @Autowired private ObjectMapper mapper;
+
+    private Ciudad medellin;
+    private Departamento antioquia;
+    private Rol cliente;
+
+    @BeforeEach
+    void setUp() {
+        antioquia = new Departamento();
+        antioquia.setNombreDepartamento("Antioquia");
+        em.persist(antioquia);
+        medellin = new Ciudad();
+        medellin.setNombreCiudad("Medellín");
+        medellin.setNombreBusqueda(SearchKeys.normalize("Medellín"));
+        medellin.setDepartamento(antioquia);
+        em.persist(medellin);
+        cliente = new Rol();
+        cliente.setNombreRol("Cliente");
+        em.persist(cliente);
+
+        for (int i = 0; i < 12; i++) {
+            Usuario u = new Usuario();
+            u.setNombre("Usuario " + (char) ('A' + i));
+            u.setNombreBusqueda(SearchKeys.normalize(u.getNombre()));
+            u.setCorreo("export" + i + "@example.com");
+            u.setTelefono("3000000000");
+            u.setFechaRegistro(BASE.plusDays(i));
+            u.setDetalleDireccion(i == 0 ? "Calle 1, \"interior\" 2" : "Calle " + i);
+            u.setCiudad(medellin);
+            u.setDepartamento(antioquia);
+            u.setRol(cliente);
+            em.persist(u);
+        }
+        em.flush();
+        em.clear();
+        catalog.reload();
+    }
+
+    @Test
+    void exportCsv_filtraOrdenaYEscapa() {
+        var filter = new UsuarioFilter(null, medellin.getIdCiudad(), null, null, BASE, BASE.plusDays(2));
+
+        String[] lineas = new String(export(filter, UsuarioSort.FECHA_REGISTRO_DESC, ExportFormat.CSV, false),
+                StandardCharsets.UTF_8).split("\n");
+
+        assertEquals("idUsuario,nombre,correo,telefono,fechaRegistro,detalleDireccion,idCiudad,nombreCiudad,"
+                + "idDepartamento,nombreDepartamento,idRol,nombreRol", lineas[0]);
+        assertEquals(4, lineas.length);
+        assertTrue(lineas[1].contains(",Usuario C,export2@example.com,3000000000,2024-01-03,Calle 2,"), lineas[1]);
+        assertTrue(lineas[1].endsWith("," + medellin.getIdCiudad() + ",Medellín," + antioquia.getIdDepartamento()
+                + ",Antioquia," + cliente.getIdRol() + ",Cliente"), lineas[1]);
+        assertTrue(lineas[3].contains(",\"Calle 1, \"\"interior\"\" 2\","), lineas[3]);
+    }
+
+    @Test
+    void exportNdjsonGzip_unObjetoPorLinea() throws IOException {
+        byte[] gz = export(null, UsuarioSort.NOMBRE_ASC, ExportFormat.NDJSON, true);
+
+        List<JsonNode> filas = new ArrayList<>();
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            for (String linea : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                filas.add(mapper.readTree(linea));
+            }
+        }
+        assertEquals(12, filas.size());
+        assertEquals("Usuario A", filas.get(0).get("nombre").asText());
+        assertEquals("2024-01-01", filas.get(0).get("fechaRegistro").asText());
+        assertEquals("Medellín", filas.get(0).get("nombreCiudad").asText());
+        assertEquals("Usuario L", filas.get(11).get("nombre").asText());
+    }
+
+    @Test
+    void export_rangoDeFechasInvalido() {
+        var filter = new UsuarioFilter(null, null, null, null, BASE.plusDays(1), BASE);
+        assertThrows(ValidationException.class, () -> export(filter, null, ExportFormat.CSV, false));
+    }
+
+    private byte[] export(UsuarioFilter filter, UsuarioSort sort, ExportFormat format, boolean gzip) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(filter, sort, format, gzip, out);
+        return out.toByteArray();
+    }
+}
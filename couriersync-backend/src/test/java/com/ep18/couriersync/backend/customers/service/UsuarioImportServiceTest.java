@@ -0,0 +1,176 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.dto.ImportDTOs.ImportResult;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionView;
+import com.ep18.couriersync.backend.customers.importer.ImportFormat;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Importación contra PostgreSQL: COPY a la tabla temporal, fusión por conjuntos y reporte de
+ * rechazos con la línea y el motivo de cada registro descartado.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({UsuarioImportService.class, UsuarioBulkService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class, LocalValidatorFactoryBean.class})
+class UsuarioImportServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioImportService importService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private SuggestionIndex suggestions;
+    @Autowired private TestEntityManager em;
+    @Autowired private JdbcTemplate jdbc;
+
+    private int ciudad;
+    private int departamento;
+    private int rol;
+
+    @BeforeEach
+    void setUp() {
+        Departamento d = new Departamento();
+        d.setNombreDepartamento("Antioquia");
+        em.persist(d);
+
+        Ciudad c = new Ciudad();
+        c.setNombreCiudad("Medellin");
+        c.setNombreBusqueda(SearchKeys.normalize("Medellin"));
+        c.setDepartamento(d);
+        em.persist(c);
+
+        Rol r = new Rol();
+        r.setNombreRol("Cliente");
+        em.persist(r);
+        em.flush();
+        em.clear();
+        ciudad = c.getIdCiudad();
+        departamento = d.getIdDepartamento();
+        rol = r.getIdRol();
+
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                values ('Previo', 'previo', 'previo@example.com', '3000000000', current_date, 'Calle 0', ?, ?, ?)
+                """, ciudad, departamento, rol);
+        catalog.reload();
+    }
+
+    @Test
+    void importarCsv_insertaValidosYReportaRechazos() {
+        String csv = "correo,nombre,telefono,detalleDireccion,idCiudad,idDepartamento,idRol,fechaRegistro\n"
+                + fila("Zoe Import", "zoe@example.com", "") + "\n"
+                + fila("Álvaro Import", "alvaro@example.com", "2024-01-15") + "\n"
+                + fila("Repetido", "ZOE@example.com", "") + "\n"          // repetido en el archivo
+                + fila("Ya Existe", "previo@EXAMPLE.com", "") + "\n"      // ya registrado
+                + fila("Sin Correo", "no-es-correo", "") + "\n"           // bean validation
+                + "\"nombre, con coma\",x@example.com\n"                  // columnas incompletas
+                + fila("Fecha Mala", "fecha@example.com", "15/01/2024") + "\n";
+
+        ImportResult r = importService.importar(ImportFormat.CSV, stream(csv));
+
+        assertEquals(7, r.total());
+        assertEquals(2, r.insertados());
+        assertEquals(5, r.rechazados());
+        assertEquals(r, importService.resumen(r.idImportacion()));
+        assertEquals(List.of("alvaro@example.com", "zoe@example.com"), jdbc.queryForList(
+                "select correo from public.tblusuarios where correo <> 'previo@example.com' order by correo",
+                String.class));
+        assertEquals("2024-01-15", jdbc.queryForObject(
+                "select fecha_registro::text from public.tblusuarios where correo = 'alvaro@example.com'",
+                String.class));
+        assertEquals("alvaro import", jdbc.queryForObject(
+                "select nombre_busqueda from public.tblusuarios where correo = 'alvaro@example.com'",
+                String.class));
+
+        String[] reporte = rechazos(r.idImportacion()).split("\n");
+        assertEquals("linea,motivo,contenido", reporte[0]);
+        assertEquals(6, reporte.length);
+        assertTrue(reporte[1].startsWith("4,El correo está repetido en el archivo,"), reporte[1]);
+        assertTrue(reporte[2].startsWith("5,El correo ya está registrado,"), reporte[2]);
+        assertTrue(reporte[3].startsWith("6,correo:"), reporte[3]);
+        assertTrue(reporte[4].startsWith("7,"), reporte[4]);
+        assertTrue(reporte[4].contains("\"\"\"nombre, con coma\"\",x@example.com\""), reporte[4]);
+        assertTrue(reporte[5].startsWith("8,"), reporte[5]);
+
+        assertEquals(List.of("Álvaro Import"), suggestions.suggest("alv", 5).stream()
+                .filter(s -> s.tipo() == SuggestionTipo.USUARIO).map(SuggestionView::texto).toList());
+    }
+
+    @Test
+    void importarNdjson_registrosInvalidosNoAbortan() {
+        String ndjson = """
+                {"nombre":"Uno","correo":"uno@example.com","telefono":"3001234567","detalleDireccion":"Calle 1","idCiudad":%d,"idDepartamento":%d,"idRol":%d}
+                {"nombre":"Roto",
+                {"nombre":"Dos","correo":"dos@example.com","telefono":"3001234567","detalleDireccion":"Calle 1","idCiudad":999999,"idDepartamento":%d,"idRol":%d}
+                """.formatted(ciudad, departamento, rol, departamento, rol);
+
+        ImportResult r = importService.importar(ImportFormat.NDJSON, stream(ndjson));
+
+        assertEquals(3, r.total());
+        assertEquals(1, r.insertados());
+        String[] reporte = rechazos(r.idImportacion()).split("\n");
+        assertEquals(3, reporte.length);
+        assertTrue(reporte[1].startsWith("2,"), reporte[1]);
+        assertTrue(reporte[2].startsWith("3,Ciudad no encontrada,"), reporte[2]);
+    }
+
+    @Test
+    void importarCsv_encabezadoInvalido() {
+        assertThrows(ValidationException.class,
+                () -> importService.importar(ImportFormat.CSV, stream("nombre,correo,otra\nA,a@example.com,x\n")));
+        assertThrows(NotFoundException.class, () -> importService.resumen(UUID.randomUUID()));
+    }
+
+    private String fila(String nombre, String correo, String fecha) {
+        return String.join(",", correo, "\"" + nombre + "\"", "3001234567", "Calle 1",
+                String.valueOf(ciudad), String.valueOf(departamento), String.valueOf(rol), fecha);
+    }
+
+    private String rechazos(UUID id) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        importService.writeRechazos(id, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
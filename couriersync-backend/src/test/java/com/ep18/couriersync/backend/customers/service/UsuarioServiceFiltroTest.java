@@ -0,0 +1,150 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioSort;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Filtro combinado de usuarios contra PostgreSQL: criterios en AND, orden elegido y una sola sentencia. */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, ReferenceDataCatalog.class, SuggestionIndex.class, SimpleMeterRegistry.class})
+class UsuarioServiceFiltroTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+
+    private Statistics stats;
+    private Ciudad medellin;
+    private Departamento antioquia;
+    private Rol cliente;
+
+    @BeforeEach
+    void setUp() {
+        antioquia = persist(departamento("Antioquia"));
+        Departamento cundinamarca = persist(departamento("Cundinamarca"));
+        medellin = persist(ciudad("Medellin", antioquia));
+        Ciudad bogota = persist(ciudad("Bogota", cundinamarca));
+        cliente = persist(rol("Cliente"));
+        Rol agente = persist(rol("Agente"));
+
+        // 40 usuarios: mitad en Medellín, roles alternados cada 4, una fecha distinta por usuario
+        for (int i = 0; i < 40; i++) {
+            Usuario u = new Usuario();
+            u.setNombre((i % 3 == 0 ? "Ana " : "Luis ") + i);
+            u.setNombreBusqueda(SearchKeys.normalize(u.getNombre()));
+            u.setCorreo("usuario" + i + "@example.com");
+            u.setTelefono("3000000000");
+            u.setFechaRegistro(BASE.plusDays(i));
+            u.setDetalleDireccion("Calle " + i);
+            boolean enMedellin = i % 2 == 0;
+            u.setCiudad(enMedellin ? medellin : bogota);
+            u.setDepartamento(enMedellin ? antioquia : cundinamarca);
+            u.setRol((i / 4) % 2 == 0 ? cliente : agente);
+            em.persist(u);
+        }
+        em.flush();
+        em.clear();
+        catalog.reload();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void list_combinaTodosLosCriterios() {
+        var filter = new UsuarioFilter("ana", medellin.getIdCiudad(), antioquia.getIdDepartamento(),
+                cliente.getIdRol(), BASE, BASE.plusDays(30));
+
+        var page = usuarioService.list(filter, UsuarioSort.FECHA_REGISTRO_DESC, 0, 50, true);
+
+        // i par, múltiplo de 3, (i/4) par, i <= 30  ->  0, 18, 24
+        assertEquals(List.of("Ana 24", "Ana 18", "Ana 0"),
+                page.content().stream().map(UsuarioView::nombre).toList());
+        assertEquals(3L, page.pageInfo().totalElements());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void list_sinFiltroOrdenaPorNombreDescYSinConteo() {
+        var page = usuarioService.list(null, UsuarioSort.NOMBRE_DESC, 0, 10, false);
+
+        List<UsuarioView> content = page.content();
+        assertEquals(10, content.size());
+        assertTrue(page.pageInfo().hasNext());
+        assertNull(page.pageInfo().totalElements());
+        assertEquals(content.stream().sorted(Comparator.comparing(UsuarioView::nombre).reversed()).toList(), content);
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void list_rangoDeFechasInclusivo() {
+        var filter = new UsuarioFilter(null, null, null, null, BASE.plusDays(5), BASE.plusDays(9));
+
+        var page = usuarioService.list(filter, UsuarioSort.FECHA_REGISTRO_ASC, 0, 50, true);
+
+        assertEquals(5L, page.pageInfo().totalElements());
+        assertEquals(BASE.plusDays(5), page.content().get(0).fechaRegistro());
+        assertEquals(BASE.plusDays(9), page.content().get(4).fechaRegistro());
+    }
+
+    private <T> T persist(T entity) {
+        return em.persist(entity);
+    }
+
+    private static Departamento departamento(String nombre) {
+        Departamento d = new Departamento();
+        d.setNombreDepartamento(nombre);
+        return d;
+    }
+
+    private static Ciudad ciudad(String nombre, Departamento d) {
+        Ciudad c = new Ciudad();
+        c.setNombreCiudad(nombre);
+        c.setNombreBusqueda(SearchKeys.normalize(nombre));
+        c.setDepartamento(d);
+        return c;
+    }
+
+    private static Rol rol(String nombre) {
+        Rol r = new Rol();
+        r.setNombreRol(nombre);
+        return r;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.CiudadDTOs.CiudadFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioFilter;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioView;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recorre las conexiones por cursor contra PostgreSQL: sin huecos ni duplicados aunque
+ * haya nombres repetidos (el id desempata) y respetando los filtros.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, CiudadService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class})
+class UsuarioServiceKeysetTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private CiudadService ciudadService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+
+    private Departamento antioquia;
+    private Departamento cundinamarca;
+
+    @BeforeEach
+    void setUp() {
+        antioquia = departamento("Antioquia");
+        cundinamarca = departamento("Cundinamarca");
+        Ciudad medellin = ciudad("Medellin", antioquia);
+        Ciudad bogota = ciudad("Bogota", cundinamarca);
+        ciudad("Envigado", antioquia);
+
+        Rol rol = new Rol();
+        rol.setNombreRol("Cliente");
+        em.persist(rol);
+
+        // 25 usuarios con solo 5 nombres distintos: el orden depende del desempate por id
+        for (int i = 0; i < 25; i++) {
+            boolean enAntioquia = i % 2 == 0;
+            Usuario u = new Usuario();
+            u.setNombre("Usuario " + (i % 5));
+            u.setNombreBusqueda(SearchKeys.normalize(u.getNombre()));
+            u.setCorreo("usuario" + i + "@example.com");
+            u.setTelefono("3000000000");
+            u.setFechaRegistro(LocalDate.now());
+            u.setDetalleDireccion("Calle " + i);
+            u.setCiudad(enAntioquia ? medellin : bogota);
+            u.setDepartamento(enAntioquia ? antioquia : cundinamarca);
+            u.setRol(rol);
+            em.persist(u);
+        }
+        em.flush();
+        em.clear();
+        catalog.reload();
+    }
+
+    @Test
+    void usuariosConnection_recorreTodoSinHuecosNiDuplicados() {
+        List<UsuarioView> vistos = recorrer(null, 4);
+
+        assertEquals(25, vistos.size());
+        assertEquals(vistos.stream()
+                        .sorted(Comparator.comparing(UsuarioView::nombre).thenComparing(UsuarioView::idUsuario))
+                        .toList(),
+                vistos);
+    }
+
+    @Test
+    void usuariosConnection_conFiltroDeDepartamento() {
+        List<UsuarioView> vistos = recorrer(new UsuarioFilter(null, null, cundinamarca.getIdDepartamento(), null, null, null), 5);
+
+        assertEquals(12, vistos.size());
+        assertTrue(vistos.stream().allMatch(v -> "Cundinamarca".equals(v.nombreDepartamento())));
+    }
+
+    @Test
+    void ciudadesConnection_ordenPorNombre() {
+        var primera = ciudadService.connection(new CiudadFilter(null, antioquia.getIdDepartamento()), 1, null);
+        var segunda = ciudadService.connection(
+                new CiudadFilter(null, antioquia.getIdDepartamento()), 1, primera.pageInfo().endCursor());
+
+        assertEquals("Envigado", primera.edges().get(0).node().nombreCiudad());
+        assertTrue(primera.pageInfo().hasNextPage());
+        assertEquals("Medellin", segunda.edges().get(0).node().nombreCiudad());
+        assertEquals("Antioquia", segunda.edges().get(0).node().nombreDepartamento());
+        assertFalse(segunda.pageInfo().hasNextPage());
+    }
+
+    private List<UsuarioView> recorrer(UsuarioFilter filter, int first) {
+        List<UsuarioView> vistos = new ArrayList<>();
+        String after = null;
+        boolean hasNext = true;
+        while (hasNext) {
+            var conn = usuarioService.connection(filter, first, after);
+            conn.edges().forEach(e -> vistos.add(e.node()));
+            hasNext = conn.pageInfo().hasNextPage();
+            after = conn.pageInfo().endCursor();
+        }
+        return vistos;
+    }
+
+    private Departamento departamento(String nombre) {
+        Departamento d = new Departamento();
+        d.setNombreDepartamento(nombre);
+        return em.persist(d);
+    }
+
+    private Ciudad ciudad(String nombre, Departamento d) {
+        Ciudad c = new Ciudad();
+        c.setNombreCiudad(nombre);
+        c.setNombreBusqueda(SearchKeys.normalize(nombre));
+        c.setDepartamento(d);
+        return em.persist(c);
+    }
+}
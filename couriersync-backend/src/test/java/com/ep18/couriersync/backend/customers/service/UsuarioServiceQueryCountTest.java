@@ -0,0 +1,163 @@
+package com.ep18.couriersync.backend.customers.service;
+
+import com.ep18.couriersync.backend.common.text.SearchKeys;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.customers.domain.Ciudad;
+import com.ep18.couriersync.backend.customers.domain.Departamento;
+import com.ep18.couriersync.backend.customers.domain.Rol;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.CreateUsuarioInput;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifica contra PostgreSQL que cada página de usuarios cuesta exactamente
+ * una consulta de datos + una de conteo (sin cargas LAZY por fila ni joins:
+ * los nombres de ciudad/departamento/rol salen del catálogo en memoria).
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UsuarioService.class, ReferenceDataCatalog.class, SuggestionIndex.class,
+        SimpleMeterRegistry.class})
+class UsuarioServiceQueryCountTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private UsuarioService usuarioService;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private TestEntityManager em;
+    @Autowired private EntityManagerFactory emf;
+
+    private Statistics stats;
+    private Ciudad ciudad;
+    private Departamento departamento;
+    private Rol rol;
+
+    @BeforeEach
+    void setUp() {
+        departamento = new Departamento();
+        departamento.setNombreDepartamento("Antioquia");
+        em.persist(departamento);
+
+        ciudad = new Ciudad();
+        ciudad.setNombreCiudad("Medellin");
+        ciudad.setNombreBusqueda(SearchKeys.normalize("Medellin"));
+        ciudad.setDepartamento(departamento);
+        em.persist(ciudad);
+
+        rol = new Rol();
+        rol.setNombreRol("Cliente");
+        em.persist(rol);
+
+        for (int i = 0; i < 30; i++) {
+            Usuario u = new Usuario();
+            u.setNombre("Usuario " + i);
+            u.setNombreBusqueda(SearchKeys.normalize(u.getNombre()));
+            u.setCorreo("usuario" + i + "@example.com");
+            u.setTelefono("3000000000");
+            u.setFechaRegistro(LocalDate.now());
+            u.setDetalleDireccion("Calle " + i);
+            u.setCiudad(ciudad);
+            u.setDepartamento(departamento);
+            u.setRol(rol);
+            em.persist(u);
+        }
+        em.flush();
+        em.clear();
+
+        catalog.reload();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void search_unaConsultaDeDatosMasConteo() {
+        var page = usuarioService.search("usuario", 0, 20);
+
+        assertEquals(20, page.content().size());
+        assertEquals(30L, page.pageInfo().totalElements());
+        assertEquals("Medellin", page.content().get(0).nombreCiudad());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void search_sinTotales_soloLaConsultaDeDatos() {
+        var page = usuarioService.search("usuario", 0, 20, false);
+
+        assertEquals(20, page.content().size());
+        assertTrue(page.pageInfo().hasNext());
+        assertNull(page.pageInfo().totalElements());
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void listByCiudad_unaConsultaDeDatosMasConteo() {
+        var page = usuarioService.listByCiudad(ciudad.getIdCiudad(), 0, 20);
+
+        assertEquals(20, page.content().size());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void listByDepartamento_unaConsultaDeDatosMasConteo() {
+        var page = usuarioService.listByDepartamento(departamento.getIdDepartamento(), 0, 20);
+
+        assertEquals(20, page.content().size());
+        assertEquals("Antioquia", page.content().get(0).nombreDepartamento());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void listByRol_unaConsultaDeDatosMasConteo() {
+        var page = usuarioService.listByRol(rol.getIdRol(), 0, 20);
+
+        assertEquals(20, page.content().size());
+        assertEquals("Cliente", page.content().get(0).nombreRol());
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void findById_unaSolaConsulta() {
+        var any = usuarioService.listByRol(rol.getIdRol(), 0, 1).content().get(0);
+        stats.clear();
+
+        var view = usuarioService.findById(any.idUsuario());
+
+        assertEquals(any.nombre(), view.nombre());
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    @Test
+    void create_resuelveFksDesdeElCatalogo() {
+        var view = usuarioService.create(new CreateUsuarioInput(
+                "Nuevo", "nuevo@example.com", "3000000000", null, "Calle 1",
+                ciudad.getIdCiudad(), departamento.getIdDepartamento(), rol.getIdRol()));
+        em.flush();
+
+        assertEquals("Medellin", view.nombreCiudad());
+        // existsByCorreo + INSERT: ninguna lectura de ciudad/departamento/rol
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+}
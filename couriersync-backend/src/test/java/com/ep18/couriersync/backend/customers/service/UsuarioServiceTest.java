@@ -3,15 +3,24 @@ package com.ep18.couriersync.backend.customers.service;
 import com.ep18.couriersync.backend.common.exception.ConflictException;
 import com.ep18.couriersync.backend.common.exception.NotFoundException;
 import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.RolRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
 import com.ep18.couriersync.backend.customers.domain.*;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
 import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.*;
 import com.ep18.couriersync.backend.customers.repository.*;
+import com.ep18.couriersync.backend.customers.suggest.SuggestionIndex;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -32,6 +41,10 @@ class UsuarioServiceTest {
     private DepartamentoRepository departamentoRepo;
     @Mock
     private RolRepository rolRepo;
+    @Mock
+    private ReferenceDataCatalog catalog;
+    @Mock
+    private SuggestionIndex suggestions;
 
     private Ciudad ciudad;
     private Departamento departamento;
@@ -69,13 +82,18 @@ class UsuarioServiceTest {
         usuario.setCiudad(ciudad);
         usuario.setDepartamento(departamento);
         usuario.setRol(rol);
+
+        // Catálogo de referencia
+        when(catalog.ciudad(1)).thenReturn(Optional.of(new CiudadRef(1, "Ciudad 1", 1)));
+        when(catalog.departamento(1)).thenReturn(Optional.of(new DepartamentoRef(1, "Departamento 1")));
+        when(catalog.rol(1)).thenReturn(Optional.of(new RolRef(1, "Admin")));
     }
 
     // ------------------ CREATE ------------------
     @Test
     void testCreateUsuario_Success() {
         CreateUsuarioInput input = new CreateUsuarioInput(
-                "Maria Lopez",
+                "María  López",
                 "maria@example.com",
                 "0987654321",
                 null,
@@ -86,9 +104,9 @@ class UsuarioServiceTest {
         );
 
         when(usuarioRepo.existsByCorreoIgnoreCase(input.correo())).thenReturn(false);
-        when(ciudadRepo.findById(ciudad.getIdCiudad())).thenReturn(Optional.of(ciudad));
-        when(departamentoRepo.findById(departamento.getIdDepartamento())).thenReturn(Optional.of(departamento));
-        when(rolRepo.findById(rol.getIdRol())).thenReturn(Optional.of(rol));
+        when(ciudadRepo.getReferenceById(ciudad.getIdCiudad())).thenReturn(ciudad);
+        when(departamentoRepo.getReferenceById(departamento.getIdDepartamento())).thenReturn(departamento);
+        when(rolRepo.getReferenceById(rol.getIdRol())).thenReturn(rol);
         when(usuarioRepo.save(any(Usuario.class))).thenAnswer(invocation -> {
             Usuario u = invocation.getArgument(0);
             u.setIdUsuario(2);
@@ -98,8 +116,34 @@ class UsuarioServiceTest {
         UsuarioView view = usuarioService.create(input);
 
         assertNotNull(view);
-        assertEquals("Maria Lopez", view.nombre());
+        assertEquals("María  López", view.nombre());
+        verify(usuarioRepo).save(argThat(u -> "maria lopez".equals(u.getNombreBusqueda())));
+        verify(suggestions).indexAfterCommit(SuggestionTipo.USUARIO, 2, "María  López");
         assertEquals("maria@example.com", view.correo());
+        assertEquals("Ciudad 1", view.nombreCiudad());
+        verify(ciudadRepo, never()).findById(any());
+        verify(departamentoRepo, never()).findById(any());
+        verify(rolRepo, never()).findById(any());
+    }
+
+    @Test
+    void testCreateUsuario_CiudadNoEncontrada() {
+        CreateUsuarioInput input = new CreateUsuarioInput(
+                "Maria Lopez",
+                "maria@example.com",
+                "0987654321",
+                null,
+                "Direccion X",
+                77,
+                departamento.getIdDepartamento(),
+                rol.getIdRol()
+        );
+
+        when(usuarioRepo.existsByCorreoIgnoreCase(input.correo())).thenReturn(false);
+        when(catalog.ciudad(77)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> usuarioService.create(input));
+        verify(usuarioRepo, never()).save(any());
     }
 
     @Test
@@ -133,17 +177,8 @@ class UsuarioServiceTest {
                 rol.getIdRol()
         );
 
-        Departamento otroDepto = new Departamento();
-        otroDepto.setIdDepartamento(999);
-
-        Ciudad otraCiudad = new Ciudad();
-        otraCiudad.setIdCiudad(2);
-        otraCiudad.setDepartamento(otroDepto);
-
         when(usuarioRepo.existsByCorreoIgnoreCase(input.correo())).thenReturn(false);
-        when(ciudadRepo.findById(2)).thenReturn(Optional.of(otraCiudad));
-        when(departamentoRepo.findById(departamento.getIdDepartamento())).thenReturn(Optional.of(departamento));
-        when(rolRepo.findById(rol.getIdRol())).thenReturn(Optional.of(rol));
+        when(catalog.ciudad(2)).thenReturn(Optional.of(new CiudadRef(2, "Otra", 999)));
 
         assertThrows(ValidationException.class, () -> usuarioService.create(input));
     }
@@ -151,7 +186,7 @@ class UsuarioServiceTest {
     // ------------------ FIND ------------------
     @Test
     void testFindById_Success() {
-        when(usuarioRepo.findById(1)).thenReturn(Optional.of(usuario));
+        when(usuarioRepo.findRowById(1)).thenReturn(Optional.of(row(usuario)));
         UsuarioView view = usuarioService.findById(1);
         assertNotNull(view);
         assertEquals(usuario.getNombre(), view.nombre());
@@ -159,7 +194,7 @@ class UsuarioServiceTest {
 
     @Test
     void testFindById_NotFound() {
-        when(usuarioRepo.findById(99)).thenReturn(Optional.empty());
+        when(usuarioRepo.findRowById(99)).thenReturn(Optional.empty());
         assertThrows(NotFoundException.class, () -> usuarioService.findById(99));
     }
 
@@ -178,12 +213,19 @@ class UsuarioServiceTest {
                 null
         );
 
-        when(usuarioRepo.findById(1)).thenReturn(Optional.of(usuario));
-        when(usuarioRepo.save(any())).thenReturn(usuario);
+        when(usuarioRepo.updateRow(input, "juan actualizado")).thenReturn(Optional.of(new UsuarioRow(
+                1, "Juan Actualizado", "juan@example.com", "1111111111", LocalDate.now(), "Nueva direccion",
+                1, 1, 1)));
 
         UsuarioView view = usuarioService.update(input);
 
         assertEquals("Juan Actualizado", view.nombre());
+        assertEquals("Ciudad 1", view.nombreCiudad());
+        verify(suggestions).indexAfterCommit(SuggestionTipo.USUARIO, 1, "Juan Actualizado");
+        // Una sola sentencia: ni lectura previa ni comprobación del correo
+        verify(usuarioRepo, never()).findById(any());
+        verify(usuarioRepo, never()).existsByCorreoIgnoreCase(any());
+        verify(usuarioRepo, never()).save(any());
     }
 
     @Test
@@ -200,21 +242,12 @@ class UsuarioServiceTest {
                 2
         );
 
-        Departamento nuevoDepto = new Departamento();
-        nuevoDepto.setIdDepartamento(2);
-
-        Ciudad nuevaCiudad = new Ciudad();
-        nuevaCiudad.setIdCiudad(2);
-        nuevaCiudad.setDepartamento(nuevoDepto); // ⚠️ Muy importante
-
-        Rol nuevoRol = new Rol();
-        nuevoRol.setIdRol(2);
-
-        when(usuarioRepo.findById(1)).thenReturn(Optional.of(usuario));
-        when(ciudadRepo.findById(2)).thenReturn(Optional.of(nuevaCiudad));
-        when(departamentoRepo.findById(2)).thenReturn(Optional.of(nuevoDepto));
-        when(rolRepo.findById(2)).thenReturn(Optional.of(nuevoRol));
-        when(usuarioRepo.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(catalog.ciudad(2)).thenReturn(Optional.of(new CiudadRef(2, "Ciudad 2", 2)));
+        when(catalog.departamento(2)).thenReturn(Optional.of(new DepartamentoRef(2, "Departamento 2")));
+        when(catalog.rol(2)).thenReturn(Optional.of(new RolRef(2, "Cliente")));
+        when(usuarioRepo.updateRow(input, "juan fk")).thenReturn(Optional.of(new UsuarioRow(
+                1, "Juan FK", "juan@example.com", "1234567890", LocalDate.now(), "Calle Falsa 123",
+                2, 2, 2)));
 
         UsuarioView view = usuarioService.update(input);
 
@@ -222,29 +255,63 @@ class UsuarioServiceTest {
         assertEquals(2, view.idCiudad());
         assertEquals(2, view.idDepartamento());
         assertEquals(2, view.idRol());
+        assertEquals("Cliente", view.nombreRol());
+    }
+
+    @Test
+    void testUpdateUsuario_NotFound() {
+        UpdateUsuarioInput input = new UpdateUsuarioInput(99, null, null, "1111111111", null, null, null, null, null);
+        when(usuarioRepo.updateRow(input, null)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> usuarioService.update(input));
+    }
+
+    @Test
+    void testUpdateUsuario_RestriccionesMapeadas() {
+        UpdateUsuarioInput correo = new UpdateUsuarioInput(1, null, "otro@example.com", null, null, null, null, null, null);
+        when(usuarioRepo.updateRow(correo, null)).thenThrow(violacion("ux_usuarios_correo_lower"));
+        UpdateUsuarioInput rolInexistente = new UpdateUsuarioInput(1, null, null, null, null, null, null, null, 77);
+        when(usuarioRepo.updateRow(rolInexistente, null)).thenThrow(violacion("rol_usuario"));
+
+        assertThrows(ConflictException.class, () -> usuarioService.update(correo));
+        NotFoundException e = assertThrows(NotFoundException.class, () -> usuarioService.update(rolInexistente));
+        assertEquals("Rol no encontrado", e.getMessage());
+    }
+
+    @Test
+    void testUpdateUsuario_CiudadDeOtroDepartamento() {
+        // Solo cambia la ciudad: la coherencia se comprueba con el departamento de la fila resultante
+        UpdateUsuarioInput input = new UpdateUsuarioInput(1, null, null, null, null, null, 2, null, null);
+        when(catalog.ciudad(2)).thenReturn(Optional.of(new CiudadRef(2, "Ciudad 2", 2)));
+        when(usuarioRepo.updateRow(input, null)).thenReturn(Optional.of(new UsuarioRow(
+                1, "Juan Perez", "juan@example.com", "1234567890", LocalDate.now(), "Calle Falsa 123",
+                2, 1, 1)));
+
+        assertThrows(ValidationException.class, () -> usuarioService.update(input));
     }
 
     // ------------------ DELETE ------------------
     @Test
     void testDeleteUsuario_Success() {
-        when(usuarioRepo.existsById(1)).thenReturn(true);
-        doNothing().when(usuarioRepo).deleteById(1);
+        when(usuarioRepo.deleteRowById(1)).thenReturn(1);
 
         boolean result = usuarioService.delete(1);
         assertTrue(result);
+        verify(usuarioRepo, never()).existsById(any());
+        verify(suggestions).removeAfterCommit(SuggestionTipo.USUARIO, 1);
     }
 
     @Test
     void testDeleteUsuario_NotExists() {
-        when(usuarioRepo.existsById(99)).thenReturn(false);
+        when(usuarioRepo.deleteRowById(99)).thenReturn(0);
         boolean result = usuarioService.delete(99);
         assertFalse(result);
+        verify(suggestions, never()).removeAfterCommit(any(), anyInt());
     }
 
     @Test
     void testDeleteUsuario_DataIntegrityViolation() {
-        when(usuarioRepo.existsById(1)).thenReturn(true);
-        doThrow(DataIntegrityViolationException.class).when(usuarioRepo).deleteById(1);
+        when(usuarioRepo.deleteRowById(1)).thenThrow(DataIntegrityViolationException.class);
 
         assertThrows(ConflictException.class, () -> usuarioService.delete(1));
     }
@@ -252,8 +319,8 @@ class UsuarioServiceTest {
     // ------------------ SEARCH / LIST ------------------
     @Test
     void testSearchUsuarios() {
-        Page<Usuario> page = new PageImpl<>(List.of(usuario));
-        when(usuarioRepo.findByNombreContainingIgnoreCase(anyString(), any(Pageable.class))).thenReturn(page);
+        Page<UsuarioRow> page = new PageImpl<>(List.of(row(usuario)));
+        when(usuarioRepo.searchRows(eq("juan"), any(Pageable.class), eq(true))).thenReturn(page);
 
         var result = usuarioService.search("Juan", 0, 10);
         assertEquals(1, result.content().size());
@@ -261,17 +328,48 @@ class UsuarioServiceTest {
 
     @Test
     void testSearchUsuarios_Empty() {
-        Page<Usuario> emptyPage = new PageImpl<>(Collections.emptyList());
-        when(usuarioRepo.findByNombreContainingIgnoreCase(anyString(), any(Pageable.class))).thenReturn(emptyPage);
+        Page<UsuarioRow> emptyPage = new PageImpl<>(Collections.emptyList());
+        when(usuarioRepo.searchRows(anyString(), any(Pageable.class), eq(true))).thenReturn(emptyPage);
 
         var result = usuarioService.search("NoExiste", 0, 10);
         assertTrue(result.content().isEmpty());
     }
 
+    @Test
+    void testSearchUsuarios_SinTotales_NoEjecutaConteo() {
+        Slice<UsuarioRow> slice = new SliceImpl<>(List.of(row(usuario)), PageRequest.of(0, 1), true);
+        when(usuarioRepo.searchRows(anyString(), any(Pageable.class), eq(false))).thenReturn(slice);
+
+        var result = usuarioService.search("Juan", 0, 1, false);
+
+        assertEquals(1, result.content().size());
+        assertTrue(result.pageInfo().hasNext());
+        assertNull(result.pageInfo().totalElements());
+        assertNull(result.pageInfo().totalPages());
+        verify(usuarioRepo, never()).searchRows(anyString(), any(Pageable.class), eq(true));
+    }
+
+    @Test
+    void testSearchUsuarios_TerminoCorto_NoConsulta() {
+        assertThrows(ValidationException.class, () -> usuarioService.search(" Jü ", 0, 10));
+        verifyNoInteractions(usuarioRepo);
+    }
+
+    @Test
+    void testSearchUsuarios_SinTermino_ListaPorNombre() {
+        Page<UsuarioRow> page = new PageImpl<>(List.of(row(usuario)));
+        when(usuarioRepo.findRows(isNull(), eq(UsuarioSort.NOMBRE_ASC), any(Pageable.class), eq(true)))
+                .thenReturn(page);
+
+        assertEquals(1, usuarioService.search(null, 0, 10).content().size());
+        assertEquals(1, usuarioService.search("  ", 0, 10).content().size());
+        verify(usuarioRepo, never()).searchRows(any(), any(), anyBoolean());
+    }
+
     @Test
     void testListByCiudad() {
-        Page<Usuario> page = new PageImpl<>(List.of(usuario));
-        when(usuarioRepo.findAllByCiudad_IdCiudad(eq(1), any(Pageable.class))).thenReturn(page);
+        Page<UsuarioRow> page = new PageImpl<>(List.of(row(usuario)));
+        when(usuarioRepo.findRowsByCiudad(eq(1), any(Pageable.class))).thenReturn(page);
 
         var result = usuarioService.listByCiudad(1, 0, 10);
         assertEquals(1, result.content().size());
@@ -279,8 +377,8 @@ class UsuarioServiceTest {
 
     @Test
     void testListByCiudad_Empty() {
-        Page<Usuario> emptyPage = new PageImpl<>(Collections.emptyList());
-        when(usuarioRepo.findAllByCiudad_IdCiudad(eq(999), any(Pageable.class))).thenReturn(emptyPage);
+        Page<UsuarioRow> emptyPage = new PageImpl<>(Collections.emptyList());
+        when(usuarioRepo.findRowsByCiudad(eq(999), any(Pageable.class))).thenReturn(emptyPage);
 
         var result = usuarioService.listByCiudad(999, 0, 10);
         assertTrue(result.content().isEmpty());
@@ -288,8 +386,8 @@ class UsuarioServiceTest {
 
     @Test
     void testListByDepartamento() {
-        Page<Usuario> page = new PageImpl<>(List.of(usuario));
-        when(usuarioRepo.findAllByDepartamento_IdDepartamento(eq(1), any(Pageable.class))).thenReturn(page);
+        Page<UsuarioRow> page = new PageImpl<>(List.of(row(usuario)));
+        when(usuarioRepo.findRowsByDepartamento(eq(1), any(Pageable.class))).thenReturn(page);
 
         var result = usuarioService.listByDepartamento(1, 0, 10);
         assertEquals(1, result.content().size());
@@ -297,10 +395,90 @@ class UsuarioServiceTest {
 
     @Test
     void testListByDepartamento_Empty() {
-        Page<Usuario> emptyPage = new PageImpl<>(Collections.emptyList());
-        when(usuarioRepo.findAllByDepartamento_IdDepartamento(eq(999), any(Pageable.class))).thenReturn(emptyPage);
+        Page<UsuarioRow> emptyPage = new PageImpl<>(Collections.emptyList());
+        when(usuarioRepo.findRowsByDepartamento(eq(999), any(Pageable.class))).thenReturn(emptyPage);
 
         var result = usuarioService.listByDepartamento(999, 0, 10);
         assertTrue(result.content().isEmpty());
     }
+
+    @Test
+    void testListByRol() {
+        Page<UsuarioRow> page = new PageImpl<>(List.of(row(usuario)));
+        when(usuarioRepo.findRowsByRol(eq(1), any(Pageable.class))).thenReturn(page);
+
+        var result = usuarioService.listByRol(1, 0, 10);
+        assertEquals(1, result.content().size());
+        assertEquals("Admin", result.content().get(0).nombreRol());
+    }
+
+    // ------------------ FILTRO COMBINADO ------------------
+    @Test
+    void testList_DelegaFiltroYOrdenEnUnaConsulta() {
+        var filter = new UsuarioFilter("juan", 1, 1, 1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        Slice<UsuarioRow> slice = new SliceImpl<>(List.of(row(usuario)), PageRequest.of(0, 10), false);
+        when(usuarioRepo.findRows(eq(filter), eq(UsuarioSort.FECHA_REGISTRO_DESC), any(Pageable.class), eq(false)))
+                .thenReturn(slice);
+
+        var result = usuarioService.list(filter, UsuarioSort.FECHA_REGISTRO_DESC, 0, 10, false);
+
+        assertEquals(1, result.content().size());
+        assertEquals("Ciudad 1", result.content().get(0).nombreCiudad());
+        assertFalse(result.pageInfo().hasNext());
+    }
+
+    @Test
+    void testList_RangoDeFechasInvalido() {
+        var filter = new UsuarioFilter(null, null, null, null, LocalDate.of(2025, 1, 1), LocalDate.of(2024, 1, 1));
+
+        assertThrows(ValidationException.class, () -> usuarioService.list(filter, null, 0, 10, true));
+        verify(usuarioRepo, never()).findRows(any(), any(), any(), anyBoolean());
+    }
+
+    // ------------------ CONNECTION (keyset) ------------------
+    @Test
+    void testConnection_PideUnaFilaDeMasParaSaberSiHaySiguiente() {
+        UsuarioRow segundo = new UsuarioRow(2, "Juan Perez", "otro@example.com", "1234567890",
+                LocalDate.now(), "Calle 2", 1, 1, 1);
+        when(usuarioRepo.findRowsAfter(isNull(), isNull(), eq(2)))
+                .thenReturn(List.of(row(usuario), segundo));
+
+        var result = usuarioService.connection(null, 1, null);
+
+        assertEquals(1, result.edges().size());
+        assertTrue(result.pageInfo().hasNextPage());
+        assertEquals(result.edges().get(0).cursor(), result.pageInfo().endCursor());
+        assertEquals(new KeysetCursor("Juan Perez", 1), KeysetCursor.decode(result.pageInfo().endCursor()));
+    }
+
+    @Test
+    void testConnection_ContinuaDesdeElCursor() {
+        var filter = new UsuarioFilter(null, null, 1, null, null, null);
+        String after = new KeysetCursor("Juan: Perez", 7).encode();
+        when(usuarioRepo.findRowsAfter(eq(filter), eq(new KeysetCursor("Juan: Perez", 7)), eq(11)))
+                .thenReturn(List.of(row(usuario)));
+
+        var result = usuarioService.connection(filter, 10, after);
+
+        assertEquals(1, result.edges().size());
+        assertFalse(result.pageInfo().hasNextPage());
+    }
+
+    @Test
+    void testConnection_CursorInvalido() {
+        assertThrows(ValidationException.class, () -> usuarioService.connection(null, 10, "no-es-un-cursor"));
+        verify(usuarioRepo, never()).findRowsAfter(any(), any(), anyInt());
+    }
+
+    private static UsuarioRow row(Usuario u) {
+        return new UsuarioRow(
+                u.getIdUsuario(), u.getNombre(), u.getCorreo(), u.getTelefono(),
+                u.getFechaRegistro(), u.getDetalleDireccion(),
+                u.getCiudad().getIdCiudad(), u.getDepartamento().getIdDepartamento(), u.getRol().getIdRol());
+    }
+
+    private static DataIntegrityViolationException violacion(String constraint) {
+        return new DataIntegrityViolationException(constraint,
+                new ConstraintViolationException(constraint, new SQLException(constraint), constraint));
+    }
 }
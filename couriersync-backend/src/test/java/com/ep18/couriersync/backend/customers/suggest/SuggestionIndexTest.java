@@ -0,0 +1,143 @@
+package com.ep18.couriersync.backend.customers.suggest;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionTipo;
+import com.ep18.couriersync.backend.customers.dto.SuggestionDTOs.SuggestionView;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioChangeTipo;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioNombreRow;
+import com.ep18.couriersync.backend.customers.dto.UsuarioDTOs.UsuarioRow;
+import com.ep18.couriersync.backend.customers.repository.CiudadRepository;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SuggestionIndexTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepo;
+    @Mock
+    private CiudadRepository ciudadRepo;
+    @Mock
+    private PlatformTransactionManager txManager;
+
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(ciudadRepo.findAllRefs()).thenReturn(List.of(
+                new CiudadRef(1, "Santiago", 1), new CiudadRef(2, "Santa Rosa de Osos", 1), new CiudadRef(3, "Bogotá", 2)));
+        when(usuarioRepo.streamAllNombres()).thenReturn(Stream.of(
+                new UsuarioNombreRow(10, "Sandra Muñoz"), new UsuarioNombreRow(11, "Pedro Lopez")));
+        when(usuarioRepo.changesHead()).thenReturn(new KeysetCursor("100", 0));
+
+        index = new SuggestionIndex(usuarioRepo, ciudadRepo, txManager);
+        index.build();
+    }
+
+    @Test
+    void suggest_porPrefijoSinTildesNiMayusculas() {
+        assertEquals(List.of("Sandra Muñoz", "Santa Rosa de Osos", "Santiago"), textos(index.suggest("San", 10)));
+        assertEquals(List.of("Bogotá"), textos(index.suggest("BOGO", 10)));
+    }
+
+    @Test
+    void suggest_porPalabraInteriorYSinDuplicados() {
+        assertEquals(List.of("Sandra Muñoz"), textos(index.suggest("muñ", 10)));
+        // "Santa Rosa de Osos" tiene "osos" como palabra y "rosa de osos" contiene "os": una sola sugerencia
+        List<SuggestionView> os = index.suggest("os", 10);
+        assertEquals(1, os.size());
+        assertEquals(SuggestionTipo.CIUDAD, os.get(0).tipo());
+        assertEquals(2, os.get(0).id());
+    }
+
+    @Test
+    void suggest_respetaElLimiteYPrefijoVacio() {
+        assertEquals(2, index.suggest("san", 2).size());
+        assertTrue(index.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void actualizacionIncremental_renombrarYBorrar() {
+        // Sin transacción activa, *AfterCommit aplica de inmediato
+        index.indexAfterCommit(SuggestionTipo.USUARIO, 11, "Santos Pérez");
+        assertTrue(index.suggest("pedro", 10).isEmpty());
+        assertEquals(List.of("Santos Pérez"), textos(index.suggest("perez", 10)));
+
+        index.removeAfterCommit(SuggestionTipo.CIUDAD, 1);
+        assertFalse(textos(index.suggest("san", 10)).contains("Santiago"));
+    }
+
+    @Test
+    void refresh_aplicaCambiosDeOtrasInstanciasDesdeElFeed() {
+        KeysetCursor head = new KeysetCursor("100", 0);
+        when(usuarioRepo.findChangesAfter(head, 1000)).thenReturn(List.of(
+                change("101", UsuarioChangeTipo.CREATED, 12, "Santos Pérez"),
+                change("102", UsuarioChangeTipo.DELETED, 10, null)));
+        when(ciudadRepo.findAllRefs()).thenReturn(List.of(
+                new CiudadRef(1, "San Gil", 1), new CiudadRef(2, "Santa Rosa de Osos", 1)));
+
+        index.refresh();
+
+        assertEquals(List.of("San Gil", "Santa Rosa de Osos", "Santos Pérez"), textos(index.suggest("san", 10)));
+        assertTrue(index.suggest("bogo", 10).isEmpty());
+        // La siguiente pasada sigue desde el último cambio aplicado
+        index.refresh();
+        verify(usuarioRepo).findChangesAfter(new KeysetCursor("102", 10), 1000);
+    }
+
+    @Test
+    void compact_incorporaLosPendientesSinCambiarResultados() {
+        index.indexAfterCommit(SuggestionTipo.USUARIO, 11, "Santos Pérez");
+        index.removeAfterCommit(SuggestionTipo.CIUDAD, 1);
+        List<SuggestionView> antes = index.suggest("s", 10);
+
+        index.compact();
+
+        assertEquals(antes, index.suggest("s", 10));
+        assertEquals(0, index.health().getDetails().get("pendientes"));
+        assertEquals(4, index.health().getDetails().get("entidades"));
+    }
+
+    @Test
+    void build_fallidoQuedaVisibleYSeReintenta() {
+        SuggestionIndex nuevo = new SuggestionIndex(usuarioRepo, ciudadRepo, txManager);
+        assertEquals(SuggestionIndex.Estado.CONSTRUYENDO, nuevo.estado());
+        assertEquals(Status.UNKNOWN, nuevo.health().getStatus());
+
+        when(ciudadRepo.findAllRefs()).thenThrow(new DataAccessResourceFailureException("sin conexión"));
+        nuevo.refresh();
+        assertEquals(SuggestionIndex.Estado.FALLIDO, nuevo.estado());
+        assertEquals(Status.DOWN, nuevo.health().getStatus());
+
+        doReturn(List.of(new CiudadRef(3, "Bogotá", 2))).when(ciudadRepo).findAllRefs();
+        when(usuarioRepo.streamAllNombres()).thenReturn(Stream.empty());
+        nuevo.refresh();
+        assertEquals(SuggestionIndex.Estado.LISTO, nuevo.estado());
+        assertEquals(Status.UP, nuevo.health().getStatus());
+        assertEquals(List.of("Bogotá"), textos(nuevo.suggest("bog", 10)));
+    }
+
+    private static UsuarioChangeRow change(String txid, UsuarioChangeTipo tipo, int id, String nombre) {
+        UsuarioRow row = nombre == null ? null
+                : new UsuarioRow(id, nombre, null, null, null, null, 1, 1, 1);
+        return new UsuarioChangeRow(txid, tipo, id, null, row);
+    }
+
+    private static List<String> textos(List<SuggestionView> views) {
+        return views.stream().map(SuggestionView::texto).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.ep18.couriersync.backend.historial.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mantenimiento de particiones contra PostgreSQL con un reloj fijo en junio de 2021, anterior a
+ * las particiones que crea V12 (así la retención solo alcanza a los meses de la prueba). Sin
+ * transacción de prueba: DETACH CONCURRENTLY no puede ejecutarse dentro de una.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HistorialPartitionManagerTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static final Clock JUNIO_2021 = Clock.fixed(Instant.parse("2021-06-15T12:00:00Z"), ZoneOffset.UTC);
+
+    @Autowired private JdbcTemplate jdbc;
+
+    private int usuario;
+
+    @BeforeEach
+    void setUp() {
+        int depto = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Particiones') returning id_departamento", Integer.class);
+        int ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, "
+                + "departamento) values ('Particiones', 'particiones', ?) returning id_ciudad", Integer.class, depto);
+        int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Particiones') "
+                + "returning id_rol", Integer.class);
+        usuario = jdbc.queryForObject("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                values ('Cliente', 'cliente', 'cliente@particiones.example.com', '3000000000', current_date,
+                        'Calle 1', ?, ?, ?)
+                returning id_usuario""", Integer.class, ciudad, depto, rol);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.queryForList("select relname from pg_class where relkind = 'r' "
+                + "and relname ~ '^tblhistorial_entregas_p(2019|2021)\\d{2}$'",
+                String.class).forEach(t -> jdbc.execute("drop table public.\"" + t + "\""));
+        jdbc.update("delete from public.tblusuarios where id_usuario = ?", usuario);
+        jdbc.update("delete from public.tblciudades where nombre_ciudad = 'Particiones'");
+        jdbc.update("delete from public.tbldepartamentos where nombre_departamento = 'Particiones'");
+        jdbc.update("delete from public.tblroles where nombre_rol = 'Particiones'");
+    }
+
+    @Test
+    void creaElMesActualYLosSiguientes_unaSolaVez() {
+        var manager = new HistorialPartitionManager(jdbc, 3, 0, Duration.ofHours(1), JUNIO_2021);
+
+        assertEquals(List.of(YearMonth.of(2021, 6), YearMonth.of(2021, 7), YearMonth.of(2021, 8),
+                YearMonth.of(2021, 9)), manager.crearFuturas());
+        assertTrue(manager.crearFuturas().isEmpty());
+
+        // Los límites son el primer instante UTC de cada mes
+        insertEntrega("2021-07-31 23:59:59.999999+00");
+        insertEntrega("2021-08-01 00:00:00+00");
+        assertEquals(1, contar("tblhistorial_entregas_p202107"));
+        assertEquals(1, contar("tblhistorial_entregas_p202108"));
+        assertThrows(DataIntegrityViolationException.class, () -> insertEntrega("2021-10-01 00:00:00+00"));
+    }
+
+    @Test
+    void desvinculaLosMesesFueraDeLaRetencion() {
+        jdbc.queryForList("select public.historial_crear_particion(m::date) from generate_series("
+                + "date '2019-04-01', date '2019-07-01', interval '1 month') m");
+        insertEntrega("2019-05-10 08:00:00+00");
+        insertEntrega("2019-06-10 08:00:00+00");
+        var manager = new HistorialPartitionManager(jdbc, 0, 24, Duration.ofHours(1), JUNIO_2021);
+
+        // Se conservan 24 meses antes del actual: desde junio de 2019
+        List<String> desvinculadas = manager.desvincularAntiguas();
+
+        assertEquals(List.of("tblhistorial_entregas_p201904", "tblhistorial_entregas_p201905"),
+                desvinculadas.stream().sorted().toList());
+        assertEquals(List.of("tblhistorial_entregas_p201906", "tblhistorial_entregas_p201907"),
+                adjuntas().stream().filter(n -> n.startsWith("tblhistorial_entregas_p2019")).toList());
+        // La partición desvinculada sigue como tabla suelta con sus filas, fuera de la tabla principal
+        assertEquals(1, contar("tblhistorial_entregas_p201905"));
+        assertEquals(0, jdbc.queryForObject("select count(*) from public.tblhistorial_entregas "
+                + "where id_usuario = ? and fecha < '2019-06-01'", Integer.class, usuario));
+        assertTrue(manager.desvincularAntiguas().isEmpty());
+    }
+
+    @Test
+    void retencionCero_noDesvinculaNada() {
+        jdbc.queryForObject("select public.historial_crear_particion(date '2019-01-01')", Boolean.class);
+        var manager = new HistorialPartitionManager(jdbc, 0, 0, Duration.ofHours(1), JUNIO_2021);
+
+        manager.mantener();
+
+        assertTrue(adjuntas().contains("tblhistorial_entregas_p201901"));
+    }
+
+    private void insertEntrega(String fecha) {
+        jdbc.update("insert into public.tblhistorial_entregas (id_usuario, fecha, estado) "
+                + "values (?, ?::timestamptz, 'REGISTRADA')", usuario, fecha);
+    }
+
+    private int contar(String tabla) {
+        return jdbc.queryForObject("select count(*) from public.\"" + tabla + "\"", Integer.class);
+    }
+
+    private List<String> adjuntas() {
+        return jdbc.queryForList("""
+                select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'public.tblhistorial_entregas'::regclass order by 1""", String.class);
+    }
+}
@@ -0,0 +1,205 @@
+package com.ep18.couriersync.backend.historial.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ForbiddenException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambiarEstadoInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambioEstadoView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EventoEntregaView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cambios de estado contra PostgreSQL: evento y estado actual en la misma transacción, control
+ * de roles y bloqueo limitado a la entrega que se cambia. Sin transacción de prueba envolvente:
+ * los casos concurrentes necesitan escrituras confirmadas y transacciones en otros hilos.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(HistorialService.class)
+@TestPropertySource(properties = "app.historial.roles-cambio-estado=ADMIN, AGENT")
+class CambioEstadoEntregaTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static final Responsable AGENTE = new Responsable("agente.qa", Set.of("ROLE_AGENT"));
+    private static final Responsable INVITADO = new Responsable("invitado", Set.of("ROLE_GUEST"));
+
+    @Autowired private HistorialService historialService;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private DataSource dataSource;
+
+    private int departamento;
+    private int ciudad;
+    private int rol;
+    private int cliente;
+
+    @BeforeEach
+    void setUp() {
+        departamento = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Estados') returning id_departamento", Integer.class);
+        ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values ('Estados', 'estados', ?) returning id_ciudad", Integer.class, departamento);
+        rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Estados') returning id_rol",
+                Integer.class);
+        cliente = jdbc.queryForObject("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                values ('Cliente', 'cliente', 'cliente@estados.example.com', '3000000000', current_date,
+                        'Calle 1', ?, ?, ?)
+                returning id_usuario""", Integer.class, ciudad, departamento, rol);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Solo inserción: DELETE lo rechaza el trigger, TRUNCATE no lo dispara
+        jdbc.execute("truncate public.tblentrega_eventos");
+        jdbc.update("delete from public.tblhistorial_entregas where id_usuario = ?", cliente);
+        jdbc.update("delete from public.tblusuarios where id_usuario = ?", cliente);
+        jdbc.update("delete from public.tblciudades where id_ciudad = ?", ciudad);
+        jdbc.update("delete from public.tbldepartamentos where id_departamento = ?", departamento);
+        jdbc.update("delete from public.tblroles where id_rol = ?", rol);
+    }
+
+    @Test
+    void marcarEntregado_registraFechaYResponsable() {
+        int entrega = entrega(EstadoEntrega.EN_CAMINO);
+
+        CambioEstadoView cambio = historialService.cambiarEstado(
+                new CambiarEstadoInput(entrega, EstadoEntrega.ENTREGADA, "Recibió portería"), AGENTE);
+
+        assertEquals(EstadoEntrega.EN_CAMINO, cambio.estadoAnterior());
+        assertEquals(EstadoEntrega.ENTREGADA, cambio.estado());
+        assertEquals(cliente, cambio.idUsuario());
+        assertEquals("agente.qa", cambio.entregadoPor());
+        assertNotNull(cambio.entregadoEn());
+        assertEquals(cambio.fecha(), cambio.entregadoEn());
+
+        // Estado actual leído de la fila de la entrega, sin eventos de por medio
+        Map<String, Object> fila = jdbc.queryForMap("select estado, observacion, entregado_por, "
+                + "entregado_en from public.tblhistorial_entregas where id_entrega = ?", entrega);
+        assertEquals("ENTREGADA", fila.get("estado"));
+        assertEquals("Recibió portería", fila.get("observacion"));
+        assertEquals("agente.qa", fila.get("entregado_por"));
+        assertEquals(EstadoEntrega.ENTREGADA, historialService.findById(entrega).estado());
+
+        List<EventoEntregaView> eventos = historialService.eventos(entrega);
+        assertEquals(1, eventos.size());
+        assertEquals(EstadoEntrega.EN_CAMINO, eventos.get(0).estadoAnterior());
+        assertEquals(EstadoEntrega.ENTREGADA, eventos.get(0).estado());
+        assertEquals("agente.qa", eventos.get(0).responsable());
+        assertEquals(cambio.entregadoEn().toInstant(), eventos.get(0).fecha().toInstant());
+    }
+
+    @Test
+    void sinPermisos_noPermiteEditar() {
+        int entrega = entrega(EstadoEntrega.REGISTRADA);
+
+        assertThrows(ForbiddenException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(entrega, EstadoEntrega.EN_CAMINO, null), INVITADO));
+        assertThrows(ForbiddenException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(entrega, EstadoEntrega.EN_CAMINO, null), Responsable.of(null)));
+
+        assertEquals("REGISTRADA", estado(entrega));
+        assertTrue(historialService.eventos(entrega).isEmpty());
+    }
+
+    @Test
+    void transicionNoPermitida_noEscribeNada() {
+        int entrega = entrega(EstadoEntrega.REGISTRADA);
+        historialService.cambiarEstado(new CambiarEstadoInput(entrega, EstadoEntrega.CANCELADA, null), AGENTE);
+
+        ConflictException e = assertThrows(ConflictException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(entrega, EstadoEntrega.EN_CAMINO, null), AGENTE));
+        assertTrue(e.getMessage().contains("CANCELADA"), e.getMessage());
+        assertEquals("CANCELADA", estado(entrega));
+        assertEquals(1, historialService.eventos(entrega).size());
+
+        assertThrows(NotFoundException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(-1, EstadoEntrega.EN_CAMINO, null), AGENTE));
+        assertThrows(NotFoundException.class, () -> historialService.eventos(-1));
+    }
+
+    @Test
+    void agentesConEntregasDistintas_noSeBloquean() throws Exception {
+        int a = entrega(EstadoEntrega.EN_CAMINO);
+        int b = entrega(EstadoEntrega.EN_CAMINO);
+
+        try (Connection otroAgente = dataSource.getConnection()) {
+            otroAgente.setAutoCommit(false);
+            try (Statement st = otroAgente.createStatement()) {
+                st.executeUpdate("update public.tblhistorial_entregas set estado = 'DEVUELTA' where id_entrega = " + a);
+            }
+
+            // La fila de a está bloqueada, pero el cambio de b termina sin esperar
+            CambioEstadoView cambioB = CompletableFuture.supplyAsync(() -> historialService.cambiarEstado(
+                    new CambiarEstadoInput(b, EstadoEntrega.ENTREGADA, null), AGENTE)).get(5, TimeUnit.SECONDS);
+            assertEquals(EstadoEntrega.ENTREGADA, cambioB.estado());
+
+            // Sobre a sí espera, y al confirmarse el otro parte del estado que este dejó
+            CompletableFuture<CambioEstadoView> cambioA = CompletableFuture.supplyAsync(() ->
+                    historialService.cambiarEstado(new CambiarEstadoInput(a, EstadoEntrega.EN_CAMINO, null), AGENTE));
+            assertThrows(TimeoutException.class, () -> cambioA.get(500, TimeUnit.MILLISECONDS));
+            otroAgente.commit();
+            assertEquals(EstadoEntrega.DEVUELTA, cambioA.get(5, TimeUnit.SECONDS).estadoAnterior());
+        }
+        assertEquals("EN_CAMINO", estado(a));
+    }
+
+    @Test
+    void eventosSoloInsercion() {
+        int entrega = entrega(EstadoEntrega.REGISTRADA);
+        historialService.cambiarEstado(new CambiarEstadoInput(entrega, EstadoEntrega.EN_CAMINO, null), AGENTE);
+        historialService.cambiarEstado(new CambiarEstadoInput(entrega, EstadoEntrega.DEVUELTA, "Nadie en casa"), AGENTE);
+
+        assertEquals(List.of(EstadoEntrega.EN_CAMINO, EstadoEntrega.DEVUELTA),
+                historialService.eventos(entrega).stream().map(EventoEntregaView::estado).toList());
+        assertThrows(DataAccessException.class, () ->
+                jdbc.update("update public.tblentrega_eventos set responsable = 'otro'"));
+        assertThrows(DataAccessException.class, () ->
+                jdbc.update("delete from public.tblentrega_eventos where id_entrega = ?", entrega));
+    }
+
+    private int entrega(EstadoEntrega estado) {
+        return jdbc.queryForObject("insert into public.tblhistorial_entregas (id_usuario, fecha, estado) "
+                + "values (?, ?, ?) returning id_entrega", Integer.class, cliente, OffsetDateTime.now(), estado.name());
+    }
+
+    private String estado(int entrega) {
+        return jdbc.queryForObject("select estado from public.tblhistorial_entregas where id_entrega = ?",
+                String.class, entrega);
+    }
+}
@@ -0,0 +1,238 @@
+package com.ep18.couriersync.backend.historial.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.ForbiddenException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.customers.domain.Usuario;
+import com.ep18.couriersync.backend.customers.repository.UsuarioRepository;
+import com.ep18.couriersync.backend.historial.domain.Entrega;
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambiarEstadoInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CambioEstadoView;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CreateEntregaInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+import com.ep18.couriersync.backend.historial.repository.EntregaRepository;
+import com.ep18.couriersync.backend.historial.repository.EntregaRepositoryCustom.ResultadoCambio;
+import com.ep18.couriersync.backend.historial.repository.EventoEntregaRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HistorialServiceTest {
+
+    private HistorialService historialService;
+
+    @Mock
+    private EntregaRepository entregaRepo;
+    @Mock
+    private UsuarioRepository usuarioRepo;
+    @Mock
+    private EventoEntregaRepository eventoRepo;
+
+    private final Responsable agente = new Responsable("agente.qa", Set.of("ROLE_AGENT"));
+
+    private final OffsetDateTime fecha = OffsetDateTime.of(2025, 11, 3, 10, 15, 30, 123_456_000, ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        historialService = new HistorialService(entregaRepo, eventoRepo, usuarioRepo, Set.of("ADMIN", "ROLE_AGENT"));
+    }
+
+    @Test
+    void timeline_primeraPaginaConCursorDeLaUltimaEntrada() {
+        List<EntregaView> rows = List.of(
+                view(3, fecha), view(2, fecha.minusDays(1)), view(1, fecha.minusDays(2)));
+        when(entregaRepo.findTimeline(7, null, null, null, null, 3)).thenReturn(rows);
+
+        var conn = historialService.timeline(7, 2, null, null, null);
+
+        assertEquals(2, conn.edges().size());
+        assertTrue(conn.pageInfo().hasNextPage());
+        KeysetCursor end = KeysetCursor.decode(conn.pageInfo().endCursor());
+        assertEquals(2, end.id());
+        assertEquals("2025-11-02T10:15:30.123456Z", end.key());
+        verifyNoInteractions(usuarioRepo);
+    }
+
+    @Test
+    void timeline_siguientePaginaHaceSeekDesdeElCursor() {
+        String after = new KeysetCursor("2025-11-02T10:15:30.123456Z", 2).encode();
+        OffsetDateTime desde = fecha.minusMonths(1);
+        when(entregaRepo.findTimeline(eq(7), any(), eq(2), eq(desde), isNull(), eq(11)))
+                .thenReturn(List.of(view(1, fecha.minusDays(2))));
+
+        var conn = historialService.timeline(7, 10, after, desde, null);
+
+        assertEquals(1, conn.edges().size());
+        assertFalse(conn.pageInfo().hasNextPage());
+        verify(entregaRepo).findTimeline(7, fecha.minusDays(1), 2, desde, null, 11);
+    }
+
+    @Test
+    void timeline_sinEntregas_usuarioExistente() {
+        when(entregaRepo.findTimeline(7, null, null, null, null, 21)).thenReturn(List.of());
+        when(usuarioRepo.existsById(7)).thenReturn(true);
+
+        var conn = historialService.timeline(7, 20, null, null, null);
+
+        assertTrue(conn.edges().isEmpty());
+        assertNull(conn.pageInfo().endCursor());
+    }
+
+    @Test
+    void timeline_usuarioInexistente() {
+        when(entregaRepo.findTimeline(99, null, null, null, null, 21)).thenReturn(List.of());
+        when(usuarioRepo.existsById(99)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> historialService.timeline(99, 20, null, null, null));
+    }
+
+    @Test
+    void timeline_cursorConFechaInvalida() {
+        String after = new KeysetCursor("ayer", 2).encode();
+        assertThrows(ValidationException.class, () -> historialService.timeline(7, 10, after, null, null));
+        verifyNoInteractions(entregaRepo);
+    }
+
+    @Test
+    void timeline_ventanaInvertida() {
+        assertThrows(ValidationException.class, () -> historialService.timeline(7, 10, null, fecha, fecha));
+        verifyNoInteractions(entregaRepo);
+    }
+
+    @Test
+    void create_ok() {
+        Usuario usuario = new Usuario();
+        usuario.setIdUsuario(7);
+        when(usuarioRepo.getReferenceById(7)).thenReturn(usuario);
+        when(entregaRepo.saveAndFlush(any(Entrega.class))).thenAnswer(inv -> {
+            Entrega e = inv.getArgument(0);
+            e.setIdEntrega(10);
+            return e;
+        });
+
+        EntregaView view = historialService.create(
+                new CreateEntregaInput(7, fecha, EstadoEntrega.EN_CAMINO, "Salió de bodega"));
+
+        assertEquals(10, view.idEntrega());
+        assertEquals(7, view.idUsuario());
+        assertEquals(fecha, view.fecha());
+        assertEquals(EstadoEntrega.EN_CAMINO, view.estado());
+    }
+
+    @Test
+    void create_sinFecha_usaAhora() {
+        when(usuarioRepo.getReferenceById(7)).thenReturn(new Usuario());
+        when(entregaRepo.saveAndFlush(any(Entrega.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        EntregaView view = historialService.create(new CreateEntregaInput(7, null, EstadoEntrega.REGISTRADA, null));
+
+        assertNotNull(view.fecha());
+    }
+
+    @Test
+    void create_usuarioInexistente() {
+        when(usuarioRepo.getReferenceById(99)).thenReturn(new Usuario());
+        when(entregaRepo.saveAndFlush(any(Entrega.class))).thenThrow(violacion("usuario_entrega"));
+
+        NotFoundException e = assertThrows(NotFoundException.class, () -> historialService.create(
+                new CreateEntregaInput(99, null, EstadoEntrega.REGISTRADA, null)));
+        assertEquals("Usuario no encontrado", e.getMessage());
+    }
+
+    @Test
+    void create_fechaSinParticion() {
+        when(usuarioRepo.getReferenceById(7)).thenReturn(new Usuario());
+        PSQLException sinParticion = new PSQLException(new ServerErrorMessage(
+                "SERROR\u0000C23514\u0000Mno partition of relation \"tblhistorial_entregas\" found for row\u0000"));
+        when(entregaRepo.saveAndFlush(any(Entrega.class)))
+                .thenThrow(new DataIntegrityViolationException("sin partición", sinParticion));
+
+        assertThrows(ValidationException.class, () -> historialService.create(
+                new CreateEntregaInput(7, fecha.minusYears(30), EstadoEntrega.REGISTRADA, null)));
+    }
+
+    @Test
+    void findById_noExiste() {
+        when(entregaRepo.findViewById(5)).thenReturn(java.util.Optional.empty());
+        assertThrows(NotFoundException.class, () -> historialService.findById(5));
+    }
+
+    @Test
+    void cambiarEstado_entregado_devuelveResponsableYFecha() {
+        CambioEstadoView cambio = new CambioEstadoView(5, 7, EstadoEntrega.EN_CAMINO, EstadoEntrega.ENTREGADA,
+                fecha, fecha, "agente.qa");
+        when(entregaRepo.cambiarEstado(5, EstadoEntrega.ENTREGADA, EnumSet.of(EstadoEntrega.EN_CAMINO),
+                "agente.qa", null)).thenReturn(Optional.of(new ResultadoCambio(EstadoEntrega.EN_CAMINO, cambio)));
+
+        var res = historialService.cambiarEstado(new CambiarEstadoInput(5, EstadoEntrega.ENTREGADA, null), agente);
+
+        assertEquals("agente.qa", res.entregadoPor());
+        assertEquals(fecha, res.entregadoEn());
+    }
+
+    @Test
+    void cambiarEstado_sinRolPermitido() {
+        var invitado = new Responsable("x", Set.of("ROLE_GUEST", "ROLE_DEV"));
+
+        assertThrows(ForbiddenException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(5, EstadoEntrega.EN_CAMINO, null), invitado));
+        verifyNoInteractions(entregaRepo);
+    }
+
+    @Test
+    void cambiarEstado_porDefectoSoloAdmin() {
+        var porDefecto = new HistorialService(entregaRepo, eventoRepo, usuarioRepo, Set.of("ADMIN"));
+        when(entregaRepo.cambiarEstado(eq(5), any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(ForbiddenException.class, () -> porDefecto.cambiarEstado(
+                new CambiarEstadoInput(5, EstadoEntrega.EN_CAMINO, null), agente));
+        assertThrows(NotFoundException.class, () -> porDefecto.cambiarEstado(
+                new CambiarEstadoInput(5, EstadoEntrega.EN_CAMINO, null),
+                new Responsable("admin", Set.of("ROLE_ADMIN"))));
+    }
+
+    @Test
+    void cambiarEstado_transicionNoPermitidaONoExiste() {
+        when(entregaRepo.cambiarEstado(eq(5), any(), any(), any(), any()))
+                .thenReturn(Optional.of(new ResultadoCambio(EstadoEntrega.ENTREGADA, null)));
+        when(entregaRepo.cambiarEstado(eq(6), any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(ConflictException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(5, EstadoEntrega.EN_CAMINO, null), agente));
+        assertThrows(NotFoundException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(6, EstadoEntrega.EN_CAMINO, null), agente));
+        // Nada vuelve a REGISTRADA: se rechaza sin consultar
+        assertThrows(ValidationException.class, () -> historialService.cambiarEstado(
+                new CambiarEstadoInput(5, EstadoEntrega.REGISTRADA, null), agente));
+        verify(entregaRepo, times(2)).cambiarEstado(any(), any(), any(), any(), any());
+    }
+
+    private static EntregaView view(int id, OffsetDateTime fecha) {
+        return new EntregaView(id, 7, fecha, EstadoEntrega.ENTREGADA, "Obs " + id);
+    }
+
+    private static DataIntegrityViolationException violacion(String constraint) {
+        return new DataIntegrityViolationException(constraint,
+                new ConstraintViolationException(constraint, new SQLException(constraint), constraint));
+    }
+}
@@ -0,0 +1,180 @@
+package com.ep18.couriersync.backend.historial.service;
+
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Connection;
+import com.ep18.couriersync.backend.common.dto.PagingDTOs.Edge;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.historial.domain.EstadoEntrega;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.CreateEntregaInput;
+import com.ep18.couriersync.backend.historial.dto.HistorialDTOs.EntregaView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Línea de tiempo contra PostgreSQL: recorrer todas las páginas devuelve exactamente el orden
+ * (fecha desc, id desc), también con fechas repetidas, la consulta se resuelve con el índice
+ * de cobertura sin ordenar en memoria y las cotas de fecha descartan los meses que no cubren.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HistorialService.class)
+class HistorialTimelineTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private HistorialService historialService;
+    @Autowired private JdbcTemplate jdbc;
+
+    private int cliente;
+    private int otroCliente;
+
+    @BeforeEach
+    void setUp() {
+        int depto = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Historial') returning id_departamento", Integer.class);
+        int ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values ('Historial', 'historial', ?) returning id_ciudad", Integer.class, depto);
+        int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Historial') returning id_rol",
+                Integer.class);
+        String usuario = """
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                values ('Cliente', 'cliente', ?, '3000000000', current_date, 'Calle 1', ?, ?, ?)
+                returning id_usuario""";
+        cliente = jdbc.queryForObject(usuario, Integer.class, "cliente@historial.example.com", ciudad, depto, rol);
+        otroCliente = jdbc.queryForObject(usuario, Integer.class, "otro@historial.example.com", ciudad, depto, rol);
+
+        // Meses de los datos de prueba (V12 solo crea desde el mes actual)
+        jdbc.queryForList("select public.historial_crear_particion(m::date) from generate_series("
+                + "date '2025-10-01', date_trunc('month', now() at time zone 'UTC'), interval '1 month') m");
+
+        // Tres entregas por minuto: fechas repetidas que solo desempata id_entrega
+        jdbc.update("""
+                insert into public.tblhistorial_entregas (id_usuario, fecha, estado, observacion)
+                select ?, timestamptz '2025-11-03 10:00:00.123456+00' - (i / 3) * interval '1 minute',
+                       (array['REGISTRADA','EN_CAMINO','ENTREGADA'])[i % 3 + 1], 'Obs ' || i
+                from generate_series(1, 500) i""", cliente);
+        jdbc.update("""
+                insert into public.tblhistorial_entregas (id_usuario, fecha, estado)
+                select ?, now() - i * interval '1 day', 'ENTREGADA' from generate_series(1, 20) i""", otroCliente);
+    }
+
+    @Test
+    void recorridoCompleto_sinHuecosNiRepetidos() {
+        List<Integer> esperado = jdbc.queryForList("""
+                select id_entrega from public.tblhistorial_entregas where id_usuario = ?
+                order by fecha desc, id_entrega desc""", Integer.class, cliente);
+
+        List<Integer> leido = new ArrayList<>();
+        String after = null;
+        Connection<EntregaView> page;
+        do {
+            page = historialService.timeline(cliente, 37, after, null, null);
+            page.edges().stream().map(Edge::node).forEach(e -> {
+                assertEquals(cliente, e.idUsuario());
+                leido.add(e.idEntrega());
+            });
+            after = page.pageInfo().endCursor();
+        } while (page.pageInfo().hasNextPage());
+
+        assertEquals(500, leido.size());
+        assertEquals(esperado, leido);
+    }
+
+    @Test
+    void primeraPagina_masRecientePrimero() {
+        var page = historialService.timeline(cliente, 3, null, null, null);
+
+        List<EntregaView> nodes = page.edges().stream().map(Edge::node).toList();
+        assertEquals(3, nodes.size());
+        assertFalse(nodes.get(0).fecha().isBefore(nodes.get(1).fecha()));
+        assertNotNull(nodes.get(0).estado());
+        assertNotNull(nodes.get(0).observacion());
+    }
+
+    @Test
+    void altaAparecePrimeroEnLaLineaDeTiempo() {
+        EntregaView nueva = historialService.create(
+                new CreateEntregaInput(otroCliente, null, EstadoEntrega.REGISTRADA, "Nueva"));
+
+        var page = historialService.timeline(otroCliente, 5, null, null, null);
+        assertEquals(nueva.idEntrega(), page.edges().get(0).node().idEntrega());
+        assertEquals("Nueva", historialService.findById(nueva.idEntrega()).observacion());
+    }
+
+    @Test
+    void usuarioSinEntregasOInexistente() {
+        jdbc.update("delete from public.tblhistorial_entregas where id_usuario = ?", otroCliente);
+        assertTrue(historialService.timeline(otroCliente, 10, null, null, null).edges().isEmpty());
+        assertThrows(NotFoundException.class, () -> historialService.timeline(-1, 10, null, null, null));
+        assertThrows(NotFoundException.class, () -> historialService.create(
+                new CreateEntregaInput(-1, null, EstadoEntrega.REGISTRADA, null)));
+    }
+
+    @Test
+    void ventanaDeFechas_soloEsaVentanaYSoloEseMes() {
+        OffsetDateTime desde = OffsetDateTime.parse("2025-11-03T09:00:00Z");
+        OffsetDateTime hasta = OffsetDateTime.parse("2025-11-03T09:30:00Z");
+        int enVentana = jdbc.queryForObject("select count(*) from public.tblhistorial_entregas "
+                + "where id_usuario = ? and fecha >= ? and fecha < ?", Integer.class, cliente, desde, hasta);
+
+        var page = historialService.timeline(cliente, 200, null, desde, hasta);
+
+        List<EntregaView> nodes = page.edges().stream().map(Edge::node).toList();
+        assertEquals(enVentana, nodes.size());
+        assertTrue(nodes.stream().allMatch(e -> !e.fecha().isBefore(desde) && e.fecha().isBefore(hasta)));
+
+        String plan = explain("fecha >= timestamptz '2025-11-03 09:00:00+00' "
+                + "and fecha < timestamptz '2025-11-03 09:30:00+00'");
+        assertTrue(plan.contains("tblhistorial_entregas_p202511"), plan);
+        assertFalse(plan.contains("tblhistorial_entregas_p202510"), plan);
+        assertFalse(plan.contains(particionActual()), plan);
+    }
+
+    @Test
+    void seekResueltoPorElIndiceSinOrdenar() {
+        jdbc.execute("set local enable_seqscan = off");
+        jdbc.execute("set local enable_bitmapscan = off");
+        // Mismas condiciones que la página siguiente: la cota simple sobre fecha descarta los meses posteriores
+        String plan = explain("fecha <= timestamptz '2025-11-03 10:00:00+00' "
+                + "and (fecha, id_entrega) < (timestamptz '2025-11-03 10:00:00+00', 1000000)");
+
+        assertTrue(plan.contains("Index"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+        assertTrue(plan.contains("tblhistorial_entregas_p202511"), plan);
+        assertFalse(plan.contains(particionActual()), plan);
+    }
+
+    private String explain(String condicion) {
+        return String.join("\n", jdbc.queryForList("""
+                explain select id_entrega, id_usuario, fecha, estado, observacion
+                from public.tblhistorial_entregas
+                where id_usuario = ? and %s
+                order by fecha desc, id_entrega desc limit 21""".formatted(condicion), String.class, cliente));
+    }
+
+    private static String particionActual() {
+        return "tblhistorial_entregas_p" + YearMonth.now(ZoneOffset.UTC).format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+}
@@ -0,0 +1,246 @@
+package com.ep18.couriersync.backend.promos.campaign;
+
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue.Cierre;
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue.Lote;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.CampanaEstado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.mail.SmtpStandIn;
+import com.ep18.couriersync.backend.promos.mail.SmtpTransportPool;
+import com.ep18.couriersync.backend.promos.template.PlantillaCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Campañas contra PostgreSQL y el servidor SMTP de la prueba. Sin transacción de prueba
+ * envolvente: la cola se comparte entre "instancias" (workers con su propio pool) que solo ven
+ * lo confirmado.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CampanaQueue.class)
+class CampanaWorkerTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static final Duration PLAZO = Duration.ofMinutes(5);
+
+    @Autowired private CampanaQueue cola;
+    @Autowired private JdbcTemplate jdbc;
+
+    private final List<SmtpTransportPool> pools = new ArrayList<>();
+    private final PlantillaCache plantillas = new PlantillaCache();
+    private SmtpStandIn smtp;
+    private int departamento;
+    private int ciudad;
+    private int rol;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtp = new SmtpStandIn();
+        departamento = jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) "
+                + "values ('Campaña') returning id_departamento", Integer.class);
+        ciudad = jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values ('Campaña', 'campana', ?) returning id_ciudad", Integer.class, departamento);
+        rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Campaña') returning id_rol",
+                Integer.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (SmtpTransportPool pool : pools) pool.close();
+        smtp.close();
+        jdbc.update("delete from public.tblcampanas");
+        jdbc.update("delete from public.tblusuarios where departamento = ?", departamento);
+        jdbc.update("delete from public.tblusuarios_eliminados");
+        jdbc.update("delete from public.tblciudades where id_ciudad = ?", ciudad);
+        jdbc.update("delete from public.tbldepartamentos where id_departamento = ?", departamento);
+        jdbc.update("delete from public.tblroles where id_rol = ?", rol);
+    }
+
+    @Test
+    void campana_enviaUnaVezACadaUsuarioPorLotesYTermina() {
+        usuarios(1200);
+        CampanaEstado creada = cola.crear(segmento(), "Oferta para {{nombre}}", "<p>Hola {{nombreCiudad}}</p>");
+        assertEquals(1200, creada.total());
+        assertEquals(3, (int) jdbc.queryForObject("select count(*) from public.tblcampana_lotes "
+                + "where id_campana = ?", Integer.class, creada.idCampana()));
+        // Borrado después de encolar: no se le envía
+        jdbc.update("delete from public.tblusuarios where correo = 'c7@campana.example.com'");
+
+        CampanaWorker worker = worker("nodo-a", 5, Duration.ofMillis(100));
+        assertEquals(3, worker.drain());
+        assertEquals(0, worker.drain());
+
+        CampanaEstado estado = cola.estado(creada.idCampana()).orElseThrow();
+        assertEquals(new CampanaEstado(creada.idCampana(), 1200, 1199, 1, 0, true), estado);
+        assertEquals(1199, correosRecibidos().size());
+        assertEquals(1199, smtp.recibidos().size());
+        assertTrue(smtp.recibidos().get(0).datos().contains("Hola Campa"), smtp.recibidos().get(0).datos());
+    }
+
+    @Test
+    void dosInstancias_seRepartenLosLotesSinDuplicar() {
+        smtp.latencia(Duration.ofMillis(1));
+        usuarios(2000);
+        long id = cola.crear(segmento(), "Oferta", "<p>Hola</p>").idCampana();
+        CampanaWorker a = worker("nodo-a", 5, Duration.ofMillis(100));
+        CampanaWorker b = worker("nodo-b", 5, Duration.ofMillis(100));
+
+        CompletableFuture<Integer> lotesA = CompletableFuture.supplyAsync(a::drain);
+        CompletableFuture<Integer> lotesB = CompletableFuture.supplyAsync(b::drain);
+
+        assertEquals(4, lotesA.join() + lotesB.join());
+        assertTrue(lotesA.join() > 0 && lotesB.join() > 0, lotesA.join() + " / " + lotesB.join());
+        assertEquals(2000, smtp.recibidos().size());
+        assertEquals(2000, correosRecibidos().size());
+        assertEquals(List.of("nodo-a", "nodo-b"), jdbc.queryForList("select distinct tomado_por "
+                + "from public.tblcampana_lotes where id_campana = ? order by 1", String.class, id));
+        assertTrue(cola.estado(id).orElseThrow().terminada());
+    }
+
+    @Test
+    void falloTemporal_vuelveALaColaTrasLaEsperaYElRechazoEsDefinitivo() throws Exception {
+        usuarios(10);
+        smtp.rechazar(correo -> correo.equals("c1@campana.example.com"));
+        smtp.aplazar(correo -> correo.equals("c2@campana.example.com"));
+        long id = cola.crear(segmento(), "Oferta", "<p>Hola</p>").idCampana();
+        CampanaWorker worker = worker("nodo-a", 3, Duration.ofMillis(300));
+
+        assertEquals(1, worker.drain());
+        assertEquals(new CampanaEstado(id, 10, 8, 1, 1, false), cola.estado(id).orElseThrow());
+        assertTrue(jdbc.queryForObject("select disponible_en > now() from public.tblcampana_lotes "
+                + "where id_campana = ?", Boolean.class, id));
+        // Todavía en espera: nadie lo toma
+        assertEquals(0, worker.drain());
+
+        smtp.aplazar(correo -> false);
+        Thread.sleep(400);
+        assertEquals(1, worker.drain());
+
+        assertEquals(new CampanaEstado(id, 10, 9, 1, 0, true), cola.estado(id).orElseThrow());
+        // El segundo intento solo envió al aplazado
+        assertEquals(9, smtp.recibidos().size());
+        assertEquals(9, correosRecibidos().size());
+    }
+
+    @Test
+    void sinMasReintentos_loteYPendientesQuedanFallidos() throws Exception {
+        usuarios(3);
+        smtp.aplazar(correo -> correo.equals("c0@campana.example.com"));
+        long id = cola.crear(segmento(), "Oferta", "<p>Hola</p>").idCampana();
+        CampanaWorker worker = worker("nodo-a", 2, Duration.ofMillis(50));
+
+        assertEquals(1, worker.drain());
+        Thread.sleep(100);
+        assertEquals(1, worker.drain());
+
+        assertEquals(new CampanaEstado(id, 3, 2, 1, 0, true), cola.estado(id).orElseThrow());
+        assertEquals("FALLIDO", jdbc.queryForObject("select estado from public.tblcampana_lotes "
+                + "where id_campana = ?", String.class, id));
+        assertTrue(jdbc.queryForObject("select error from public.tblcampana_destinatarios d "
+                + "join public.tblusuarios u using (id_usuario) where u.correo = 'c0@campana.example.com'",
+                String.class).contains("451"));
+    }
+
+    @Test
+    void instanciaCaida_otraRetomaElLoteAlVencerElPlazoSinRepetirLoEnviado() throws Exception {
+        usuarios(10);
+        long id = cola.crear(segmento(), "Oferta", "<p>Hola</p>").idCampana();
+        // La instancia caída tomó el lote y alcanzó a anotar tres envíos
+        Lote caido = cola.reclamar("nodo-caido", Duration.ofMillis(300)).orElseThrow();
+        List<Integer> ids = jdbc.queryForList("select id_usuario from public.tblcampana_destinatarios "
+                + "where id_campana = ? order by id_usuario", Integer.class, id);
+        for (int i = 0; i < 3; i++) assertTrue(cola.marcarEnviado(id, ids.get(i)));
+
+        CampanaWorker worker = worker("nodo-b", 5, Duration.ofMillis(100));
+        assertEquals(0, worker.drain());
+        Thread.sleep(400);
+        assertEquals(1, worker.drain());
+
+        assertEquals(7, smtp.recibidos().size());
+        assertEquals(new CampanaEstado(id, 10, 10, 0, 0, true), cola.estado(id).orElseThrow());
+        // La instancia caída ya no puede cerrar ni renovar el lote
+        assertFalse(cola.renovar(caido, PLAZO));
+        assertEquals(Cierre.PERDIDO, cola.cerrar(caido, 5, Duration.ZERO, null));
+        assertFalse(cola.marcarEnviado(id, ids.get(0)));
+    }
+
+    @Test
+    void backoff_exponencialHastaElMaximo() {
+        CampanaWorker worker = new CampanaWorker(cola, null, plantillas, "nodo", PLAZO, Duration.ofSeconds(1), 5,
+                Duration.ofSeconds(30), Duration.ofMinutes(3), new SimpleMeterRegistry());
+
+        assertEquals(Duration.ofSeconds(30), worker.backoff(1));
+        assertEquals(Duration.ofSeconds(60), worker.backoff(2));
+        assertEquals(Duration.ofSeconds(120), worker.backoff(3));
+        assertEquals(Duration.ofMinutes(3), worker.backoff(4));
+        assertEquals(Duration.ofMinutes(3), worker.backoff(40));
+    }
+
+    private Segmento segmento() {
+        return new Segmento(null, departamento, rol, null, null);
+    }
+
+    private void usuarios(int n) {
+        jdbc.update("""
+                insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                detalle_direccion, ciudad, departamento, rol)
+                select 'Cliente ' || i, 'cliente ' || i, 'c' || i || '@campana.example.com', '3000000000',
+                       current_date, 'Calle ' || i, ?, ?, ?
+                from generate_series(0, ? - 1) i
+                """, ciudad, departamento, rol, n);
+    }
+
+    private Set<String> correosRecibidos() {
+        return smtp.recibidos().stream().flatMap(m -> m.destinatarios().stream()).collect(Collectors.toSet());
+    }
+
+    private CampanaWorker worker(String nodo, int maxIntentos, Duration espera) {
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.connectiontimeout", "5000");
+        props.setProperty("mail.smtp.timeout", "5000");
+        SmtpTransportPool pool = new SmtpTransportPool(Session.getInstance(props), "127.0.0.1", smtp.port(),
+                null, null, 4, Duration.ofSeconds(30));
+        pools.add(pool);
+        try {
+            PromoDispatcher dispatcher = new PromoDispatcher(pool, null,
+                    new InternetAddress("promos@couriersync.example.com"), new SimpleMeterRegistry());
+            return new CampanaWorker(cola, dispatcher, plantillas, nodo, PLAZO, Duration.ofSeconds(1), maxIntentos,
+                    espera, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        } catch (AddressException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
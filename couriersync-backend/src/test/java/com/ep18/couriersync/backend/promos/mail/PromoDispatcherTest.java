@@ -0,0 +1,261 @@
+package com.ep18.couriersync.backend.promos.mail;
+
+import com.ep18.couriersync.backend.common.ratelimit.TokenBucket;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.PromoResultado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.ResultadoEnvio;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Envíos contra el servidor SMTP de la prueba ({@link SmtpStandIn}), sin red externa. */
+class PromoDispatcherTest {
+
+    private SmtpStandIn smtp;
+    private SmtpTransportPool pool;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtp = new SmtpStandIn();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (pool != null) pool.close();
+        smtp.close();
+    }
+
+    @Test
+    void milDestinatarios_enMenosDeUnMinuto() throws Exception {
+        // 10 ms por mensaje en el servidor: en serie serían más de 10 s
+        smtp.latencia(Duration.ofMillis(10));
+        PromoDispatcher dispatcher = dispatcher(8, new TokenBucket(500, 50));
+
+        PromoResultado r = enviar(dispatcher, destinatarios(1000), "Oferta", "<a>Oferta</a>");
+
+        assertTrue(r.ok());
+        assertEquals(1000, r.total());
+        assertEquals(1000, r.enviados());
+        assertTrue(r.elapsedMs() <= 60_000, r.elapsedMs() + " ms");
+        assertEquals(1000, smtp.recibidos().stream().flatMap(m -> m.destinatarios().stream())
+                .collect(Collectors.toSet()).size());
+        // Conexiones reutilizadas y envíos en paralelo
+        assertTrue(smtp.conexiones() <= 8, smtp.conexiones() + " conexiones");
+        assertTrue(smtp.maxEnCurso() > 1);
+        assertEquals(1000, registry.get("couriersync.promos.sent").counter().count());
+    }
+
+    @Test
+    void respetaMensajesPorSegundo() throws Exception {
+        PromoDispatcher dispatcher = dispatcher(4, new TokenBucket(40, 10));
+
+        PromoResultado r = enviar(dispatcher, destinatarios(60), "Oferta", "<p>Hola</p>");
+
+        // 10 salen en ráfaga, los 50 restantes a 40 por segundo
+        assertTrue(r.ok());
+        assertTrue(r.elapsedMs() >= 1_200, r.elapsedMs() + " ms");
+    }
+
+    @Test
+    void destinatarioRechazado_noFrenaAlResto() throws Exception {
+        smtp.rechazar(correo -> correo.startsWith("rebota"));
+        PromoDispatcher dispatcher = dispatcher(2, null);
+        List<Destinatario> lista = List.of(
+                new Destinatario(1, "uno@promos.example.com", "Uno"),
+                new Destinatario(2, "rebota@promos.example.com", null),
+                new Destinatario(3, "sin-arroba", null),
+                new Destinatario(4, "cuatro@promos.example.com", "Cuatro"));
+
+        PromoResultado r = enviar(dispatcher, lista, "Oferta", "<p>Hola</p>");
+
+        assertFalse(r.ok());
+        assertEquals(2, r.enviados());
+        assertEquals(2, r.fallidos());
+        assertEquals(List.of(true, false, false, true), r.resultados().stream().map(ResultadoEnvio::enviado).toList());
+        assertEquals(List.of(1, 2, 3, 4), r.resultados().stream().map(ResultadoEnvio::idUsuario).toList());
+        assertNotNull(r.resultados().get(1).error());
+        assertTrue(r.resultados().get(2).error().startsWith("Correo inválido"), r.resultados().get(2).error());
+        // El rechazo deja la conexión usable: no se abren conexiones de más
+        assertTrue(smtp.conexiones() <= 2, smtp.conexiones() + " conexiones");
+        assertEquals(Set.of("uno@promos.example.com", "cuatro@promos.example.com"),
+                smtp.recibidos().stream().flatMap(m -> m.destinatarios().stream()).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void aplazamientoDelServidor_esReintentableYElRechazoNo() throws Exception {
+        smtp.rechazar(correo -> correo.startsWith("rebota"));
+        smtp.aplazar(correo -> correo.startsWith("luego"));
+        PromoDispatcher dispatcher = dispatcher(2, null);
+        List<Destinatario> lista = List.of(
+                new Destinatario(1, "rebota@promos.example.com", null),
+                new Destinatario(2, "luego@promos.example.com", null),
+                new Destinatario(3, "tres@promos.example.com", null));
+
+        PromoResultado r = enviar(dispatcher, lista, "Oferta", "<p>Hola</p>");
+
+        assertEquals(List.of(false, true, false),
+                r.resultados().stream().map(ResultadoEnvio::reintentable).toList());
+        assertFalse(r.resultados().get(1).enviado());
+        assertTrue(r.resultados().get(0).error().startsWith("550"), r.resultados().get(0).error());
+        assertTrue(r.resultados().get(1).error().startsWith("451"), r.resultados().get(1).error());
+        assertTrue(r.resultados().get(2).enviado());
+    }
+
+    @Test
+    void cadaIntento_tomaSuFichaDeLaCubeta() throws Exception {
+        smtp.aplazar(correo -> correo.startsWith("luego"));
+        // ráfaga de 3 y sin relleno apreciable durante la prueba
+        TokenBucket limite = new TokenBucket(0.01, 3);
+        PromoDispatcher dispatcher = dispatcher(1, limite);
+
+        PromoResultado r = enviar(dispatcher, List.of(new Destinatario(1, "luego@promos.example.com", null)),
+                "Oferta", "<p>Hola {{nombre}}</p>");
+
+        assertFalse(r.resultados().get(0).enviado());
+        // dos intentos, dos fichas: queda una
+        assertTrue(limite.tryAcquire());
+        assertFalse(limite.tryAcquire());
+    }
+
+    @Test
+    void servidorCortaLaConexion_seReconectaYNoSePierdenEnvios() throws Exception {
+        smtp.cortarTras(5);
+        PromoDispatcher dispatcher = dispatcher(2, null);
+
+        PromoResultado r = enviar(dispatcher, destinatarios(40), "Oferta", "<p>Hola</p>");
+
+        assertTrue(r.ok(), () -> r.resultados().stream().filter(e -> !e.enviado()).toList().toString());
+        assertEquals(40, smtp.recibidos().size());
+        assertTrue(smtp.conexiones() >= 8, smtp.conexiones() + " conexiones");
+    }
+
+    @Test
+    void contenidoDelMensaje() throws Exception {
+        PromoDispatcher dispatcher = dispatcher(1, null);
+
+        enviar(dispatcher, List.of(new Destinatario(7, "ana@promos.example.com", "Ana Muñoz")),
+                "Descuento de temporada", "<a href=\"https://couriersync.example.com\">Oferta</a>");
+
+        SmtpStandIn.Recibido m = smtp.recibidos().get(0);
+        assertEquals("promos@couriersync.example.com", m.remitente());
+        assertEquals(List.of("ana@promos.example.com"), m.destinatarios());
+        assertTrue(m.datos().contains("Subject: Descuento de temporada"), m.datos());
+        assertTrue(m.datos().contains("text/html"), m.datos());
+    }
+
+    @Test
+    void personalizaPorDestinatario() throws Exception {
+        PromoDispatcher dispatcher = dispatcher(2, null);
+
+        enviar(dispatcher, List.of(
+                        new Destinatario(1, "ana@promos.example.com", "Ana", "Medellín", "Antioquia"),
+                        new Destinatario(2, "luis@promos.example.com", "Luis <Admin>", "Cali", "Valle")),
+                "Oferta en {{nombreCiudad}}", "<p>Hola {{nombre}}, envíos gratis en {{ nombreCiudad }}</p>");
+
+        List<String> cuerpos = smtp.recibidos().stream().map(SmtpStandIn.Recibido::datos).toList();
+        assertTrue(cuerpos.stream().anyMatch(c -> c.contains("Subject: Oferta en Cali")), cuerpos.toString());
+        assertTrue(cuerpos.stream().anyMatch(c -> c.contains("Hola Luis &lt;Admin&gt;, env")), cuerpos.toString());
+        assertTrue(cuerpos.stream().noneMatch(c -> c.contains("{{")), cuerpos.toString());
+    }
+
+    @Test
+    void cuerpoPersonalizado_masGrandeQueUnTramo_llegaCompletoEnCadaMensaje() throws Exception {
+        // una conexión: los tres destinatarios reutilizan el mismo buffer de cuerpo
+        PromoDispatcher dispatcher = dispatcher(1, null);
+        String relleno = "<p>Envíos con descuento a toda Colombia: ñandú, pingüino, árbol.</p>".repeat(400);
+
+        enviar(dispatcher, List.of(
+                        new Destinatario(1, "ana@promos.example.com", "Ana Muñoz", "Medellín", "Antioquia"),
+                        new Destinatario(2, "luis@promos.example.com", "Luis", "Cali", "Valle"),
+                        new Destinatario(3, "eva@promos.example.com", "Eva", "Pasto", "Nariño")),
+                "Oferta", "<h1>Hola {{nombre}}</h1>" + relleno + "<p>{{nombreCiudad}}</p>");
+
+        Session session = Session.getInstance(new Properties());
+        Set<String> cuerpos = new HashSet<>();
+        for (SmtpStandIn.Recibido r : smtp.recibidos()) {
+            MimeMessage m = new MimeMessage(session,
+                    new ByteArrayInputStream(r.datos().getBytes(StandardCharsets.UTF_8)));
+            cuerpos.add(((String) m.getContent()).strip());
+        }
+        assertEquals(Set.of(
+                "<h1>Hola Ana Muñoz</h1>" + relleno + "<p>Medellín</p>",
+                "<h1>Hola Luis</h1>" + relleno + "<p>Cali</p>",
+                "<h1>Hola Eva</h1>" + relleno + "<p>Pasto</p>"), cuerpos);
+    }
+
+    @Test
+    void fuente_seLeeAlRitmoDelEnvio() throws Exception {
+        smtp.latencia(Duration.ofMillis(2));
+        PromoDispatcher dispatcher = dispatcher(2, null);
+        AtomicInteger leidos = new AtomicInteger();
+        AtomicInteger terminados = new AtomicInteger();
+        AtomicInteger maxAdelanto = new AtomicInteger();
+        Iterator<Destinatario> fuente = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return leidos.get() < 300;
+            }
+
+            @Override
+            public Destinatario next() {
+                int i = leidos.incrementAndGet();
+                maxAdelanto.accumulateAndGet(i - terminados.get(), Math::max);
+                return new Destinatario(i, "cliente" + i + "@promos.example.com", "Cliente " + i);
+            }
+        };
+
+        PromoResultado r = dispatcher.enviar(fuente, PlantillaPromo.compilar("Oferta", Formato.TEXTO),
+                PlantillaPromo.compilar("<p>Hola {{nombre}}</p>", Formato.HTML), e -> terminados.incrementAndGet());
+
+        assertTrue(r.ok());
+        assertEquals(300, r.enviados());
+        assertTrue(r.resultados().isEmpty());
+        assertEquals(300, terminados.get());
+        assertEquals(300, smtp.recibidos().size());
+        // Como mucho 4 envíos en curso por conexión, más el que se acaba de leer
+        assertTrue(maxAdelanto.get() <= 2 * PromoDispatcher.EN_VUELO_POR_CONEXION + 1, maxAdelanto + " adelantados");
+    }
+
+    private static PromoResultado enviar(PromoDispatcher dispatcher, List<Destinatario> destinatarios,
+                                         String asunto, String html) {
+        return dispatcher.enviar(destinatarios, PlantillaPromo.compilar(asunto, Formato.TEXTO),
+                PlantillaPromo.compilar(html, Formato.HTML));
+    }
+
+    private PromoDispatcher dispatcher(int conexiones, TokenBucket limite) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.connectiontimeout", "5000");
+        props.setProperty("mail.smtp.timeout", "5000");
+        pool = new SmtpTransportPool(Session.getInstance(props), "127.0.0.1", smtp.port(), null, null,
+                conexiones, Duration.ofSeconds(30));
+        return new PromoDispatcher(pool, limite, new InternetAddress("promos@couriersync.example.com"), registry);
+    }
+
+    private static List<Destinatario> destinatarios(int n) {
+        return IntStream.rangeClosed(1, n)
+                .mapToObj(i -> new Destinatario(i, "cliente" + i + "@promos.example.com", "Cliente " + i))
+                .toList();
+    }
+}
@@ -0,0 +1,171 @@
+package com.ep18.couriersync.backend.promos.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Servidor SMTP mínimo en la JVM de la prueba (EHLO, MAIL, RCPT, DATA, RSET, NOOP, QUIT) que
+ * guarda lo recibido. Permite rechazar o aplazar destinatarios, simular latencia por mensaje y
+ * cortar la conexión tras cierto número de mensajes, como hacen los proveedores. Atiende en hilos
+ * virtuales, como el dispatcher: si este fijara sus hilos a los portadores durante la E/S, con
+ * pocos núcleos el servidor no avanzaría y las pruebas se colgarían.
+ */
+public final class SmtpStandIn implements AutoCloseable {
+
+    public record Recibido(String remitente, List<String> destinatarios, String datos) {}
+
+    private final ServerSocket server;
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+    private final Queue<Recibido> recibidos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicInteger maxEnCurso = new AtomicInteger();
+
+    private volatile Predicate<String> rechazar = correo -> false;
+    private volatile Predicate<String> aplazar = correo -> false;
+    private volatile Duration latencia = Duration.ZERO;
+    private volatile int mensajesPorConexion = Integer.MAX_VALUE;
+
+    public SmtpStandIn() throws IOException {
+        server = new ServerSocket(0, 500, InetAddress.getLoopbackAddress());
+        hilos.submit(this::aceptar);
+    }
+
+    public int port() { return server.getLocalPort(); }
+    public List<Recibido> recibidos() { return List.copyOf(recibidos); }
+    /** Conexiones abiertas por los clientes desde el arranque */
+    public int conexiones() { return conexiones.get(); }
+    /** Máximo de mensajes que se estaban recibiendo a la vez */
+    public int maxEnCurso() { return maxEnCurso.get(); }
+
+    public void rechazar(Predicate<String> destinatario) { this.rechazar = destinatario; }
+    /** Responde 451 (error temporal) al RCPT de estos destinatarios */
+    public void aplazar(Predicate<String> destinatario) { this.aplazar = destinatario; }
+    public void latencia(Duration porMensaje) { this.latencia = porMensaje; }
+    public void cortarTras(int mensajes) { this.mensajesPorConexion = mensajes; }
+
+    private void aceptar() {
+        while (!server.isClosed()) {
+            try {
+                Socket s = server.accept();
+                conexiones.incrementAndGet();
+                hilos.submit(() -> atender(s));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            responder(out, "220 stand-in ESMTP");
+            String remitente = null;
+            List<String> destinatarios = new ArrayList<>();
+            int mensajes = 0;
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                String comando = linea.length() < 4 ? linea.toUpperCase() : linea.substring(0, 4).toUpperCase();
+                switch (comando) {
+                    case "EHLO" -> responder(out, "250-stand-in\r\n250 8BITMIME");
+                    case "HELO", "NOOP" -> responder(out, "250 OK");
+                    case "MAIL" -> {
+                        remitente = direccion(linea);
+                        destinatarios.clear();
+                        responder(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        String d = direccion(linea);
+                        if (rechazar.test(d)) {
+                            responder(out, "550 5.1.1 Buzón inexistente");
+                        } else if (aplazar.test(d)) {
+                            responder(out, "451 4.3.0 Intente más tarde");
+                        } else {
+                            destinatarios.add(d);
+                            responder(out, "250 OK");
+                        }
+                    }
+                    case "DATA" -> {
+                        if (destinatarios.isEmpty()) {
+                            responder(out, "554 Sin destinatarios válidos");
+                            continue;
+                        }
+                        responder(out, "354 Fin con <CRLF>.<CRLF>");
+                        String datos = datos(in);
+                        recibir(new Recibido(remitente, List.copyOf(destinatarios), datos));
+                        destinatarios.clear();
+                        responder(out, "250 OK");
+                        if (++mensajes >= mensajesPorConexion) return;
+                    }
+                    case "RSET" -> {
+                        remitente = null;
+                        destinatarios.clear();
+                        responder(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        responder(out, "221 Adiós");
+                        return;
+                    }
+                    default -> responder(out, "502 No implementado");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // el cliente cerró o el servidor se detiene
+        }
+    }
+
+    private void recibir(Recibido mensaje) throws InterruptedException {
+        int n = enCurso.incrementAndGet();
+        maxEnCurso.accumulateAndGet(n, Math::max);
+        try {
+            if (!latencia.isZero()) Thread.sleep(latencia);
+            recibidos.add(mensaje);
+        } finally {
+            enCurso.decrementAndGet();
+        }
+    }
+
+    private static String datos(BufferedReader in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String linea;
+        while ((linea = in.readLine()) != null && !linea.equals(".")) {
+            sb.append(linea.startsWith("..") ? linea.substring(1) : linea).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String direccion(String linea) {
+        int a = linea.indexOf('<');
+        int b = linea.indexOf('>', a);
+        return a >= 0 && b > a ? linea.substring(a + 1, b) : "";
+    }
+
+    private static void responder(Writer out, String respuesta) throws IOException {
+        out.write(respuesta + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        hilos.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ep18.couriersync.backend.promos.mail;
+
+import com.ep18.couriersync.backend.promos.mail.SmtpTransportPool.Conexion;
+import jakarta.mail.Session;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** El pool contra {@link SmtpStandIn}: la E/S de Jakarta Mail no debe fijar hilos virtuales. */
+class SmtpTransportPoolTest {
+
+    private SmtpStandIn smtp;
+    private SmtpTransportPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        smtp = new SmtpStandIn();
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.connectiontimeout", "5000");
+        props.setProperty("mail.smtp.timeout", "5000");
+        pool = new SmtpTransportPool(Session.getInstance(props), "127.0.0.1", smtp.port(), null, null,
+                2, Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        smtp.close();
+    }
+
+    @Test
+    void tomarYDescartar_desdeHilosVirtuales_noFijanAlPortador() throws Exception {
+        List<RecordedEvent> fijados = new CopyOnWriteArrayList<>();
+        try (RecordingStream jfr = new RecordingStream()) {
+            jfr.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            jfr.onEvent("jdk.VirtualThreadPinned", fijados::add);
+            jfr.startAsync();
+
+            // control: esperar dentro de synchronized en un hilo virtual sí queda registrado
+            Object monitor = new Object();
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+            jfr.stop();
+        }
+        assertFalse(fijados.isEmpty(), "el registro JFR no detecta hilos fijados");
+
+        fijados.clear();
+        try (RecordingStream jfr = new RecordingStream()) {
+            jfr.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            jfr.onEvent("jdk.VirtualThreadPinned", fijados::add);
+            jfr.startAsync();
+
+            Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < 3; i++) {
+                        // conectar (EHLO) y QUIT ocurren dentro de métodos synchronized del Transport
+                        Conexion c = pool.tomar();
+                        pool.descartar(c);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).join();
+            jfr.stop();
+        }
+        assertEquals(0, fijados.size(), fijados::toString);
+        assertEquals(3, smtp.conexiones());
+    }
+}
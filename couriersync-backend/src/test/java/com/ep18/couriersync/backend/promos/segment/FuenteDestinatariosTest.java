@@ -0,0 +1,75 @@
+package com.ep18.couriersync.backend.promos.segment;
+
+import com.ep18.couriersync.backend.common.pagination.KeysetCursor;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuenteDestinatariosTest {
+
+    /** Usuarios 1..n con nombres ordenables; cada página sigue al cursor, como findRowsAfter */
+    private static Function<KeysetCursor, List<Destinatario>> usuarios(int n, int tamanoPagina,
+                                                                     List<KeysetCursor> pedidas) {
+        return after -> {
+            pedidas.add(after);
+            int desde = after == null ? 1 : after.id() + 1;
+            return IntStream.rangeClosed(desde, Math.min(n, desde + tamanoPagina - 1))
+                    .mapToObj(i -> new Destinatario(i, "u" + i + "@example.com", String.format("Usuario %05d", i)))
+                    .toList();
+        };
+    }
+
+    @Test
+    void recorreTodasLasPaginasEnOrden() {
+        List<KeysetCursor> pedidas = new CopyOnWriteArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+
+        try (FuenteDestinatarios fuente = new FuenteDestinatarios(usuarios(10, 3, pedidas), 3, 4)) {
+            fuente.forEachRemaining(d -> ids.add(d.idUsuario()));
+        }
+
+        assertEquals(IntStream.rangeClosed(1, 10).boxed().toList(), ids);
+        // 3 + 3 + 3 + 1: la página corta es la última
+        assertEquals(4, pedidas.size());
+        assertNull(pedidas.get(0));
+        assertEquals(new KeysetCursor("Usuario 00003", 3), pedidas.get(1));
+    }
+
+    @Test
+    void colaLlena_elProductorNoLeeMasPaginas() throws InterruptedException {
+        List<KeysetCursor> pedidas = new CopyOnWriteArrayList<>();
+
+        try (FuenteDestinatarios fuente = new FuenteDestinatarios(usuarios(1_000_000, 10, pedidas), 10, 15)) {
+            assertEquals(1, fuente.next().idUsuario());
+            Thread.sleep(300);
+
+            // 15 en la cola + 1 consumido + la página que espera lugar: no se leyó más allá
+            assertTrue(pedidas.size() <= 3, pedidas.size() + " páginas leídas");
+            for (int i = 0; i < 100; i++) fuente.next();
+            Thread.sleep(300);
+            assertTrue(pedidas.size() <= 13, pedidas.size() + " páginas leídas");
+        }
+    }
+
+    @Test
+    void errorDeLectura_llegaAlConsumidorTrasLoYaLeido() {
+        List<KeysetCursor> pedidas = new CopyOnWriteArrayList<>();
+        Function<KeysetCursor, List<Destinatario>> base = usuarios(100, 5, pedidas);
+        IllegalStateException falla = new IllegalStateException("sin conexión");
+
+        try (FuenteDestinatarios fuente = new FuenteDestinatarios(after -> {
+            if (after != null) throw falla;
+            return base.apply(null);
+        }, 5, 10)) {
+            for (int i = 1; i <= 5; i++) assertEquals(i, fuente.next().idUsuario());
+            assertSame(falla, assertThrows(IllegalStateException.class, fuente::hasNext));
+        }
+    }
+}
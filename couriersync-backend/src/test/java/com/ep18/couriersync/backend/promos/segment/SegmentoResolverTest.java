@@ -0,0 +1,151 @@
+package com.ep18.couriersync.backend.promos.segment;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Segmentos contra PostgreSQL. Sin transacción de prueba envolvente: las páginas se leen en el
+ * hilo productor, con su propia transacción, y solo ven datos confirmados.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SegmentoResolver.class, ReferenceDataCatalog.class, SimpleMeterRegistry.class})
+class SegmentoResolverTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    private static final LocalDate HOY = LocalDate.of(2025, 6, 15);
+
+    @Autowired private SegmentoResolver resolver;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    private int antioquia;
+    private int cundinamarca;
+    private int medellin;
+    private int bogota;
+    private int cliente;
+    private int mensajero;
+
+    @BeforeEach
+    void setUp() {
+        antioquia = departamento("Antioquia Segmento");
+        cundinamarca = departamento("Cundinamarca Segmento");
+        medellin = ciudad("Medellín", antioquia);
+        bogota = ciudad("Bogotá", cundinamarca);
+        cliente = rol("Cliente Segmento");
+        mensajero = rol("Mensajero Segmento");
+
+        // 12 usuarios: pares en Medellín, uno de cada tres mensajero, registrados un día tras otro
+        for (int i = 0; i < 12; i++) {
+            boolean enMedellin = i % 2 == 0;
+            jdbc.update("""
+                    insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                    detalle_direccion, ciudad, departamento, rol)
+                    values (?, ?, ?, '3000000000', ?, 'Calle 1', ?, ?, ?)
+                    """,
+                    "Usuario " + (i % 4), "usuario " + (i % 4), "segmento" + i + "@example.com",
+                    HOY.minusDays(i), enMedellin ? medellin : bogota, enMedellin ? antioquia : cundinamarca,
+                    i % 3 == 0 ? mensajero : cliente);
+        }
+        catalog.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from public.tblusuarios where departamento in (?, ?)", antioquia, cundinamarca);
+        jdbc.update("delete from public.tblciudades where id_ciudad in (?, ?)", medellin, bogota);
+        jdbc.update("delete from public.tbldepartamentos where id_departamento in (?, ?)", antioquia, cundinamarca);
+        jdbc.update("delete from public.tblroles where id_rol in (?, ?)", cliente, mensajero);
+    }
+
+    @Test
+    void segmento_recorrePaginasSinHuecosNiDuplicadosConNombresDelCatalogo() {
+        List<Destinatario> antioquenos = leer(new Segmento(null, antioquia, null, null, null), 2);
+
+        assertEquals(6, antioquenos.size());
+        assertEquals(6, antioquenos.stream().map(Destinatario::idUsuario).distinct().count());
+        assertTrue(antioquenos.stream().allMatch(d -> "Medellín".equals(d.nombreCiudad())
+                && "Antioquia Segmento".equals(d.nombreDepartamento())));
+        // Orden del keyset: nombre y luego id
+        for (int i = 1; i < antioquenos.size(); i++) {
+            Destinatario a = antioquenos.get(i - 1);
+            Destinatario b = antioquenos.get(i);
+            int cmp = a.nombre().compareTo(b.nombre());
+            assertTrue(cmp < 0 || (cmp == 0 && a.idUsuario() < b.idUsuario()), a + " antes de " + b);
+        }
+    }
+
+    @Test
+    void segmento_combinaCiudadRolYRangoDeRegistro() {
+        assertEquals(List.of("segmento0@example.com", "segmento6@example.com"),
+                correos(new Segmento(medellin, null, mensajero, null, null)));
+
+        // Registrados entre hace 5 y hace 2 días: 2..5; de ellos, clientes en Bogotá: 5
+        assertEquals(List.of("segmento5@example.com"),
+                correos(new Segmento(null, cundinamarca, cliente, HOY.minusDays(5), HOY.minusDays(2))));
+
+        assertTrue(leer(new Segmento(bogota, antioquia, null, null, null), 2).isEmpty());
+    }
+
+    @Test
+    void segmento_rangoInvertidoSeRechazaSinLeer() {
+        assertThrows(ValidationException.class,
+                () -> resolver.abrir(new Segmento(null, null, null, HOY, HOY.minusDays(1))));
+    }
+
+    private List<String> correos(Segmento segmento) {
+        return leer(segmento, 1).stream().map(Destinatario::correo).sorted().toList();
+    }
+
+    private List<Destinatario> leer(Segmento segmento, int tamanoPagina) {
+        List<Destinatario> out = new ArrayList<>();
+        try (FuenteDestinatarios fuente = resolver.abrir(segmento, tamanoPagina, 3)) {
+            fuente.forEachRemaining(out::add);
+        }
+        return out;
+    }
+
+    private int departamento(String nombre) {
+        return jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) values (?) "
+                + "returning id_departamento", Integer.class, nombre);
+    }
+
+    private int ciudad(String nombre, int departamento) {
+        return jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values (?, ?, ?) returning id_ciudad", Integer.class, nombre, nombre.toLowerCase(), departamento);
+    }
+
+    private int rol(String nombre) {
+        return jdbc.queryForObject("insert into public.tblroles (nombre_rol) values (?) returning id_rol",
+                Integer.class, nombre);
+    }
+}
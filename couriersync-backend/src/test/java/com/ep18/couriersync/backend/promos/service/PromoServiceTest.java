@@ -0,0 +1,150 @@
+package com.ep18.couriersync.backend.promos.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.promos.campaign.CampanaQueue;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.CampanaEstado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.PromoResultado;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.ResultadoEnvio;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Segmento;
+import com.ep18.couriersync.backend.promos.mail.PromoDispatcher;
+import com.ep18.couriersync.backend.promos.segment.FuenteDestinatarios;
+import com.ep18.couriersync.backend.promos.segment.SegmentoResolver;
+import com.ep18.couriersync.backend.promos.template.PlantillaCache;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PromoServiceTest {
+
+    @InjectMocks
+    private PromoService promoService;
+
+    @Mock
+    private ObjectProvider<PromoDispatcher> dispatcherProvider;
+
+    @Mock
+    private PromoDispatcher dispatcher;
+
+    @Spy
+    private PlantillaCache plantillas = new PlantillaCache();
+
+    @Mock
+    private SegmentoResolver segmentos;
+
+    @Mock
+    private CampanaQueue campanas;
+
+    @Captor
+    private ArgumentCaptor<List<Destinatario>> destinatarios;
+
+    @BeforeEach
+    void init() {
+        MockitoAnnotations.openMocks(this);
+        when(dispatcherProvider.getIfAvailable()).thenReturn(dispatcher);
+    }
+
+    @Test
+    void sendToGroup_correoRepetidoSeEnviaUnaVez() {
+        PromoResultado esperado = new PromoResultado(true, 2, 2, 0, 5, List.of());
+        when(dispatcher.enviar(anyList(), any(PlantillaPromo.class), any(PlantillaPromo.class))).thenReturn(esperado);
+
+        PromoResultado r = promoService.sendToGroup(List.of(
+                new Destinatario(1, "ana@example.com", "Ana"),
+                new Destinatario(2, " ANA@example.com", "Ana bis"),
+                new Destinatario(3, "luis@example.com", null)), "Oferta", "<a>Oferta</a>");
+
+        assertSame(esperado, r);
+        verify(dispatcher).enviar(destinatarios.capture(), any(PlantillaPromo.class), any(PlantillaPromo.class));
+        assertEquals(List.of(1, 3), destinatarios.getValue().stream().map(Destinatario::idUsuario).toList());
+    }
+
+    @Test
+    void sendToGroup_validaEntrada() {
+        List<Destinatario> uno = List.of(new Destinatario(1, "ana@example.com", null));
+
+        assertThrows(ValidationException.class, () -> promoService.sendToGroup(uno, " ", "<p>x</p>"));
+        assertThrows(ValidationException.class, () -> promoService.sendToGroup(uno, "Oferta", null));
+        assertThrows(ValidationException.class, () -> promoService.sendToGroup(List.of(), "Oferta", "<p>x</p>"));
+        assertThrows(ValidationException.class, () -> promoService.sendToGroup(
+                List.of(new Destinatario(1, null, null)), "Oferta", "<p>x</p>"));
+        assertThrows(ValidationException.class, () -> promoService.sendToGroup(uno, "Oferta", "<p>{{apellido}}</p>"));
+        verifyNoInteractions(dispatcher);
+    }
+
+    @Test
+    void sendToGroup_sinServidorDeCorreo() {
+        when(dispatcherProvider.getIfAvailable()).thenReturn(null);
+
+        assertThrows(ConflictException.class, () -> promoService.sendToGroup(
+                List.of(new Destinatario(1, "ana@example.com", null)), "Oferta", "<p>x</p>"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendToSegment_cierraLaFuenteYReportaSoloLosPrimerosFallos() {
+        Segmento segmento = new Segmento(null, 5, 2, null, null);
+        FuenteDestinatarios fuente = mock(FuenteDestinatarios.class);
+        when(segmentos.abrir(segmento)).thenReturn(fuente);
+        when(dispatcher.enviar(same(fuente), any(PlantillaPromo.class), any(PlantillaPromo.class), any()))
+                .thenAnswer(inv -> {
+                    Consumer<ResultadoEnvio> alTerminar = inv.getArgument(3);
+                    IntStream.range(0, 150).forEach(i -> alTerminar.accept(
+                            new ResultadoEnvio(i, "u" + i + "@example.com", false, "550")));
+                    alTerminar.accept(new ResultadoEnvio(999, "ok@example.com", true, null));
+                    return new PromoResultado(false, 151, 1, 150, 10, List.of());
+                });
+
+        PromoResultado r = promoService.sendToSegment(segmento, "Oferta", "<p>Hola {{nombre}}</p>");
+
+        assertEquals(150, r.fallidos());
+        assertEquals(PromoService.MAX_FALLOS_REPORTADOS, r.resultados().size());
+        assertTrue(r.resultados().stream().noneMatch(ResultadoEnvio::enviado));
+        verify(fuente).close();
+    }
+
+    @Test
+    void sendToSegment_validaAntesDeLeer() {
+        assertThrows(ValidationException.class, () -> promoService.sendToSegment(null, "Oferta", "<p>x</p>"));
+        assertThrows(ValidationException.class, () -> promoService.sendToSegment(
+                new Segmento(null, 1, null, null, null), "Oferta", "{{telefono}}"));
+        verifyNoInteractions(segmentos, dispatcher);
+    }
+
+    @Test
+    void crearCampana_encolaSinNecesitarSmtp() {
+        when(dispatcherProvider.getIfAvailable()).thenReturn(null);
+        Segmento segmento = new Segmento(3, null, null, LocalDate.of(2025, 1, 1), null);
+        CampanaEstado creada = new CampanaEstado(7, 1200, 0, 0, 1200, false);
+        when(campanas.crear(segmento, "Oferta", "<p>Hola {{nombre}}</p>")).thenReturn(creada);
+
+        assertSame(creada, promoService.crearCampana(segmento, "Oferta", "<p>Hola {{nombre}}</p>"));
+    }
+
+    @Test
+    void crearCampana_validaAntesDeEncolar() {
+        assertThrows(ValidationException.class, () -> promoService.crearCampana(
+                new Segmento(null, null, null, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1)), "Oferta", "<p>x</p>"));
+        assertThrows(ValidationException.class, () -> promoService.crearCampana(
+                new Segmento(null, 1, null, null, null), "Oferta {{apellido}}", "<p>x</p>"));
+        assertThrows(ValidationException.class, () -> promoService.crearCampana(null, "Oferta", "<p>x</p>"));
+        verifyNoInteractions(campanas);
+
+        when(campanas.estado(99)).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> promoService.estadoCampana(99));
+    }
+}
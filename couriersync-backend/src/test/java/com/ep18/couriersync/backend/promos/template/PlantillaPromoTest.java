@@ -0,0 +1,72 @@
+package com.ep18.couriersync.backend.promos.template;
+
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.promos.dto.PromoDTOs.Destinatario;
+import com.ep18.couriersync.backend.promos.template.PlantillaPromo.Formato;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlantillaPromoTest {
+
+    private static final Destinatario ANA =
+            new Destinatario(1, "ana@example.com", "Ana & \"Co\"", "Bogotá", "Cundinamarca");
+
+    @Test
+    void render_reemplazaCamposYEscapaHtml() {
+        PlantillaPromo p = PlantillaPromo.compilar(
+                "<p>Hola {{nombre}}</p><p>{{ nombreCiudad }}, {{nombreDepartamento}} ({{correo}})</p>", Formato.HTML);
+
+        assertEquals("<p>Hola Ana &amp; &quot;Co&quot;</p><p>Bogotá, Cundinamarca (ana@example.com)</p>",
+                p.render(ANA));
+    }
+
+    @Test
+    void render_textoSinEscaparYCamposNulosVacios() {
+        PlantillaPromo p = PlantillaPromo.compilar("{{nombre}} en {{nombreCiudad}}", Formato.TEXTO);
+
+        assertEquals("Ana & \"Co\" en Bogotá", p.render(ANA));
+        assertEquals(" en ", p.render(new Destinatario(2, "x@example.com", null)));
+    }
+
+    @Test
+    void render_escribeAlFinalDelBufferDelLlamador() {
+        PlantillaPromo p = PlantillaPromo.compilar("[{{nombreCiudad}}]", Formato.HTML);
+        StringBuilder sb = new StringBuilder("a:");
+
+        p.render(ANA, sb);
+        p.render(ANA, sb);
+
+        assertEquals("a:[Bogotá][Bogotá]", sb.toString());
+    }
+
+    @Test
+    void compilar_sinCamposYLlavesSueltas() {
+        PlantillaPromo fija = PlantillaPromo.compilar("<a>Oferta</a> } {", Formato.HTML);
+        assertFalse(fija.tieneCampos());
+        assertEquals("<a>Oferta</a> } {", fija.render(ANA));
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> PlantillaPromo.compilar("Hola {{apellido}}", Formato.HTML));
+        assertTrue(e.getMessage().contains("nombreCiudad"), e.getMessage());
+        assertThrows(ValidationException.class, () -> PlantillaPromo.compilar("Hola {{nombre", Formato.HTML));
+    }
+
+    @Test
+    void cache_mismaFuenteMismaPlantilla() {
+        PlantillaCache cache = new PlantillaCache();
+
+        PlantillaPromo a = cache.obtener("<p>{{nombre}}</p>", Formato.HTML);
+        PlantillaPromo b = cache.obtener(new String("<p>{{nombre}}</p>"), Formato.HTML);
+        PlantillaPromo texto = cache.obtener("<p>{{nombre}}</p>", Formato.TEXTO);
+
+        assertSame(a, b);
+        assertNotSame(a, texto);
+        assertNotEquals(a.hash(), texto.hash());
+        assertEquals(2, cache.size());
+
+        for (int i = 0; i < PlantillaCache.MAX_PLANTILLAS; i++) cache.obtener("<p>" + i + "</p>", Formato.HTML);
+        assertEquals(PlantillaCache.MAX_PLANTILLAS, cache.size());
+        assertNotSame(a, cache.obtener("<p>{{nombre}}</p>", Formato.HTML));
+    }
+}
@@ -0,0 +1,249 @@
+package com.ep18.couriersync.backend.satisfaccion.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.AgrupacionSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.EncuestaInput;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.GrupoSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RangoFechas;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RegistroEncuestaResult;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.SatisfactionDashboard;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Encuestas contra PostgreSQL: después de cualquier mezcla de lotes (con repetidas, usuarios
+ * inexistentes y lotes concurrentes) tblsatisfaccion_diaria es exactamente el GROUP BY de las
+ * respuestas, y el tablero, que solo lee los agregados, da lo mismo que agrupar las respuestas.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SatisfaccionService.class, SatisfaccionRepository.class, ReferenceDataCatalog.class,
+        SimpleMeterRegistry.class, LocalValidatorFactoryBean.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SatisfaccionAgregadosTest {
+
+    /** Agregados recalculados desde las respuestas; deben coincidir fila a fila con la tabla */
+    private static final String DIFERENCIAS = """
+            select count(*) from (
+                (select dia, ciudad, departamento, respuestas, suma, p1, p2, p3, p4, p5
+                 from public.tblsatisfaccion_diaria
+                 except
+                 select (fecha at time zone 'UTC')::date, ciudad, departamento, count(*), sum(puntaje),
+                        count(*) filter (where puntaje = 1), count(*) filter (where puntaje = 2),
+                        count(*) filter (where puntaje = 3), count(*) filter (where puntaje = 4),
+                        count(*) filter (where puntaje = 5)
+                 from public.tblsatisfaccion_respuestas group by 1, 2, 3)
+                union all
+                (select (fecha at time zone 'UTC')::date, ciudad, departamento, count(*), sum(puntaje),
+                        count(*) filter (where puntaje = 1), count(*) filter (where puntaje = 2),
+                        count(*) filter (where puntaje = 3), count(*) filter (where puntaje = 4),
+                        count(*) filter (where puntaje = 5)
+                 from public.tblsatisfaccion_respuestas group by 1, 2, 3
+                 except
+                 select dia, ciudad, departamento, respuestas, suma, p1, p2, p3, p4, p5
+                 from public.tblsatisfaccion_diaria)
+            ) d""";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+
+    @Autowired private SatisfaccionService service;
+    @Autowired private ReferenceDataCatalog catalog;
+    @Autowired private JdbcTemplate jdbc;
+
+    private int antioquia;
+    private int cundinamarca;
+    private int medellin;
+    private int envigado;
+    private int bogota;
+    private final List<Integer> usuarios = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        antioquia = departamento("Antioquia encuestas");
+        cundinamarca = departamento("Cundinamarca encuestas");
+        medellin = ciudad("Medellín encuestas", antioquia);
+        envigado = ciudad("Envigado encuestas", antioquia);
+        bogota = ciudad("Bogotá encuestas", cundinamarca);
+        int rol = jdbc.queryForObject("insert into public.tblroles (nombre_rol) values ('Encuestas') "
+                + "returning id_rol", Integer.class);
+        int[][] lugares = {{medellin, antioquia}, {envigado, antioquia}, {bogota, cundinamarca}};
+        for (int i = 0; i < 30; i++) {
+            int[] lugar = lugares[i % lugares.length];
+            usuarios.add(jdbc.queryForObject("""
+                    insert into public.tblusuarios (nombre, nombre_busqueda, correo, telefono, fecha_registro,
+                                                    detalle_direccion, ciudad, departamento, rol)
+                    values ('Cliente', 'cliente', ?, '3000000000', current_date, 'Calle 1', ?, ?, ?)
+                    returning id_usuario""", Integer.class,
+                    "cliente" + i + "@encuestas.example.com", lugar[0], lugar[1], rol));
+        }
+        catalog.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("delete from public.tblsatisfaccion_respuestas");
+        jdbc.update("delete from public.tblsatisfaccion_diaria");
+        jdbc.update("delete from public.tblusuarios where correo like '%@encuestas.example.com'");
+        jdbc.update("delete from public.tblciudades where nombre_ciudad like '% encuestas'");
+        jdbc.update("delete from public.tbldepartamentos where nombre_departamento like '% encuestas'");
+        jdbc.update("delete from public.tblroles where nombre_rol = 'Encuestas'");
+    }
+
+    @Test
+    void lotesMezcladosDejanLosAgregadosIgualQueLasRespuestas() {
+        Random random = new Random(42);
+        OffsetDateTime inicio = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        int registradas = 0;
+        int repetidas = 0;
+        for (int lote = 0; lote < 8; lote++) {
+            List<EncuestaInput> entradas = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                int usuario = random.nextInt(20) == 0 ? -1 : usuarios.get(random.nextInt(usuarios.size()));
+                // Entregas de un rango pequeño: hay respuestas repetidas entre lotes y dentro de uno
+                Integer entrega = random.nextBoolean() ? null : random.nextInt(40);
+                entradas.add(new EncuestaInput(usuario, entrega, 1 + random.nextInt(5), null,
+                        inicio.plusMinutes(random.nextInt(60 * 24 * 90))));
+            }
+            List<RegistroEncuestaResult> results = service.registrarTodas(entradas);
+            registradas += (int) results.stream().filter(r -> r.respuesta() != null).count();
+            repetidas += (int) results.stream()
+                    .filter(r -> r.error() != null && r.error().code().equals("CONFLICT")).count();
+        }
+        assertTrue(repetidas > 0);
+
+        assertEquals(registradas, jdbc.queryForObject("select count(*) from public.tblsatisfaccion_respuestas",
+                Integer.class));
+        assertEquals(0, jdbc.queryForObject(DIFERENCIAS, Integer.class));
+
+        // Tablero por semana y ciudad frente al GROUP BY de las respuestas
+        RangoFechas rango = new RangoFechas(LocalDate.of(2026, 1, 10), LocalDate.of(2026, 3, 20));
+        SatisfactionDashboard d = service.dashboard(rango,
+                List.of(AgrupacionSatisfaccion.SEMANA, AgrupacionSatisfaccion.CIUDAD), null, null);
+        List<Map<String, Object>> esperado = jdbc.queryForList("""
+                select date_trunc('week', (fecha at time zone 'UTC')::date)::date as semana, departamento,
+                       ciudad, count(*) as respuestas, avg(puntaje)::float8 as promedio
+                from public.tblsatisfaccion_respuestas
+                where (fecha at time zone 'UTC')::date between ? and ?
+                group by 1, 2, 3 order by 1, 2, 3""", rango.desde(), rango.hasta());
+        assertEquals(esperado.size(), d.grupos().size());
+        for (int i = 0; i < esperado.size(); i++) {
+            GrupoSatisfaccion g = d.grupos().get(i);
+            assertEquals(((Date) esperado.get(i).get("semana")).toLocalDate(), g.periodo());
+            assertEquals(esperado.get(i).get("ciudad"), g.idCiudad());
+            assertEquals(((Number) esperado.get(i).get("respuestas")).longValue(), g.respuestas());
+            assertEquals((Double) esperado.get(i).get("promedio"), g.promedio(), 1e-9);
+            assertNotNull(g.nombreCiudad());
+        }
+        assertEquals(d.grupos().stream().mapToLong(GrupoSatisfaccion::respuestas).sum(), d.total().respuestas());
+    }
+
+    @Test
+    void unaEntregaSeCalificaUnaVezYElDiaEsUtc() {
+        int cliente = usuarios.get(0);
+        // 23:30 en Bogotá del 1 de marzo ya es 2 de marzo en UTC
+        OffsetDateTime noche = OffsetDateTime.of(2026, 3, 1, 23, 30, 0, 0, ZoneOffset.ofHours(-5));
+        service.registrar(new EncuestaInput(cliente, 500, 5, "Puntual", noche));
+        assertThrows(ConflictException.class,
+                () -> service.registrar(new EncuestaInput(cliente, 500, 1, "Otra vez", noche)));
+        service.registrar(new EncuestaInput(cliente, null, 3, null, noche));
+        service.registrar(new EncuestaInput(cliente, null, 4, null, noche));
+        assertThrows(NotFoundException.class, () -> service.registrar(new EncuestaInput(-1, null, 4, null, noche)));
+
+        SatisfactionDashboard d = service.dashboard(new RangoFechas(LocalDate.of(2026, 3, 1),
+                LocalDate.of(2026, 3, 2)), List.of(AgrupacionSatisfaccion.DIA), null, null);
+        assertEquals(1, d.grupos().size());
+        assertEquals(LocalDate.of(2026, 3, 2), d.grupos().get(0).periodo());
+        assertEquals(3, d.total().respuestas());
+        assertEquals(4.0, d.total().promedio());
+        assertEquals(List.of(0L, 0L, 1L, 1L, 1L), d.total().histograma());
+        assertEquals(0, jdbc.queryForObject(DIFERENCIAS, Integer.class));
+    }
+
+    @Test
+    void lasRespuestasQuedanDondeEstabaElCliente() {
+        int cliente = usuarios.get(0);
+        OffsetDateTime fecha = OffsetDateTime.of(2026, 4, 6, 12, 0, 0, 0, ZoneOffset.UTC);
+        service.registrar(new EncuestaInput(cliente, null, 2, null, fecha));
+        jdbc.update("update public.tblusuarios set ciudad = ?, departamento = ? where id_usuario = ?",
+                bogota, cundinamarca, cliente);
+        service.registrar(new EncuestaInput(cliente, null, 5, null, fecha.plusHours(1)));
+
+        RangoFechas abril = new RangoFechas(LocalDate.of(2026, 4, 1), LocalDate.of(2026, 4, 30));
+        SatisfactionDashboard porDepartamento = service.dashboard(abril,
+                List.of(AgrupacionSatisfaccion.DEPARTAMENTO), null, null);
+        assertEquals(List.of("Antioquia encuestas", "Cundinamarca encuestas"),
+                porDepartamento.grupos().stream().map(GrupoSatisfaccion::nombreDepartamento).sorted().toList());
+
+        SatisfactionDashboard deMedellin = service.dashboard(abril, List.of(AgrupacionSatisfaccion.MES), null, medellin);
+        assertEquals(1, deMedellin.total().respuestas());
+        assertEquals(2.0, deMedellin.total().promedio());
+        assertEquals(LocalDate.of(2026, 4, 1), deMedellin.grupos().get(0).periodo());
+    }
+
+    @Test
+    void lotesConcurrentesNoPierdenSumas() {
+        OffsetDateTime fecha = OffsetDateTime.of(2026, 5, 4, 12, 0, 0, 0, ZoneOffset.UTC);
+        // Cuatro escritores sobre las mismas filas de agregados (mismo día, tres ciudades)
+        List<CompletableFuture<Void>> escritores = IntStream.range(0, 4).mapToObj(w ->
+                CompletableFuture.runAsync(() -> {
+                    Random random = new Random(w);
+                    for (int lote = 0; lote < 10; lote++) {
+                        List<EncuestaInput> entradas = new ArrayList<>();
+                        for (int i = 0; i < 100; i++) {
+                            entradas.add(new EncuestaInput(usuarios.get(random.nextInt(usuarios.size())), null,
+                                    1 + random.nextInt(5), null, fecha.plusSeconds(random.nextInt(3600))));
+                        }
+                        service.registrarTodas(entradas);
+                    }
+                })).toList();
+        escritores.forEach(CompletableFuture::join);
+
+        assertEquals(4000, jdbc.queryForObject("select sum(respuestas) from public.tblsatisfaccion_diaria",
+                Integer.class));
+        assertEquals(0, jdbc.queryForObject(DIFERENCIAS, Integer.class));
+    }
+
+    private int departamento(String nombre) {
+        return jdbc.queryForObject("insert into public.tbldepartamentos (nombre_departamento) values (?) "
+                + "returning id_departamento", Integer.class, nombre);
+    }
+
+    private int ciudad(String nombre, int departamento) {
+        return jdbc.queryForObject("insert into public.tblciudades (nombre_ciudad, nombre_busqueda, departamento) "
+                + "values (?, ?, ?) returning id_ciudad", Integer.class, nombre, nombre.toLowerCase(), departamento);
+    }
+}
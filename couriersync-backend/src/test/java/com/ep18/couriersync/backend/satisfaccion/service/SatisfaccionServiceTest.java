@@ -0,0 +1,173 @@
+package com.ep18.couriersync.backend.satisfaccion.service;
+
+import com.ep18.couriersync.backend.common.exception.ConflictException;
+import com.ep18.couriersync.backend.common.exception.NotFoundException;
+import com.ep18.couriersync.backend.common.exception.ValidationException;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.CiudadRef;
+import com.ep18.couriersync.backend.customers.catalog.CatalogRefs.DepartamentoRef;
+import com.ep18.couriersync.backend.customers.catalog.ReferenceDataCatalog;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.AgrupacionSatisfaccion;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.EncuestaInput;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RangoFechas;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RegistroEncuestaResult;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.RespuestaView;
+import com.ep18.couriersync.backend.satisfaccion.dto.SatisfaccionDTOs.SatisfactionDashboard;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository.Agregado;
+import com.ep18.couriersync.backend.satisfaccion.repository.SatisfaccionRepository.Registro;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SatisfaccionServiceTest {
+
+    private SatisfaccionService service;
+
+    @Mock private SatisfaccionRepository repo;
+    @Mock private ReferenceDataCatalog catalog;
+
+    private final OffsetDateTime fecha = OffsetDateTime.of(2026, 3, 2, 15, 0, 0, 0, ZoneOffset.UTC);
+    private final RangoFechas marzo = new RangoFechas(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new SatisfaccionService(repo, catalog, Validation.buildDefaultValidatorFactory().getValidator());
+
+        when(catalog.ciudad(1)).thenReturn(Optional.of(new CiudadRef(1, "Medellín", 10)));
+        when(catalog.departamento(10)).thenReturn(Optional.of(new DepartamentoRef(10, "Antioquia")));
+        when(catalog.departamento(20)).thenReturn(Optional.of(new DepartamentoRef(20, "Cundinamarca")));
+        when(catalog.departamentos(anyCollection())).thenReturn(Map.of(
+                10, new DepartamentoRef(10, "Antioquia"), 20, new DepartamentoRef(20, "Cundinamarca")));
+        when(catalog.ciudades(anyCollection())).thenReturn(Map.of(1, new CiudadRef(1, "Medellín", 10)));
+    }
+
+    @Test
+    void registrar_usuarioInexistenteYEntregaYaCalificada() {
+        EncuestaInput in = new EncuestaInput(7, 70, 4, null, fecha);
+        when(repo.registrar(List.of(in))).thenReturn(List.of(new Registro(0, false, null)));
+        assertThrows(NotFoundException.class, () -> service.registrar(in));
+
+        when(repo.registrar(List.of(in))).thenReturn(List.of(new Registro(0, true, null)));
+        assertThrows(ConflictException.class, () -> service.registrar(in));
+
+        RespuestaView ok = new RespuestaView(1L, 7, 70, 4, fecha, 1, 10);
+        when(repo.registrar(List.of(in))).thenReturn(List.of(new Registro(0, true, ok)));
+        assertEquals(ok, service.registrar(in));
+    }
+
+    @Test
+    void registrar_rechazaFechasFuturas() {
+        EncuestaInput futura = new EncuestaInput(7, null, 4, null, OffsetDateTime.now().plusDays(1));
+        assertThrows(ValidationException.class, () -> service.registrar(futura));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void registrarTodas_erroresPorElementoSinAbortarElLote() {
+        EncuestaInput ana = new EncuestaInput(1, 11, 5, "Muy bien", fecha);
+        EncuestaInput fueraDeEscala = new EncuestaInput(2, 12, 6, null, fecha);
+        EncuestaInput inexistente = new EncuestaInput(3, 13, 3, null, fecha);
+        EncuestaInput repetida = new EncuestaInput(1, 11, 2, null, fecha);
+        EncuestaInput sinEntrega = new EncuestaInput(4, null, 1, null, null);
+        RespuestaView r1 = new RespuestaView(100L, 1, 11, 5, fecha, 1, 10);
+        RespuestaView r2 = new RespuestaView(101L, 4, null, 1, fecha, 1, 10);
+        // Al repositorio solo llegan las válidas; sus índices son los de esa sublista
+        when(repo.registrar(List.of(ana, inexistente, repetida, sinEntrega))).thenReturn(List.of(
+                new Registro(0, true, r1), new Registro(1, false, null),
+                new Registro(2, true, null), new Registro(3, true, r2)));
+
+        List<RegistroEncuestaResult> results = service.registrarTodas(
+                List.of(ana, fueraDeEscala, inexistente, repetida, sinEntrega));
+
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) assertEquals(i, results.get(i).index());
+        assertEquals(r1, results.get(0).respuesta());
+        assertEquals("VALIDATION_ERROR", results.get(1).error().code());
+        assertEquals("NOT_FOUND", results.get(2).error().code());
+        assertEquals("CONFLICT", results.get(3).error().code());
+        assertEquals(r2, results.get(4).respuesta());
+    }
+
+    @Test
+    void registrarTodas_limiteDelLote() {
+        List<EncuestaInput> muchas = Collections.nCopies(SatisfaccionService.MAX_BATCH + 1,
+                new EncuestaInput(1, null, 5, null, null));
+        assertThrows(ValidationException.class, () -> service.registrarTodas(muchas));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void dashboard_calculaPromedioSatisfechosYTotalDesdeLosAgregados() {
+        when(repo.agregados(eq(marzo.desde()), eq(marzo.hasta()), eq(EnumSet.of(AgrupacionSatisfaccion.DEPARTAMENTO)),
+                isNull(), isNull())).thenReturn(List.of(
+                new Agregado(null, 10, null, 4, 14, List.of(0L, 1L, 0L, 2L, 1L)),
+                new Agregado(null, 20, null, 2, 3, List.of(1L, 1L, 0L, 0L, 0L))));
+
+        SatisfactionDashboard d = service.dashboard(marzo, List.of(AgrupacionSatisfaccion.DEPARTAMENTO), null, null);
+
+        assertEquals(2, d.grupos().size());
+        assertEquals("Antioquia", d.grupos().get(0).nombreDepartamento());
+        assertEquals(3.5, d.grupos().get(0).promedio());
+        assertEquals(0.75, d.grupos().get(0).satisfechos());
+        assertEquals(1.5, d.grupos().get(1).promedio());
+        assertEquals(0.0, d.grupos().get(1).satisfechos());
+
+        assertEquals(6, d.total().respuestas());
+        assertEquals(17.0 / 6, d.total().promedio(), 1e-9);
+        assertEquals(0.5, d.total().satisfechos());
+        assertEquals(List.of(1L, 2L, 0L, 2L, 1L), d.total().histograma());
+        assertNull(d.total().idDepartamento());
+    }
+
+    @Test
+    void dashboard_sinRespuestasNoTieneGruposNiPromedio() {
+        when(repo.agregados(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(new Agregado(null, null, null, 0, 0, List.of(0L, 0L, 0L, 0L, 0L))));
+
+        SatisfactionDashboard d = service.dashboard(marzo, List.of(), null, null);
+
+        assertTrue(d.grupos().isEmpty());
+        assertEquals(0, d.total().respuestas());
+        assertNull(d.total().promedio());
+        assertNull(d.total().satisfechos());
+    }
+
+    @Test
+    void dashboard_filtroPorCiudadAcotaTambienSuDepartamento() {
+        when(repo.agregados(any(), any(), any(), any(), any())).thenReturn(List.of());
+
+        service.dashboard(marzo, List.of(AgrupacionSatisfaccion.MES), null, 1);
+
+        verify(repo).agregados(marzo.desde(), marzo.hasta(), EnumSet.of(AgrupacionSatisfaccion.MES), 10, 1);
+    }
+
+    @Test
+    void dashboard_validaRangoAgrupacionYFiltros() {
+        List<AgrupacionSatisfaccion> porDia = List.of(AgrupacionSatisfaccion.DIA);
+        assertThrows(ValidationException.class, () -> service.dashboard(
+                new RangoFechas(marzo.hasta(), marzo.desde()), porDia, null, null));
+        assertThrows(ValidationException.class, () -> service.dashboard(
+                new RangoFechas(LocalDate.of(2024, 1, 1), LocalDate.of(2026, 1, 1)), porDia, null, null));
+        assertThrows(ValidationException.class, () -> service.dashboard(
+                marzo, List.of(AgrupacionSatisfaccion.DIA, AgrupacionSatisfaccion.MES), null, null));
+        assertThrows(NotFoundException.class, () -> service.dashboard(marzo, porDia, 99, null));
+        assertThrows(NotFoundException.class, () -> service.dashboard(marzo, porDia, null, 99));
+        assertThrows(ValidationException.class, () -> service.dashboard(marzo, porDia, 20, 1));
+        verifyNoInteractions(repo);
+    }
+}